@@ -0,0 +1,376 @@
+/*
+ * Copyright (c) 2009 Stephan Schloepke and innoQ Deutschland GmbH
+ * 
+ * Stephan Schloepke: http://www.schloepke.de/
+ * innoQ Deutschland GmbH: http://www.innoq.com/
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.jbasics.codec;
+
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.util.Arrays;
+
+import org.jbasics.arrays.ArrayConstants;
+import org.jbasics.checker.ContractCheck;
+import org.jbasics.pattern.coder.CodecSink;
+import org.jbasics.pattern.coder.StreamCodec;
+import org.jbasics.text.StringUtilities;
+
+/**
+ * Common table driven implementation of the RFC3548 base N codecs. A block of input bytes is encoded into a block of
+ * characters each representing a fixed number of bits. The characters are taken from an alphabet and decoded through
+ * a lookup table instead of searching the alphabet.
+ * <p>
+ * Besides coding complete arrays the codec can code from a {@link ByteBuffer} into a {@link CharBuffer} and back in the
+ * style of a {@link java.nio.charset.CharsetEncoder}. Only complete blocks are consumed unless the end of the input is
+ * signaled so the remaining input needs to be kept (for instance by {@link ByteBuffer#compact()}) and handed in again
+ * with more data. On top of that {@link RFC3548EncodingOutputStream} and {@link RFC3548DecodingInputStream} allow to
+ * code data of any size with a fixed amount of memory. As a {@link StreamCodec} the codec can be part of fused
+ * encoder and decoder chains.
+ * </p>
+ *
+ * @author Stephan Schloepke
+ * @since 1.0
+ */
+public abstract class AbstractRFC3548Codec implements StreamCodec<byte[], CharSequence> {
+	public static final char PADDING_CHARACTER = '=';
+	private static final byte INVALID = -1;
+	private static final byte PADDING = -2;
+	private static final int SINK_BLOCKS = 1024;
+
+	private final char[] alphabet;
+	private final byte[] decodeTable;
+	private final int inputBlockSize;
+	private final int outputBlockSize;
+	private final int bitsPerCharacter;
+	private final boolean caseInsensitive;
+	private final boolean padded;
+	private final boolean fillWithoutPadding;
+
+	protected AbstractRFC3548Codec(final String alphabet, final boolean caseInsensitive, final int inputBlockSize, final boolean padded,
+			final boolean fillWithoutPadding) {
+		this.alphabet = ContractCheck.mustNotBeNullOrEmpty(alphabet, "alphabet").toCharArray(); //$NON-NLS-1$
+		this.inputBlockSize = inputBlockSize;
+		this.outputBlockSize = inputBlockSize * 8 / (31 - Integer.numberOfLeadingZeros(this.alphabet.length));
+		this.bitsPerCharacter = inputBlockSize * 8 / this.outputBlockSize;
+		this.caseInsensitive = caseInsensitive;
+		this.padded = padded;
+		this.fillWithoutPadding = fillWithoutPadding;
+		this.decodeTable = new byte[128];
+		Arrays.fill(this.decodeTable, AbstractRFC3548Codec.INVALID);
+		for (int i = 0; i < this.alphabet.length; i++) {
+			final char c = this.alphabet[i];
+			this.decodeTable[c] = (byte) i;
+			if (caseInsensitive) {
+				this.decodeTable[Character.toLowerCase(c)] = (byte) i;
+				this.decodeTable[Character.toUpperCase(c)] = (byte) i;
+			}
+		}
+		if (padded) {
+			this.decodeTable[AbstractRFC3548Codec.PADDING_CHARACTER] = AbstractRFC3548Codec.PADDING;
+		}
+	}
+
+	public int getInputBlockSize() {
+		return this.inputBlockSize;
+	}
+
+	public int getOutputBlockSize() {
+		return this.outputBlockSize;
+	}
+
+	/**
+	 * Returns the number of characters the given number of bytes is encoded to.
+	 *
+	 * @param inputLength The number of bytes
+	 * @return The number of characters
+	 */
+	public int getEncodedLength(final int inputLength) {
+		final int lastBlockSize = inputLength % this.inputBlockSize;
+		final int fullBlocksLength = inputLength / this.inputBlockSize * this.outputBlockSize;
+		if (lastBlockSize == 0) {
+			return fullBlocksLength;
+		} else if (this.padded) {
+			return fullBlocksLength + this.outputBlockSize;
+		} else {
+			return fullBlocksLength + (lastBlockSize * 8 + this.bitsPerCharacter - 1) / this.bitsPerCharacter;
+		}
+	}
+
+	public CharSequence encode(final byte[] input) {
+		if (input == null || input.length == 0) {
+			return StringUtilities.EMPTY_STRING;
+		}
+		final CharBuffer out = CharBuffer.allocate(getEncodedLength(input.length));
+		encode(ByteBuffer.wrap(input), out, true);
+		return wrapEncoded(out.array());
+	}
+
+	public byte[] decode(final CharSequence input) {
+		if (input == null || input.length() == 0) {
+			return ArrayConstants.ZERO_LENGTH_BYTE_ARRAY;
+		}
+		final ByteBuffer out = ByteBuffer.allocate(input.length() / this.outputBlockSize * this.inputBlockSize);
+		decode(CharBuffer.wrap(input), out, true);
+		return out.position() == out.capacity() ? out.array() : Arrays.copyOf(out.array(), out.position());
+	}
+
+	/**
+	 * Encodes the bytes of the input buffer into the output buffer. All complete blocks are encoded as long as the output
+	 * has room for them. The last incomplete block is only encoded if endOfInput is true, otherwise it remains in the
+	 * input buffer.
+	 *
+	 * @param in The bytes to encode
+	 * @param out The buffer to write the characters to
+	 * @param endOfInput True if no more input follows
+	 * @return True if all input which could be encoded was encoded or false if the output is full
+	 */
+	public boolean encode(final ByteBuffer in, final CharBuffer out, final boolean endOfInput) {
+		while (in.remaining() >= this.inputBlockSize) {
+			if (out.remaining() < this.outputBlockSize) {
+				return false;
+			}
+			long block = 0L;
+			for (int i = this.inputBlockSize; i > 0; i--) {
+				block = block << 8 | in.get() & 0xff;
+			}
+			for (int shift = this.bitsPerCharacter * (this.outputBlockSize - 1); shift >= 0; shift -= this.bitsPerCharacter) {
+				out.put(this.alphabet[(int) (block >>> shift) & this.alphabet.length - 1]);
+			}
+		}
+		final int lastBlockSize = in.remaining();
+		if (endOfInput && lastBlockSize > 0) {
+			final int dataCharacters = this.padded && !this.fillWithoutPadding ? (lastBlockSize * 8 + this.bitsPerCharacter - 1)
+					/ this.bitsPerCharacter : this.outputBlockSize;
+			if (out.remaining() < (this.padded ? this.outputBlockSize : dataCharacters)) {
+				return false;
+			}
+			long block = 0L;
+			for (int i = 0; i < this.inputBlockSize; i++) {
+				block = block << 8 | (i < lastBlockSize ? in.get() & 0xff : 0);
+			}
+			int shift = this.bitsPerCharacter * (this.outputBlockSize - 1);
+			for (int i = 0; i < this.outputBlockSize; i++, shift -= this.bitsPerCharacter) {
+				if (i < dataCharacters) {
+					out.put(this.alphabet[(int) (block >>> shift) & this.alphabet.length - 1]);
+				} else if (this.padded) {
+					out.put(AbstractRFC3548Codec.PADDING_CHARACTER);
+				}
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Decodes the characters of the input buffer into the output buffer. Characters not part of the alphabet (like line
+	 * breaks or white spaces) are skipped. All complete blocks are decoded as long as the output has room for them. An
+	 * incomplete block remains in the input buffer unless endOfInput is true in which case it is discarded.
+	 *
+	 * @param in The characters to decode
+	 * @param out The buffer to write the bytes to
+	 * @param endOfInput True if no more input follows
+	 * @return True if all input which could be decoded was decoded or false if the output is full
+	 */
+	public boolean decode(final CharBuffer in, final ByteBuffer out, final boolean endOfInput) {
+		while (in.hasRemaining()) {
+			final int blockStart = in.position();
+			long block = 0L;
+			int count = 0;
+			int padding = 0;
+			while (count < this.outputBlockSize && in.hasRemaining()) {
+				final int value = decodeCharacter(in.get());
+				if (value == AbstractRFC3548Codec.PADDING) {
+					padding++;
+					block <<= this.bitsPerCharacter;
+					count++;
+				} else if (value >= 0) {
+					block = block << this.bitsPerCharacter | value;
+					count++;
+				}
+			}
+			if (count < this.outputBlockSize) {
+				// Incomplete block, either wait for more or discard if nothing more will follow
+				if (!endOfInput) {
+					in.position(blockStart);
+				}
+				return true;
+			}
+			final int length = padding == 0 ? this.inputBlockSize : Math.max(1, (this.outputBlockSize - padding) * this.bitsPerCharacter / 8);
+			if (out.remaining() < length) {
+				in.position(blockStart);
+				return false;
+			}
+			for (int shift = (this.inputBlockSize - 1) * 8, i = 0; i < length; i++, shift -= 8) {
+				out.put((byte) (block >>> shift));
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Creates an {@link OutputStream} encoding all bytes written to it and writing the characters to the given writer.
+	 * The stream needs to be closed in order to write the last block.
+	 *
+	 * @param out The writer to write the encoded characters to
+	 * @return The encoding stream
+	 */
+	public OutputStream newEncodingStream(final Writer out) {
+		return new RFC3548EncodingOutputStream(this, out);
+	}
+
+	/**
+	 * Creates an {@link InputStream} reading the characters from the given source and returning the decoded bytes.
+	 *
+	 * @param in The source of the encoded characters
+	 * @return The decoding stream
+	 */
+	public InputStream newDecodingStream(final Readable in) {
+		return new RFC3548DecodingInputStream(this, in);
+	}
+
+	@Override
+	public CodecSink<byte[]> openEncoder(final CodecSink<? super CharSequence> target) {
+		return new EncodingSink(ContractCheck.mustNotBeNull(target, "target")); //$NON-NLS-1$
+	}
+
+	@Override
+	public CodecSink<CharSequence> openDecoder(final CodecSink<? super byte[]> target) {
+		return new DecodingSink(ContractCheck.mustNotBeNull(target, "target")); //$NON-NLS-1$
+	}
+
+	protected CharSequence wrapEncoded(final char[] encoded) {
+		return new String(encoded);
+	}
+
+	private int decodeCharacter(final char c) {
+		if (c < 128) {
+			return this.decodeTable[c];
+		}
+		if (this.caseInsensitive) {
+			// Some none ASCII characters have an ASCII upper case character (like the dotless i)
+			final char upper = Character.toUpperCase(c);
+			if (upper < 128) {
+				return this.decodeTable[upper];
+			}
+		}
+		return AbstractRFC3548Codec.INVALID;
+	}
+
+	private final class EncodingSink implements CodecSink<byte[]> {
+		private final CodecSink<? super CharSequence> target;
+		private final ByteBuffer pending;
+		private final CharBuffer out;
+
+		EncodingSink(final CodecSink<? super CharSequence> target) {
+			this.target = target;
+			this.pending = ByteBuffer.allocate(AbstractRFC3548Codec.this.inputBlockSize * AbstractRFC3548Codec.SINK_BLOCKS);
+			this.out = CharBuffer.allocate(AbstractRFC3548Codec.this.outputBlockSize * AbstractRFC3548Codec.SINK_BLOCKS);
+		}
+
+		@Override
+		public void write(final byte[] chunk) {
+			int offset = 0;
+			while (offset < chunk.length) {
+				final int count = Math.min(this.pending.remaining(), chunk.length - offset);
+				this.pending.put(chunk, offset, count);
+				offset += count;
+				this.pending.flip();
+				while (!encode(this.pending, this.out, false)) {
+					emit();
+				}
+				this.pending.compact();
+			}
+		}
+
+		@Override
+		public void close() {
+			this.pending.flip();
+			while (!encode(this.pending, this.out, true)) {
+				emit();
+			}
+			emit();
+			this.target.close();
+		}
+
+		private void emit() {
+			this.out.flip();
+			this.target.write(this.out.toString());
+			this.out.clear();
+		}
+	}
+
+	private final class DecodingSink implements CodecSink<CharSequence> {
+		private final CodecSink<? super byte[]> target;
+		private final ByteBuffer out;
+		private CharBuffer pending;
+
+		DecodingSink(final CodecSink<? super byte[]> target) {
+			this.target = target;
+			this.pending = CharBuffer.allocate(AbstractRFC3548Codec.this.outputBlockSize * AbstractRFC3548Codec.SINK_BLOCKS);
+			this.out = ByteBuffer.allocate(AbstractRFC3548Codec.this.inputBlockSize * AbstractRFC3548Codec.SINK_BLOCKS);
+		}
+
+		@Override
+		public void write(final CharSequence chunk) {
+			final int length = chunk.length();
+			int offset = 0;
+			while (offset < length) {
+				if (!this.pending.hasRemaining()) {
+					// only an incomplete block with lots of skipped characters can fill the whole buffer
+					final CharBuffer temp = CharBuffer.allocate(this.pending.capacity() * 2);
+					this.pending.flip();
+					temp.put(this.pending);
+					this.pending = temp;
+				}
+				final int count = Math.min(this.pending.remaining(), length - offset);
+				this.pending.append(chunk, offset, offset + count);
+				offset += count;
+				this.pending.flip();
+				while (!decode(this.pending, this.out, false)) {
+					emit();
+				}
+				this.pending.compact();
+			}
+		}
+
+		@Override
+		public void close() {
+			this.pending.flip();
+			while (!decode(this.pending, this.out, true)) {
+				emit();
+			}
+			emit();
+			this.target.close();
+		}
+
+		private void emit() {
+			this.out.flip();
+			final byte[] result = new byte[this.out.remaining()];
+			this.out.get(result);
+			this.target.write(result);
+			this.out.clear();
+		}
+	}
+
+}
@@ -28,18 +28,20 @@ import org.jbasics.annotation.ImmutableState;
 import org.jbasics.annotation.ThreadSafe;
 import org.jbasics.checker.ContractCheck;
 import org.jbasics.checker.ContractViolationException;
-import org.jbasics.pattern.coder.Encoder;
+import org.jbasics.pattern.coder.CodecSink;
+import org.jbasics.pattern.coder.StreamEncoder;
 
 /**
  * An encoder to encode the input in chunks with a separator.
  * The encoder takes the input and builds blocks of data separated by the given separator.
+ * As a {@link StreamEncoder} the chunks are counted across all written pieces of input.
  * 
  * @author Stephan Schloepke
  * @since 1.0
  */
 @ThreadSafe
 @ImmutableState
-public class ChunkedEncoder implements Encoder<CharSequence, CharSequence> {
+public class ChunkedEncoder implements StreamEncoder<CharSequence, CharSequence> {
 	private final int chunkSize;
 	private final String separator;
 
@@ -78,4 +80,43 @@ public class ChunkedEncoder implements Encoder<CharSequence, CharSequence> {
 		return temp;
 	}
 
+	@Override
+	public CodecSink<CharSequence> openEncoder(final CodecSink<? super CharSequence> target) {
+		ContractCheck.mustNotBeNull(target, "target"); //$NON-NLS-1$
+		return new CodecSink<CharSequence>() {
+			private final StringBuilder buffer = new StringBuilder(CodecStreams.DEFAULT_CHUNK_SIZE);
+			private long position;
+
+			@Override
+			public void write(final CharSequence chunk) {
+				final int length = chunk.length();
+				int offset = 0;
+				while (offset < length) {
+					final int inChunk = (int) (this.position % ChunkedEncoder.this.chunkSize);
+					if (inChunk == 0 && this.position > 0) {
+						this.buffer.append(ChunkedEncoder.this.separator);
+					}
+					final int count = Math.min(length - offset, ChunkedEncoder.this.chunkSize - inChunk);
+					this.buffer.append(chunk, offset, offset + count);
+					offset += count;
+					this.position += count;
+					if (this.buffer.length() >= CodecStreams.DEFAULT_CHUNK_SIZE) {
+						emit();
+					}
+				}
+			}
+
+			@Override
+			public void close() {
+				emit();
+				target.close();
+			}
+
+			private void emit() {
+				target.write(this.buffer.toString());
+				this.buffer.setLength(0);
+			}
+		};
+	}
+
 }
@@ -0,0 +1,174 @@
+/*
+ * Copyright (c) 2009 Stephan Schloepke and innoQ Deutschland GmbH
+ * 
+ * Stephan Schloepke: http://www.schloepke.de/
+ * innoQ Deutschland GmbH: http://www.innoq.com/
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.jbasics.codec;
+
+import java.util.Arrays;
+
+import org.jbasics.checker.ContractCheck;
+import org.jbasics.pattern.coder.CodecSink;
+import org.jbasics.pattern.coder.Decoder;
+import org.jbasics.pattern.coder.Encoder;
+import org.jbasics.pattern.coder.StreamDecoder;
+import org.jbasics.pattern.coder.StreamEncoder;
+
+/**
+ * Helpers to run {@link StreamEncoder}s and {@link StreamDecoder}s and to adapt plain {@link Encoder}s and
+ * {@link Decoder}s so they can take part in a streaming chain.
+ * <p>
+ * An adapted coder needs to collect all its input before it can code it in one go. Within a chain of streaming coders
+ * only the adapted stage holds its complete input and output while all streaming stages work on bounded chunks.
+ * </p>
+ *
+ * @author Stephan Schloepke
+ * @since 1.0
+ */
+public final class CodecStreams {
+	/**
+	 * The maximum size of the chunks an input value is split into when fed into a {@link CodecSink}.
+	 */
+	public static final int DEFAULT_CHUNK_SIZE = 8192;
+
+	private CodecStreams() {
+		// no instances
+	}
+
+	/**
+	 * Encodes the input by feeding it into the streaming encoder in chunks and collecting the result.
+	 *
+	 * @param encoder The encoder to use (must not be null)
+	 * @param input The input to encode
+	 * @return The encoded result
+	 */
+	public static <T, TEnc> TEnc encode(final StreamEncoder<T, TEnc> encoder, final T input) {
+		final CollectingCodecSink<TEnc> result = new CollectingCodecSink<TEnc>();
+		CodecStreams.feed(input, ContractCheck.mustNotBeNull(encoder, "encoder").openEncoder(result)); //$NON-NLS-1$
+		return result.getResult();
+	}
+
+	/**
+	 * Decodes the input by feeding it into the streaming decoder in chunks and collecting the result.
+	 *
+	 * @param decoder The decoder to use (must not be null)
+	 * @param input The input to decode
+	 * @return The decoded result
+	 */
+	public static <T, TEnc> T decode(final StreamDecoder<T, TEnc> decoder, final TEnc input) {
+		final CollectingCodecSink<T> result = new CollectingCodecSink<T>();
+		CodecStreams.feed(input, ContractCheck.mustNotBeNull(decoder, "decoder").openDecoder(result)); //$NON-NLS-1$
+		return result.getResult();
+	}
+
+	/**
+	 * Writes the value to the sink and closes it. Byte arrays and character sequences are split into chunks of at most
+	 * {@link #DEFAULT_CHUNK_SIZE} while any other value is written as is.
+	 *
+	 * @param input The value to write (if null only the sink is closed)
+	 * @param sink The sink to write to (must not be null)
+	 */
+	@SuppressWarnings("unchecked")
+	public static <T> void feed(final T input, final CodecSink<? super T> sink) {
+		ContractCheck.mustNotBeNull(sink, "sink"); //$NON-NLS-1$
+		if (input instanceof byte[] && ((byte[]) input).length > CodecStreams.DEFAULT_CHUNK_SIZE) {
+			final byte[] data = (byte[]) input;
+			for (int i = 0; i < data.length; i += CodecStreams.DEFAULT_CHUNK_SIZE) {
+				sink.write((T) Arrays.copyOfRange(data, i, Math.min(data.length, i + CodecStreams.DEFAULT_CHUNK_SIZE)));
+			}
+		} else if (input instanceof CharSequence && ((CharSequence) input).length() > CodecStreams.DEFAULT_CHUNK_SIZE) {
+			final CharSequence data = (CharSequence) input;
+			final int length = data.length();
+			for (int i = 0; i < length; i += CodecStreams.DEFAULT_CHUNK_SIZE) {
+				sink.write((T) data.subSequence(i, Math.min(length, i + CodecStreams.DEFAULT_CHUNK_SIZE)).toString());
+			}
+		} else if (input != null) {
+			sink.write(input);
+		}
+		sink.close();
+	}
+
+	/**
+	 * Returns the encoder as {@link StreamEncoder}. If the encoder is not streaming by itself it is wrapped so that it
+	 * collects all input and encodes it when the sink is closed.
+	 *
+	 * @param encoder The encoder (must not be null)
+	 * @return The streaming encoder
+	 */
+	@SuppressWarnings("unchecked")
+	public static <T, TEnc> StreamEncoder<T, TEnc> streamEncoder(final Encoder<T, TEnc> encoder) {
+		if (ContractCheck.mustNotBeNull(encoder, "encoder") instanceof StreamEncoder) { //$NON-NLS-1$
+			return (StreamEncoder<T, TEnc>) encoder;
+		}
+		return new StreamEncoder<T, TEnc>() {
+			@Override
+			public TEnc encode(final T input) {
+				return encoder.encode(input);
+			}
+
+			@Override
+			public CodecSink<T> openEncoder(final CodecSink<? super TEnc> target) {
+				ContractCheck.mustNotBeNull(target, "target"); //$NON-NLS-1$
+				return new CollectingCodecSink<T>() {
+					@Override
+					public void close() {
+						target.write(encoder.encode(getResult()));
+						target.close();
+					}
+				};
+			}
+		};
+	}
+
+	/**
+	 * Returns the decoder as {@link StreamDecoder}. If the decoder is not streaming by itself it is wrapped so that it
+	 * collects all input and decodes it when the sink is closed.
+	 *
+	 * @param decoder The decoder (must not be null)
+	 * @return The streaming decoder
+	 */
+	@SuppressWarnings("unchecked")
+	public static <T, TEnc> StreamDecoder<T, TEnc> streamDecoder(final Decoder<T, TEnc> decoder) {
+		if (ContractCheck.mustNotBeNull(decoder, "decoder") instanceof StreamDecoder) { //$NON-NLS-1$
+			return (StreamDecoder<T, TEnc>) decoder;
+		}
+		return new StreamDecoder<T, TEnc>() {
+			@Override
+			public T decode(final TEnc input) {
+				return decoder.decode(input);
+			}
+
+			@Override
+			public CodecSink<TEnc> openDecoder(final CodecSink<? super T> target) {
+				ContractCheck.mustNotBeNull(target, "target"); //$NON-NLS-1$
+				return new CollectingCodecSink<TEnc>() {
+					@Override
+					public void close() {
+						target.write(decoder.decode(getResult()));
+						target.close();
+					}
+				};
+			}
+		};
+	}
+
+}
@@ -0,0 +1,98 @@
+/*
+ * Copyright (c) 2009 Stephan Schloepke and innoQ Deutschland GmbH
+ * 
+ * Stephan Schloepke: http://www.schloepke.de/
+ * innoQ Deutschland GmbH: http://www.innoq.com/
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.jbasics.codec;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.jbasics.pattern.coder.CodecSink;
+
+/**
+ * {@link CodecSink} collecting all chunks written and joining them into one value. Byte arrays are joined into one
+ * byte array and character sequences into one {@link String}. Any other type can only be written as one single chunk.
+ *
+ * @param <T> The type of the chunks
+ * @author Stephan Schloepke
+ * @since 1.0
+ */
+public class CollectingCodecSink<T> implements CodecSink<T> {
+	private final List<T> chunks = new ArrayList<T>();
+
+	@Override
+	public void write(final T chunk) {
+		if (chunk != null) {
+			this.chunks.add(chunk);
+		}
+	}
+
+	@Override
+	public void close() {
+		// nothing to do
+	}
+
+	/**
+	 * Returns the joined value of all chunks written so far or null if no chunk was written.
+	 *
+	 * @return The joined value
+	 * @throws IllegalStateException If more than one chunk of a type other than byte[] or {@link CharSequence} was
+	 *             written
+	 */
+	@SuppressWarnings("unchecked")
+	public T getResult() {
+		final int size = this.chunks.size();
+		if (size == 0) {
+			return null;
+		} else if (size == 1) {
+			return this.chunks.get(0);
+		}
+		final Object first = this.chunks.get(0);
+		if (first instanceof byte[]) {
+			int length = 0;
+			for (final T chunk : this.chunks) {
+				length += ((byte[]) chunk).length;
+			}
+			final byte[] result = new byte[length];
+			int offset = 0;
+			for (final T chunk : this.chunks) {
+				final byte[] temp = (byte[]) chunk;
+				System.arraycopy(temp, 0, result, offset, temp.length);
+				offset += temp.length;
+			}
+			return (T) result;
+		} else if (first instanceof CharSequence) {
+			int length = 0;
+			for (final T chunk : this.chunks) {
+				length += ((CharSequence) chunk).length();
+			}
+			final StringBuilder result = new StringBuilder(length);
+			for (final T chunk : this.chunks) {
+				result.append((CharSequence) chunk);
+			}
+			return (T) result.toString();
+		}
+		throw new IllegalStateException("Cannot join " + size + " chunks of type " + first.getClass().getName()); //$NON-NLS-1$ //$NON-NLS-2$
+	}
+
+}
@@ -29,8 +29,10 @@ import org.jbasics.annotation.ThreadSafe;
 import org.jbasics.checker.ContractCheck;
 import org.jbasics.checker.ContractViolationException;
 import org.jbasics.pattern.coder.Codec;
+import org.jbasics.pattern.coder.CodecSink;
 import org.jbasics.pattern.coder.Decoder;
 import org.jbasics.pattern.coder.Encoder;
+import org.jbasics.pattern.coder.StreamCodec;
 
 /**
  * A {@link Codec} build upon an {@link Encoder} and a {@link Decoder}.
@@ -38,6 +40,10 @@ import org.jbasics.pattern.coder.Encoder;
  * The guarantee to be thread safe is only guaranteed if the encoder and decoder given are also thread safe. Same
  * applies to be immutable.
  * </p>
+ * <p>
+ * Opening the codec for streaming uses the encoder and decoder directly if they are streaming and adapts them
+ * otherwise (see {@link CodecStreams}).
+ * </p>
  * 
  * @param <T> The type of the normal (decoded) representation
  * @param <TEnc> The type of the encoded representation
@@ -46,7 +52,7 @@ import org.jbasics.pattern.coder.Encoder;
  */
 @ThreadSafe(derived = true)
 @ImmutableState(derived = true)
-public final class CombinedCodec<T, TEnc> implements Codec<T, TEnc> {
+public final class CombinedCodec<T, TEnc> implements StreamCodec<T, TEnc> {
 	private final Encoder<T, TEnc> encoder;
 	private final Decoder<T, TEnc> decoder;
 
@@ -72,4 +78,14 @@ public final class CombinedCodec<T, TEnc> implements Codec<T, TEnc> {
 		return this.decoder.decode(encodedInput);
 	}
 
+	@Override
+	public CodecSink<T> openEncoder(final CodecSink<? super TEnc> target) {
+		return CodecStreams.streamEncoder(this.encoder).openEncoder(target);
+	}
+
+	@Override
+	public CodecSink<TEnc> openDecoder(final CodecSink<? super T> target) {
+		return CodecStreams.streamDecoder(this.decoder).openDecoder(target);
+	}
+
 }
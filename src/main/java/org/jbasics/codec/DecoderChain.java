@@ -27,7 +27,9 @@ package org.jbasics.codec;
 import org.jbasics.annotation.ImmutableState;
 import org.jbasics.annotation.ThreadSafe;
 import org.jbasics.checker.ContractCheck;
+import org.jbasics.pattern.coder.CodecSink;
 import org.jbasics.pattern.coder.Decoder;
+import org.jbasics.pattern.coder.StreamDecoder;
 
 /**
  * A chain of {@link Decoder}s to call. Actually this is an encoder Pair and a fully chain can be applied by
@@ -36,13 +38,18 @@ import org.jbasics.pattern.coder.Decoder;
  * The guarantee to be thread safe is only guaranteed if the decoder given is also thread safe. Same applies to be
  * immutable.
  * </p>
+ * <p>
+ * If both decoders are {@link StreamDecoder}s the input is decoded in one pass over bounded chunks without building the
+ * intermediate result. Any decoder not streaming by itself is adapted with
+ * {@link CodecStreams#streamDecoder(Decoder)} when the chain is opened for streaming.
+ * </p>
  * 
  * @param <T> The decoded type
  * @param <TEnc> The encoded type
  */
 @ThreadSafe(derived = true)
 @ImmutableState(derived = true)
-public final class DecoderChain<T, TEnc> implements Decoder<T, TEnc> {
+public final class DecoderChain<T, TEnc> implements StreamDecoder<T, TEnc> {
 	@SuppressWarnings("rawtypes")
 	private final Decoder first;
 	@SuppressWarnings("rawtypes")
@@ -69,6 +76,15 @@ public final class DecoderChain<T, TEnc> implements Decoder<T, TEnc> {
 	@Override
 	@SuppressWarnings("unchecked")
 	public T decode(final TEnc input) {
+		if (this.first instanceof StreamDecoder && this.second instanceof StreamDecoder) {
+			return CodecStreams.decode(this, input);
+		}
 		return (T) this.second.decode(this.first.decode(input));
 	}
+
+	@Override
+	@SuppressWarnings("unchecked")
+	public CodecSink<TEnc> openDecoder(final CodecSink<? super T> target) {
+		return CodecStreams.streamDecoder(this.first).openDecoder(CodecStreams.streamDecoder(this.second).openDecoder(target));
+	}
 }
@@ -26,8 +26,10 @@ package org.jbasics.codec;
 
 import org.jbasics.annotation.ImmutableState;
 import org.jbasics.annotation.ThreadSafe;
+import org.jbasics.pattern.coder.CodecSink;
 import org.jbasics.pattern.coder.Decoder;
 import org.jbasics.pattern.coder.Encoder;
+import org.jbasics.pattern.coder.StreamEncoder;
 
 /**
  * A chain of {@link Decoder}s to call. Actually this is an encoder Pair and a fully chain can be applied by
@@ -36,10 +38,16 @@ import org.jbasics.pattern.coder.Encoder;
  * The guarantee to be thread safe is only guaranteed if the decoder given is also thread safe. Same applies to be
  * immutable.
  * </p>
+ * <p>
+ * If both encoders are {@link StreamEncoder}s the input is encoded in one pass over bounded chunks without building the
+ * intermediate result. Since a chain is a {@link StreamEncoder} itself this applies to nested chains as well. Any
+ * encoder not streaming by itself is adapted with {@link CodecStreams#streamEncoder(Encoder)} when the chain is opened
+ * for streaming.
+ * </p>
  */
 @ThreadSafe(derived = true)
 @ImmutableState(derived = true)
-public final class EncoderChain<T, TEnc> implements Encoder<T, TEnc> {
+public final class EncoderChain<T, TEnc> implements StreamEncoder<T, TEnc> {
 	@SuppressWarnings("rawtypes")
 	private final Encoder first;
 	@SuppressWarnings("rawtypes")
@@ -53,6 +61,15 @@ public final class EncoderChain<T, TEnc> implements Encoder<T, TEnc> {
 	@Override
 	@SuppressWarnings("unchecked")
 	public TEnc encode(final T input) {
+		if (this.first instanceof StreamEncoder && this.second instanceof StreamEncoder) {
+			return CodecStreams.encode(this, input);
+		}
 		return (TEnc) this.second.encode(this.first.encode(input));
 	}
+
+	@Override
+	@SuppressWarnings("unchecked")
+	public CodecSink<T> openEncoder(final CodecSink<? super TEnc> target) {
+		return CodecStreams.streamEncoder(this.first).openEncoder(CodecStreams.streamEncoder(this.second).openEncoder(target));
+	}
 }
@@ -24,53 +24,19 @@
  */
 package org.jbasics.codec;
 
-import java.io.ByteArrayOutputStream;
-
-import org.jbasics.arrays.ArrayConstants;
-import org.jbasics.pattern.coder.Codec;
-import org.jbasics.text.StringUtilities;
 import org.jbasics.types.sequences.ArrayCharacterSequence;
 
-public class RFC3548Base16Codec implements Codec<byte[], CharSequence> {
+public class RFC3548Base16Codec extends AbstractRFC3548Codec {
 	public static final String BASE16_ALPHABET = "0123456789ABCDEF"; //$NON-NLS-1$
 	public static final RFC3548Base16Codec INSTANCE = new RFC3548Base16Codec();
 
-	public int getInputBlockSize() {
-		return 1;
-	}
-
-	public int getOutputBlockSize() {
-		return 2;
+	public RFC3548Base16Codec() {
+		super(RFC3548Base16Codec.BASE16_ALPHABET, true, 1, false, false);
 	}
 
-	public CharSequence encode(final byte[] input) {
-		if (input == null || input.length == 0) return StringUtilities.EMPTY_STRING;
-		final char[] result = new char[input.length * 2];
-		for (int i = 0, j = 0; i < input.length; i++, j += 2) {
-			result[j] = RFC3548Base16Codec.BASE16_ALPHABET.charAt(input[i] >> 4 & 0x0f);
-			result[j + 1] = RFC3548Base16Codec.BASE16_ALPHABET.charAt(input[i] & 0x0f);
-		}
-		return new ArrayCharacterSequence(result);
+	@Override
+	protected CharSequence wrapEncoded(final char[] encoded) {
+		return new ArrayCharacterSequence(encoded);
 	}
 
-	public byte[] decode(final CharSequence input) {
-		if (input == null || input.length() == 0) return ArrayConstants.ZERO_LENGTH_BYTE_ARRAY;
-		final ByteArrayOutputStream data = new ByteArrayOutputStream(input.length() / 2);
-		boolean flip = false;
-		byte value = 0;
-		for (int i = 0; i < input.length(); i++) {
-			final int current = RFC3548Base16Codec.BASE16_ALPHABET.indexOf(Character.toUpperCase(input.charAt(i)));
-			if (current < 0) {
-				continue;
-			}
-			value = (byte) (value << 4 | current);
-			if (flip) {
-				data.write(value);
-				flip = false;
-			} else {
-				flip = true;
-			}
-		}
-		return data.toByteArray();
-	}
 }
@@ -24,16 +24,9 @@
  */
 package org.jbasics.codec;
 
-import java.io.ByteArrayOutputStream;
-
-import org.jbasics.arrays.ArrayConstants;
-import org.jbasics.pattern.coder.Codec;
-import org.jbasics.text.StringUtilities;
-
-public class RFC3548Base32Codec implements Codec<byte[], CharSequence> {
+public class RFC3548Base32Codec extends AbstractRFC3548Codec {
 	public static final String BASE32_ALPHABET = "ABCDEFGHIJKLMNOPQRSTUVWXYZ01234567"; //$NON-NLS-1$
-	public static final char PADDING_CHARACTER = '=';
-	private final boolean fillWithoutPadding;
+	public static final char PADDING_CHARACTER = AbstractRFC3548Codec.PADDING_CHARACTER;
 
 	public static final RFC3548Base32Codec INSTANCE = new RFC3548Base32Codec();
 
@@ -42,113 +35,8 @@ public class RFC3548Base32Codec implements Codec<byte[], CharSequence> {
 	}
 
 	public RFC3548Base32Codec(final boolean fillWithoutPadding) {
-		this.fillWithoutPadding = fillWithoutPadding;
-	}
-
-	public int getInputBlockSize() {
-		return 5;
-	}
-
-	public int getOutputBlockSize() {
-		return 8;
-	}
-
-	public CharSequence encode(final byte[] input) {
-		if (input == null || input.length == 0) {
-			return StringUtilities.EMPTY_STRING;
-		}
-		int lastBlockSize = input.length % 5;
-		int fullBlocks = (input.length / 5);
-		StringBuilder builder = new StringBuilder();
-		for (int z = fullBlocks, i = 0; z > 0; z--, i += 5) {
-			long temp = (((long) (input[i] & 0xff)) << 32) |
-						((input[i + 1] & 0xff) << 24) |
-						((input[i + 2] & 0xff) << 16) |
-						((input[i + 3] & 0xff) << 8) |
-						(input[i + 4] & 0xff);
-			int p = 35;
-			for (int j = 0; j < 8; j++) {
-				builder.append(RFC3548Base32Codec.BASE32_ALPHABET.charAt((int) ((temp >>> p) & 0x1f)));
-				p -= 5;
-			}
-		}
-		if (lastBlockSize > 0) {
-			int j = 5;
-			long temp = 0;
-			for (int i = input.length - lastBlockSize; i < input.length; i++, j--) {
-				temp = (temp << 8) | (input[i] & 0xff);
-			}
-			for (; j > 0; j--) {
-				temp <<= 8;
-			}
-			if (this.fillWithoutPadding) {
-				int p = 35;
-				for (int i = 0; i < 8; i++) {
-					builder.append(RFC3548Base32Codec.BASE32_ALPHABET.charAt((int) ((temp >>> p) & 0x1f)));
-					p -= 5;
-				}
-			} else {
-				int p = 35;
-				for (int i = ((lastBlockSize * 8) + 4) / 5; i > 0; i--) {
-					builder.append(RFC3548Base32Codec.BASE32_ALPHABET.charAt((int) ((temp >>> p) & 0x1f)));
-					p -= 5;
-				}
-				for (int i = 8 - ((lastBlockSize * 8) + 4) / 5; i > 0; i--) {
-					builder.append(RFC3548Base32Codec.PADDING_CHARACTER);
-				}
-			}
-		}
-		return builder.toString();
-	}
-
-	public byte[] decode(final CharSequence input) {
-		if (input == null || input.length() == 0) {
-			return ArrayConstants.ZERO_LENGTH_BYTE_ARRAY;
-		}
-		ByteArrayOutputStream data = new ByteArrayOutputStream(input.length() * 5 / 8);
-		int pos = 0;
-		long value = 0;
-		int padding = 0;
-		for (int i = 0; i < input.length(); i++) {
-			char c = Character.toUpperCase(input.charAt(i));
-			int p = 0;
-			if (c == RFC3548Base32Codec.PADDING_CHARACTER) {
-				padding++;
-			} else {
-				p = RFC3548Base32Codec.BASE32_ALPHABET.indexOf(c);
-			}
-			if (p < 0) {
-				continue;
-			}
-			value = (value << 5) | p;
-			pos = (pos + 1) % 8;
-			if (pos == 0) {
-				writeDecoded(data, value, padding);
-			}
-		}
-		// Missing fail safe if the input is not a multiple of 8 (discarding all non part characters)
-		return data.toByteArray();
-	}
-
-	private void writeDecoded(final ByteArrayOutputStream data, final long value, final int padding) {
-		if (padding == 0) {
-			data.write((byte) (value >>> 32));
-			data.write((byte) (value >>> 24));
-			data.write((byte) (value >>> 16));
-			data.write((byte) (value >>> 8));
-			data.write((byte) (value & 0xff));
-		} else {
-			data.write((byte) (value >>> 32));
-			if (padding < 5) {
-				data.write((byte) (value >>> 24));
-				if (padding < 4) {
-					data.write((byte) (value >>> 16));
-					if (padding < 2) {
-						data.write((byte) (value >>> 8));
-					}
-				}
-			}
-		}
+		// only the first 32 characters of the alphabet have ever been used for encoding
+		super(RFC3548Base32Codec.BASE32_ALPHABET.substring(0, 32), true, 5, true, fillWithoutPadding);
 	}
 
 }
@@ -0,0 +1,112 @@
+/*
+ * Copyright (c) 2009 Stephan Schloepke and innoQ Deutschland GmbH
+ * 
+ * Stephan Schloepke: http://www.schloepke.de/
+ * innoQ Deutschland GmbH: http://www.innoq.com/
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.jbasics.codec;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+
+import org.jbasics.checker.ContractCheck;
+
+/**
+ * {@link InputStream} reading characters from a {@link Readable} and returning the bytes decoded with an
+ * {@link AbstractRFC3548Codec}. Only a small buffer is used so data of any size can be decoded.
+ *
+ * @author Stephan Schloepke
+ * @since 1.0
+ */
+public class RFC3548DecodingInputStream extends InputStream {
+	private static final int DEFAULT_BLOCKS = 1024;
+
+	private final AbstractRFC3548Codec codec;
+	private final Readable in;
+	private final ByteBuffer bytes;
+	private CharBuffer chars;
+	private boolean eof;
+
+	public RFC3548DecodingInputStream(final AbstractRFC3548Codec codec, final Readable in) {
+		this.codec = ContractCheck.mustNotBeNull(codec, "codec"); //$NON-NLS-1$
+		this.in = ContractCheck.mustNotBeNull(in, "in"); //$NON-NLS-1$
+		this.chars = CharBuffer.allocate(codec.getOutputBlockSize() * RFC3548DecodingInputStream.DEFAULT_BLOCKS);
+		this.bytes = ByteBuffer.allocate(codec.getInputBlockSize() * RFC3548DecodingInputStream.DEFAULT_BLOCKS);
+		this.bytes.flip();
+	}
+
+	@Override
+	public int read() throws IOException {
+		return fill() ? this.bytes.get() & 0xff : -1;
+	}
+
+	@Override
+	public int read(final byte[] b, final int off, final int len) throws IOException {
+		if (len == 0) {
+			return 0;
+		}
+		if (!fill()) {
+			return -1;
+		}
+		final int count = Math.min(len, this.bytes.remaining());
+		this.bytes.get(b, off, count);
+		return count;
+	}
+
+	@Override
+	public int available() throws IOException {
+		return this.bytes.remaining();
+	}
+
+	@Override
+	public void close() throws IOException {
+		if (this.in instanceof Closeable) {
+			((Closeable) this.in).close();
+		}
+	}
+
+	private boolean fill() throws IOException {
+		while (!this.bytes.hasRemaining()) {
+			if (!this.eof) {
+				if (!this.chars.hasRemaining()) {
+					// only an incomplete block with lots of skipped characters can fill the whole buffer
+					final CharBuffer temp = CharBuffer.allocate(this.chars.capacity() * 2);
+					this.chars.flip();
+					temp.put(this.chars);
+					this.chars = temp;
+				}
+				this.eof = this.in.read(this.chars) < 0;
+			} else if (this.chars.position() == 0) {
+				return false;
+			}
+			this.chars.flip();
+			this.bytes.clear();
+			this.codec.decode(this.chars, this.bytes, this.eof);
+			this.chars.compact();
+			this.bytes.flip();
+		}
+		return true;
+	}
+
+}
@@ -0,0 +1,119 @@
+/*
+ * Copyright (c) 2009 Stephan Schloepke and innoQ Deutschland GmbH
+ * 
+ * Stephan Schloepke: http://www.schloepke.de/
+ * innoQ Deutschland GmbH: http://www.innoq.com/
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.jbasics.codec;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+
+import org.jbasics.checker.ContractCheck;
+
+/**
+ * {@link OutputStream} encoding all bytes written with an {@link AbstractRFC3548Codec} and writing the characters to a
+ * {@link Writer}. Only a fixed size buffer is used so data of any size can be encoded. The stream must be closed in
+ * order to encode the last incomplete block.
+ *
+ * @author Stephan Schloepke
+ * @since 1.0
+ */
+public class RFC3548EncodingOutputStream extends OutputStream {
+	private static final int DEFAULT_BLOCKS = 1024;
+
+	private final AbstractRFC3548Codec codec;
+	private final Writer out;
+	private final ByteBuffer bytes;
+	private final CharBuffer chars;
+	private boolean closed;
+
+	public RFC3548EncodingOutputStream(final AbstractRFC3548Codec codec, final Writer out) {
+		this.codec = ContractCheck.mustNotBeNull(codec, "codec"); //$NON-NLS-1$
+		this.out = ContractCheck.mustNotBeNull(out, "out"); //$NON-NLS-1$
+		this.bytes = ByteBuffer.allocate(codec.getInputBlockSize() * RFC3548EncodingOutputStream.DEFAULT_BLOCKS);
+		this.chars = CharBuffer.allocate(codec.getOutputBlockSize() * RFC3548EncodingOutputStream.DEFAULT_BLOCKS);
+	}
+
+	@Override
+	public void write(final int b) throws IOException {
+		ensureOpen();
+		if (!this.bytes.hasRemaining()) {
+			encode(false);
+		}
+		this.bytes.put((byte) b);
+	}
+
+	@Override
+	public void write(final byte[] b, int off, int len) throws IOException {
+		ensureOpen();
+		while (len > 0) {
+			if (!this.bytes.hasRemaining()) {
+				encode(false);
+			}
+			final int count = Math.min(len, this.bytes.remaining());
+			this.bytes.put(b, off, count);
+			off += count;
+			len -= count;
+		}
+	}
+
+	/**
+	 * Encodes all complete blocks written so far and flushes the writer. An incomplete block is kept until more data is
+	 * written or the stream is closed.
+	 */
+	@Override
+	public void flush() throws IOException {
+		ensureOpen();
+		encode(false);
+		this.out.flush();
+	}
+
+	@Override
+	public void close() throws IOException {
+		if (!this.closed) {
+			encode(true);
+			this.closed = true;
+			this.out.close();
+		}
+	}
+
+	private void encode(final boolean endOfInput) throws IOException {
+		this.bytes.flip();
+		boolean done;
+		do {
+			done = this.codec.encode(this.bytes, this.chars, endOfInput);
+			this.out.write(this.chars.array(), 0, this.chars.position());
+			this.chars.clear();
+		} while (!done);
+		this.bytes.compact();
+	}
+
+	private void ensureOpen() throws IOException {
+		if (this.closed) {
+			throw new IOException("Stream closed"); //$NON-NLS-1$
+		}
+	}
+
+}
@@ -26,13 +26,23 @@ package org.jbasics.codec;
 
 import java.nio.ByteBuffer;
 import java.nio.CharBuffer;
+import java.nio.charset.CharacterCodingException;
 import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
 import java.util.Random;
 
 import org.jbasics.checker.ContractCheck;
+import org.jbasics.exception.DelegatedException;
 import org.jbasics.pattern.coder.Codec;
+import org.jbasics.pattern.coder.CodecSink;
+import org.jbasics.pattern.coder.StreamCodec;
+
+public class XOrCryptCodec implements StreamCodec<CharSequence, byte[]> {
+	private static final int SINK_BUFFER_SIZE = 4096;
 
-public class XOrCryptCodec implements Codec<CharSequence, byte[]> {
 	public static final Charset UTF8_CHARSET = Charset.forName("UTF8"); //$NON-NLS-1$
 	public static final Codec<CharSequence, byte[]> INSTANCE = new XOrCryptCodec();
 
@@ -92,4 +102,157 @@ public class XOrCryptCodec implements Codec<CharSequence, byte[]> {
 		return this.charset.decode(b).toString();
 	}
 
+	@Override
+	public CodecSink<CharSequence> openEncoder(final CodecSink<? super byte[]> target) {
+		return new EncodingSink(ContractCheck.mustNotBeNull(target, "target")); //$NON-NLS-1$
+	}
+
+	@Override
+	public CodecSink<byte[]> openDecoder(final CodecSink<? super CharSequence> target) {
+		return new DecodingSink(ContractCheck.mustNotBeNull(target, "target")); //$NON-NLS-1$
+	}
+
+	private byte nextKey(final Random r) {
+		return (byte) (this.xorSource != null ? this.xorSource[r.nextInt(this.xorSource.length)] : r.nextInt(256));
+	}
+
+	private static void check(final CoderResult result) {
+		if (result.isError()) {
+			try {
+				result.throwException();
+			} catch (final CharacterCodingException e) {
+				throw DelegatedException.delegate(e);
+			}
+		}
+	}
+
+	private final class EncodingSink implements CodecSink<CharSequence> {
+		private final CodecSink<? super byte[]> target;
+		private final CharsetEncoder encoder;
+		private final CharBuffer pending;
+		private final ByteBuffer out;
+		private final Random random;
+		// the first byte in the output is the plain seed
+		private boolean seedPending = true;
+
+		EncodingSink(final CodecSink<? super byte[]> target) {
+			this.target = target;
+			this.encoder = XOrCryptCodec.this.charset.newEncoder().onMalformedInput(CodingErrorAction.REPLACE)
+					.onUnmappableCharacter(CodingErrorAction.REPLACE);
+			this.pending = CharBuffer.allocate(XOrCryptCodec.SINK_BUFFER_SIZE);
+			this.out = ByteBuffer.allocate(XOrCryptCodec.SINK_BUFFER_SIZE);
+			final int seed = Math.abs((int) (Math.random() * 983) % 109) + 13;
+			this.random = new Random(seed);
+			this.out.put((byte) seed);
+		}
+
+		@Override
+		public void write(final CharSequence chunk) {
+			final int length = chunk.length();
+			int offset = 0;
+			while (offset < length) {
+				final int count = Math.min(this.pending.remaining(), length - offset);
+				this.pending.append(chunk, offset, offset + count);
+				offset += count;
+				this.pending.flip();
+				encode(false);
+				this.pending.compact();
+			}
+		}
+
+		@Override
+		public void close() {
+			this.pending.flip();
+			encode(true);
+			CoderResult result;
+			while ((result = this.encoder.flush(this.out)).isOverflow()) {
+				emit();
+			}
+			XOrCryptCodec.check(result);
+			emit();
+			this.target.close();
+		}
+
+		private void encode(final boolean endOfInput) {
+			CoderResult result;
+			while ((result = this.encoder.encode(this.pending, this.out, endOfInput)).isOverflow()) {
+				emit();
+			}
+			XOrCryptCodec.check(result);
+		}
+
+		private void emit() {
+			this.out.flip();
+			final byte[] result = new byte[this.out.remaining()];
+			this.out.get(result);
+			for (int i = this.seedPending ? 1 : 0; i < result.length; i++) {
+				result[i] = (byte) (result[i] ^ nextKey(this.random));
+			}
+			this.seedPending = false;
+			this.target.write(result);
+			this.out.clear();
+		}
+	}
+
+	private final class DecodingSink implements CodecSink<byte[]> {
+		private final CodecSink<? super CharSequence> target;
+		private final CharsetDecoder decoder;
+		private final ByteBuffer pending;
+		private final CharBuffer out;
+		private Random random;
+
+		DecodingSink(final CodecSink<? super CharSequence> target) {
+			this.target = target;
+			this.decoder = XOrCryptCodec.this.charset.newDecoder().onMalformedInput(CodingErrorAction.REPLACE)
+					.onUnmappableCharacter(CodingErrorAction.REPLACE);
+			this.pending = ByteBuffer.allocate(XOrCryptCodec.SINK_BUFFER_SIZE);
+			this.out = CharBuffer.allocate(XOrCryptCodec.SINK_BUFFER_SIZE);
+		}
+
+		@Override
+		public void write(final byte[] chunk) {
+			int offset = 0;
+			if (this.random == null && chunk.length > 0) {
+				this.random = new Random(chunk[0]);
+				offset = 1;
+			}
+			while (offset < chunk.length) {
+				final int count = Math.min(this.pending.remaining(), chunk.length - offset);
+				for (final int end = offset + count; offset < end; offset++) {
+					this.pending.put((byte) (chunk[offset] ^ nextKey(this.random)));
+				}
+				this.pending.flip();
+				decode(false);
+				this.pending.compact();
+			}
+		}
+
+		@Override
+		public void close() {
+			this.pending.flip();
+			decode(true);
+			CoderResult result;
+			while ((result = this.decoder.flush(this.out)).isOverflow()) {
+				emit();
+			}
+			XOrCryptCodec.check(result);
+			emit();
+			this.target.close();
+		}
+
+		private void decode(final boolean endOfInput) {
+			CoderResult result;
+			while ((result = this.decoder.decode(this.pending, this.out, endOfInput)).isOverflow()) {
+				emit();
+			}
+			XOrCryptCodec.check(result);
+		}
+
+		private void emit() {
+			this.out.flip();
+			this.target.write(this.out.toString());
+			this.out.clear();
+		}
+	}
+
 }
@@ -24,26 +24,43 @@
  */
 package org.jbasics.configuration.properties;
 
-import java.util.HashMap;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.math.MathContext;
+import java.net.URI;
+import java.util.Locale;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javax.xml.datatype.Duration;
+import javax.xml.datatype.XMLGregorianCalendar;
 
 import org.jbasics.checker.ContractCheck;
-import org.jbasics.exception.DelegatedException;
 import org.jbasics.pattern.factory.ParameterFactory;
 
 @SuppressWarnings("unchecked")
 public final class ValueTypeFactory {
-	private final static Map<Class<?>, ParameterFactory<?, String>> FACTORIES = new HashMap<Class<?>, ParameterFactory<?, String>>();
+	private final static Map<Class<?>, ParameterFactory<?, String>> FACTORIES = new ConcurrentHashMap<Class<?>, ParameterFactory<?, String>>();
 	static {
-		try {
-			//			for (final Map.Entry<Sequence<Class<?>>, ParameterFactory> entry : ServiceClassDiscovery
-			//					.discoverGenericsMappedImplementations(ValueTypeFactory.class, ParameterFactory.class, null).entrySet()) {
-			//				ValueTypeFactory.FACTORIES.put(entry.getKey().first(), entry.getValue());
-			//
-			//			}
-		} catch (final Exception e) {
-			throw DelegatedException.delegate(e);
-		}
+		ValueTypeFactory.FACTORIES.put(String.class, new PassThruValueTypeFactory<String>());
+		ValueTypeFactory.FACTORIES.put(Integer.class, IntValueTypeFactory.SHARED_INSTANCE);
+		ValueTypeFactory.FACTORIES.put(Integer.TYPE, IntValueTypeFactory.SHARED_INSTANCE);
+		ValueTypeFactory.FACTORIES.put(Long.class, LongValueTypeFactory.SHARED_INSTANCE);
+		ValueTypeFactory.FACTORIES.put(Long.TYPE, LongValueTypeFactory.SHARED_INSTANCE);
+		ValueTypeFactory.FACTORIES.put(Float.class, FloatValueTypeFactory.SHARED_INSTANCE);
+		ValueTypeFactory.FACTORIES.put(Float.TYPE, FloatValueTypeFactory.SHARED_INSTANCE);
+		ValueTypeFactory.FACTORIES.put(Double.class, DoubleValueTypeFactory.SHARED_INSTANCE);
+		ValueTypeFactory.FACTORIES.put(Double.TYPE, DoubleValueTypeFactory.SHARED_INSTANCE);
+		ValueTypeFactory.FACTORIES.put(Boolean.class, BooleanValueTypeFactory.SHARED_INSTANCE);
+		ValueTypeFactory.FACTORIES.put(Boolean.TYPE, BooleanValueTypeFactory.SHARED_INSTANCE);
+		ValueTypeFactory.FACTORIES.put(BigInteger.class, BigIntegerValueTypeFactory.SHARED_INSTANCE);
+		ValueTypeFactory.FACTORIES.put(BigDecimal.class, BigDecimalValueTypeFactory.SHARED_INSTANCE);
+		ValueTypeFactory.FACTORIES.put(MathContext.class, MathContextValueTypeFactory.SHARED_INSTANCE);
+		ValueTypeFactory.FACTORIES.put(XMLGregorianCalendar.class, DateValueTypeFactory.SHARED_INSTANCE);
+		ValueTypeFactory.FACTORIES.put(Duration.class, DurationValueTypeFactory.SHARED_INSTANCE);
+		ValueTypeFactory.FACTORIES.put(Locale.class, LocaleValueTypeFactory.SHARED_INSTANCE);
+		ValueTypeFactory.FACTORIES.put(URI.class, URIValueTypeFactory.SHARED_INSTANCE);
+		ValueTypeFactory.FACTORIES.put(Class.class, ClassValueTypeFactory.SHARED_INSTANCE);
 	}
 
 	public static <T> ParameterFactory<T, String> registerFactory(final Class<T> type, final ParameterFactory<T, String> factory) {
@@ -0,0 +1,391 @@
+/*
+ * Copyright (c) 2009 Stephan Schloepke and innoQ Deutschland GmbH
+ * 
+ * Stephan Schloepke: http://www.schloepke.de/
+ * innoQ Deutschland GmbH: http://www.innoq.com/
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.jbasics.csv;
+
+import java.io.IOException;
+import java.nio.CharBuffer;
+import java.nio.charset.Charset;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+import org.jbasics.checker.ContractCheck;
+import org.jbasics.net.mediatype.MediaType;
+import org.jbasics.pattern.container.Indexed;
+import org.jbasics.pattern.container.Mapable;
+import org.jbasics.pattern.factory.ParameterFactory;
+import org.jbasics.types.sequences.Sequence;
+import org.jbasics.types.tuples.Pair;
+
+/**
+ * A CSV table storing its data column wise. Each column holds all its values in one shared char array with an
+ * offsets array marking the end of each value. Compared to the {@link CSVTable} holding a {@link String} for every
+ * field this needs only a fraction of the memory and scanning a single column runs over consecutive memory.
+ * <p>
+ * Records are returned as {@link CSVRecord} instances created on access so the table can be used wherever an
+ * {@link Indexed} of records is required. For numeric columns the values can be converted to a primitive array once
+ * which is cached afterwards. The table is immutable and thread safe, instances are created with the
+ * {@link CSVColumnTableBuilder}.
+ * </p>
+ *
+ * @author Stephan Schloepke
+ * @since 1.0
+ */
+public class CSVColumnTable implements Iterable<CSVRecord>, Mapable<Sequence<String>, CSVRecord>, Indexed<CSVRecord> {
+	private final Charset charset;
+	private final char separator;
+	private final CSVRecord headers;
+	private final Column[] columns;
+	private final int[] recordSizes;
+	private final int size;
+
+	CSVColumnTable(final Charset charset, final char separator, final CSVRecord headers, final Column[] columns, final int[] recordSizes,
+			final int size) {
+		this.charset = charset == null ? Charset.defaultCharset() : charset;
+		this.separator = separator;
+		this.headers = headers;
+		this.columns = columns;
+		this.recordSizes = recordSizes;
+		this.size = size;
+	}
+
+	public int size() {
+		return this.size;
+	}
+
+	public int getColumnCount() {
+		return this.columns.length;
+	}
+
+	public Charset getCharset() {
+		return this.charset;
+	}
+
+	public char getSeparator() {
+		return this.separator;
+	}
+
+	public boolean hasHeaders() {
+		return this.headers != null;
+	}
+
+	public CSVRecord getHeaders() {
+		return this.headers;
+	}
+
+	/**
+	 * Returns the index of the column with the given header name or -1 if no such header exists.
+	 *
+	 * @param name The name of the header
+	 * @return The index of the column or -1 if not found
+	 */
+	public int getColumnIndex(final String name) {
+		if (this.headers != null) {
+			for (int i = 0; i < this.headers.size(); i++) {
+				if (this.headers.getField(i) != null && this.headers.getField(i).equals(name)) {
+					return i;
+				}
+			}
+		}
+		return -1;
+	}
+
+	@SuppressWarnings("unchecked")
+	public MediaType getMediaType() {
+		return CSVTable.RFC4180_MEDIA_TYPE.deriveWithNewParameters(new Pair<String, String>("charset", this.charset.name()), //$NON-NLS-1$
+				hasHeaders() ? CSVTable.HEADER_PRESENT : CSVTable.HEADER_ABSENT);
+	}
+
+	public Iterator<CSVRecord> iterator() {
+		return new Iterator<CSVRecord>() {
+			private int next;
+
+			public boolean hasNext() {
+				return this.next < CSVColumnTable.this.size;
+			}
+
+			public CSVRecord next() {
+				if (!hasNext()) {
+					throw new NoSuchElementException();
+				}
+				return getRecord(this.next++);
+			}
+
+			public void remove() {
+				throw new UnsupportedOperationException();
+			}
+		};
+	}
+
+	public CSVRecord getElementAtIndex(final int index) {
+		return getRecord(index);
+	}
+
+	/**
+	 * Creates the record at the given index. Since the data is stored column wise each call creates a new record with
+	 * new strings for all fields. If only a few fields are required it is much cheaper to use
+	 * {@link #getField(int, int)} or {@link #getFieldChars(int, int)}.
+	 *
+	 * @param index The index of the record
+	 * @return The newly created record
+	 */
+	public CSVRecord getRecord(final int index) {
+		final String[] fields = new String[getRecordSize(index)];
+		for (int i = 0; i < fields.length; i++) {
+			fields[i] = this.columns[i].getString(index);
+		}
+		return new CSVRecord(fields);
+	}
+
+	public int getRecordSize(final int recordIndex) {
+		checkRecordIndex(recordIndex);
+		return this.recordSizes == null ? this.columns.length : this.recordSizes[recordIndex];
+	}
+
+	public String getField(final int recordIndex, final int fieldIndex) {
+		return getColumn(recordIndex, fieldIndex).getString(recordIndex);
+	}
+
+	/**
+	 * Returns a read only view of the field without creating a string from it. The view shares the data of the table.
+	 *
+	 * @param recordIndex The index of the record
+	 * @param fieldIndex The index of the field
+	 * @return A read only view of the field or null if the field is null
+	 */
+	public CharSequence getFieldChars(final int recordIndex, final int fieldIndex) {
+		return getColumn(recordIndex, fieldIndex).getChars(recordIndex);
+	}
+
+	/**
+	 * Returns all values of the column converted to int. Empty or null values are converted to zero. The array is
+	 * created on the first call and cached afterwards so it must not be modified.
+	 *
+	 * @param fieldIndex The index of the column
+	 * @return The values of the column
+	 * @throws NumberFormatException If a value is not an integer
+	 */
+	public int[] getIntColumn(final int fieldIndex) {
+		final Column column = this.columns[ContractCheck.mustBeInRange(fieldIndex, 0, this.columns.length - 1, "fieldIndex")]; //$NON-NLS-1$
+		int[] result = column.ints;
+		if (result == null) {
+			result = new int[this.size];
+			for (int i = 0; i < this.size; i++) {
+				final long temp = column.parseLong(i);
+				if (temp < Integer.MIN_VALUE || temp > Integer.MAX_VALUE) {
+					throw new NumberFormatException("Value out of int range at record " + i + ": " + temp); //$NON-NLS-1$ //$NON-NLS-2$
+				}
+				result[i] = (int) temp;
+			}
+			column.ints = result;
+		}
+		return result;
+	}
+
+	/**
+	 * Returns all values of the column converted to long. Empty or null values are converted to zero. The array is
+	 * created on the first call and cached afterwards so it must not be modified.
+	 *
+	 * @param fieldIndex The index of the column
+	 * @return The values of the column
+	 * @throws NumberFormatException If a value is not an integer
+	 */
+	public long[] getLongColumn(final int fieldIndex) {
+		final Column column = this.columns[ContractCheck.mustBeInRange(fieldIndex, 0, this.columns.length - 1, "fieldIndex")]; //$NON-NLS-1$
+		long[] result = column.longs;
+		if (result == null) {
+			result = new long[this.size];
+			for (int i = 0; i < this.size; i++) {
+				result[i] = column.parseLong(i);
+			}
+			column.longs = result;
+		}
+		return result;
+	}
+
+	/**
+	 * Returns all values of the column converted to double. Empty or null values are converted to zero. The array is
+	 * created on the first call and cached afterwards so it must not be modified.
+	 *
+	 * @param fieldIndex The index of the column
+	 * @return The values of the column
+	 * @throws NumberFormatException If a value is not a number
+	 */
+	public double[] getDoubleColumn(final int fieldIndex) {
+		final Column column = this.columns[ContractCheck.mustBeInRange(fieldIndex, 0, this.columns.length - 1, "fieldIndex")]; //$NON-NLS-1$
+		double[] result = column.doubles;
+		if (result == null) {
+			result = new double[this.size];
+			for (int i = 0; i < this.size; i++) {
+				final String temp = column.getString(i);
+				result[i] = temp == null || temp.length() == 0 ? 0.0d : Double.parseDouble(temp);
+			}
+			column.doubles = result;
+		}
+		return result;
+	}
+
+	/**
+	 * Creates a row based {@link CSVTable} with the same data.
+	 *
+	 * @return The row based table
+	 */
+	public CSVTable toTable() {
+		final CSVRecord[] records = new CSVRecord[this.size];
+		for (int i = 0; i < records.length; i++) {
+			records[i] = getRecord(i);
+		}
+		return new CSVTable(this.charset, this.separator, this.headers, records);
+	}
+
+	public Appendable append(final Appendable appendable) throws IOException {
+		return append(appendable, this.separator);
+	}
+
+	public Appendable append(final Appendable appendable, final char separator) throws IOException {
+		final CSVRecordWriter out = new CSVRecordWriter(appendable, separator);
+		if (hasHeaders()) {
+			out.write(this.headers);
+		}
+		out.write(this);
+		return appendable;
+	}
+
+	@Override
+	public String toString() {
+		try {
+			return append(new StringBuilder()).toString();
+		} catch (final IOException e) {
+			return "Exception in toString: " + e; //$NON-NLS-1$
+		}
+	}
+
+	public Map<Sequence<String>, CSVRecord> map(final String... columnNames) {
+		return map(new CSVRecordSequenceTransposer(this.headers, columnNames));
+	}
+
+	public Map<Sequence<String>, CSVRecord> map(final int... fields) {
+		return map(new CSVRecordSequenceTransposer(fields));
+	}
+
+	public Map<Sequence<String>, CSVRecord> map(final ParameterFactory<Sequence<String>, CSVRecord> keyFactory) {
+		final Map<Sequence<String>, CSVRecord> result = new HashMap<Sequence<String>, CSVRecord>();
+		for (final CSVRecord record : this) {
+			result.put(keyFactory.create(record), record);
+		}
+		return result;
+	}
+
+	private Column getColumn(final int recordIndex, final int fieldIndex) {
+		if (fieldIndex < 0 || fieldIndex >= getRecordSize(recordIndex)) {
+			throw new ArrayIndexOutOfBoundsException(fieldIndex);
+		}
+		return this.columns[fieldIndex];
+	}
+
+	private void checkRecordIndex(final int recordIndex) {
+		if (recordIndex < 0 || recordIndex >= this.size) {
+			throw new ArrayIndexOutOfBoundsException(recordIndex);
+		}
+	}
+
+	/**
+	 * The data of a single column. The value of record i spans from ends[i - 1] (or zero) to ends[i] in the data.
+	 */
+	static final class Column {
+		final char[] data;
+		final int[] ends;
+		final BitSet nulls;
+		volatile int[] ints;
+		volatile long[] longs;
+		volatile double[] doubles;
+
+		Column(final char[] data, final int[] ends, final BitSet nulls) {
+			this.data = data;
+			this.ends = ends;
+			this.nulls = nulls;
+		}
+
+		int start(final int index) {
+			return index == 0 ? 0 : this.ends[index - 1];
+		}
+
+		String getString(final int index) {
+			if (this.nulls.get(index)) {
+				return null;
+			}
+			final int start = start(index);
+			return new String(this.data, start, this.ends[index] - start);
+		}
+
+		CharSequence getChars(final int index) {
+			if (this.nulls.get(index)) {
+				return null;
+			}
+			final int start = start(index);
+			return CharBuffer.wrap(this.data, start, this.ends[index] - start).asReadOnlyBuffer();
+		}
+
+		long parseLong(final int index) {
+			if (this.nulls.get(index)) {
+				return 0L;
+			}
+			int i = start(index);
+			final int end = this.ends[index];
+			if (i == end) {
+				return 0L;
+			}
+			final boolean negative = this.data[i] == '-';
+			if (negative || this.data[i] == '+') {
+				i++;
+			}
+			if (i == end) {
+				throw new NumberFormatException("No digits in value: " + getString(index)); //$NON-NLS-1$
+			}
+			long result = 0L;
+			for (; i < end; i++) {
+				final int digit = this.data[i] - '0';
+				if (digit < 0 || digit > 9) {
+					throw new NumberFormatException("Not an integer value: " + getString(index)); //$NON-NLS-1$
+				}
+				if (result < (Long.MIN_VALUE + digit) / 10) {
+					throw new NumberFormatException("Value out of long range: " + getString(index)); //$NON-NLS-1$
+				}
+				// accumulate negative to be able to represent Long.MIN_VALUE
+				result = result * 10 - digit;
+			}
+			if (!negative) {
+				if (result == Long.MIN_VALUE) {
+					throw new NumberFormatException("Value out of long range: " + getString(index)); //$NON-NLS-1$
+				}
+				return -result;
+			}
+			return result;
+		}
+	}
+
+}
@@ -0,0 +1,166 @@
+/*
+ * Copyright (c) 2009 Stephan Schloepke and innoQ Deutschland GmbH
+ * 
+ * Stephan Schloepke: http://www.schloepke.de/
+ * innoQ Deutschland GmbH: http://www.innoq.com/
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.jbasics.csv;
+
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+
+import org.jbasics.checker.ContractCheck;
+import org.jbasics.pattern.builder.Builder;
+
+/**
+ * Builder for the {@link CSVColumnTable}. Since the builder is also a {@link CSVRecordVisitor} it can be handed to
+ * {@link CSVParser#parse(Readable, CSVRecordVisitor)} to read CSV data directly into the column storage without ever
+ * holding all records in memory.
+ *
+ * @author Stephan Schloepke
+ * @since 1.0
+ */
+public class CSVColumnTableBuilder implements Builder<CSVColumnTable>, CSVRecordVisitor {
+	private final Charset charset;
+	private final char separator;
+	private final List<ColumnBuilder> columns = new ArrayList<ColumnBuilder>();
+	private CSVRecord headers;
+	private int[] recordSizes = new int[16];
+	private boolean uniformRecordSize = true;
+	private int size;
+
+	public CSVColumnTableBuilder() {
+		this(null, ',');
+	}
+
+	public CSVColumnTableBuilder(final Charset charset, final char separator) {
+		this.charset = charset;
+		this.separator = separator;
+	}
+
+	public void reset() {
+		this.columns.clear();
+		this.headers = null;
+		this.recordSizes = new int[16];
+		this.uniformRecordSize = true;
+		this.size = 0;
+	}
+
+	public CSVColumnTableBuilder setHeaders(final CSVRecord headers) {
+		this.headers = headers;
+		return this;
+	}
+
+	public CSVColumnTableBuilder appendRecord(final CSVRecord record) {
+		ContractCheck.mustNotBeNull(record, "record"); //$NON-NLS-1$
+		final int fieldCount = record.size();
+		if (this.size > 0 && fieldCount != this.columns.size()) {
+			this.uniformRecordSize = false;
+		}
+		while (this.columns.size() < fieldCount) {
+			this.columns.add(new ColumnBuilder(this.size));
+		}
+		for (int i = 0; i < this.columns.size(); i++) {
+			this.columns.get(i).append(i < fieldCount ? record.getField(i) : null);
+		}
+		if (this.size == this.recordSizes.length) {
+			final int[] temp = new int[this.size * 2];
+			System.arraycopy(this.recordSizes, 0, temp, 0, this.size);
+			this.recordSizes = temp;
+		}
+		this.recordSizes[this.size++] = fieldCount;
+		return this;
+	}
+
+	public CSVColumnTableBuilder appendRecords(final Iterable<CSVRecord> records) {
+		for (final CSVRecord record : records) {
+			appendRecord(record);
+		}
+		return this;
+	}
+
+	public void visitHeaders(final CSVRecord headerRecord) {
+		setHeaders(headerRecord);
+	}
+
+	public void visitRecord(final CSVRecord record) {
+		appendRecord(record);
+	}
+
+	public CSVColumnTable build() {
+		final CSVColumnTable.Column[] result = new CSVColumnTable.Column[this.columns.size()];
+		for (int i = 0; i < result.length; i++) {
+			result[i] = this.columns.get(i).build();
+		}
+		int[] sizes = null;
+		if (!this.uniformRecordSize) {
+			sizes = new int[this.size];
+			System.arraycopy(this.recordSizes, 0, sizes, 0, this.size);
+		}
+		return new CSVColumnTable(this.charset, this.separator, this.headers, result, sizes, this.size);
+	}
+
+	private static final class ColumnBuilder {
+		private char[] data = new char[256];
+		private int length;
+		private int[] ends;
+		private int count;
+		private final BitSet nulls = new BitSet();
+
+		ColumnBuilder(final int leadingNulls) {
+			this.ends = new int[Math.max(16, leadingNulls * 2)];
+			this.nulls.set(0, leadingNulls);
+			this.count = leadingNulls;
+		}
+
+		void append(final String value) {
+			if (this.count == this.ends.length) {
+				final int[] temp = new int[this.count * 2];
+				System.arraycopy(this.ends, 0, temp, 0, this.count);
+				this.ends = temp;
+			}
+			if (value == null) {
+				this.nulls.set(this.count);
+			} else {
+				final int valueLength = value.length();
+				if (this.length + valueLength > this.data.length) {
+					final char[] temp = new char[Math.max(this.data.length * 2, this.length + valueLength)];
+					System.arraycopy(this.data, 0, temp, 0, this.length);
+					this.data = temp;
+				}
+				value.getChars(0, valueLength, this.data, this.length);
+				this.length += valueLength;
+			}
+			this.ends[this.count++] = this.length;
+		}
+
+		CSVColumnTable.Column build() {
+			final char[] resultData = new char[this.length];
+			System.arraycopy(this.data, 0, resultData, 0, this.length);
+			final int[] resultEnds = new int[this.count];
+			System.arraycopy(this.ends, 0, resultEnds, 0, this.count);
+			return new CSVColumnTable.Column(resultData, resultEnds, (BitSet) this.nulls.clone());
+		}
+	}
+
+}
@@ -0,0 +1,261 @@
+/*
+ * Copyright (c) 2009 Stephan Schloepke and innoQ Deutschland GmbH
+ * 
+ * Stephan Schloepke: http://www.schloepke.de/
+ * innoQ Deutschland GmbH: http://www.innoq.com/
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.jbasics.csv;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.CharBuffer;
+
+import org.jbasics.checker.ContractCheck;
+
+/**
+ * Low level tokenizer splitting CSV data into fields without creating any objects per field or record. Each field is
+ * handed to a {@link CSVFieldVisitor} as a {@link CharSequence} view on the read buffer. Only fields which cannot be
+ * represented as one consecutive part of the input (like fields with escaped quotes) are copied into a reused scratch
+ * buffer. This allows to process only the fields of interest and never create a {@link String} for the others.
+ * <p>
+ * The tokenizer is the state machine used by the {@link CSVRecordReader} and therefore by the {@link CSVParser} as
+ * well. It is not thread safe.
+ * </p>
+ *
+ * @author Stephan Schloepke
+ * @since 1.0
+ */
+public class CSVFieldTokenizer implements Closeable {
+	public static final int DEFAULT_BUFFER_SIZE = 8192;
+
+	private final Readable in;
+	private final boolean skipEmptyLines;
+	private final char separator;
+	private final FieldSlice slice = new FieldSlice();
+	private final StringBuilder scratch = new StringBuilder(32);
+	private char[] data;
+	private CharBuffer buf;
+	private int position;
+	private int limit;
+	private boolean eof;
+	private boolean lastWasCarriageReturn;
+	// The current field is either data[fieldStart, fieldEnd) or in the scratch buffer if copying
+	private int fieldStart;
+	private int fieldEnd;
+	private boolean copying;
+
+	public CSVFieldTokenizer(final Readable in) {
+		this(in, ',', true);
+	}
+
+	public CSVFieldTokenizer(final Readable in, final char separator, final boolean skipEmptyLines) {
+		this(in, separator, skipEmptyLines, CSVFieldTokenizer.DEFAULT_BUFFER_SIZE);
+	}
+
+	public CSVFieldTokenizer(final Readable in, final char separator, final boolean skipEmptyLines, final int bufferSize) {
+		this.in = ContractCheck.mustNotBeNull(in, "in"); //$NON-NLS-1$
+		this.separator = separator;
+		this.skipEmptyLines = skipEmptyLines;
+		this.data = new char[ContractCheck.mustBeInRange(bufferSize, 1, Integer.MAX_VALUE, "bufferSize")]; //$NON-NLS-1$
+		this.buf = CharBuffer.wrap(this.data);
+	}
+
+	public char getSeparator() {
+		return this.separator;
+	}
+
+	public boolean isSkipEmptyLines() {
+		return this.skipEmptyLines;
+	}
+
+	/**
+	 * Tokenizes the next record and hands all its fields to the visitor.
+	 *
+	 * @param visitor The visitor receiving the fields
+	 * @return The number of fields of the record or -1 if the end of the input is reached
+	 * @throws IOException If reading from the underlying {@link Readable} failed
+	 */
+	public int nextRecord(final CSVFieldVisitor visitor) throws IOException {
+		ParsingState state = ParsingState.NONE;
+		boolean recordStarted = false;
+		int fieldIndex = 0;
+		startField(this.position);
+		while (fill()) {
+			final int i = this.position++;
+			final char c = this.data[i];
+			if (this.lastWasCarriageReturn) {
+				this.lastWasCarriageReturn = false;
+				if (c == '\n' && state == ParsingState.NONE && !recordStarted) {
+					startField(this.position);
+					continue;
+				}
+			}
+			if (state == ParsingState.QUOTED) {
+				if (c == '"') {
+					state = ParsingState.QUOTED_END;
+				} else {
+					appendToField(i);
+				}
+				continue;
+			} else if (state == ParsingState.QUOTED_END) {
+				if (c == '"') {
+					appendToField(i);
+					state = ParsingState.QUOTED;
+					continue;
+				}
+				state = ParsingState.NONE;
+			}
+			switch (c) {
+				case '\r':
+				case '\n':
+					// a carriage return ends the record like a line feed, a directly following line feed is skipped
+					this.lastWasCarriageReturn = c == '\r';
+					if (recordStarted || !this.skipEmptyLines) {
+						emitField(visitor, fieldIndex++);
+						return fieldIndex;
+					}
+					startField(this.position);
+					break;
+				case '"':
+					recordStarted = true;
+					state = ParsingState.QUOTED;
+					if (!this.copying && this.fieldStart == this.fieldEnd) {
+						// opening quote of the field, the value starts right after it
+						startField(this.position);
+					}
+					break;
+				default:
+					recordStarted = true;
+					if (c == this.separator) {
+						emitField(visitor, fieldIndex++);
+						startField(this.position);
+					} else {
+						appendToField(i);
+					}
+			}
+		}
+		// we read all data so we need to finish the last record if any data was read for it
+		if (recordStarted) {
+			emitField(visitor, fieldIndex++);
+			return fieldIndex;
+		}
+		return -1;
+	}
+
+	public void close() throws IOException {
+		if (this.in instanceof Closeable) {
+			((Closeable) this.in).close();
+		}
+	}
+
+	private void startField(final int start) {
+		this.fieldStart = start;
+		this.fieldEnd = start;
+		this.copying = false;
+	}
+
+	private void appendToField(final int index) {
+		if (this.copying) {
+			this.scratch.append(this.data[index]);
+		} else if (this.fieldEnd == index) {
+			this.fieldEnd++;
+		} else {
+			// the field is not consecutive in the buffer anymore so we need to copy it
+			this.scratch.setLength(0);
+			this.scratch.append(this.data, this.fieldStart, this.fieldEnd - this.fieldStart).append(this.data[index]);
+			this.copying = true;
+		}
+	}
+
+	private void emitField(final CSVFieldVisitor visitor, final int fieldIndex) {
+		if (this.copying) {
+			visitor.visitField(fieldIndex, this.scratch);
+		} else {
+			this.slice.offset = this.fieldStart;
+			this.slice.length = this.fieldEnd - this.fieldStart;
+			visitor.visitField(fieldIndex, this.slice);
+		}
+	}
+
+	private boolean fill() throws IOException {
+		if (this.position < this.limit) {
+			return true;
+		}
+		if (this.eof) {
+			return false;
+		}
+		// keep the part of the current field which is still in the buffer
+		final int keep = this.copying ? this.limit : Math.min(this.fieldStart, this.limit);
+		final int remaining = this.limit - keep;
+		if (remaining == this.data.length) {
+			final char[] temp = new char[this.data.length * 2];
+			System.arraycopy(this.data, 0, temp, 0, remaining);
+			this.data = temp;
+			this.buf = CharBuffer.wrap(this.data);
+		} else if (remaining > 0) {
+			System.arraycopy(this.data, keep, this.data, 0, remaining);
+		}
+		this.fieldStart -= keep;
+		this.fieldEnd -= keep;
+		this.position = this.limit = remaining;
+		this.buf.limit(this.data.length).position(remaining);
+		final int read = this.in.read(this.buf);
+		if (read <= 0) {
+			this.eof = true;
+			return false;
+		}
+		this.limit += read;
+		return true;
+	}
+
+	private enum ParsingState {
+		NONE, QUOTED, QUOTED_END
+	}
+
+	private final class FieldSlice implements CharSequence {
+		int offset;
+		int length;
+
+		public int length() {
+			return this.length;
+		}
+
+		public char charAt(final int index) {
+			if (index < 0 || index >= this.length) {
+				throw new IndexOutOfBoundsException(Integer.toString(index));
+			}
+			return CSVFieldTokenizer.this.data[this.offset + index];
+		}
+
+		public CharSequence subSequence(final int start, final int end) {
+			if (start < 0 || end > this.length || start > end) {
+				throw new IndexOutOfBoundsException(start + "," + end); //$NON-NLS-1$
+			}
+			return new String(CSVFieldTokenizer.this.data, this.offset + start, end - start);
+		}
+
+		@Override
+		public String toString() {
+			return new String(CSVFieldTokenizer.this.data, this.offset, this.length);
+		}
+	}
+
+}
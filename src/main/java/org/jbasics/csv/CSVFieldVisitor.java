@@ -0,0 +1,51 @@
+/*
+ * Copyright (c) 2009 Stephan Schloepke and innoQ Deutschland GmbH
+ * 
+ * Stephan Schloepke: http://www.schloepke.de/
+ * innoQ Deutschland GmbH: http://www.innoq.com/
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.jbasics.csv;
+
+import org.jbasics.pattern.visitor.Visitor;
+
+/**
+ * Visitor receiving the fields of a record from the {@link CSVFieldTokenizer}.
+ * <p>
+ * The {@link CharSequence} handed to the visitor is only valid during the call. It is a view on the read buffer of
+ * the tokenizer (or a reused scratch buffer for fields with escaped quotes) and changes as soon as the tokenizer
+ * continues. If the value is required later it needs to be copied (for instance by calling
+ * {@link CharSequence#toString()}).
+ * </p>
+ *
+ * @author Stephan Schloepke
+ * @since 1.0
+ */
+public interface CSVFieldVisitor extends Visitor {
+
+	/**
+	 * Called for every field of the current record in order.
+	 *
+	 * @param index The index of the field within the record (starting with zero)
+	 * @param value The value of the field only valid during this call
+	 */
+	void visitField(int index, CharSequence value);
+
+}
@@ -0,0 +1,309 @@
+/*
+ * Copyright (c) 2009 Stephan Schloepke and innoQ Deutschland GmbH
+ * 
+ * Stephan Schloepke: http://www.schloepke.de/
+ * innoQ Deutschland GmbH: http://www.innoq.com/
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.jbasics.csv;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.charset.Charset;
+import java.util.LinkedList;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.jbasics.checker.ContractCheck;
+import org.jbasics.exception.DelegatedException;
+
+/**
+ * Parses large CSV files by memory mapping the file, splitting it into chunks at record boundaries and parsing the
+ * chunks in parallel. The records are delivered in the order of the file and are the same as the {@link CSVParser}
+ * would produce for the same data.
+ * <p>
+ * Splitting at record boundaries requires to know if a line break is inside of a quoted field. This is done by a
+ * single sequential pass over the raw bytes counting the quotes which is much cheaper than decoding and parsing. It
+ * requires a charset where the line break, quote and separator are single bytes which can never be part of a multi
+ * byte sequence (like UTF-8 or any ISO-8859 charset). For any other charset the file is parsed sequentially.
+ * </p>
+ *
+ * @author Stephan Schloepke
+ * @since 1.0
+ */
+public class CSVMappedFileParser {
+	public static final int DEFAULT_CHUNK_SIZE = 4 * 1024 * 1024;
+	private static final int SCAN_WINDOW_SIZE = 64 * 1024 * 1024;
+
+	private final boolean parseWithHeaders;
+	private final boolean skipEmptyLines;
+	private final char separator;
+	private final Charset charset;
+	private final int chunkSize;
+	private final ExecutorService executor;
+
+	public CSVMappedFileParser() {
+		this(true, ',', true);
+	}
+
+	public CSVMappedFileParser(final boolean parseWithHeaders, final char separator, final boolean skipEmptyLines) {
+		this(parseWithHeaders, separator, skipEmptyLines, null, CSVMappedFileParser.DEFAULT_CHUNK_SIZE, null);
+	}
+
+	/**
+	 * Creates a parser with the given settings.
+	 *
+	 * @param parseWithHeaders True if the first record is the header record
+	 * @param separator The field separator
+	 * @param skipEmptyLines True if empty lines should be skipped
+	 * @param charset The charset of the files (null for the default charset)
+	 * @param chunkSize The approximate size of the chunks in bytes
+	 * @param executor The executor to parse the chunks with. If null a fixed thread pool with one thread per
+	 *            available processor is created for each file parsed.
+	 */
+	public CSVMappedFileParser(final boolean parseWithHeaders, final char separator, final boolean skipEmptyLines, final Charset charset,
+			final int chunkSize, final ExecutorService executor) {
+		this.parseWithHeaders = parseWithHeaders;
+		this.separator = separator;
+		this.skipEmptyLines = skipEmptyLines;
+		this.charset = charset == null ? Charset.defaultCharset() : charset;
+		this.chunkSize = ContractCheck.mustBeInRange(chunkSize, 1, Integer.MAX_VALUE, "chunkSize"); //$NON-NLS-1$
+		this.executor = executor;
+	}
+
+	public CSVTable parse(final File file) throws IOException {
+		final CSVParser.TableCollector collector = new CSVParser.TableCollector();
+		parse(file, collector);
+		return new CSVTable(this.charset, this.separator, collector.headers, collector.records.toArray(new CSVRecord[collector.records.size()]));
+	}
+
+	/**
+	 * Parses the file and hands the records to the visitor in the order of the file. Only a bounded number of chunks is
+	 * parsed ahead of the visitor so the memory needed does not depend on the size of the file.
+	 *
+	 * @param file The file to parse
+	 * @param visitor The visitor receiving the headers (if parsed with headers) and records
+	 * @throws IOException If reading the file failed
+	 */
+	public void parse(final File file, final CSVRecordVisitor visitor) throws IOException {
+		ContractCheck.mustNotBeNull(file, "file"); //$NON-NLS-1$
+		ContractCheck.mustNotBeNull(visitor, "visitor"); //$NON-NLS-1$
+		final FileInputStream in = new FileInputStream(file);
+		try {
+			if (!isSplittable()) {
+				new CSVParser(this.parseWithHeaders, this.separator, this.skipEmptyLines).parse(new InputStreamReader(in, this.charset), visitor);
+			} else {
+				parseChunks(in.getChannel(), visitor);
+			}
+		} finally {
+			in.close();
+		}
+	}
+
+	private void parseChunks(final FileChannel channel, final CSVRecordVisitor visitor) throws IOException {
+		final ExecutorService service = this.executor != null ? this.executor : Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
+		final int maxPending = Runtime.getRuntime().availableProcessors() * 2;
+		final LinkedList<Future<CSVParser.TableCollector>> pending = new LinkedList<Future<CSVParser.TableCollector>>();
+		try {
+			final ChunkScanner scanner = new ChunkScanner(channel);
+			boolean first = true;
+			long start = 0;
+			long end;
+			while ((end = scanner.nextBoundary(start)) > start) {
+				pending.add(service.submit(new ChunkParser(channel, start, end - start, first && this.parseWithHeaders)));
+				first = false;
+				start = end;
+				if (pending.size() >= maxPending) {
+					deliver(pending.removeFirst(), visitor);
+				}
+			}
+			while (!pending.isEmpty()) {
+				deliver(pending.removeFirst(), visitor);
+			}
+		} finally {
+			for (final Future<CSVParser.TableCollector> future : pending) {
+				future.cancel(true);
+			}
+			if (service != this.executor) {
+				service.shutdown();
+			}
+		}
+	}
+
+	private void deliver(final Future<CSVParser.TableCollector> future, final CSVRecordVisitor visitor) throws IOException {
+		final CSVParser.TableCollector chunk;
+		try {
+			chunk = future.get();
+		} catch (final InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw DelegatedException.delegate(e);
+		} catch (final ExecutionException e) {
+			if (e.getCause() instanceof IOException) {
+				throw (IOException) e.getCause();
+			}
+			throw DelegatedException.delegate(e.getCause());
+		}
+		if (chunk.headers != null) {
+			visitor.visitHeaders(chunk.headers);
+		}
+		for (final CSVRecord record : chunk.records) {
+			visitor.visitRecord(record);
+		}
+	}
+
+	private boolean isSplittable() {
+		if (!this.charset.canEncode()) {
+			return false;
+		}
+		final char[] structural = new char[] { '\n', '\r', '"', this.separator };
+		final ByteBuffer encoded = this.charset.encode(CharBuffer.wrap(structural));
+		if (encoded.remaining() != structural.length) {
+			return false;
+		}
+		for (final char c : structural) {
+			if (c > 0x7f || encoded.get() != (byte) c) {
+				return false;
+			}
+		}
+		// A multi byte charset could still use the bytes inside of a sequence. We only trust those we know.
+		return this.charset.newEncoder().maxBytesPerChar() == 1.0f || "UTF-8".equals(this.charset.name()); //$NON-NLS-1$
+	}
+
+	/**
+	 * Finds the chunk boundaries by tracking the quote state over the raw bytes. A boundary is always placed right
+	 * after a line break (line feed, carriage return line feed or a lone carriage return) outside of a quoted field so
+	 * every chunk starts with a new record.
+	 */
+	private final class ChunkScanner {
+		private final FileChannel channel;
+		private final long size;
+		private MappedByteBuffer window;
+		private long windowStart;
+		private boolean quoted;
+
+		ChunkScanner(final FileChannel channel) throws IOException {
+			this.channel = channel;
+			this.size = channel.size();
+		}
+
+		long nextBoundary(final long start) throws IOException {
+			if (start >= this.size) {
+				return start;
+			}
+			final long target = Math.min(start + CSVMappedFileParser.this.chunkSize, this.size);
+			long position = start;
+			while (position < this.size) {
+				final byte b = byteAt(position++);
+				if (b == '"') {
+					this.quoted = !this.quoted;
+				} else if (!this.quoted && position >= target) {
+					if (b == '\n' || b == '\r' && (position == this.size || byteAt(position) != '\n')) {
+						return position;
+					}
+				}
+			}
+			return this.size;
+		}
+
+		private byte byteAt(final long position) throws IOException {
+			if (this.window == null || position < this.windowStart || position >= this.windowStart + this.window.limit()) {
+				this.windowStart = position;
+				this.window = this.channel.map(MapMode.READ_ONLY, position, Math.min(CSVMappedFileParser.SCAN_WINDOW_SIZE, this.size - position));
+			}
+			return this.window.get((int) (position - this.windowStart));
+		}
+	}
+
+	/**
+	 * Parses one chunk. A chunk which cannot be mapped as a single buffer (a record spanning more than 2GB) is read
+	 * through the channel instead.
+	 */
+	private final class ChunkParser implements Callable<CSVParser.TableCollector> {
+		private final FileChannel channel;
+		private final long start;
+		private final long length;
+		private final boolean withHeaders;
+
+		ChunkParser(final FileChannel channel, final long start, final long length, final boolean withHeaders) {
+			this.channel = channel;
+			this.start = start;
+			this.length = length;
+			this.withHeaders = withHeaders;
+		}
+
+		public CSVParser.TableCollector call() throws IOException {
+			final CSVParser parser = new CSVParser(this.withHeaders, CSVMappedFileParser.this.separator, CSVMappedFileParser.this.skipEmptyLines);
+			final CSVParser.TableCollector result = new CSVParser.TableCollector();
+			if (this.length <= Integer.MAX_VALUE) {
+				final MappedByteBuffer chunk = this.channel.map(MapMode.READ_ONLY, this.start, this.length);
+				parser.parse(CSVMappedFileParser.this.charset.decode(chunk), result);
+			} else {
+				parser.parse(new InputStreamReader(new ChannelRegionInputStream(this.channel, this.start, this.length), CSVMappedFileParser.this.charset),
+						result);
+			}
+			return result;
+		}
+	}
+
+	/**
+	 * Reads a region of a file channel with positional reads so several regions can be read concurrently.
+	 */
+	private static final class ChannelRegionInputStream extends InputStream {
+		private final FileChannel channel;
+		private long position;
+		private final long end;
+
+		ChannelRegionInputStream(final FileChannel channel, final long start, final long length) {
+			this.channel = channel;
+			this.position = start;
+			this.end = start + length;
+		}
+
+		@Override
+		public int read() throws IOException {
+			final byte[] temp = new byte[1];
+			return read(temp, 0, 1) < 0 ? -1 : temp[0] & 0xff;
+		}
+
+		@Override
+		public int read(final byte[] b, final int off, final int len) throws IOException {
+			if (this.position >= this.end) {
+				return -1;
+			}
+			final int count = this.channel.read(ByteBuffer.wrap(b, off, (int) Math.min(len, this.end - this.position)), this.position);
+			if (count > 0) {
+				this.position += count;
+			}
+			return count;
+		}
+	}
+
+}
@@ -24,19 +24,18 @@
  */
 package org.jbasics.csv;
 
-import java.io.Closeable;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.io.StringReader;
 import java.net.URL;
 import java.net.URLConnection;
-import java.nio.CharBuffer;
 import java.nio.charset.Charset;
 import java.nio.charset.UnsupportedCharsetException;
 import java.util.ArrayList;
 import java.util.List;
 
+import org.jbasics.checker.ContractCheck;
 import org.jbasics.exception.DelegatedException;
 
 public class CSVParser {
@@ -97,90 +96,59 @@ public class CSVParser {
 	}
 
 	public CSVTable parse(final Readable reader) throws IOException {
-		final List<CSVRecord> records = new ArrayList<CSVRecord>();
-		final List<String> fields = new ArrayList<String>();
-		final CharBuffer buf = CharBuffer.allocate(128);
-		final StringBuffer fieldData = new StringBuffer(32);
-		ParsingState state = ParsingState.NONE;
-		boolean skipReadNext = false;
-		char c = ' ';
-		while (reader.read(buf) > 0) {
-			buf.flip();
-			while (buf.hasRemaining()) {
-				if (!skipReadNext) {
-					c = buf.get();
-				} else {
-					skipReadNext = false;
-				}
-				switch (state) {
-					case QUOTED_END:
-						if (c == '"') {
-							fieldData.append(c);
-							state = ParsingState.QUOTED;
-						} else {
-							state = ParsingState.NONE;
-							skipReadNext = true;
-						}
-						break;
-					case QUOTED:
-						if (c == '"') {
-							state = ParsingState.QUOTED_END;
-						} else {
-							fieldData.append(c);
-						}
-						break;
-					case RECORD_END:
-						state = ParsingState.NONE;
-						if (this.skipEmptyLines) {
-							if (fields.size() == 0 && fieldData.length() == 0) {
-								break;
-							}
-						}
-						fields.add(fieldData.toString());
-						fieldData.setLength(0);
-						records.add(new CSVRecord(fields));
-						fields.clear();
-						if (c == '\n') {
-							break;
-						}
-					case NONE:
-						switch (c) {
-							case '\n':
-							case '\r':
-								state = ParsingState.RECORD_END;
-								break;
-							case '"':
-								state = ParsingState.QUOTED;
-								break;
-							default:
-								if (c == this.separator) {
-									fields.add(fieldData.toString());
-									fieldData.setLength(0);
-								} else {
-									fieldData.append(c);
-								}
-						}
-				}
+		final TableCollector collector = new TableCollector();
+		parse(reader, collector);
+		return new CSVTable(null, this.separator, collector.headers, collector.records.toArray(new CSVRecord[collector.records.size()]));
+	}
+
+	/**
+	 * Parses the given input and hands each record to the visitor as soon as it is read. Unlike
+	 * {@link #parse(Readable)} no record is kept in memory by the parser so any amount of data can be processed. The
+	 * reader is closed after all records are visited.
+	 *
+	 * @param reader The input to parse
+	 * @param visitor The visitor receiving the headers (if parsed with headers) and records
+	 * @throws IOException If reading the input failed
+	 */
+	public void parse(final Readable reader, final CSVRecordVisitor visitor) throws IOException {
+		ContractCheck.mustNotBeNull(visitor, "visitor"); //$NON-NLS-1$
+		final CSVRecordReader recordReader = createReader(reader);
+		try {
+			CSVRecord record = recordReader.readNext();
+			if (this.parseWithHeaders && record != null) {
+				visitor.visitHeaders(record);
+				record = recordReader.readNext();
 			}
-			buf.clear();
-		}
-		if (fieldData.length() > 0) {
-			fields.add(fieldData.toString());
-		}
-		if (!fields.isEmpty()) {
-			records.add(new CSVRecord(fields));
-		}
-		if (reader instanceof Closeable) {
-			((Closeable) reader).close();
-		}
-		if (this.parseWithHeaders && !records.isEmpty()) {
-			return new CSVTable(null, this.separator, records.get(0), records.subList(1, records.size()).toArray(new CSVRecord[records.size() - 1]));
-		} else {
-			return new CSVTable(null, this.separator, (CSVRecord) null, records.toArray(new CSVRecord[records.size()]));
+			while (record != null) {
+				visitor.visitRecord(record);
+				record = recordReader.readNext();
+			}
+		} finally {
+			recordReader.close();
 		}
 	}
 
-	private enum ParsingState {
-		NONE, QUOTED, QUOTED_END, RECORD_END
+	/**
+	 * Creates a {@link CSVRecordReader} with the settings of this parser to lazily read the records from the given input.
+	 * If the parser is set to parse with headers the first record returned is the header record.
+	 *
+	 * @param reader The input to read from
+	 * @return The reader to read the records one by one
+	 */
+	public CSVRecordReader createReader(final Readable reader) {
+		return new CSVRecordReader(reader, this.separator, this.skipEmptyLines);
+	}
+
+	static final class TableCollector implements CSVRecordVisitor {
+		final List<CSVRecord> records = new ArrayList<CSVRecord>();
+		CSVRecord headers;
+
+		public void visitHeaders(final CSVRecord headers) {
+			this.headers = headers;
+		}
+
+		public void visitRecord(final CSVRecord record) {
+			this.records.add(record);
+		}
 	}
 }
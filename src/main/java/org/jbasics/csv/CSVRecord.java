@@ -85,37 +85,51 @@ public class CSVRecord implements Iterable<String>, Indexed<String> {
 
 	private Appendable appendValue(final String value, final Appendable appendable, final char separator) throws IOException {
 		if (value != null) {
-			final StringBuilder t = new StringBuilder();
-			boolean quote = false;
-			for (int i = 0; i < value.length(); i++) {
-				final char c = value.charAt(i);
-				t.append(c);
-				if (c == separator) {
-					quote = true;
-				} else {
-					switch (c) {
-						case '"':
-							t.append('"');
-						case ',':
-						case '\n':
-						case '\r':
-							quote = true;
-							break;
+			switch (CSVRecord.quoting(value, separator)) {
+				case NONE:
+					appendable.append(value);
+					break;
+				case QUOTE:
+					appendable.append('"').append(value).append('"');
+					break;
+				case QUOTE_AND_ESCAPE:
+					appendable.append('"');
+					int start = 0;
+					for (int i = value.indexOf('"'); i >= 0; i = value.indexOf('"', i + 1)) {
+						appendable.append(value, start, i + 1).append('"');
+						start = i + 1;
 					}
-				}
-			}
-			if (quote) {
-				appendable.append('"').append(t).append('"');
-			} else {
-				appendable.append(t);
+					appendable.append(value, start, value.length()).append('"');
+					break;
 			}
 		}
 		return appendable;
 	}
 
+	/**
+	 * Checks if the value needs to be quoted in order to be written with the given separator. The value is only scanned
+	 * so no copy needs to be created for values which can be written as they are.
+	 */
+	static Quoting quoting(final String value, final char separator) {
+		Quoting result = Quoting.NONE;
+		for (int i = 0; i < value.length(); i++) {
+			final char c = value.charAt(i);
+			if (c == '"') {
+				return Quoting.QUOTE_AND_ESCAPE;
+			} else if (c == separator || c == ',' || c == '\n' || c == '\r') {
+				result = Quoting.QUOTE;
+			}
+		}
+		return result;
+	}
+
 	@Override
 	public String getElementAtIndex(final int index) {
 		return getField(index);
 	}
 
+	enum Quoting {
+		NONE, QUOTE, QUOTE_AND_ESCAPE
+	}
+
 }
@@ -69,6 +69,35 @@ public class CSVRecordConverter implements Transposer<CSVRecord, Indexed<String>
 		this.mappings = mappings;
 	}
 
+	/**
+	 * Creates a transposer mapping records with the given headers to instances of the type by setting the fields named
+	 * like the headers. The column indexes and converters are resolved once so each record is mapped without any
+	 * header lookup.
+	 *
+	 * @param type The type to create (requires a no arg constructor)
+	 * @param headers The headers of the CSV data
+	 * @return The compiled mapping
+	 * @see CSVRecordMapper#forFields(Class, Indexed)
+	 */
+	public static <T> Transposer<T, Indexed<String>> createFieldMapping(final Class<T> type, final Indexed<String> headers) {
+		return CSVRecordMapper.forFields(type, headers);
+	}
+
+	/**
+	 * Creates a transposer mapping records with the given headers to instances of the type by calling its constructor
+	 * with the values of the named columns in order.
+	 *
+	 * @param type The type to create
+	 * @param headers The headers of the CSV data
+	 * @param columnNames The names of the columns to use as constructor parameters in order
+	 * @return The compiled mapping
+	 * @see CSVRecordMapper#forConstructor(Class, Indexed, String...)
+	 */
+	public static <T> Transposer<T, Indexed<String>> createConstructorMapping(final Class<T> type, final Indexed<String> headers,
+			final String... columnNames) {
+		return CSVRecordMapper.forConstructor(type, headers, columnNames);
+	}
+
 	@Override
 	public CSVRecord transpose(final Indexed<String> input) {
 		final String[] temp = new String[this.mappings.length];
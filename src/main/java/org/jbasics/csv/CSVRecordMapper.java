@@ -0,0 +1,333 @@
+/*
+ * Copyright (c) 2009 Stephan Schloepke and innoQ Deutschland GmbH
+ * 
+ * Stephan Schloepke: http://www.schloepke.de/
+ * innoQ Deutschland GmbH: http://www.innoq.com/
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.jbasics.csv;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.jbasics.checker.ContractCheck;
+import org.jbasics.configuration.properties.ValueTypeFactory;
+import org.jbasics.exception.DelegatedException;
+import org.jbasics.pattern.container.Indexed;
+import org.jbasics.pattern.factory.ParameterFactory;
+import org.jbasics.pattern.transpose.Transposer;
+import org.jbasics.pattern.visitor.SingleVisitor;
+
+/**
+ * Maps CSV records to instances of a type either by setting fields or by calling a constructor. All the work of
+ * matching the header names, looking up the fields or constructor and resolving the converters from the
+ * {@link ValueTypeFactory} is done once when the mapper is created. Mapping a record only accesses the fields by
+ * their column index and converts them with the cached converter.
+ * <p>
+ * Empty fields are mapped to null for all types other than {@link String}. A null value is never set to a primitive
+ * field so it keeps its default value. A primitive constructor parameter gets the default value of its type (zero or
+ * false) for an empty or missing field.
+ * </p>
+ *
+ * @author Stephan Schloepke
+ * @param <T> The type of the instances created
+ * @since 1.0
+ */
+public abstract class CSVRecordMapper<T> implements Transposer<T, Indexed<String>> {
+	private final int[] columns;
+	private final ParameterFactory<?, String>[] converters;
+	private final boolean[] primitive;
+	private final boolean[] emptyAllowed;
+
+	@SuppressWarnings("unchecked")
+	CSVRecordMapper(final int[] columns, final Class<?>[] types) {
+		this.columns = columns;
+		this.converters = (ParameterFactory<?, String>[]) new ParameterFactory<?, ?>[types.length];
+		this.primitive = new boolean[types.length];
+		this.emptyAllowed = new boolean[types.length];
+		for (int i = 0; i < types.length; i++) {
+			this.converters[i] = ValueTypeFactory.getFactory(types[i]);
+			if (this.converters[i] == null) {
+				throw new IllegalArgumentException("No value type factory registered for " + types[i]); //$NON-NLS-1$
+			}
+			this.primitive[i] = types[i].isPrimitive();
+			this.emptyAllowed[i] = types[i] == String.class;
+		}
+	}
+
+	/**
+	 * Creates a mapper setting the fields of the type named like the headers (case is ignored if no exact match
+	 * exists). Static and final fields as well as headers without a matching field are ignored.
+	 *
+	 * @param type The type to create (requires a no arg constructor)
+	 * @param headers The headers of the CSV data
+	 * @return The mapper
+	 */
+	public static <T> CSVRecordMapper<T> forFields(final Class<T> type, final Indexed<String> headers) {
+		ContractCheck.mustNotBeNull(headers, "headers"); //$NON-NLS-1$
+		final Map<String, Field> exact = new HashMap<String, Field>();
+		final Map<String, Field> ignoreCase = new HashMap<String, Field>();
+		for (Class<?> current = ContractCheck.mustNotBeNull(type, "type"); current != null && current != Object.class; current = current //$NON-NLS-1$
+				.getSuperclass()) {
+			for (final Field field : current.getDeclaredFields()) {
+				if ((field.getModifiers() & (Modifier.STATIC | Modifier.FINAL)) == 0 && !exact.containsKey(field.getName())) {
+					exact.put(field.getName(), field);
+					ignoreCase.put(field.getName().toLowerCase(), field);
+				}
+			}
+		}
+		final List<Integer> columns = new ArrayList<Integer>();
+		final List<Field> fields = new ArrayList<Field>();
+		for (int i = 0; i < headers.size(); i++) {
+			final String header = headers.getElementAtIndex(i);
+			if (header != null) {
+				Field field = exact.get(header.trim());
+				if (field == null) {
+					field = ignoreCase.get(header.trim().toLowerCase());
+				}
+				if (field != null) {
+					field.setAccessible(true);
+					columns.add(Integer.valueOf(i));
+					fields.add(field);
+				}
+			}
+		}
+		final int[] columnIndexes = new int[columns.size()];
+		for (int i = 0; i < columnIndexes.length; i++) {
+			columnIndexes[i] = columns.get(i).intValue();
+		}
+		try {
+			final Constructor<T> constructor = type.getDeclaredConstructor();
+			constructor.setAccessible(true);
+			return new FieldMapper<T>(constructor, columnIndexes, fields.toArray(new Field[fields.size()]));
+		} catch (final NoSuchMethodException e) {
+			throw new IllegalArgumentException("Type " + type + " requires a no arg constructor to map fields", e); //$NON-NLS-1$ //$NON-NLS-2$
+		}
+	}
+
+	/**
+	 * Creates a mapper calling the constructor of the type with the values of the given columns in that order. The
+	 * constructor used is the only one with as many parameters as column names given. If the type has more than one
+	 * such constructor use {@link #forConstructor(Class, Indexed, Class[], String...)}.
+	 *
+	 * @param type The type to create
+	 * @param headers The headers of the CSV data
+	 * @param columnNames The names of the columns to use as constructor parameters in order
+	 * @return The mapper
+	 */
+	@SuppressWarnings("unchecked")
+	public static <T> CSVRecordMapper<T> forConstructor(final Class<T> type, final Indexed<String> headers, final String... columnNames) {
+		ContractCheck.mustNotBeNull(columnNames, "columnNames"); //$NON-NLS-1$
+		Constructor<T> found = null;
+		for (final Constructor<?> constructor : ContractCheck.mustNotBeNull(type, "type").getDeclaredConstructors()) { //$NON-NLS-1$
+			if (constructor.getParameterTypes().length == columnNames.length) {
+				if (found != null) {
+					throw new IllegalArgumentException("Type " + type + " has more than one constructor with " + columnNames.length //$NON-NLS-1$ //$NON-NLS-2$
+							+ " parameters, the parameter types need to be given"); //$NON-NLS-1$
+				}
+				found = (Constructor<T>) constructor;
+			}
+		}
+		if (found == null) {
+			throw new IllegalArgumentException("Type " + type + " has no constructor with " + columnNames.length + " parameters"); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+		}
+		return CSVRecordMapper.createConstructorMapper(found, headers, columnNames);
+	}
+
+	/**
+	 * Creates a mapper calling the constructor of the type with the given parameter types with the values of the given
+	 * columns in that order.
+	 *
+	 * @param type The type to create
+	 * @param headers The headers of the CSV data
+	 * @param parameterTypes The parameter types of the constructor
+	 * @param columnNames The names of the columns to use as constructor parameters in order
+	 * @return The mapper
+	 */
+	public static <T> CSVRecordMapper<T> forConstructor(final Class<T> type, final Indexed<String> headers, final Class<?>[] parameterTypes,
+			final String... columnNames) {
+		ContractCheck.mustNotBeNull(parameterTypes, "parameterTypes"); //$NON-NLS-1$
+		if (ContractCheck.mustNotBeNull(columnNames, "columnNames").length != parameterTypes.length) { //$NON-NLS-1$
+			throw new IllegalArgumentException("The number of column names must match the number of parameter types"); //$NON-NLS-1$
+		}
+		try {
+			return CSVRecordMapper.createConstructorMapper(ContractCheck.mustNotBeNull(type, "type").getDeclaredConstructor(parameterTypes), headers, //$NON-NLS-1$
+					columnNames);
+		} catch (final NoSuchMethodException e) {
+			throw new IllegalArgumentException("Type " + type + " has no constructor with the given parameter types", e); //$NON-NLS-1$ //$NON-NLS-2$
+		}
+	}
+
+	private static <T> CSVRecordMapper<T> createConstructorMapper(final Constructor<T> constructor, final Indexed<String> headers,
+			final String[] columnNames) {
+		ContractCheck.mustNotBeNull(headers, "headers"); //$NON-NLS-1$
+		final int[] columnIndexes = new int[columnNames.length];
+		for (int i = 0; i < columnNames.length; i++) {
+			columnIndexes[i] = -1;
+			for (int j = 0; j < headers.size(); j++) {
+				if (columnNames[i].equals(headers.getElementAtIndex(j))) {
+					columnIndexes[i] = j;
+					break;
+				}
+			}
+			if (columnIndexes[i] < 0) {
+				throw new IllegalArgumentException("No column named " + columnNames[i] + " in the headers"); //$NON-NLS-1$ //$NON-NLS-2$
+			}
+		}
+		constructor.setAccessible(true);
+		return new ConstructorMapper<T>(constructor, columnIndexes);
+	}
+
+	/**
+	 * Creates a {@link CSVRecordVisitor} which creates a field mapper once the headers are visited and hands each
+	 * mapped record to the target visitor. Can be used with {@link CSVParser#parse(Readable, CSVRecordVisitor)} to
+	 * directly map the records of a CSV stream.
+	 *
+	 * @param type The type to create
+	 * @param target The visitor receiving the mapped instances
+	 * @return The record visitor
+	 */
+	public static <T> CSVRecordVisitor createVisitor(final Class<T> type, final SingleVisitor<? super T> target) {
+		ContractCheck.mustNotBeNull(type, "type"); //$NON-NLS-1$
+		ContractCheck.mustNotBeNull(target, "target"); //$NON-NLS-1$
+		return new CSVRecordVisitor() {
+			private CSVRecordMapper<T> mapper;
+
+			public void visitHeaders(final CSVRecord headers) {
+				this.mapper = CSVRecordMapper.forFields(type, headers);
+			}
+
+			public void visitRecord(final CSVRecord record) {
+				if (this.mapper == null) {
+					throw new IllegalStateException("Cannot map records without headers"); //$NON-NLS-1$
+				}
+				target.visit(this.mapper.transpose(record));
+			}
+		};
+	}
+
+	public T transpose(final Indexed<String> input) {
+		final Object[] values = new Object[this.columns.length];
+		for (int i = 0; i < values.length; i++) {
+			final int column = this.columns[i];
+			final String value = column < input.size() ? input.getElementAtIndex(column) : null;
+			if (value != null && (value.length() > 0 || this.emptyAllowed[i])) {
+				values[i] = this.converters[i].create(value);
+			}
+		}
+		try {
+			return create(values);
+		} catch (final InvocationTargetException e) {
+			throw DelegatedException.delegate(e.getCause());
+		} catch (final Exception e) {
+			throw DelegatedException.delegate(e);
+		}
+	}
+
+	boolean isPrimitive(final int index) {
+		return this.primitive[index];
+	}
+
+	abstract T create(Object[] values) throws Exception;
+
+	private static final class FieldMapper<T> extends CSVRecordMapper<T> {
+		private final Constructor<T> constructor;
+		private final Field[] fields;
+
+		FieldMapper(final Constructor<T> constructor, final int[] columns, final Field[] fields) {
+			super(columns, CSVRecordMapper.typesOf(fields));
+			this.constructor = constructor;
+			this.fields = fields;
+		}
+
+		@Override
+		T create(final Object[] values) throws Exception {
+			final T result = this.constructor.newInstance();
+			for (int i = 0; i < values.length; i++) {
+				if (values[i] != null || !isPrimitive(i)) {
+					this.fields[i].set(result, values[i]);
+				}
+			}
+			return result;
+		}
+	}
+
+	private static final class ConstructorMapper<T> extends CSVRecordMapper<T> {
+		private final Constructor<T> constructor;
+		private final Object[] defaults;
+
+		ConstructorMapper(final Constructor<T> constructor, final int[] columns) {
+			super(columns, constructor.getParameterTypes());
+			this.constructor = constructor;
+			final Class<?>[] types = constructor.getParameterTypes();
+			this.defaults = new Object[types.length];
+			for (int i = 0; i < types.length; i++) {
+				this.defaults[i] = CSVRecordMapper.defaultValueOf(types[i]);
+			}
+		}
+
+		@Override
+		T create(final Object[] values) throws Exception {
+			for (int i = 0; i < values.length; i++) {
+				if (values[i] == null) {
+					values[i] = this.defaults[i];
+				}
+			}
+			return this.constructor.newInstance(values);
+		}
+	}
+
+	static Object defaultValueOf(final Class<?> type) {
+		if (!type.isPrimitive()) {
+			return null;
+		} else if (type == Boolean.TYPE) {
+			return Boolean.FALSE;
+		} else if (type == Character.TYPE) {
+			return Character.valueOf((char) 0);
+		} else if (type == Byte.TYPE) {
+			return Byte.valueOf((byte) 0);
+		} else if (type == Short.TYPE) {
+			return Short.valueOf((short) 0);
+		} else if (type == Integer.TYPE) {
+			return Integer.valueOf(0);
+		} else if (type == Long.TYPE) {
+			return Long.valueOf(0L);
+		} else if (type == Float.TYPE) {
+			return Float.valueOf(0f);
+		} else {
+			return Double.valueOf(0d);
+		}
+	}
+
+	static Class<?>[] typesOf(final Field[] fields) {
+		final Class<?>[] result = new Class<?>[fields.length];
+		for (int i = 0; i < fields.length; i++) {
+			result[i] = fields[i].getType();
+		}
+		return result;
+	}
+
+}
@@ -26,17 +26,35 @@ package org.jbasics.csv;
 
 import java.io.Closeable;
 import java.io.IOException;
-import java.nio.CharBuffer;
 import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.List;
+import java.util.NoSuchElementException;
 
-import org.jbasics.checker.ContractCheck;
+import org.jbasics.exception.DelegatedException;
 
-public class CSVRecordReader implements Closeable {
-	private final Readable in;
-	private final boolean skipEmptyLines;
-	private final char separator;
-	private final CharBuffer buf = CharBuffer.allocate(128);
+/**
+ * Reads {@link CSVRecord}s one by one from a {@link Readable}. The reader only holds a read buffer and the
+ * record currently parsed in memory so it can be used to process CSV data of any size. The {@link CSVParser} uses the
+ * reader to do the actual parsing and the reader uses the {@link CSVFieldTokenizer} so all share the same state machine.
+ * <p>
+ * The reader can also be used as a single pass {@link Iterable} in a for each loop. Since the data is consumed while
+ * iterating only one iterator can be used and any {@link IOException} is thrown as {@link DelegatedException}.
+ * </p>
+ *
+ * @author Stephan Schloepke
+ * @since 1.0
+ */
+public class CSVRecordReader implements Closeable, Iterable<CSVRecord> {
+	public static final int DEFAULT_BUFFER_SIZE = CSVFieldTokenizer.DEFAULT_BUFFER_SIZE;
+
+	private final CSVFieldTokenizer tokenizer;
+	private final List<String> fields = new ArrayList<String>();
+	private final CSVFieldVisitor collector = new CSVFieldVisitor() {
+		public void visitField(final int index, final CharSequence value) {
+			CSVRecordReader.this.fields.add(value.toString());
+		}
+	};
 
 	public CSVRecordReader(final Readable in) {
 		this(in, true);
@@ -51,87 +69,67 @@ public class CSVRecordReader implements Closeable {
 	}
 
 	public CSVRecordReader(final Readable in, final char separator, final boolean skipEmptyLines) {
-		this.in = ContractCheck.mustNotBeNull(in, "in");
-		this.separator = separator;
-		this.skipEmptyLines = skipEmptyLines;
-		this.buf.flip();
+		this(in, separator, skipEmptyLines, CSVRecordReader.DEFAULT_BUFFER_SIZE);
+	}
+
+	public CSVRecordReader(final Readable in, final char separator, final boolean skipEmptyLines, final int bufferSize) {
+		this.tokenizer = new CSVFieldTokenizer(in, separator, skipEmptyLines, bufferSize);
+	}
+
+	public char getSeparator() {
+		return this.tokenizer.getSeparator();
+	}
+
+	public boolean isSkipEmptyLines() {
+		return this.tokenizer.isSkipEmptyLines();
 	}
 
+	/**
+	 * Reads the next record or returns null if the end of the input is reached.
+	 *
+	 * @return The next record or null if no more records are available.
+	 * @throws IOException If reading from the underlying {@link Readable} failed.
+	 */
 	public CSVRecord readNext() throws IOException {
-		final List<String> fields = new ArrayList<String>();
-		final StringBuffer fieldData = new StringBuffer(32);
-		ParsingState state = ParsingState.NONE;
-		do {
-			while (this.buf.hasRemaining()) {
-				final char c = this.buf.get();
-				switch (state) {
-					case QUOTED_END:
-						if (c == '"') {
-							fieldData.append(c);
-							state = ParsingState.QUOTED;
-						} else {
-							state = ParsingState.NONE;
-						}
-						break;
-					case QUOTED:
-						if (c == '"') {
-							state = ParsingState.QUOTED_END;
-						} else {
-							fieldData.append(c);
-						}
-						break;
-					case RECORD_END:
-						state = ParsingState.NONE;
-						if (this.skipEmptyLines) {
-							if (fields.size() == 0 && fieldData.length() == 0) {
-								break;
-							}
-						}
-						//this.buf.compact();
-						fields.add(fieldData.toString());
-						return new CSVRecord(fields);
-					case NONE:
-						switch (c) {
-							case '\n':
-							case '\r':
-								state = ParsingState.RECORD_END;
-								break;
-							case '"':
-								state = ParsingState.QUOTED;
-								break;
-							default:
-								if (c == this.separator) {
-									fields.add(fieldData.toString());
-									fieldData.setLength(0);
-								} else {
-									fieldData.append(c);
-								}
-						}
-				}
-			}
-			this.buf.clear();
-			final int read = this.in.read(this.buf);
-			this.buf.flip();
-		} while (this.buf.hasRemaining());
-
-		// we read all data so we need to finish the last stuff here. Suppose there should be no data left
-		if (fieldData.length() > 0) {
-			fields.add(fieldData.toString());
-		}
-		if (!fields.isEmpty()) {
-			return new CSVRecord(fields);
+		this.fields.clear();
+		if (this.tokenizer.nextRecord(this.collector) < 0) {
+			return null;
 		}
-		return null;
+		return new CSVRecord(this.fields);
 	}
 
-	public void close() throws IOException {
-		if (this.in instanceof Closeable) {
-			((Closeable) this.in).close();
-		}
+	public Iterator<CSVRecord> iterator() {
+		return new Iterator<CSVRecord>() {
+			private CSVRecord next;
+
+			public boolean hasNext() {
+				if (this.next == null) {
+					try {
+						this.next = readNext();
+					} catch (final IOException e) {
+						throw DelegatedException.delegate(e);
+					}
+				}
+				return this.next != null;
+			}
+
+			public CSVRecord next() {
+				if (!hasNext()) {
+					throw new NoSuchElementException();
+				}
+				final CSVRecord result = this.next;
+				this.next = null;
+				return result;
+			}
+
+			public void remove() {
+				throw new UnsupportedOperationException();
+			}
+		};
 	}
 
-	private enum ParsingState {
-		NONE, QUOTED, QUOTED_END, RECORD_END
+	public void close() throws IOException {
+		this.tokenizer.close();
 	}
 
 }
@@ -0,0 +1,53 @@
+/*
+ * Copyright (c) 2009 Stephan Schloepke and innoQ Deutschland GmbH
+ * 
+ * Stephan Schloepke: http://www.schloepke.de/
+ * innoQ Deutschland GmbH: http://www.innoq.com/
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.jbasics.csv;
+
+import org.jbasics.pattern.visitor.Visitor;
+
+/**
+ * Visitor receiving the records of a CSV input one by one while it is parsed. Used by
+ * {@link CSVParser#parse(Readable, CSVRecordVisitor)} to process CSV data without holding all records in memory.
+ *
+ * @author Stephan Schloepke
+ * @since 1.0
+ */
+public interface CSVRecordVisitor extends Visitor {
+
+	/**
+	 * Called once with the header record before any other record is visited. Only called if the parser is set to
+	 * parse with headers and the input is not empty.
+	 *
+	 * @param headers The header record
+	 */
+	void visitHeaders(CSVRecord headers);
+
+	/**
+	 * Called for every data record in the order they appear in the input.
+	 *
+	 * @param record The record
+	 */
+	void visitRecord(CSVRecord record);
+
+}
@@ -25,13 +25,45 @@
 package org.jbasics.csv;
 
 import java.io.Closeable;
+import java.io.Flushable;
 import java.io.IOException;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.util.Iterator;
 
 import org.jbasics.checker.ContractCheck;
 
-public class CSVRecordWriter implements Closeable {
+/**
+ * Writes {@link CSVRecord}s to an {@link Appendable}, a {@link Writer} or a {@link WritableByteChannel}.
+ * <p>
+ * All output is collected in a reused char buffer. Fields not requiring any quoting are copied into the buffer in
+ * bulk. Writing to an {@link Appendable} the buffer is handed over at the end of each write call so the output is
+ * visible right after the call. Writing to a {@link Writer} or {@link WritableByteChannel} (created with an explicit
+ * buffer size) the buffer is only written if it is full or {@link #flush()} or {@link #close()} is called. This way
+ * the target receives large blocks instead of single characters or fields.
+ * </p>
+ *
+ * @author Stephan Schloepke
+ * @since 1.0
+ */
+public class CSVRecordWriter implements Closeable, Flushable {
+	public static final int DEFAULT_BUFFER_SIZE = 8192;
+	private static final String RECORD_SEPARATOR = "\r\n"; //$NON-NLS-1$
+
 	private final Appendable writer;
+	private final WritableByteChannel channel;
+	private final CharsetEncoder encoder;
+	private final ByteBuffer bytes;
 	private final char separator;
+	private final boolean flushEachWrite;
+	private final char[] buffer;
+	private int length;
 
 	public CSVRecordWriter(final Appendable out) {
 		this(out, ',');
@@ -39,25 +71,203 @@ public class CSVRecordWriter implements Closeable {
 
 	public CSVRecordWriter(final Appendable out, final char separator) {
 		this.separator = separator;
-		this.writer = ContractCheck.mustNotBeNull(out, "appendable");
+		this.writer = ContractCheck.mustNotBeNull(out, "appendable"); //$NON-NLS-1$
+		this.channel = null;
+		this.encoder = null;
+		this.bytes = null;
+		this.flushEachWrite = true;
+		this.buffer = new char[CSVRecordWriter.DEFAULT_BUFFER_SIZE];
+	}
+
+	/**
+	 * Creates a buffered writer. Data is only written to the writer once the buffer is full or if {@link #flush()} or
+	 * {@link #close()} is called.
+	 *
+	 * @param out The writer to write to
+	 * @param separator The separator to use
+	 * @param bufferSize The size of the buffer in chars
+	 */
+	public CSVRecordWriter(final Writer out, final char separator, final int bufferSize) {
+		this.separator = separator;
+		this.writer = ContractCheck.mustNotBeNull(out, "out"); //$NON-NLS-1$
+		this.channel = null;
+		this.encoder = null;
+		this.bytes = null;
+		this.flushEachWrite = false;
+		this.buffer = new char[ContractCheck.mustBeInRange(bufferSize, 16, Integer.MAX_VALUE, "bufferSize")]; //$NON-NLS-1$
+	}
+
+	/**
+	 * Creates a buffered writer encoding the output with the given charset into the channel. Data is only written to
+	 * the channel once the buffer is full or if {@link #flush()} or {@link #close()} is called.
+	 *
+	 * @param channel The channel to write to
+	 * @param charset The charset to encode the characters with (null for the default charset)
+	 * @param separator The separator to use
+	 * @param bufferSize The size of the buffer in chars
+	 */
+	public CSVRecordWriter(final WritableByteChannel channel, final Charset charset, final char separator, final int bufferSize) {
+		this.separator = separator;
+		this.writer = null;
+		this.channel = ContractCheck.mustNotBeNull(channel, "channel"); //$NON-NLS-1$
+		this.encoder = (charset == null ? Charset.defaultCharset() : charset).newEncoder().onMalformedInput(CodingErrorAction.REPLACE)
+				.onUnmappableCharacter(CodingErrorAction.REPLACE);
+		this.flushEachWrite = false;
+		this.buffer = new char[ContractCheck.mustBeInRange(bufferSize, 16, Integer.MAX_VALUE, "bufferSize")]; //$NON-NLS-1$
+		this.bytes = ByteBuffer.allocate((int) Math.min(Integer.MAX_VALUE, (long) Math.ceil(this.encoder.maxBytesPerChar() * bufferSize)));
 	}
 
 	public CSVRecordWriter write(final CSVRecord... records) throws IOException {
 		for (final CSVRecord record : records) {
-			write(record);
+			writeRecord(record);
 		}
-		return this;
+		return writeDone();
 	}
 
 	public CSVRecordWriter write(final CSVRecord record) throws IOException {
-		record.append(this.writer, this.separator).append("\r\n");
-		return this;
+		writeRecord(record);
+		return writeDone();
+	}
+
+	/**
+	 * Writes the headers (if present) and all records of the table.
+	 *
+	 * @param table The table to write
+	 * @return This writer for chaining
+	 * @throws IOException If writing failed
+	 */
+	public CSVRecordWriter write(final CSVTable table) throws IOException {
+		if (table.hasHeaders()) {
+			writeRecord(table.getHeaders());
+		}
+		for (int i = 0; i < table.size(); i++) {
+			writeRecord(table.getRecord(i));
+		}
+		return writeDone();
+	}
+
+	public CSVRecordWriter write(final Iterable<? extends CSVRecord> records) throws IOException {
+		return write(records.iterator());
+	}
+
+	public CSVRecordWriter write(final Iterator<? extends CSVRecord> records) throws IOException {
+		while (records.hasNext()) {
+			writeRecord(records.next());
+		}
+		return writeDone();
+	}
+
+	public void flush() throws IOException {
+		flushBuffer(false);
+		if (this.writer instanceof Flushable) {
+			((Flushable) this.writer).flush();
+		}
 	}
 
 	public void close() throws IOException {
-		if (this.writer instanceof Closeable) {
+		flushBuffer(true);
+		if (this.channel != null) {
+			this.channel.close();
+		} else if (this.writer instanceof Closeable) {
 			((Closeable) this.writer).close();
 		}
 	}
 
+	private CSVRecordWriter writeDone() throws IOException {
+		if (this.flushEachWrite) {
+			flushBuffer(false);
+		}
+		return this;
+	}
+
+	private void writeRecord(final CSVRecord record) throws IOException {
+		final int size = record.size();
+		for (int i = 0; i < size; i++) {
+			if (i > 0) {
+				put(this.separator);
+			}
+			final String value = record.getField(i);
+			if (value != null) {
+				switch (CSVRecord.quoting(value, this.separator)) {
+					case NONE:
+						put(value, 0, value.length());
+						break;
+					case QUOTE:
+						put('"');
+						put(value, 0, value.length());
+						put('"');
+						break;
+					case QUOTE_AND_ESCAPE:
+						put('"');
+						int start = 0;
+						for (int j = value.indexOf('"'); j >= 0; j = value.indexOf('"', j + 1)) {
+							put(value, start, j + 1);
+							put('"');
+							start = j + 1;
+						}
+						put(value, start, value.length());
+						put('"');
+						break;
+				}
+			}
+		}
+		put(CSVRecordWriter.RECORD_SEPARATOR, 0, CSVRecordWriter.RECORD_SEPARATOR.length());
+	}
+
+	private void put(final char c) throws IOException {
+		if (this.length == this.buffer.length) {
+			flushBuffer(false);
+		}
+		this.buffer[this.length++] = c;
+	}
+
+	private void put(final String value, int start, final int end) throws IOException {
+		while (start < end) {
+			if (this.length == this.buffer.length) {
+				flushBuffer(false);
+			}
+			final int count = Math.min(end - start, this.buffer.length - this.length);
+			value.getChars(start, start + count, this.buffer, this.length);
+			this.length += count;
+			start += count;
+		}
+	}
+
+	private void flushBuffer(final boolean endOfInput) throws IOException {
+		if (this.channel != null) {
+			final CharBuffer chars = CharBuffer.wrap(this.buffer, 0, this.length);
+			CoderResult result;
+			do {
+				result = this.encoder.encode(chars, this.bytes, endOfInput);
+				writeBytes();
+			} while (result.isOverflow());
+			if (endOfInput) {
+				while (this.encoder.flush(this.bytes).isOverflow()) {
+					writeBytes();
+				}
+				writeBytes();
+				this.encoder.reset();
+			}
+			// a trailing high surrogate is kept until the low surrogate is written
+			final int remaining = chars.remaining();
+			System.arraycopy(this.buffer, chars.position(), this.buffer, 0, remaining);
+			this.length = remaining;
+		} else if (this.length > 0) {
+			if (this.writer instanceof Writer) {
+				((Writer) this.writer).write(this.buffer, 0, this.length);
+			} else {
+				this.writer.append(CharBuffer.wrap(this.buffer, 0, this.length));
+			}
+			this.length = 0;
+		}
+	}
+
+	private void writeBytes() throws IOException {
+		this.bytes.flip();
+		while (this.bytes.hasRemaining()) {
+			this.channel.write(this.bytes);
+		}
+		this.bytes.clear();
+	}
+
 }
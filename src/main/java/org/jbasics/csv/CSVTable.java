@@ -131,11 +131,7 @@ public class CSVTable implements Iterable<CSVRecord>, Mapable<Sequence<String>,
 	}
 
 	public Appendable append(final Appendable appendable, final char separator) throws IOException {
-		final CSVRecordWriter out = new CSVRecordWriter(appendable, separator);
-		if (hasHeaders()) {
-			out.write(this.headers);
-		}
-		out.write(this.records);
+		new CSVRecordWriter(appendable, separator).write(this);
 		return appendable;
 	}
 
@@ -43,6 +43,7 @@ import javax.ws.rs.ext.Provider;
 
 import org.jbasics.configuration.properties.BooleanValueTypeFactory;
 import org.jbasics.configuration.properties.SystemProperty;
+import org.jbasics.pattern.visitor.SingleVisitor;
 import org.jbasics.utilities.DataUtilities;
 
 @Provider
@@ -52,6 +53,8 @@ public class CSVTableProvider implements MessageBodyReader<CSVTable> {
 	public static final String USE_SEMICOLON_AS_STANDARD_PROPERTY = "org.jbasics.csv.CSVTableProvider.invertAlternateSeparator";
 	public static final String GERMAN_GUESS_PROPERTY = "org.jbasics.csv.CSVTableProvider.germanUseSemicolonSeparator";
 	public static final String AUTO_GUESS_PROPERTY = "org.jbasics.csv.CSVTableProvider.separatorAutoGuessing";
+	// Must stay well below the mark limit since the record reader reads ahead in chunks of this size
+	private static final int GUESS_BUFFER_SIZE = 256;
 
 	public static final SystemProperty<Boolean> USE_GERMAN_SEPARATOR_DETECTION = SystemProperty.booleanProperty(CSVTableProvider.GERMAN_GUESS_PROPERTY, Boolean.FALSE);
 	public static final SystemProperty<Boolean> USE_SEPARATOR_AUTO_GUESS = SystemProperty.booleanProperty(CSVTableProvider.AUTO_GUESS_PROPERTY, Boolean.FALSE);
@@ -64,9 +67,49 @@ public class CSVTableProvider implements MessageBodyReader<CSVTable> {
 
 	@Override
 	public CSVTable readFrom(final Class<CSVTable> type, final Type genericType, final Annotation[] annotations, final MediaType mediaType, final MultivaluedMap<String, String> httpHeaders, final InputStream entityStream) throws IOException, WebApplicationException {
-		final Charset charset = Charset.forName(DataUtilities.coalesce(mediaType.getParameters().get("charset"), "ISO-8859-15")); //$NON-NLS-1$ //$NON-NLS-2$
-		final Reader r = new BufferedReader(new InputStreamReader(entityStream, charset), 16384);
+		final Reader r = createReader(mediaType, entityStream);
 		final boolean headerPresent = CSVTable.HEADER_PRESENT.right().equalsIgnoreCase(mediaType.getParameters().get(CSVTable.HEADER_PRESENT.first()));
+		return createParser(mediaType, httpHeaders, r, headerPresent).parse(r);
+	}
+
+	/**
+	 * Reads the CSV entity and maps each record to an instance of the given type handing it to the target visitor
+	 * without building a {@link CSVTable} first. The first record is always taken as the header record since the
+	 * columns are bound to the type by their header names.
+	 *
+	 * @param type The type to map the records to
+	 * @param mediaType The media type of the entity
+	 * @param httpHeaders The HTTP headers of the request
+	 * @param entityStream The entity stream to read
+	 * @param target The visitor receiving the mapped instances
+	 * @throws IOException If reading the entity failed
+	 * @see #createRecordVisitor(Class, SingleVisitor)
+	 */
+	public <T> void readFrom(final Class<T> type, final MediaType mediaType, final MultivaluedMap<String, String> httpHeaders, final InputStream entityStream,
+			final SingleVisitor<? super T> target) throws IOException {
+		final Reader r = createReader(mediaType, entityStream);
+		createParser(mediaType, httpHeaders, r, true).parse(r, createRecordVisitor(type, target));
+	}
+
+	/**
+	 * Creates the record visitor mapping the records to the type. By default the fields of the type are bound to the
+	 * headers with {@link CSVRecordMapper#createVisitor(Class, SingleVisitor)}. Override to use a different mapping.
+	 *
+	 * @param type The type to map the records to
+	 * @param target The visitor receiving the mapped instances
+	 * @return The record visitor
+	 */
+	protected <T> CSVRecordVisitor createRecordVisitor(final Class<T> type, final SingleVisitor<? super T> target) {
+		return CSVRecordMapper.createVisitor(type, target);
+	}
+
+	private Reader createReader(final MediaType mediaType, final InputStream entityStream) {
+		final Charset charset = Charset.forName(DataUtilities.coalesce(mediaType.getParameters().get("charset"), "ISO-8859-15")); //$NON-NLS-1$ //$NON-NLS-2$
+		return new BufferedReader(new InputStreamReader(entityStream, charset), 16384);
+	}
+
+	private CSVParser createParser(final MediaType mediaType, final MultivaluedMap<String, String> httpHeaders, final Reader r, final boolean headerPresent)
+			throws IOException {
 		boolean useAlternateSeparator = CSVTableProvider.INVERT_ALTERNATE_SEPARATOR.value().booleanValue();
 		final String temp = mediaType.getParameters().get("use-alternate-separator"); //$NON-NLS-1$
 		if (temp != null) {
@@ -78,9 +121,9 @@ public class CSVTableProvider implements MessageBodyReader<CSVTable> {
 		} else if (CSVTableProvider.USE_SEPARATOR_AUTO_GUESS.value().booleanValue() && r.markSupported()) {
 			r.mark(8192);
 			try {
-				final int[] commaCount = getRecordsLength(new CSVRecordReader(r, ','), 2);
+				final int[] commaCount = getRecordsLength(new CSVRecordReader(r, ',', true, CSVTableProvider.GUESS_BUFFER_SIZE), 2);
 				r.reset();
-				final int[] semicolonCount = getRecordsLength(new CSVRecordReader(r, ';'), 2);
+				final int[] semicolonCount = getRecordsLength(new CSVRecordReader(r, ';', true, CSVTableProvider.GUESS_BUFFER_SIZE), 2);
 				// 1. check if both are equal if not use the equal one
 				if (commaCount[0] == commaCount[1]) {
 					if (semicolonCount[0] == semicolonCount[1]) {
@@ -107,8 +150,7 @@ public class CSVTableProvider implements MessageBodyReader<CSVTable> {
 				r.reset();
 			}
 		}
-		final CSVParser p = new CSVParser(headerPresent, useAlternateSeparator ? ';' : ',', true);
-		return p.parse(r);
+		return new CSVParser(headerPresent, useAlternateSeparator ? ';' : ',', true);
 	}
 
 	private int[] getRecordsLength(final CSVRecordReader reader, final int lines) throws IOException {
@@ -25,11 +25,16 @@
 package org.jbasics.jaxb;
 
 import javax.xml.bind.JAXBContext;
-import javax.xml.bind.JAXBException;
 
-import org.jbasics.exception.DelegatedException;
 import org.jbasics.pattern.factory.Factory;
 
+/**
+ * {@link Factory} returning the {@link JAXBContext} for a context path or a set of classes. The contexts are taken from
+ * the {@link JAXBContextRegistry#SHARED_INSTANCE} so all factories and pools for the same key share one context.
+ *
+ * @author Stephan Schloepke
+ * @since 1.0
+ */
 public class JAXBContextFactory implements Factory<JAXBContext> {
 	private final String contextPath;
 	private final Class<?>[] classes;
@@ -51,14 +56,10 @@ public class JAXBContextFactory implements Factory<JAXBContext> {
 	}
 
 	public JAXBContext newInstance() {
-		try {
-			if (this.contextPath != null) {
-				return JAXBContext.newInstance(this.contextPath);
-			} else {
-				return JAXBContext.newInstance(this.classes);
-			}
-		} catch (JAXBException e) {
-			throw DelegatedException.delegate(e);
+		if (this.contextPath != null) {
+			return JAXBContextRegistry.SHARED_INSTANCE.getContext(this.contextPath);
+		} else {
+			return JAXBContextRegistry.SHARED_INSTANCE.getContext(this.classes);
 		}
 	}
 
@@ -0,0 +1,319 @@
+/*
+ * Copyright (c) 2009 Stephan Schloepke and innoQ Deutschland GmbH
+ * 
+ * Stephan Schloepke: http://www.schloepke.de/
+ * innoQ Deutschland GmbH: http://www.innoq.com/
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.jbasics.jaxb;
+
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.SoftReference;
+import java.lang.ref.WeakReference;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import javax.xml.bind.JAXBContext;
+import javax.xml.bind.JAXBException;
+
+import org.jbasics.checker.ContractCheck;
+import org.jbasics.exception.DelegatedException;
+
+/**
+ * Process wide registry of {@link JAXBContext}s keyed by context path or set of classes.
+ * <p>
+ * Creating a context is expensive so every context is created only once per key even if many threads request it at
+ * the same time. Different keys are created in parallel. Contexts are only kept softly reachable so the memory of
+ * unused contexts can be reclaimed. Such a context is created again on the next request. To avoid the creation cost on
+ * the first request the contexts can be created in advance with {@link #warmUp(String...)}.
+ * </p>
+ * <p>
+ * A context path is resolved with the context class loader of the requesting thread which is part of the key. The keys
+ * only hold the class loader and the bound classes weakly so the registry never keeps a class loader from being
+ * unloaded. Once a class loader or class of a key is collected the key is removed.
+ * </p>
+ *
+ * @author Stephan Schloepke
+ * @since 1.0
+ */
+public class JAXBContextRegistry {
+	public static final JAXBContextRegistry SHARED_INSTANCE = new JAXBContextRegistry();
+
+	private static final Comparator<Class<?>> CLASS_NAME_ORDER = new Comparator<Class<?>>() {
+		@Override
+		public int compare(final Class<?> o1, final Class<?> o2) {
+			return o1.getName().compareTo(o2.getName());
+		}
+	};
+
+	private final Logger logger = Logger.getLogger(JAXBContextRegistry.class.getName());
+	private final ConcurrentMap<Key, Entry> contexts = new ConcurrentHashMap<Key, Entry>();
+	private final ReferenceQueue<JAXBContext> collected = new ReferenceQueue<JAXBContext>();
+	private final ReferenceQueue<Object> collectedKeys = new ReferenceQueue<Object>();
+
+	/**
+	 * Returns the context for the given context path. The path is a colon separated list of package names and the order
+	 * of the packages is not significant.
+	 *
+	 * @param contextPath The context path (must not be null or empty)
+	 * @return The shared context
+	 */
+	public JAXBContext getContext(final String contextPath) {
+		ContractCheck.mustNotBeNullOrTrimmedEmpty(contextPath, "contextPath"); //$NON-NLS-1$
+		final String[] packages = contextPath.trim().split("\\s*:\\s*"); //$NON-NLS-1$
+		Arrays.sort(packages);
+		final ClassLoader classLoader = contextClassLoader();
+		return getEntry(new Key(packages, null, classLoader, this.collectedKeys)).get(null, classLoader);
+	}
+
+	/**
+	 * Returns the context for the given classes. The order of the classes is not significant.
+	 *
+	 * @param classes The classes to be bound (must not be null or empty)
+	 * @return The shared context
+	 */
+	public JAXBContext getContext(final Class<?>... classes) {
+		final Class<?>[] temp = ContractCheck.mustNotBeNullOrEmpty(classes, "classes").clone(); //$NON-NLS-1$
+		Arrays.sort(temp, JAXBContextRegistry.CLASS_NAME_ORDER);
+		return getEntry(new Key(null, temp, null, this.collectedKeys)).get(temp, null);
+	}
+
+	/**
+	 * Creates the contexts for all given context paths in the calling thread.
+	 *
+	 * @param contextPaths The context paths to create the contexts for
+	 */
+	public void warmUp(final String... contextPaths) {
+		if (contextPaths != null) {
+			for (final String contextPath : contextPaths) {
+				getContext(contextPath);
+			}
+		}
+	}
+
+	/**
+	 * Creates the contexts for all given context paths with the given executor so the application start is not
+	 * delayed. Failures are logged. The context class loader of the calling thread is used to resolve the context
+	 * paths.
+	 *
+	 * @param executor The executor to create the contexts with (must not be null)
+	 * @param contextPaths The context paths to create the contexts for
+	 */
+	public void warmUp(final Executor executor, final String... contextPaths) {
+		ContractCheck.mustNotBeNull(executor, "executor"); //$NON-NLS-1$
+		if (contextPaths == null) {
+			return;
+		}
+		final ClassLoader loader = contextClassLoader();
+		for (final String contextPath : contextPaths) {
+			executor.execute(new Runnable() {
+				@Override
+				public void run() {
+					final Thread current = Thread.currentThread();
+					final ClassLoader previous = current.getContextClassLoader();
+					current.setContextClassLoader(loader);
+					try {
+						getContext(contextPath);
+					} catch (final RuntimeException e) {
+						if (JAXBContextRegistry.this.logger.isLoggable(Level.WARNING)) {
+							JAXBContextRegistry.this.logger.log(Level.WARNING, "Could not warm up JAXB context " + contextPath, e); //$NON-NLS-1$
+						}
+					} finally {
+						current.setContextClassLoader(previous);
+					}
+				}
+			});
+		}
+	}
+
+	/**
+	 * Removes all contexts from the registry.
+	 */
+	public void clear() {
+		this.contexts.clear();
+	}
+
+	/**
+	 * Returns the number of keys currently registered. Contexts reclaimed by the garbage collector may still be counted
+	 * until the registry is accessed again.
+	 *
+	 * @return The number of registered keys
+	 */
+	public int size() {
+		expungeCollected();
+		return this.contexts.size();
+	}
+
+	protected JAXBContext createContext(final String contextPath, final ClassLoader classLoader) throws JAXBException {
+		return classLoader == null ? JAXBContext.newInstance(contextPath) : JAXBContext.newInstance(contextPath, classLoader);
+	}
+
+	protected JAXBContext createContext(final Class<?>... classes) throws JAXBException {
+		return JAXBContext.newInstance(classes);
+	}
+
+	private Entry getEntry(final Key key) {
+		expungeCollected();
+		Entry result = this.contexts.get(key);
+		if (result == null) {
+			final Entry temp = new Entry(key);
+			result = this.contexts.putIfAbsent(key, temp);
+			if (result == null) {
+				result = temp;
+			}
+		}
+		return result;
+	}
+
+	private void expungeCollected() {
+		Reference<? extends JAXBContext> reference;
+		while ((reference = this.collected.poll()) != null) {
+			final ContextReference temp = (ContextReference) reference;
+			if (temp.entry.isCurrent(temp)) {
+				this.contexts.remove(temp.entry.key, temp.entry);
+			}
+		}
+		Reference<?> keyReference;
+		while ((keyReference = this.collectedKeys.poll()) != null) {
+			// a key with a collected referent is only equal to itself so this removes exactly the stale key
+			this.contexts.remove(((KeyReference) keyReference).key);
+		}
+	}
+
+	private static ClassLoader contextClassLoader() {
+		return Thread.currentThread().getContextClassLoader();
+	}
+
+	private final class Entry {
+		final Key key;
+		private ContextReference context;
+
+		Entry(final Key key) {
+			this.key = key;
+		}
+
+		/**
+		 * Returns the context creating it if required. The classes and class loader are passed in by the caller since
+		 * the key only holds them weakly.
+		 */
+		synchronized JAXBContext get(final Class<?>[] classes, final ClassLoader classLoader) {
+			JAXBContext result = this.context == null ? null : this.context.get();
+			if (result == null) {
+				try {
+					if (this.key.packages != null) {
+						final StringBuilder path = new StringBuilder();
+						for (final String temp : this.key.packages) {
+							if (path.length() > 0) {
+								path.append(':');
+							}
+							path.append(temp);
+						}
+						result = createContext(path.toString(), classLoader);
+					} else {
+						result = createContext(classes);
+					}
+				} catch (final JAXBException e) {
+					throw DelegatedException.delegate(e);
+				}
+				this.context = new ContextReference(result, this, JAXBContextRegistry.this.collected);
+			}
+			return result;
+		}
+
+		synchronized boolean isCurrent(final ContextReference reference) {
+			return this.context == reference;
+		}
+	}
+
+	private final class ContextReference extends SoftReference<JAXBContext> {
+		final Entry entry;
+
+		ContextReference(final JAXBContext context, final Entry entry, final ReferenceQueue<JAXBContext> queue) {
+			super(context, queue);
+			this.entry = entry;
+		}
+	}
+
+	private static final class Key {
+		final String[] packages;
+		private final KeyReference[] references;
+		private final int hashCode;
+
+		Key(final String[] packages, final Class<?>[] classes, final ClassLoader classLoader, final ReferenceQueue<Object> queue) {
+			this.packages = packages;
+			int temp = packages != null ? Arrays.hashCode(packages) : 0;
+			if (classes != null) {
+				this.references = new KeyReference[classes.length];
+				for (int i = 0; i < classes.length; i++) {
+					this.references[i] = new KeyReference(classes[i], this, queue);
+					temp = 31 * temp + System.identityHashCode(classes[i]);
+				}
+			} else if (classLoader != null) {
+				this.references = new KeyReference[] { new KeyReference(classLoader, this, queue) };
+				temp = 31 * temp + System.identityHashCode(classLoader);
+			} else {
+				this.references = new KeyReference[0];
+			}
+			this.hashCode = temp;
+		}
+
+		@Override
+		public int hashCode() {
+			return this.hashCode;
+		}
+
+		@Override
+		public boolean equals(final Object obj) {
+			if (this == obj) {
+				return true;
+			}
+			if (!(obj instanceof Key)) {
+				return false;
+			}
+			final Key other = (Key) obj;
+			if (this.hashCode != other.hashCode || this.references.length != other.references.length || !Arrays.equals(this.packages, other.packages)) {
+				return false;
+			}
+			for (int i = 0; i < this.references.length; i++) {
+				final Object referent = this.references[i].get();
+				if (referent == null || referent != other.references[i].get()) {
+					return false;
+				}
+			}
+			return true;
+		}
+	}
+
+	private static final class KeyReference extends WeakReference<Object> {
+		final Key key;
+
+		KeyReference(final Object referent, final Key key, final ReferenceQueue<Object> queue) {
+			super(referent, queue);
+			this.key = key;
+		}
+	}
+
+}
@@ -29,9 +29,9 @@ import javax.xml.bind.Marshaller;
 import javax.xml.validation.Schema;
 
 import org.jbasics.types.delegates.UnmodifiableDelegate;
-import org.jbasics.types.pools.LazyQueuePool;
+import org.jbasics.types.pools.StripedPool;
 
-public class JAXBMarshallerPool extends LazyQueuePool<Marshaller> {
+public class JAXBMarshallerPool extends StripedPool<Marshaller> {
 
 	public JAXBMarshallerPool(final Class<?>... classes) {
 		super(new JAXBMarshallerFactory(new JAXBContextFactory(classes)));
@@ -0,0 +1,192 @@
+/*
+ * Copyright (c) 2009 Stephan Schloepke and innoQ Deutschland GmbH
+ * 
+ * Stephan Schloepke: http://www.schloepke.de/
+ * innoQ Deutschland GmbH: http://www.innoq.com/
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.jbasics.jaxb;
+
+import java.io.Closeable;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+import javax.xml.bind.JAXBException;
+import javax.xml.bind.Unmarshaller;
+import javax.xml.namespace.QName;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+import org.jbasics.checker.ContractCheck;
+import org.jbasics.exception.DelegatedException;
+import org.jbasics.pattern.visitor.SingleVisitor;
+
+/**
+ * Walks an XML document with a {@link XMLStreamReader} and unmarshals only the elements with a given name one at a
+ * time. Everything else in the document is skipped without building any object so a document of any size can be
+ * processed with the memory of a single element.
+ * <p>
+ * The {@link Unmarshaller} is acquired from the {@link JAXBPool} when the iteration is created and released back once
+ * the last element is read, reading fails or the iteration is closed. So an iteration which is not read to the end must
+ * be closed. Closing also closes the stream reader but not its underlying source.
+ * </p>
+ *
+ * @param <T> The type of the elements to unmarshal
+ * @author Stephan Schloepke
+ * @since 1.0
+ */
+public class JAXBPartialUnmarshaller<T> implements Iterator<T>, Closeable {
+	private final JAXBPool pool;
+	private final Class<T> type;
+	private final QName elementName;
+	private final XMLStreamReader reader;
+	private Unmarshaller unmarshaller;
+	private boolean positioned;
+	private boolean closed;
+
+	/**
+	 * Creates an iteration over all elements with the given name.
+	 *
+	 * @param pool The pool to take the unmarshaller from (must not be null)
+	 * @param type The type to unmarshal the elements to (must not be null)
+	 * @param elementName The name of the elements to unmarshal (must not be null). If the namespace URI is empty only
+	 *            the local part is compared.
+	 * @param reader The reader positioned anywhere before the first element (must not be null). The iteration takes
+	 *            ownership and closes it when done.
+	 */
+	public JAXBPartialUnmarshaller(final JAXBPool pool, final Class<T> type, final QName elementName, final XMLStreamReader reader) {
+		this.pool = ContractCheck.mustNotBeNull(pool, "pool"); //$NON-NLS-1$
+		this.type = ContractCheck.mustNotBeNull(type, "type"); //$NON-NLS-1$
+		this.elementName = ContractCheck.mustNotBeNull(elementName, "elementName"); //$NON-NLS-1$
+		this.reader = ContractCheck.mustNotBeNull(reader, "reader"); //$NON-NLS-1$
+		try {
+			this.unmarshaller = pool.aquireUnmarshaller();
+		} catch (final RuntimeException e) {
+			close();
+			throw e;
+		}
+	}
+
+	/**
+	 * Hands all remaining elements to the visitor and closes the iteration.
+	 *
+	 * @param visitor The visitor to receive the elements (must not be null)
+	 * @return The number of elements visited
+	 */
+	public int visitAll(final SingleVisitor<? super T> visitor) {
+		ContractCheck.mustNotBeNull(visitor, "visitor"); //$NON-NLS-1$
+		try {
+			int count = 0;
+			while (hasNext()) {
+				visitor.visit(next());
+				count++;
+			}
+			return count;
+		} finally {
+			close();
+		}
+	}
+
+	@Override
+	public boolean hasNext() {
+		if (this.positioned) {
+			return true;
+		}
+		if (this.closed) {
+			return false;
+		}
+		try {
+			while (true) {
+				if (this.reader.getEventType() == XMLStreamConstants.START_ELEMENT && matches(this.reader.getName())) {
+					return this.positioned = true;
+				}
+				if (!this.reader.hasNext()) {
+					close();
+					return false;
+				}
+				this.reader.next();
+			}
+		} catch (final XMLStreamException e) {
+			close();
+			throw DelegatedException.delegate(e);
+		} catch (final RuntimeException e) {
+			close();
+			throw e;
+		}
+	}
+
+	@Override
+	public T next() {
+		if (!hasNext()) {
+			throw new NoSuchElementException();
+		}
+		this.positioned = false;
+		try {
+			// leaves the reader on the event following the end of the element
+			return this.unmarshaller.unmarshal(this.reader, this.type).getValue();
+		} catch (final JAXBException e) {
+			close();
+			throw DelegatedException.delegate(e);
+		} catch (final RuntimeException e) {
+			close();
+			throw e;
+		}
+	}
+
+	@Override
+	public void remove() {
+		throw new UnsupportedOperationException("Elements cannot be removed from a XML stream"); //$NON-NLS-1$
+	}
+
+	/**
+	 * Releases the unmarshaller back to the pool and closes the stream reader. Further calls to {@link #hasNext()}
+	 * return false.
+	 */
+	@Override
+	public void close() {
+		if (this.closed) {
+			return;
+		}
+		this.closed = true;
+		this.positioned = false;
+		try {
+			if (this.unmarshaller != null) {
+				this.pool.releaseUnmarshaller(this.unmarshaller);
+				this.unmarshaller = null;
+			}
+		} finally {
+			try {
+				this.reader.close();
+			} catch (final XMLStreamException e) {
+				throw DelegatedException.delegate(e);
+			}
+		}
+	}
+
+	private boolean matches(final QName name) {
+		if (!this.elementName.getLocalPart().equals(name.getLocalPart())) {
+			return false;
+		}
+		final String namespace = this.elementName.getNamespaceURI();
+		return namespace.length() == 0 || namespace.equals(name.getNamespaceURI());
+	}
+
+}
@@ -26,6 +26,7 @@ package org.jbasics.jaxb;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.StringReader;
 import java.io.StringWriter;
 import java.net.URL;
@@ -35,6 +36,10 @@ import javax.xml.bind.JAXBElement;
 import javax.xml.bind.JAXBException;
 import javax.xml.bind.Marshaller;
 import javax.xml.bind.Unmarshaller;
+import javax.xml.namespace.QName;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
 import javax.xml.transform.stream.StreamSource;
 import javax.xml.validation.Schema;
 import javax.xml.validation.SchemaFactory;
@@ -42,8 +47,11 @@ import javax.xml.validation.SchemaFactory;
 import org.jbasics.checker.ContractCheck;
 import org.jbasics.enviroment.JVMEnviroment;
 import org.jbasics.exception.DelegatedException;
+import org.jbasics.pattern.visitor.SingleVisitor;
 
 public class JAXBSimpleTools {
+	private static final XMLInputFactory XML_INPUT_FACTORY = JAXBSimpleTools.createInputFactory();
+
 	private final JAXBPool pool;
 
 	public static <T> String marshallToString(final JAXBElement<T> element) {
@@ -66,6 +74,19 @@ public class JAXBSimpleTools {
 		return new JAXBSimpleTools(type).unmarshall(type, content);
 	}
 
+	/**
+	 * Creates the shared input factory. DTDs and external entities are disabled since the documents read come from
+	 * outside and must not be able to pull in local files or remote resources.
+	 *
+	 * @return The input factory
+	 */
+	private static XMLInputFactory createInputFactory() {
+		final XMLInputFactory factory = XMLInputFactory.newInstance();
+		factory.setProperty(XMLInputFactory.SUPPORT_DTD, Boolean.FALSE);
+		factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, Boolean.FALSE);
+		return factory;
+	}
+
 	public JAXBSimpleTools(final String contextPath) {
 		this.pool = new JAXBPool(contextPath);
 	}
@@ -151,4 +172,39 @@ public class JAXBSimpleTools {
 		}
 	}
 
+	/**
+	 * Creates an iteration unmarshalling the elements with the given name from the stream one at a time. The iteration
+	 * must be read to the end or closed to release the unmarshaller and the stream reader. The stream is not closed.
+	 *
+	 * @param type The type of the elements
+	 * @param elementName The name of the elements to unmarshal
+	 * @param content The stream to read the document from
+	 * @return The iteration over the elements
+	 * @see JAXBPartialUnmarshaller
+	 */
+	public <T> JAXBPartialUnmarshaller<T> unmarshallElements(final Class<T> type, final QName elementName, final InputStream content) {
+		final XMLStreamReader reader;
+		try {
+			reader = JAXBSimpleTools.XML_INPUT_FACTORY.createXMLStreamReader(ContractCheck.mustNotBeNull(content, "content")); //$NON-NLS-1$
+		} catch (XMLStreamException e) {
+			throw DelegatedException.delegate(e);
+		}
+		return new JAXBPartialUnmarshaller<T>(this.pool, type, elementName, reader);
+	}
+
+	/**
+	 * Unmarshals the elements with the given name from the stream one at a time and hands each to the visitor. The
+	 * stream is not closed.
+	 *
+	 * @param type The type of the elements
+	 * @param elementName The name of the elements to unmarshal
+	 * @param content The stream to read the document from
+	 * @param visitor The visitor receiving the elements
+	 * @return The number of elements visited
+	 */
+	public <T> int unmarshallElements(final Class<T> type, final QName elementName, final InputStream content,
+			final SingleVisitor<? super T> visitor) {
+		return unmarshallElements(type, elementName, content).visitAll(visitor);
+	}
+
 }
@@ -29,9 +29,9 @@ import javax.xml.bind.Unmarshaller;
 
 import org.jbasics.pattern.pooling.Pool;
 import org.jbasics.types.delegates.UnmodifiableDelegate;
-import org.jbasics.types.pools.LazyQueuePool;
+import org.jbasics.types.pools.StripedPool;
 
-public class JAXBUnmarshallerPool extends LazyQueuePool<Unmarshaller> implements Pool<Unmarshaller> {
+public class JAXBUnmarshallerPool extends StripedPool<Unmarshaller> implements Pool<Unmarshaller> {
 
 	public JAXBUnmarshallerPool(final Class<?>... classes) {
 		super(new JAXBUnmarshallerFactory(new JAXBContextFactory(classes)));
@@ -24,8 +24,6 @@
  */
 package org.jbasics.jaxrs;
 
-import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.OutputStream;
 import java.io.OutputStreamWriter;
@@ -33,8 +31,6 @@ import java.io.Writer;
 import java.lang.annotation.Annotation;
 import java.lang.reflect.Type;
 import java.nio.charset.Charset;
-import java.util.Map;
-import java.util.WeakHashMap;
 
 import javax.ws.rs.WebApplicationException;
 import javax.ws.rs.core.Context;
@@ -48,23 +44,18 @@ import javax.xml.bind.JAXBContext;
 import javax.xml.bind.JAXBException;
 import javax.xml.bind.Marshaller;
 import javax.xml.bind.util.JAXBSource;
-import javax.xml.parsers.SAXParserFactory;
 import javax.xml.transform.OutputKeys;
 import javax.xml.transform.Result;
-import javax.xml.transform.Source;
 import javax.xml.transform.Transformer;
-import javax.xml.transform.TransformerFactory;
-import javax.xml.transform.sax.SAXSource;
 import javax.xml.transform.stream.StreamResult;
-import javax.xml.transform.stream.StreamSource;
 
-import org.xml.sax.InputSource;
-import org.xml.sax.XMLReader;
+import org.jbasics.jaxb.JAXBContextRegistry;
+import org.jbasics.xml.transform.TemplatesCache;
+import org.jbasics.xml.transform.XMLTransformerFactory;
 
 public class XHTMLStylesheetAttachedXMLProvider implements MessageBodyWriter<XHTMLStylesheetAttachedJAXB<?>> {
 	private static final Charset UTF8 = Charset.forName("UTF-8"); //$NON-NLS-1$
 	private static final Charset UTF16 = Charset.forName("UTF-16"); //$NON-NLS-1$
-	private static final Map<Class<?>, JAXBContext> JAXB_CONTEXT_CACHE = new WeakHashMap<Class<?>, JAXBContext>();
 
 	private final Providers providers;
 
@@ -106,6 +97,7 @@ public class XHTMLStylesheetAttachedXMLProvider implements MessageBodyWriter<XHT
 			} else {
 				writeToXml(t, mediaType, charset, marshaller, w);
 			}
+			w.flush();
 		} catch (final JAXBException e) {
 			throw new WebApplicationException(e, Status.INTERNAL_SERVER_ERROR);
 		}
@@ -114,56 +106,44 @@ public class XHTMLStylesheetAttachedXMLProvider implements MessageBodyWriter<XHT
 	private void writeToXhtml(final XHTMLStylesheetAttachedJAXB<?> t, final MediaType mediaType, final Charset charset,
 			final Marshaller marshaller, final Writer w) throws JAXBException, IOException {
 		try {
-			final Transformer transformer = TransformerFactory.newInstance().newTransformer(
-					new StreamSource(t.getLocalResource().openStream(), t.getLocalResource().toExternalForm()));
-			Source source = new JAXBSource(marshaller, t.getEntity());
+			final Transformer transformer = TemplatesCache.SHARED_INSTANCE.getTransformer(t.getLocalResource());
+			transformer.setOutputProperty(OutputKeys.INDENT, "yes"); //$NON-NLS-1$
 			final Result result = new StreamResult(w);
 			if (t.isHandleXInclude()) {
-				final SAXParserFactory factory = SAXParserFactory.newInstance();
-				factory.setNamespaceAware(true);
-				factory.setXIncludeAware(true);
-				final XMLReader reader = factory.newSAXParser().getXMLReader();
-				final ByteArrayOutputStream temp = new ByteArrayOutputStream();
-				marshaller.marshal(t.getEntity(), new OutputStreamWriter(temp));
-				source = new SAXSource(reader, new InputSource(new ByteArrayInputStream(temp.toByteArray())));
+				transformXIncludePipe(new XIncludePipe(marshaller, t.getEntity(), null), transformer, result);
+			} else {
+				transformer.transform(new JAXBSource(marshaller, t.getEntity()), result);
 			}
-			transformer.setOutputProperty(OutputKeys.INDENT, "yes"); //$NON-NLS-1$
-			transformer.transform(source, result);
 		} catch (final Exception e) {
 			throw new WebApplicationException(e, Status.INTERNAL_SERVER_ERROR);
 		}
 	}
 
 	private void writeToXml(final XHTMLStylesheetAttachedJAXB<?> t, final MediaType mediaType, final Charset charset,
-			final Marshaller marshaller, final Writer wIn) throws JAXBException, IOException {
+			final Marshaller marshaller, final Writer w) throws JAXBException, IOException {
 		try {
 			final Object jaxbFragmentProperty = marshaller.getProperty(Marshaller.JAXB_FRAGMENT);
 			marshaller.setProperty(Marshaller.JAXB_FRAGMENT, Boolean.TRUE);
-			Writer w = wIn;
-			ByteArrayOutputStream bos = null;
-			if (t.isHandleXInclude()) {
-				bos = new ByteArrayOutputStream();
-				w = new OutputStreamWriter(bos);
-			}
-			w.write("<?xml version=\"1.0\" "); //$NON-NLS-1$
-			if (charset != XHTMLStylesheetAttachedXMLProvider.UTF8 && charset != XHTMLStylesheetAttachedXMLProvider.UTF16) {
-				w.write("encoding=\""); //$NON-NLS-1$
-				w.write(charset.name());
-				w.write("\" "); //$NON-NLS-1$
+			final StringBuilder prolog = new StringBuilder();
+			if (!t.isHandleXInclude()) {
+				// with XInclude the transformer writes the declaration
+				prolog.append("<?xml version=\"1.0\" "); //$NON-NLS-1$
+				if (charset != XHTMLStylesheetAttachedXMLProvider.UTF8 && charset != XHTMLStylesheetAttachedXMLProvider.UTF16) {
+					prolog.append("encoding=\"").append(charset.name()).append("\" "); //$NON-NLS-1$ //$NON-NLS-2$
+				}
+				prolog.append("?>\n"); //$NON-NLS-1$
 			}
-			w.write("?>\n"); //$NON-NLS-1$
-			w.write("<?xml-stylesheet type=\"text/xsl\" href=\""); //$NON-NLS-1$
-			w.write(t.getStylesheet().toASCIIString());
-			w.write("\" ?>\n\n"); //$NON-NLS-1$
-			marshaller.marshal(t.getEntity(), w);
-			if (bos != null) {
-				final Transformer transformer = TransformerFactory.newInstance().newTransformer();
-				final SAXParserFactory factory = SAXParserFactory.newInstance();
-				factory.setNamespaceAware(true);
-				factory.setXIncludeAware(true);
-				final XMLReader reader = factory.newSAXParser().getXMLReader();
+			prolog.append("<?xml-stylesheet type=\"text/xsl\" href=\""); //$NON-NLS-1$
+			prolog.append(t.getStylesheet().toASCIIString());
+			prolog.append("\" ?>\n\n"); //$NON-NLS-1$
+			if (t.isHandleXInclude()) {
+				final Transformer transformer = XMLTransformerFactory.SHARED_INSTANCE.newInstance();
 				transformer.setOutputProperty(OutputKeys.INDENT, "yes"); //$NON-NLS-1$
-				transformer.transform(new SAXSource(reader, new InputSource(new ByteArrayInputStream(bos.toByteArray()))), new StreamResult(wIn));
+				transformer.setOutputProperty(OutputKeys.ENCODING, charset.name());
+				transformXIncludePipe(new XIncludePipe(marshaller, t.getEntity(), prolog.toString()), transformer, new StreamResult(w));
+			} else {
+				w.write(prolog.toString());
+				marshaller.marshal(t.getEntity(), w);
 			}
 			marshaller.setProperty(Marshaller.JAXB_FRAGMENT, jaxbFragmentProperty);
 		} catch (final Exception e) {
@@ -171,6 +151,19 @@ public class XHTMLStylesheetAttachedXMLProvider implements MessageBodyWriter<XHT
 		}
 	}
 
+	private void transformXIncludePipe(final XIncludePipe pipe, final Transformer transformer, final Result result) throws Exception {
+		try {
+			transformer.transform(pipe.getSource(), result);
+		} catch (final Exception e) {
+			pipe.abort(e);
+			throw e;
+		} catch (final Error e) {
+			pipe.abort(e);
+			throw e;
+		}
+		pipe.finish();
+	}
+
 	protected final Marshaller getMarshaller(final Class<?> type, final MediaType mt) throws JAXBException {
 		final ContextResolver<Marshaller> marshallerResolver = this.providers.getContextResolver(Marshaller.class, mt);
 		Marshaller marshaller = null;
@@ -184,13 +177,7 @@ public class XHTMLStylesheetAttachedXMLProvider implements MessageBodyWriter<XHT
 				context = cr.getContext(type);
 			}
 			if (context == null) {
-				synchronized (XHTMLStylesheetAttachedXMLProvider.JAXB_CONTEXT_CACHE) {
-					context = XHTMLStylesheetAttachedXMLProvider.JAXB_CONTEXT_CACHE.get(type);
-					if (context == null) {
-						context = JAXBContext.newInstance(type);
-						XHTMLStylesheetAttachedXMLProvider.JAXB_CONTEXT_CACHE.put(type, context);
-					}
-				}
+				context = JAXBContextRegistry.SHARED_INSTANCE.getContext(type);
 			}
 			marshaller = context.createMarshaller();
 			marshaller.setProperty(Marshaller.JAXB_FORMATTED_OUTPUT, Boolean.TRUE);
@@ -0,0 +1,257 @@
+/*
+ * Copyright (c) 2009 Stephan Schloepke and innoQ Deutschland GmbH
+ * 
+ * Stephan Schloepke: http://www.schloepke.de/
+ * innoQ Deutschland GmbH: http://www.innoq.com/
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.jbasics.jaxrs;
+
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PipedInputStream;
+import java.io.PipedOutputStream;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import javax.xml.bind.Marshaller;
+import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.parsers.SAXParserFactory;
+import javax.xml.transform.sax.SAXSource;
+
+import org.xml.sax.InputSource;
+import org.xml.sax.SAXException;
+import org.xml.sax.XMLReader;
+
+import org.jbasics.exception.DelegatedException;
+
+/**
+ * Streams a marshalled JAXB entity through a pipe into a XInclude aware parser.
+ * <p>
+ * The JDK only resolves XInclude inside its parser so the entity needs to be serialized and parsed again. Instead of
+ * buffering the whole document the marshaller writes into a pipe on a background thread while the parser reads from
+ * the other end. Only the pipe buffer is held in memory. {@link #finish()} must be called after the source was
+ * consumed to release the pipe and to report a failure of the marshaller, {@link #abort(Throwable)} if consuming
+ * failed.
+ * </p>
+ * <p>
+ * The marshallers run on a shared pool of daemon threads bounded to twice the number of processors. If all threads are
+ * busy the marshaller is queued and the reading end simply waits until it starts.
+ * </p>
+ *
+ * @author Stephan Schloepke
+ * @since 1.0
+ */
+final class XIncludePipe {
+	private static final int PIPE_BUFFER_SIZE = 16 * 1024;
+	private static final Charset PIPE_CHARSET = Charset.forName("UTF-8"); //$NON-NLS-1$
+	private static final SAXParserFactory PARSER_FACTORY;
+	private static final ThreadPoolExecutor MARSHALLER_EXECUTOR;
+	private static final Logger LOGGER = Logger.getLogger(XIncludePipe.class.getName());
+
+	static {
+		PARSER_FACTORY = SAXParserFactory.newInstance();
+		XIncludePipe.PARSER_FACTORY.setNamespaceAware(true);
+		XIncludePipe.PARSER_FACTORY.setXIncludeAware(true);
+		final int threads = Runtime.getRuntime().availableProcessors() * 2;
+		MARSHALLER_EXECUTOR = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(),
+				new ThreadFactory() {
+					@Override
+					public Thread newThread(final Runnable r) {
+						final Thread result = new Thread(r, "XIncludePipe-Marshaller"); //$NON-NLS-1$
+						result.setDaemon(true);
+						return result;
+					}
+				});
+		XIncludePipe.MARSHALLER_EXECUTOR.allowCoreThreadTimeOut(true);
+	}
+
+	private final PipedInputStream in;
+	private final Future<Void> producer;
+	private final AtomicBoolean started = new AtomicBoolean();
+	private final CountDownLatch ended = new CountDownLatch(1);
+	private volatile Throwable producerFailure;
+
+	/**
+	 * Starts marshalling the entity into the pipe.
+	 *
+	 * @param marshaller The marshaller to use. It must not be used by anyone else until {@link #finish()} returned.
+	 * @param entity The entity to marshal
+	 * @param prolog Text written before the entity (may be null)
+	 * @throws IOException If the pipe could not be created
+	 */
+	XIncludePipe(final Marshaller marshaller, final Object entity, final String prolog) throws IOException {
+		this.in = new PipedInputStream(XIncludePipe.PIPE_BUFFER_SIZE);
+		final PipedOutputStream out = new PipedOutputStream(this.in);
+		this.producer = XIncludePipe.MARSHALLER_EXECUTOR.submit(new Callable<Void>() {
+			@Override
+			public Void call() throws Exception {
+				if (!XIncludePipe.this.started.compareAndSet(false, true)) {
+					// aborted before it started
+					return null;
+				}
+				try {
+					final Writer w = new OutputStreamWriter(out, XIncludePipe.PIPE_CHARSET);
+					try {
+						if (prolog != null) {
+							w.write(prolog);
+						}
+						marshaller.marshal(entity, w);
+					} finally {
+						w.close();
+					}
+					return null;
+				} catch (final Exception e) {
+					XIncludePipe.this.producerFailure = e;
+					throw e;
+				} catch (final Error e) {
+					XIncludePipe.this.producerFailure = e;
+					throw e;
+				} finally {
+					XIncludePipe.this.ended.countDown();
+				}
+			}
+		});
+	}
+
+	/**
+	 * Returns the source parsing the document from the pipe with XInclude resolved.
+	 *
+	 * @return The source to read the document from (can only be read once)
+	 * @throws ParserConfigurationException If the XInclude aware parser cannot be created
+	 * @throws SAXException If the XInclude aware parser cannot be created
+	 */
+	SAXSource getSource() throws ParserConfigurationException, SAXException {
+		final XMLReader reader;
+		synchronized (XIncludePipe.PARSER_FACTORY) {
+			reader = XIncludePipe.PARSER_FACTORY.newSAXParser().getXMLReader();
+		}
+		final InputSource source = new InputSource(this.in);
+		source.setEncoding(XIncludePipe.PIPE_CHARSET.name());
+		return new SAXSource(reader, source);
+	}
+
+	/**
+	 * Closes the reading end of the pipe, cancels the marshaller and waits for it to end. Used when the source was not
+	 * consumed completely due to an error. That error stays the one to report. Since suppressed exceptions are not
+	 * available the failure of the marshaller is attached as the cause of the innermost exception of the failure if
+	 * that one has none and logged otherwise.
+	 *
+	 * @param failure The error consuming the source (may be null)
+	 */
+	void abort(final Throwable failure) {
+		try {
+			this.in.close();
+		} catch (final IOException e) {
+			// closing the reading end of a pipe does not fail but we do not care anyway
+		}
+		if (this.started.compareAndSet(false, true)) {
+			// still queued so it will never write anything
+			this.producer.cancel(false);
+			return;
+		}
+		this.producer.cancel(true);
+		boolean interrupted = false;
+		while (true) {
+			try {
+				this.ended.await();
+				break;
+			} catch (final InterruptedException e) {
+				interrupted = true;
+			}
+		}
+		if (interrupted) {
+			Thread.currentThread().interrupt();
+		}
+		final Throwable marshallerFailure = this.producerFailure;
+		if (marshallerFailure != null && !XIncludePipe.attachCause(failure, marshallerFailure)) {
+			XIncludePipe.LOGGER.log(Level.FINE, "Marshaller failed after the pipe was aborted", marshallerFailure); //$NON-NLS-1$
+		}
+	}
+
+	/**
+	 * Drains and closes the reading end of the pipe and waits for the marshaller to end. The parser may stop reading
+	 * after the root element so trailing content is skipped here rather than failing the marshaller with a closed pipe.
+	 *
+	 * @throws Exception The exception thrown by the marshaller if any
+	 */
+	void finish() throws Exception {
+		try {
+			final byte[] skip = new byte[512];
+			try {
+				while (this.in.read(skip) >= 0) {
+					// skip trailing content
+				}
+			} catch (final IOException e) {
+				// the parser already closed the pipe
+			}
+			this.in.close();
+		} finally {
+			try {
+				this.producer.get();
+			} catch (final ExecutionException e) {
+				final Throwable cause = e.getCause();
+				if (cause instanceof Exception) {
+					throw (Exception) cause;
+				}
+				throw DelegatedException.delegate(cause);
+			}
+		}
+	}
+
+	private static boolean attachCause(final Throwable failure, final Throwable cause) {
+		if (failure == null) {
+			return false;
+		}
+		Throwable innermost = failure;
+		for (int i = 0; i < 100 && innermost.getCause() != null; i++) {
+			if (innermost.getCause() == cause) {
+				return true;
+			}
+			innermost = innermost.getCause();
+		}
+		if (innermost == cause) {
+			return true;
+		}
+		try {
+			innermost.initCause(cause);
+		} catch (final IllegalStateException e) {
+			// the cause was set explicitly to null
+			return false;
+		} catch (final IllegalArgumentException e) {
+			// the marshaller failure wraps the failure itself
+			return false;
+		}
+		// some exceptions keep their own cause and ignore the one of the throwable
+		return innermost.getCause() == cause;
+	}
+
+}
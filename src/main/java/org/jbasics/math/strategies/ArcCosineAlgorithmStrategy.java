@@ -26,16 +26,36 @@ package org.jbasics.math.strategies;
 
 import java.math.BigDecimal;
 import java.math.MathContext;
+import java.math.RoundingMode;
 
 import org.jbasics.math.AlgorithmStrategy;
 
+/**
+ * Arbitrary precision arc cosine algorithm.
+ * <p>
+ * Works like the {@link ArcSineAlgorithmStrategy} with sine and cosine swapped so the result keeps
+ * its full relative precision even close to x = 1 where it approaches zero.
+ * </p>
+ * 
+ * @author Stephan Schloepke
+ * @since 1.0
+ */
 public class ArcCosineAlgorithmStrategy implements AlgorithmStrategy<BigDecimal> {
 
 	public BigDecimal calculate(MathContext mc, BigDecimal guess, BigDecimal... xn) {
 		if (xn == null || xn.length != 1) {
 			throw new IllegalArgumentException("arc cos requires exactly one argument arccos(x) but supplied was " + (xn == null ? 0 : xn.length));
 		}
-		return BigDecimal.valueOf(Math.acos(xn[0].doubleValue())).round(mc);
+		BigDecimal x = xn[0];
+		if (BigDecimal.ONE.compareTo(x) == 0) {
+			return BigDecimal.ZERO;
+		}
+		BigDecimal sinSquare = BigDecimal.ONE.subtract(x.multiply(x));
+		if (sinSquare.signum() < 0) {
+			throw new IllegalArgumentException("arc cos is only defined for -1 <= x <= 1 but x was " + x);
+		}
+		MathContext calcMC = new MathContext(mc.getPrecision() + 2, RoundingMode.HALF_EVEN);
+		return TrigonometricFunctions.angle(TrigonometricFunctions.sqrt(sinSquare, calcMC), x, guess, mc);
 	}
 
 }
@@ -26,16 +26,37 @@ package org.jbasics.math.strategies;
 
 import java.math.BigDecimal;
 import java.math.MathContext;
+import java.math.RoundingMode;
 
 import org.jbasics.math.AlgorithmStrategy;
 
+/**
+ * Arbitrary precision arc sine algorithm.
+ * <p>
+ * The angle is found with a Newton iteration on the sine and cosine core where the cosine is
+ * &radic;(1 - x<sup>2</sup>). Since x is an exact decimal 1 - x<sup>2</sup> is exact as well so
+ * no digits are lost close to &plusmn;1.
+ * </p>
+ * 
+ * @author Stephan Schloepke
+ * @since 1.0
+ */
 public class ArcSineAlgorithmStrategy implements AlgorithmStrategy<BigDecimal> {
 
 	public BigDecimal calculate(MathContext mc, BigDecimal guess, BigDecimal... xn) {
 		if (xn == null || xn.length != 1) {
 			throw new IllegalArgumentException("arc sin requires exactly one argument arcsin(x) but supplied was " + (xn == null ? 0 : xn.length));
 		}
-		return BigDecimal.valueOf(Math.asin(xn[0].doubleValue())).round(mc);
+		BigDecimal x = xn[0];
+		if (x.signum() == 0) {
+			return BigDecimal.ZERO;
+		}
+		BigDecimal cosSquare = BigDecimal.ONE.subtract(x.multiply(x));
+		if (cosSquare.signum() < 0) {
+			throw new IllegalArgumentException("arc sin is only defined for -1 <= x <= 1 but x was " + x);
+		}
+		MathContext calcMC = new MathContext(mc.getPrecision() + 2, RoundingMode.HALF_EVEN);
+		return TrigonometricFunctions.angle(x, TrigonometricFunctions.sqrt(cosSquare, calcMC), guess, mc);
 	}
 
 }
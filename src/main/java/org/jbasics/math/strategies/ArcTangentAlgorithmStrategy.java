@@ -29,13 +29,23 @@ import java.math.MathContext;
 
 import org.jbasics.math.AlgorithmStrategy;
 
+/**
+ * Arbitrary precision arc tangent algorithm using a Newton iteration on the sine and cosine core.
+ * 
+ * @author Stephan Schloepke
+ * @since 1.0
+ */
 public class ArcTangentAlgorithmStrategy implements AlgorithmStrategy<BigDecimal> {
 
 	public BigDecimal calculate(MathContext mc, BigDecimal guess, BigDecimal... xn) {
 		if (xn == null || xn.length != 1) {
 			throw new IllegalArgumentException("arc tan requires exactly one argument arctan(x) but supplied was " + (xn == null ? 0 : xn.length));
 		}
-		return BigDecimal.valueOf(Math.atan(xn[0].doubleValue())).round(mc);
+		BigDecimal x = xn[0];
+		if (x.signum() == 0) {
+			return BigDecimal.ZERO;
+		}
+		return TrigonometricFunctions.angle(x, BigDecimal.ONE, guess, mc);
 	}
 
 }
@@ -29,13 +29,19 @@ import java.math.MathContext;
 
 import org.jbasics.math.AlgorithmStrategy;
 
+/**
+ * Arbitrary precision cosine algorithm sharing the core of the {@link SineAlgorithmStrategy}.
+ * 
+ * @author Stephan Schloepke
+ * @since 1.0
+ */
 public class CosineAlgorithmStrategy implements AlgorithmStrategy<BigDecimal> {
 
 	public BigDecimal calculate(MathContext mc, BigDecimal guess, BigDecimal... xn) {
 		if (xn == null || xn.length != 1) {
 			throw new IllegalArgumentException("cosine requires exactly one argument cos(x) but supplied was " + (xn == null ? 0 : xn.length));
 		}
-		return BigDecimal.valueOf(Math.cos(xn[0].doubleValue())).round(mc);
+		return TrigonometricFunctions.sineCosine(xn[0], mc)[1];
 	}
 
 }
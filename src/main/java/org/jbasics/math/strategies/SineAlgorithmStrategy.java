@@ -29,13 +29,23 @@ import java.math.MathContext;
 
 import org.jbasics.math.AlgorithmStrategy;
 
+/**
+ * Arbitrary precision sine algorithm.
+ * <p>
+ * The argument is reduced against &pi; and the result is derived from the versine series on a
+ * halved angle (see {@link TrigonometricFunctions}), so every requested digit is correct.
+ * </p>
+ * 
+ * @author Stephan Schloepke
+ * @since 1.0
+ */
 public class SineAlgorithmStrategy implements AlgorithmStrategy<BigDecimal> {
 
 	public BigDecimal calculate(MathContext mc, BigDecimal guess, BigDecimal... xn) {
 		if (xn == null || xn.length != 1) {
 			throw new IllegalArgumentException("sine requires exactly one argument sin(x) but supplied was " + (xn == null ? 0 : xn.length));
 		}
-		return BigDecimal.valueOf(Math.sin(xn[0].doubleValue())).round(mc);
+		return TrigonometricFunctions.sineCosine(xn[0], mc)[0];
 	}
 
 }
@@ -26,16 +26,29 @@ package org.jbasics.math.strategies;
 
 import java.math.BigDecimal;
 import java.math.MathContext;
+import java.math.RoundingMode;
 
 import org.jbasics.math.AlgorithmStrategy;
 
+/**
+ * Arbitrary precision tangent algorithm calculated as sin(x) / cos(x) from one evaluation of the
+ * sine and cosine core.
+ * 
+ * @author Stephan Schloepke
+ * @since 1.0
+ */
 public class TangentAlgorithmStrategy implements AlgorithmStrategy<BigDecimal> {
 
 	public BigDecimal calculate(MathContext mc, BigDecimal guess, BigDecimal... xn) {
 		if (xn == null || xn.length != 1) {
 			throw new IllegalArgumentException("tangent requires exactly one argument tan(x) but supplied was " + (xn == null ? 0 : xn.length));
 		}
-		return BigDecimal.valueOf(Math.tan(xn[0].doubleValue())).round(mc);
+		MathContext calcMC = new MathContext(mc.getPrecision() + 2, RoundingMode.HALF_EVEN);
+		BigDecimal[] sc = TrigonometricFunctions.sineCosine(xn[0], calcMC);
+		if (sc[0].signum() == 0) {
+			return BigDecimal.ZERO;
+		}
+		return TrigonometricFunctions.round(sc[0].divide(sc[1], calcMC), mc);
 	}
 
 }
@@ -0,0 +1,244 @@
+/*
+ * Copyright (c) 2009 Stephan Schloepke and innoQ Deutschland GmbH
+ * 
+ * Stephan Schloepke: http://www.schloepke.de/
+ * innoQ Deutschland GmbH: http://www.innoq.com/
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.jbasics.math.strategies;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.math.MathContext;
+import java.math.RoundingMode;
+
+import org.jbasics.math.impl.MathImplConstants;
+import org.jbasics.math.impl.PiIrationalNumber;
+
+/**
+ * Arbitrary precision core of the trigonometric algorithm strategies.
+ * <p>
+ * The argument is reduced against {@link PiIrationalNumber#PI} to r = x - k&pi;/2 with |r| &le;
+ * &pi;/4. The reduction is repeated with more digits of &pi; whenever it cancels digits. r is
+ * halved m times before 1 - cos(r/2<sup>m</sup>) is summed as Taylor series in binary fixed point
+ * arithmetic (rounding is a shift rather than a decimal division). The half angle is
+ * then doubled back with 1 - cos(2a) = 2(1 - cos(a))(1 + cos(a)) which does not cancel any digits.
+ * sin(r) follows from the same value as the square root of (1 - cos(r))(1 + cos(r)). The inverse
+ * functions use a Newton iteration on sine and cosine tripling the correct digits with every step.
+ * </p>
+ * 
+ * @author Stephan Schloepke
+ * @since 1.0
+ */
+final class TrigonometricFunctions {
+	private static final int GUARD_DIGITS = 10;
+	private static final int DOUBLE_DIGITS = 14;
+	private static final double BITS_PER_DIGIT = Math.log(10) / Math.log(2);
+
+	private TrigonometricFunctions() {
+		// no instances
+	}
+
+	/**
+	 * Returns sin(x) and cos(x) rounded to the given precision.
+	 * 
+	 * @param x The angle in radians.
+	 * @param mc The math context of the result.
+	 * @return An array with sin(x) at index 0 and cos(x) at index 1.
+	 */
+	static BigDecimal[] sineCosine(final BigDecimal x, final MathContext mc) {
+		if (x.signum() == 0) {
+			return new BigDecimal[] { BigDecimal.ZERO, BigDecimal.ONE };
+		}
+		MathContext workMC = new MathContext(mc.getPrecision() + TrigonometricFunctions.GUARD_DIGITS, RoundingMode.HALF_EVEN);
+		int precision = workMC.getPrecision();
+
+		// reduce x to r = x - k * pi / 2 with enough digits of pi for r to keep the full precision
+		int magnitude = Math.max(0, TrigonometricFunctions.exponent(x));
+		int extra = TrigonometricFunctions.GUARD_DIGITS;
+		BigInteger k;
+		BigDecimal r;
+		while (true) {
+			MathContext piMC = new MathContext(precision + magnitude + extra, RoundingMode.HALF_EVEN);
+			BigDecimal halfPi = PiIrationalNumber.PI.valueToPrecision(piMC).multiply(MathImplConstants.HALF);
+			k = x.divide(halfPi, 0, RoundingMode.HALF_EVEN).toBigInteger();
+			r = k.signum() == 0 ? x : x.subtract(halfPi.multiply(new BigDecimal(k)));
+			int lost = r.signum() == 0 ? precision : -TrigonometricFunctions.exponent(r);
+			if (k.signum() == 0 || lost + 2 <= extra) {
+				break;
+			}
+			extra = lost + TrigonometricFunctions.GUARD_DIGITS;
+		}
+		r = r.round(workMC);
+
+		// the rest is done in fixed point arithmetic with values scaled by 2^scale. The scale covers
+		// the halvings and leading zeros of a small r so all values keep the full relative precision
+		int halvings = (int) Math.ceil(Math.sqrt(precision * TrigonometricFunctions.BITS_PER_DIGIT / 2));
+		int magnitudeBits = (int) Math.floor(TrigonometricFunctions.exponent(r) * TrigonometricFunctions.BITS_PER_DIGIT);
+		halvings = Math.max(0, halvings + magnitudeBits);
+		int scale = (int) Math.ceil(precision * TrigonometricFunctions.BITS_PER_DIGIT) + 2 * (halvings + Math.max(0, -magnitudeBits)) + 8;
+		BigInteger one = BigInteger.ONE.shiftLeft(scale);
+		BigInteger a = new BigDecimal(BigInteger.ONE.shiftLeft(scale - halvings)).multiply(r).setScale(0, RoundingMode.HALF_EVEN).unscaledValue();
+
+		// versine v = 1 - cos(a) = a^2/2! - a^4/4! + a^6/6! - ...
+		BigInteger a2 = a.multiply(a).shiftRight(scale);
+		BigInteger term = a2.shiftRight(1);
+		BigInteger v = term;
+		for (long n = 2; term.signum() != 0; n += 2) {
+			term = term.multiply(a2).shiftRight(scale).divide(BigInteger.valueOf((n + 1) * (n + 2))).negate();
+			v = v.add(term);
+		}
+		// double the angle back with v(2a) = 2 v(a) (2 - v(a))
+		BigInteger four = one.shiftLeft(2);
+		for (int i = 0; i < halvings; i++) {
+			v = v.multiply(four.subtract(v.shiftLeft(1))).shiftRight(scale);
+		}
+
+		BigDecimal unit = new BigDecimal(one);
+		BigDecimal sin = new BigDecimal(TrigonometricFunctions.sqrt(v.multiply(one.shiftLeft(1).subtract(v)))).divide(unit, workMC);
+		if (r.signum() < 0) {
+			sin = sin.negate();
+		}
+		BigDecimal cos = new BigDecimal(one.subtract(v)).divide(unit, workMC);
+		switch (k.intValue() & 3) {
+			case 1:
+				return new BigDecimal[] { TrigonometricFunctions.round(cos, mc), TrigonometricFunctions.round(sin.negate(), mc) };
+			case 2:
+				return new BigDecimal[] { TrigonometricFunctions.round(sin.negate(), mc), TrigonometricFunctions.round(cos.negate(), mc) };
+			case 3:
+				return new BigDecimal[] { TrigonometricFunctions.round(cos.negate(), mc), TrigonometricFunctions.round(sin, mc) };
+			default:
+				return new BigDecimal[] { TrigonometricFunctions.round(sin, mc), TrigonometricFunctions.round(cos, mc) };
+		}
+	}
+
+	/**
+	 * Returns the angle &theta; in (-&pi;, &pi;] with sin(&theta;) : cos(&theta;) = s : c.
+	 * 
+	 * @param s The sine part (does not need to be normalized).
+	 * @param c The cosine part (does not need to be normalized).
+	 * @param guess A less precise result to start the iteration at (optional).
+	 * @param mc The math context of the result.
+	 * @return The angle in radians.
+	 */
+	static BigDecimal angle(final BigDecimal s, final BigDecimal c, final BigDecimal guess, final MathContext mc) {
+		int precision = mc.getPrecision() + TrigonometricFunctions.GUARD_DIGITS;
+		MathContext workMC = new MathContext(precision, RoundingMode.HALF_EVEN);
+		BigDecimal y;
+		int known;
+		if (guess != null && guess.signum() != 0) {
+			y = guess;
+			known = Math.max(1, guess.precision() - 2);
+		} else {
+			y = BigDecimal.valueOf(Math.atan2(s.doubleValue(), c.doubleValue()));
+			known = TrigonometricFunctions.DOUBLE_DIGITS;
+			if (y.signum() == 0) {
+				// s is too small for a double, tan(y) = s / c is a far better start
+				y = s.divide(c, workMC);
+			}
+		}
+		while (true) {
+			int stepPrecision = Math.min(precision, 3 * known);
+			MathContext stepMC = new MathContext(stepPrecision, RoundingMode.HALF_EVEN);
+			BigDecimal[] sc = TrigonometricFunctions.sineCosine(y, stepMC);
+			// tan(theta - y) = (s cos y - c sin y) / (c cos y + s sin y)
+			BigDecimal numerator = s.multiply(sc[1], stepMC).subtract(c.multiply(sc[0], stepMC), stepMC);
+			if (numerator.signum() == 0) {
+				known = stepPrecision;
+			} else {
+				BigDecimal delta = numerator.divide(c.multiply(sc[1], stepMC).add(s.multiply(sc[0], stepMC), stepMC), stepMC);
+				y = y.add(delta, stepMC);
+				known = Math.min(stepPrecision, 3 * Math.max(1, TrigonometricFunctions.exponent(y) - TrigonometricFunctions.exponent(delta)));
+			}
+			if (stepPrecision == precision && known == precision) {
+				return TrigonometricFunctions.round(y, mc);
+			}
+		}
+	}
+
+	/**
+	 * Returns the square root of the non negative y with a Newton iteration doubling the precision
+	 * with every step.
+	 */
+	static BigDecimal sqrt(final BigDecimal y, final MathContext mc) {
+		if (y.signum() == 0) {
+			return BigDecimal.ZERO;
+		}
+		int shift = TrigonometricFunctions.exponent(y);
+		shift -= shift & 1;
+		BigDecimal x = BigDecimal.valueOf(Math.sqrt(y.movePointLeft(shift).doubleValue())).movePointRight(shift / 2);
+		int known = TrigonometricFunctions.DOUBLE_DIGITS;
+		do {
+			known = Math.min(mc.getPrecision(), 2 * known);
+			MathContext stepMC = new MathContext(known + 2, RoundingMode.HALF_EVEN);
+			x = x.add(y.divide(x, stepMC)).multiply(MathImplConstants.HALF, stepMC);
+		} while (known < mc.getPrecision());
+		return x.round(mc);
+	}
+
+	/**
+	 * Rounds the inexact x to the given precision keeping trailing zeros so the result does not
+	 * look like an exact result with less precision than requested.
+	 */
+	static BigDecimal round(final BigDecimal x, final MathContext mc) {
+		BigDecimal result = x.round(mc);
+		if (result.precision() < mc.getPrecision()) {
+			result = result.setScale(result.scale() + mc.getPrecision() - result.precision());
+		}
+		return result;
+	}
+
+	/**
+	 * Returns the integer square root floor(&radic;n) of the non negative n.
+	 */
+	private static BigInteger sqrt(final BigInteger n) {
+		int bits = n.bitLength();
+		if (bits < 63) {
+			long value = n.longValue();
+			long result = (long) Math.sqrt(value);
+			while (result * result > value) {
+				result--;
+			}
+			while ((result + 1) * (result + 1) <= value) {
+				result++;
+			}
+			return BigInteger.valueOf(result);
+		}
+		// start above the root with the root of the upper half of the bits
+		int shift = bits / 4;
+		BigInteger result = TrigonometricFunctions.sqrt(n.shiftRight(2 * shift)).add(BigInteger.ONE).shiftLeft(shift);
+		while (true) {
+			BigInteger next = result.add(n.divide(result)).shiftRight(1);
+			if (next.compareTo(result) >= 0) {
+				return result;
+			}
+			result = next;
+		}
+	}
+
+	/**
+	 * Returns the position of the most significant digit relative to the decimal point (0.5 gives
+	 * 0, 5 gives 1 and 0.05 gives -1).
+	 */
+	private static int exponent(final BigDecimal x) {
+		return x.precision() - x.scale();
+	}
+
+}
@@ -0,0 +1,122 @@
+/*
+ * Copyright (c) 2009 Stephan Schloepke and innoQ Deutschland GmbH
+ * 
+ * Stephan Schloepke: http://www.schloepke.de/
+ * innoQ Deutschland GmbH: http://www.innoq.com/
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.jbasics.net.http;
+
+import java.net.URI;
+
+/**
+ * Asynchronous variant of the {@link HttpAccessor}.
+ * <p>
+ * Every method returns immediately with a {@link HttpFuture} while the request is executed by the implementation.
+ * The {@link RequestHandler} is called on the thread executing the request as soon as the response head arrived
+ * and reads the body while it is received. The future completes with the HTTP status code after the handler
+ * returned. Callers fanning out many requests can either wait on the futures or register a
+ * {@link HttpCompletionListener} instead of blocking a thread per request.
+ * </p>
+ *
+ * @author Stephan Schloepke
+ * @since 1.0
+ */
+public interface AsyncHttpAccessor {
+
+	/**
+	 * Set the base URI any request relies on. If null all requests must be absolute requests.
+	 *
+	 * @param uri The base URI for relative requests.
+	 * @return The old base URI.
+	 */
+	URI setBase(URI uri);
+
+	/**
+	 * Executes a GET method against the given URI. If the URI is relative the base must be set already.
+	 *
+	 * @param uri The URI to execute the method on (if relative the base must be set already).
+	 * @param headers The meta data for the request.
+	 * @param handler The handler to handle the request result.
+	 * @return The future completing with the HTTP status code of the request.
+	 */
+	HttpFuture get(URI uri, RequestHeaders headers, RequestHandler handler);
+
+	/**
+	 * Executes a POST method against the given URI. If the URI is relative the base must be set already.
+	 *
+	 * @param uri The URI to execute the method on (if relative the base must be set already).
+	 * @param entity The entity to send. It is serialized on the thread executing the request.
+	 * @param handler The handler to handle the request result.
+	 * @return The future completing with the HTTP status code of the request.
+	 */
+	HttpFuture post(URI uri, RequestEntity<?> entity, RequestHandler handler);
+
+	/**
+	 * Executes a PUT method against the given URI. If the URI is relative the base must be set already.
+	 *
+	 * @param uri The URI to execute the method on (if relative the base must be set already).
+	 * @param entity The entity to send. It is serialized on the thread executing the request.
+	 * @param handler The handler to handle the request result.
+	 * @return The future completing with the HTTP status code of the request.
+	 */
+	HttpFuture put(URI uri, RequestEntity<?> entity, RequestHandler handler);
+
+	/**
+	 * Executes a DELETE method against the given URI. If the URI is relative the base must be set already.
+	 *
+	 * @param uri The URI to execute the method on (if relative the base must be set already).
+	 * @param headers The meta data for the request.
+	 * @param handler The handler to handle the request result.
+	 * @return The future completing with the HTTP status code of the request.
+	 */
+	HttpFuture delete(URI uri, RequestHeaders headers, RequestHandler handler);
+
+	/**
+	 * Executes a HEAD method against the given URI. If the URI is relative the base must be set already.
+	 *
+	 * @param uri The URI to execute the method on (if relative the base must be set already).
+	 * @param headers The header data for the request.
+	 * @param handler The handler to handle the request result.
+	 * @return The future completing with the HTTP status code of the request.
+	 */
+	HttpFuture head(URI uri, RequestHeaders headers, RequestHandler handler);
+
+	/**
+	 * Executes an OPTIONS method against the given URI. If the URI is relative the base must be set already.
+	 *
+	 * @param uri The URI to execute the method on (if relative the base must be set already).
+	 * @param headers The meta data for the request.
+	 * @param handler The handler to handle the request result.
+	 * @return The future completing with the HTTP status code of the request.
+	 */
+	HttpFuture options(URI uri, RequestHeaders headers, RequestHandler handler);
+
+	/**
+	 * Executes a TRACE method against the given URI. If the URI is relative the base must be set already.
+	 *
+	 * @param uri The URI to execute the method on (if relative the base must be set already).
+	 * @param headers The meta data for the request.
+	 * @param handler The handler to handle the request result.
+	 * @return The future completing with the HTTP status code of the request.
+	 */
+	HttpFuture trace(URI uri, RequestHeaders headers, RequestHandler handler);
+
+}
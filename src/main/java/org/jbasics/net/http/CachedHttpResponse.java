@@ -0,0 +1,314 @@
+/*
+ * Copyright (c) 2009 Stephan Schloepke and innoQ Deutschland GmbH
+ * 
+ * Stephan Schloepke: http://www.schloepke.de/
+ * innoQ Deutschland GmbH: http://www.innoq.com/
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.jbasics.net.http;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Date;
+import java.util.Locale;
+
+import org.jbasics.annotation.ImmutableState;
+import org.jbasics.annotation.ThreadSafe;
+import org.jbasics.net.mediatype.MediaType;
+
+/**
+ * A response held by a {@link HttpCacheStore} together with its meta data and the time it stays fresh.
+ *
+ * @author Stephan Schloepke
+ * @since 1.0
+ */
+@ThreadSafe
+@ImmutableState
+public final class CachedHttpResponse {
+	private static final int FORMAT_VERSION = 1;
+	private static final String MAX_AGE_DIRECTIVE = "max-age="; //$NON-NLS-1$
+	// RFC 7234 section 1.2.1: larger delta seconds are taken as 2^31
+	private static final long MAX_DELTA_SECONDS = 2147483648L;
+	private static final String NO_CACHE_DIRECTIVE = "no-cache"; //$NON-NLS-1$
+
+	private final String variant;
+	private final int status;
+	private final String mediaType;
+	private final String encoding;
+	private final String language;
+	private final String eTag;
+	private final String contentMD5;
+	private final String cacheControl;
+	private final long date;
+	private final long lastModified;
+	private final long expires;
+	private final long freshUntil;
+	private final byte[] body;
+
+	private CachedHttpResponse(final String variant, final int status, final String mediaType, final String encoding, final String language,
+			final String eTag, final String contentMD5, final String cacheControl, final long date, final long lastModified, final long expires,
+			final long freshUntil, final byte[] body) {
+		this.variant = variant;
+		this.status = status;
+		this.mediaType = mediaType;
+		this.encoding = encoding;
+		this.language = language;
+		this.eTag = eTag;
+		this.contentMD5 = contentMD5;
+		this.cacheControl = cacheControl;
+		this.date = date;
+		this.lastModified = lastModified;
+		this.expires = expires;
+		this.freshUntil = freshUntil;
+		this.body = body;
+	}
+
+	/**
+	 * Creates a cached response from the meta data and body received.
+	 *
+	 * @param variant The variant of the request the response was negotiated for.
+	 * @param meta The meta data of the response.
+	 * @param body The complete body of the response.
+	 * @param now The time the response was received.
+	 * @return The cached response.
+	 */
+	public static CachedHttpResponse create(final String variant, final ResponseMeta meta, final byte[] body, final long now) {
+		return new CachedHttpResponse(variant, meta.getStatus(), meta.getMediaType() != null ? meta.getMediaType().toString() : null,
+				meta.getEncoding(), meta.getLanguage(), meta.getETag(), meta.getContentMD5(), meta.getCacheControl(), time(meta.getDate()),
+				time(meta.getLastModified()), time(meta.getExpires()), freshUntil(meta, now), body);
+	}
+
+	/**
+	 * Returns a copy of this response with the freshness taken from the meta data of a 304 (Not Modified) response.
+	 *
+	 * @param meta The meta data of the not modified response.
+	 * @param now The time the response was received.
+	 * @return The revalidated response.
+	 */
+	public CachedHttpResponse revalidate(final ResponseMeta meta, final long now) {
+		final long newExpires = time(meta.getExpires());
+		final String newCacheControl = meta.getCacheControl() != null ? meta.getCacheControl() : this.cacheControl;
+		final String newETag = meta.getETag() != null ? meta.getETag() : this.eTag;
+		return new CachedHttpResponse(this.variant, this.status, this.mediaType, this.encoding, this.language, newETag, this.contentMD5,
+				newCacheControl, now, this.lastModified, newExpires > 0 ? newExpires : this.expires, freshUntil(newCacheControl, now,
+						time(meta.getDate()), newExpires), this.body);
+	}
+
+	/**
+	 * Returns the variant of the request the response was negotiated for.
+	 *
+	 * @return The variant.
+	 */
+	public String getVariant() {
+		return this.variant;
+	}
+
+	/**
+	 * Returns the HTTP status code of the response.
+	 *
+	 * @return The status code.
+	 */
+	public int getStatus() {
+		return this.status;
+	}
+
+	/**
+	 * Returns the entity tag of the response or null if the response did not have one.
+	 *
+	 * @return The entity tag.
+	 */
+	public String getETag() {
+		return this.eTag;
+	}
+
+	/**
+	 * Returns the last modified time of the response or zero if unknown.
+	 *
+	 * @return The last modified time.
+	 */
+	public long getLastModified() {
+		return this.lastModified;
+	}
+
+	/**
+	 * Returns true if the response can be served without asking the origin server.
+	 *
+	 * @param now The current time.
+	 * @return True if the response is still fresh.
+	 */
+	public boolean isFresh(final long now) {
+		return now < this.freshUntil;
+	}
+
+	/**
+	 * Returns the size of the body in bytes.
+	 *
+	 * @return The size of the body.
+	 */
+	public int getSize() {
+		return this.body.length;
+	}
+
+	/**
+	 * Returns a new stream on the cached body.
+	 *
+	 * @return The stream to read the body from.
+	 */
+	public InputStream openBody() {
+		return new ByteArrayInputStream(this.body);
+	}
+
+	/**
+	 * Creates the meta data to hand to a {@link RequestHandler} for this response.
+	 *
+	 * @return The response meta data.
+	 */
+	public ResponseMeta createResponseMeta() {
+		final ResponseMeta result = new ResponseMeta();
+		result.setStatus(this.status);
+		if (this.mediaType != null) {
+			result.setMediaType(MediaType.valueOf(this.mediaType));
+		}
+		result.setContentLength(this.body.length);
+		result.setEncoding(this.encoding);
+		result.setLanguage(this.language);
+		result.setETag(this.eTag);
+		result.setContentMD5(this.contentMD5);
+		result.setCacheControl(this.cacheControl);
+		result.setDate(date(this.date));
+		result.setLastModified(date(this.lastModified));
+		result.setExpires(date(this.expires));
+		return result;
+	}
+
+	/**
+	 * Writes the response to the given stream.
+	 *
+	 * @param out The stream to write to.
+	 * @throws IOException If writing failed.
+	 */
+	public void writeTo(final DataOutputStream out) throws IOException {
+		out.writeInt(CachedHttpResponse.FORMAT_VERSION);
+		writeString(out, this.variant);
+		out.writeInt(this.status);
+		writeString(out, this.mediaType);
+		writeString(out, this.encoding);
+		writeString(out, this.language);
+		writeString(out, this.eTag);
+		writeString(out, this.contentMD5);
+		writeString(out, this.cacheControl);
+		out.writeLong(this.date);
+		out.writeLong(this.lastModified);
+		out.writeLong(this.expires);
+		out.writeLong(this.freshUntil);
+		out.writeInt(this.body.length);
+		out.write(this.body);
+	}
+
+	/**
+	 * Reads a response written by {@link #writeTo(DataOutputStream)}.
+	 *
+	 * @param in The stream to read from.
+	 * @return The response read.
+	 * @throws IOException If reading failed or the data is not a cached response.
+	 */
+	public static CachedHttpResponse readFrom(final DataInputStream in) throws IOException {
+		if (in.readInt() != CachedHttpResponse.FORMAT_VERSION) {
+			throw new IOException("Unsupported cached response format"); //$NON-NLS-1$
+		}
+		final String variant = readString(in);
+		final int status = in.readInt();
+		final String mediaType = readString(in);
+		final String encoding = readString(in);
+		final String language = readString(in);
+		final String eTag = readString(in);
+		final String contentMD5 = readString(in);
+		final String cacheControl = readString(in);
+		final long date = in.readLong();
+		final long lastModified = in.readLong();
+		final long expires = in.readLong();
+		final long freshUntil = in.readLong();
+		final byte[] body = new byte[in.readInt()];
+		in.readFully(body);
+		return new CachedHttpResponse(variant, status, mediaType, encoding, language, eTag, contentMD5, cacheControl, date, lastModified,
+				expires, freshUntil, body);
+	}
+
+	private static long freshUntil(final ResponseMeta meta, final long now) {
+		return freshUntil(meta.getCacheControl(), now, time(meta.getDate()), time(meta.getExpires()));
+	}
+
+	private static long freshUntil(final String cacheControl, final long now, final long date, final long expires) {
+		if (cacheControl != null) {
+			final String temp = cacheControl.toLowerCase(Locale.ENGLISH);
+			if (temp.contains(CachedHttpResponse.NO_CACHE_DIRECTIVE)) {
+				return 0;
+			}
+			final int maxAge = temp.indexOf(CachedHttpResponse.MAX_AGE_DIRECTIVE);
+			if (maxAge >= 0) {
+				int end = maxAge + CachedHttpResponse.MAX_AGE_DIRECTIVE.length();
+				final int start = end;
+				while (end < temp.length() && Character.isDigit(temp.charAt(end))) {
+					end++;
+				}
+				if (end > start) {
+					return now + maxAgeSeconds(temp.substring(start, end)) * 1000;
+				}
+			}
+		}
+		if (expires > 0) {
+			// relative to the server date to be independent of clock skew
+			return now + expires - (date > 0 ? date : now);
+		}
+		return 0;
+	}
+
+	private static long maxAgeSeconds(final String digits) {
+		try {
+			return Math.min(Long.parseLong(digits), CachedHttpResponse.MAX_DELTA_SECONDS);
+		} catch (final NumberFormatException e) {
+			// too many digits for a long
+			return CachedHttpResponse.MAX_DELTA_SECONDS;
+		}
+	}
+
+	private static long time(final Date date) {
+		return date != null && date.getTime() > 0 ? date.getTime() : 0;
+	}
+
+	private static Date date(final long time) {
+		return time > 0 ? new Date(time) : null;
+	}
+
+	private static void writeString(final DataOutputStream out, final String value) throws IOException {
+		out.writeBoolean(value != null);
+		if (value != null) {
+			out.writeUTF(value);
+		}
+	}
+
+	private static String readString(final DataInputStream in) throws IOException {
+		return in.readBoolean() ? in.readUTF() : null;
+	}
+
+}
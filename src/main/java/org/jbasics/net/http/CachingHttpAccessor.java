@@ -0,0 +1,364 @@
+/*
+ * Copyright (c) 2009 Stephan Schloepke and innoQ Deutschland GmbH
+ * 
+ * Stephan Schloepke: http://www.schloepke.de/
+ * innoQ Deutschland GmbH: http://www.innoq.com/
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.jbasics.net.http;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.util.Date;
+import java.util.Locale;
+
+import org.jbasics.annotation.ThreadSafe;
+import org.jbasics.checker.ContractCheck;
+import org.jbasics.checker.ContractViolationException;
+import org.jbasics.pattern.strategy.EntityTag;
+
+/**
+ * {@link HttpAccessor} decorator caching the responses of GET requests.
+ * <p>
+ * A cached response is served without contacting the server while it is fresh according to the Cache-Control
+ * max-age or the Expires header. Afterwards the request is sent conditionally with If-None-Match and
+ * If-Modified-Since taken from the cached ETag and Last-Modified. A 304 (Not Modified) response refreshes the cached
+ * response which is then handed to the handler instead. Responses with "no-store" or bodies larger than the maximum
+ * entry size are not cached. Requests which already carry conditional headers bypass the cache. PUT, POST and DELETE
+ * invalidate the cached response of their URI.
+ * </p>
+ * <p>
+ * The response body is passed to the handler while it is read from the server and copied to the cache on the fly.
+ * The cache is keyed by the absolute URI, responses negotiated for different Accept headers replace each other.
+ * </p>
+ *
+ * @author Stephan Schloepke
+ * @since 1.0
+ */
+@ThreadSafe(derived = true)
+public class CachingHttpAccessor implements HttpAccessor {
+	/**
+	 * The default maximum size of all bodies cached in memory.
+	 */
+	public static final long DEFAULT_MAX_MEMORY_SIZE = 32 * 1024 * 1024;
+	/**
+	 * The default maximum size of a single cached body.
+	 */
+	public static final int DEFAULT_MAX_ENTRY_SIZE = 4 * 1024 * 1024;
+
+	private static final int NOT_MODIFIED = 304;
+	private static final int OK = 200;
+	private static final String NO_STORE_DIRECTIVE = "no-store"; //$NON-NLS-1$
+
+	private final HttpAccessor accessor;
+	private final HttpCacheStore store;
+	private final int maxEntrySize;
+	private volatile URI baseURL;
+
+	/**
+	 * Creates a caching accessor with an in memory store of {@link #DEFAULT_MAX_MEMORY_SIZE}.
+	 *
+	 * @param accessor The accessor to cache (must not be null).
+	 */
+	public CachingHttpAccessor(final HttpAccessor accessor) {
+		this(accessor, new MemoryHttpCacheStore(CachingHttpAccessor.DEFAULT_MAX_MEMORY_SIZE), CachingHttpAccessor.DEFAULT_MAX_ENTRY_SIZE);
+	}
+
+	/**
+	 * Creates a caching accessor with an in memory store of {@link #DEFAULT_MAX_MEMORY_SIZE} backed by a store on
+	 * disk.
+	 *
+	 * @param accessor The accessor to cache (must not be null).
+	 * @param directory The directory to store the responses in (must not be null).
+	 */
+	public CachingHttpAccessor(final HttpAccessor accessor, final File directory) {
+		this(accessor, new MemoryHttpCacheStore(CachingHttpAccessor.DEFAULT_MAX_MEMORY_SIZE, new FileHttpCacheStore(directory)),
+				CachingHttpAccessor.DEFAULT_MAX_ENTRY_SIZE);
+	}
+
+	/**
+	 * Creates a caching accessor with the given store.
+	 *
+	 * @param accessor The accessor to cache (must not be null).
+	 * @param store The store to hold the responses (must not be null).
+	 * @param maxEntrySize The maximum size of a body to cache (must be positive).
+	 */
+	public CachingHttpAccessor(final HttpAccessor accessor, final HttpCacheStore store, final int maxEntrySize) {
+		this.accessor = ContractCheck.mustNotBeNull(accessor, "accessor"); //$NON-NLS-1$
+		this.store = ContractCheck.mustNotBeNull(store, "store"); //$NON-NLS-1$
+		this.maxEntrySize = ContractCheck.mustBeInRange(maxEntrySize, 1, Integer.MAX_VALUE, "maxEntrySize"); //$NON-NLS-1$
+	}
+
+	/**
+	 * Returns the store holding the cached responses.
+	 *
+	 * @return The store.
+	 */
+	public HttpCacheStore getStore() {
+		return this.store;
+	}
+
+	@Override
+	public URI setBase(final URI uri) {
+		this.baseURL = uri;
+		return this.accessor.setBase(uri);
+	}
+
+	@Override
+	public int get(final URI uri, final RequestHeaders headers, final RequestHandler handler) throws IOException {
+		ContractCheck.mustNotBeNull(uri, "uri"); //$NON-NLS-1$
+		ContractCheck.mustNotBeNull(headers, "headers"); //$NON-NLS-1$
+		ContractCheck.mustNotBeNull(handler, "handler"); //$NON-NLS-1$
+		if (headers.getIfModifiedSince() != null || headers.getIfNoneMatch() != null || headers.getIfMatch() != null) {
+			return this.accessor.get(uri, headers, handler);
+		}
+		final String key = resolveURI(uri).toString();
+		final String variant = createVariant(headers);
+		CachedHttpResponse cached = this.store.get(key);
+		if (cached != null && !variant.equals(cached.getVariant())) {
+			cached = null;
+		}
+		if (cached != null && cached.isFresh(System.currentTimeMillis())) {
+			handler.processInput(cached.createResponseMeta(), cached.openBody());
+			return cached.getStatus();
+		}
+		RequestHeaders request = headers;
+		if (cached != null) {
+			request = new RequestHeaders(headers);
+			final EntityTag tag = parseEntityTag(cached.getETag());
+			if (tag != null) {
+				request.setIfNoneMatch(tag);
+			}
+			if (cached.getLastModified() > 0) {
+				request.setIfModifiedSince(new Date(cached.getLastModified()));
+			}
+		}
+		final CachingHandler cachingHandler = new CachingHandler(key, variant, cached, handler);
+		final int status = this.accessor.get(uri, request, cachingHandler);
+		return cachingHandler.revalidated != null ? cachingHandler.revalidated.getStatus() : status;
+	}
+
+	@Override
+	public int post(final URI uri, final RequestEntity<?> entity, final RequestHandler handler) throws IOException {
+		invalidate(uri);
+		return this.accessor.post(uri, entity, handler);
+	}
+
+	@Override
+	public int put(final URI uri, final RequestEntity<?> entity, final RequestHandler handler) throws IOException {
+		invalidate(uri);
+		return this.accessor.put(uri, entity, handler);
+	}
+
+	@Override
+	public int delete(final URI uri, final RequestHeaders headers, final RequestHandler handler) throws IOException {
+		invalidate(uri);
+		return this.accessor.delete(uri, headers, handler);
+	}
+
+	@Override
+	public int head(final URI uri, final RequestHeaders headers, final RequestHandler handler) throws IOException {
+		return this.accessor.head(uri, headers, handler);
+	}
+
+	@Override
+	public int options(final URI uri, final RequestHeaders headers, final RequestHandler handler) throws IOException {
+		return this.accessor.options(uri, headers, handler);
+	}
+
+	@Override
+	public int trace(final URI uri, final RequestHeaders headers, final RequestHandler handler) throws IOException {
+		return this.accessor.trace(uri, headers, handler);
+	}
+
+	private void invalidate(final URI uri) throws RelativeURIException {
+		this.store.remove(resolveURI(ContractCheck.mustNotBeNull(uri, "uri")).toString()); //$NON-NLS-1$
+	}
+
+	private URI resolveURI(final URI uri) throws RelativeURIException {
+		if (uri.isAbsolute()) {
+			return uri.normalize();
+		}
+		final URI base = this.baseURL;
+		if (base != null) {
+			return base.resolve(uri).normalize();
+		}
+		throw new RelativeURIException("URI is relative but no base URI is set. Cannot resolve URL from given URI"); //$NON-NLS-1$
+	}
+
+	private String createVariant(final RequestHeaders headers) {
+		final StringBuilder result = new StringBuilder();
+		result.append(HttpHeaderCreator.createHeaderValue(false, (Object[]) headers.getAcceptMediaTypes())).append('\n');
+		result.append(HttpHeaderCreator.createHeaderValue(false, (Object[]) headers.getAcceptCharsets())).append('\n');
+		result.append(HttpHeaderCreator.createHeaderValue(false, (Object[]) headers.getAcceptEncodings())).append('\n');
+		result.append(HttpHeaderCreator.createHeaderValue(false, (Object[]) headers.getAcceptLanguages()));
+		return result.toString();
+	}
+
+	private EntityTag parseEntityTag(final String value) {
+		if (value == null) {
+			return null;
+		}
+		String temp = value.trim();
+		final boolean weak = temp.startsWith("W/"); //$NON-NLS-1$
+		if (weak) {
+			temp = temp.substring(2);
+		}
+		if (temp.length() >= 2 && temp.charAt(0) == '"' && temp.charAt(temp.length() - 1) == '"') {
+			temp = temp.substring(1, temp.length() - 1);
+		}
+		try {
+			return new EntityTag(temp, weak);
+		} catch (final ContractViolationException e) {
+			return null;
+		}
+	}
+
+	private boolean isStorable(final ResponseMeta meta) {
+		if (meta.getStatus() != CachingHttpAccessor.OK) {
+			return false;
+		}
+		final String cacheControl = meta.getCacheControl();
+		if (cacheControl != null && cacheControl.toLowerCase(Locale.ENGLISH).contains(CachingHttpAccessor.NO_STORE_DIRECTIVE)) {
+			return false;
+		}
+		return meta.getContentLength() <= this.maxEntrySize;
+	}
+
+	private final class CachingHandler implements RequestHandler {
+		private final String key;
+		private final String variant;
+		private final CachedHttpResponse cached;
+		private final RequestHandler handler;
+		private CachedHttpResponse revalidated;
+
+		CachingHandler(final String key, final String variant, final CachedHttpResponse cached, final RequestHandler handler) {
+			this.key = key;
+			this.variant = variant;
+			this.cached = cached;
+			this.handler = handler;
+		}
+
+		@Override
+		public void processInput(final ResponseMeta metaData, final InputStream in) throws IOException {
+			final long now = System.currentTimeMillis();
+			if (metaData.getStatus() == CachingHttpAccessor.NOT_MODIFIED && this.cached != null) {
+				this.revalidated = this.cached.revalidate(metaData, now);
+				CachingHttpAccessor.this.store.put(this.key, this.revalidated);
+				this.handler.processInput(this.revalidated.createResponseMeta(), this.revalidated.openBody());
+			} else if (isStorable(metaData)) {
+				final CapturingInputStream capture = new CapturingInputStream(in, CachingHttpAccessor.this.maxEntrySize);
+				this.handler.processInput(metaData, capture);
+				final byte[] body = capture.finish();
+				if (body != null) {
+					CachingHttpAccessor.this.store.put(this.key, CachedHttpResponse.create(this.variant, metaData, body, now));
+				} else if (this.cached != null) {
+					CachingHttpAccessor.this.store.remove(this.key);
+				}
+			} else {
+				if (this.cached != null && metaData.getStatus() < 500) {
+					CachingHttpAccessor.this.store.remove(this.key);
+				}
+				this.handler.processInput(metaData, in);
+			}
+		}
+	}
+
+	/**
+	 * Copies everything read into a buffer until the limit is exceeded.
+	 */
+	private static final class CapturingInputStream extends FilterInputStream {
+		private final int limit;
+		private ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+		private boolean endOfStream;
+
+		CapturingInputStream(final InputStream in, final int limit) {
+			super(in);
+			this.limit = limit;
+		}
+
+		@Override
+		public int read() throws IOException {
+			final int result = super.read();
+			if (result < 0) {
+				this.endOfStream = true;
+			} else if (this.buffer != null) {
+				this.buffer.write(result);
+				checkLimit();
+			}
+			return result;
+		}
+
+		@Override
+		public int read(final byte[] b, final int off, final int len) throws IOException {
+			final int result = super.read(b, off, len);
+			if (result < 0) {
+				this.endOfStream = true;
+			} else if (this.buffer != null) {
+				this.buffer.write(b, off, result);
+				checkLimit();
+			}
+			return result;
+		}
+
+		@Override
+		public long skip(final long n) throws IOException {
+			final byte[] temp = new byte[(int) Math.min(n, 4096)];
+			final int result = read(temp, 0, temp.length);
+			return result < 0 ? 0 : result;
+		}
+
+		@Override
+		public boolean markSupported() {
+			return false;
+		}
+
+		@Override
+		public void close() {
+			// the accessor closes the underlying stream after the handler finished
+		}
+
+		/**
+		 * Reads the rest of the body and returns it or null if it exceeded the limit or could not be read.
+		 */
+		byte[] finish() {
+			try {
+				final byte[] temp = new byte[4096];
+				while (this.buffer != null && !this.endOfStream) {
+					read(temp, 0, temp.length);
+				}
+			} catch (final IOException e) {
+				return null;
+			}
+			return this.buffer != null ? this.buffer.toByteArray() : null;
+		}
+
+		private void checkLimit() {
+			if (this.buffer.size() > this.limit) {
+				this.buffer = null;
+			}
+		}
+	}
+
+}
@@ -0,0 +1,211 @@
+/*
+ * Copyright (c) 2009 Stephan Schloepke and innoQ Deutschland GmbH
+ * 
+ * Stephan Schloepke: http://www.schloepke.de/
+ * innoQ Deutschland GmbH: http://www.innoq.com/
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.jbasics.net.http;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.URI;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.jbasics.annotation.ThreadSafe;
+import org.jbasics.checker.ContractCheck;
+
+/**
+ * {@link AsyncHttpAccessor} running the requests of a blocking {@link HttpAccessor} on a bounded executor.
+ * <p>
+ * The caller thread only queues the request. The number of requests in flight is bounded by the executor so a fan
+ * out of many requests does not need a thread per request. Use it together with the {@link PooledHttpAccessor} and
+ * allow at least as many connections per route as the executor runs requests concurrently, otherwise requests wait
+ * for a free connection inside the executor.
+ * </p>
+ *
+ * @author Stephan Schloepke
+ * @since 1.0
+ */
+@ThreadSafe(derived = true)
+public class ExecutorHttpAccessor implements AsyncHttpAccessor, Closeable {
+	/**
+	 * The default number of requests executed concurrently.
+	 */
+	public static final int DEFAULT_MAX_CONCURRENT_REQUESTS = 16;
+
+	private static final String HTTP_TRACE_VERB = "TRACE"; //$NON-NLS-1$
+	private static final String HTTP_OPTIONS_VERB = "OPTIONS"; //$NON-NLS-1$
+	private static final String HTTP_HEAD_VERB = "HEAD"; //$NON-NLS-1$
+	private static final String HTTP_DELETE_VERB = "DELETE"; //$NON-NLS-1$
+	private static final String HTTP_PUT_VERB = "PUT"; //$NON-NLS-1$
+	private static final String HTTP_POST_VERB = "POST"; //$NON-NLS-1$
+	private static final String HTTP_GET_VERB = "GET"; //$NON-NLS-1$
+	private static final AtomicInteger POOL_COUNTER = new AtomicInteger();
+
+	private final HttpAccessor accessor;
+	private final Executor executor;
+	private final ExecutorService ownedExecutor;
+	private final Closeable ownedAccessor;
+
+	/**
+	 * Creates an asynchronous accessor using a {@link PooledHttpAccessor} with
+	 * {@link #DEFAULT_MAX_CONCURRENT_REQUESTS} connections per route and as many threads.
+	 */
+	public ExecutorHttpAccessor() {
+		this(new PooledHttpAccessor(ExecutorHttpAccessor.DEFAULT_MAX_CONCURRENT_REQUESTS, 0, 0, 0),
+				ExecutorHttpAccessor.DEFAULT_MAX_CONCURRENT_REQUESTS, true);
+	}
+
+	/**
+	 * Creates an asynchronous accessor executing the requests of the given accessor on its own pool of daemon
+	 * threads.
+	 *
+	 * @param accessor The blocking accessor to use (must not be null and must be thread safe).
+	 * @param maxConcurrentRequests The number of requests executed concurrently (must be positive).
+	 */
+	public ExecutorHttpAccessor(final HttpAccessor accessor, final int maxConcurrentRequests) {
+		this(accessor, maxConcurrentRequests, false);
+	}
+
+	/**
+	 * Creates an asynchronous accessor executing the requests of the given accessor on the given executor. The
+	 * executor is not shut down when closing this accessor.
+	 *
+	 * @param accessor The blocking accessor to use (must not be null and must be thread safe).
+	 * @param executor The executor to run the requests on (must not be null).
+	 */
+	public ExecutorHttpAccessor(final HttpAccessor accessor, final Executor executor) {
+		this.accessor = ContractCheck.mustNotBeNull(accessor, "accessor"); //$NON-NLS-1$
+		this.executor = ContractCheck.mustNotBeNull(executor, "executor"); //$NON-NLS-1$
+		this.ownedExecutor = null;
+		this.ownedAccessor = null;
+	}
+
+	private ExecutorHttpAccessor(final HttpAccessor accessor, final int maxConcurrentRequests, final boolean ownsAccessor) {
+		this.accessor = ContractCheck.mustNotBeNull(accessor, "accessor"); //$NON-NLS-1$
+		ContractCheck.mustBeInRange(maxConcurrentRequests, 1, Integer.MAX_VALUE, "maxConcurrentRequests"); //$NON-NLS-1$
+		final String namePrefix = "ExecutorHttpAccessor-" + ExecutorHttpAccessor.POOL_COUNTER.incrementAndGet() + "-"; //$NON-NLS-1$ //$NON-NLS-2$
+		this.ownedExecutor = Executors.newFixedThreadPool(maxConcurrentRequests, new ThreadFactory() {
+			private final AtomicInteger threadCounter = new AtomicInteger();
+
+			@Override
+			public Thread newThread(final Runnable r) {
+				final Thread result = new Thread(r, namePrefix + this.threadCounter.incrementAndGet());
+				result.setDaemon(true);
+				return result;
+			}
+		});
+		this.executor = this.ownedExecutor;
+		this.ownedAccessor = ownsAccessor && accessor instanceof Closeable ? (Closeable) accessor : null;
+	}
+
+	@Override
+	public URI setBase(final URI uri) {
+		return this.accessor.setBase(uri);
+	}
+
+	@Override
+	public HttpFuture get(final URI uri, final RequestHeaders headers, final RequestHandler handler) {
+		return submit(ExecutorHttpAccessor.HTTP_GET_VERB, uri, headers, handler);
+	}
+
+	@Override
+	public HttpFuture post(final URI uri, final RequestEntity<?> entity, final RequestHandler handler) {
+		return submit(ExecutorHttpAccessor.HTTP_POST_VERB, uri, entity, handler);
+	}
+
+	@Override
+	public HttpFuture put(final URI uri, final RequestEntity<?> entity, final RequestHandler handler) {
+		return submit(ExecutorHttpAccessor.HTTP_PUT_VERB, uri, entity, handler);
+	}
+
+	@Override
+	public HttpFuture delete(final URI uri, final RequestHeaders headers, final RequestHandler handler) {
+		return submit(ExecutorHttpAccessor.HTTP_DELETE_VERB, uri, headers, handler);
+	}
+
+	@Override
+	public HttpFuture head(final URI uri, final RequestHeaders headers, final RequestHandler handler) {
+		return submit(ExecutorHttpAccessor.HTTP_HEAD_VERB, uri, headers, handler);
+	}
+
+	@Override
+	public HttpFuture options(final URI uri, final RequestHeaders headers, final RequestHandler handler) {
+		return submit(ExecutorHttpAccessor.HTTP_OPTIONS_VERB, uri, headers, handler);
+	}
+
+	@Override
+	public HttpFuture trace(final URI uri, final RequestHeaders headers, final RequestHandler handler) {
+		return submit(ExecutorHttpAccessor.HTTP_TRACE_VERB, uri, headers, handler);
+	}
+
+	/**
+	 * Shuts down the executor and closes the accessor if they were created by this instance. Requests already queued
+	 * are still executed.
+	 */
+	@Override
+	public void close() throws IOException {
+		if (this.ownedExecutor != null) {
+			this.ownedExecutor.shutdown();
+		}
+		if (this.ownedAccessor != null) {
+			this.ownedAccessor.close();
+		}
+	}
+
+	private HttpFuture submit(final String method, final URI uri, final RequestHeaders headers, final RequestHandler handler) {
+		ContractCheck.mustNotBeNull(uri, "uri"); //$NON-NLS-1$
+		ContractCheck.mustNotBeNull(headers, "headers"); //$NON-NLS-1$
+		ContractCheck.mustNotBeNull(handler, "handler"); //$NON-NLS-1$
+		final HttpFuture result = new HttpFuture(new Callable<Integer>() {
+			@Override
+			public Integer call() throws Exception {
+				return Integer.valueOf(execute(method, uri, headers, handler));
+			}
+		});
+		this.executor.execute(result);
+		return result;
+	}
+
+	private int execute(final String method, final URI uri, final RequestHeaders headers, final RequestHandler handler) throws IOException {
+		if (ExecutorHttpAccessor.HTTP_GET_VERB.equals(method)) {
+			return this.accessor.get(uri, headers, handler);
+		} else if (ExecutorHttpAccessor.HTTP_POST_VERB.equals(method)) {
+			return this.accessor.post(uri, (RequestEntity<?>) headers, handler);
+		} else if (ExecutorHttpAccessor.HTTP_PUT_VERB.equals(method)) {
+			return this.accessor.put(uri, (RequestEntity<?>) headers, handler);
+		} else if (ExecutorHttpAccessor.HTTP_DELETE_VERB.equals(method)) {
+			return this.accessor.delete(uri, headers, handler);
+		} else if (ExecutorHttpAccessor.HTTP_HEAD_VERB.equals(method)) {
+			return this.accessor.head(uri, headers, handler);
+		} else if (ExecutorHttpAccessor.HTTP_OPTIONS_VERB.equals(method)) {
+			return this.accessor.options(uri, headers, handler);
+		} else {
+			return this.accessor.trace(uri, headers, handler);
+		}
+	}
+
+}
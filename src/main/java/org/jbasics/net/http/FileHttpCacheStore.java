@@ -0,0 +1,154 @@
+/*
+ * Copyright (c) 2009 Stephan Schloepke and innoQ Deutschland GmbH
+ * 
+ * Stephan Schloepke: http://www.schloepke.de/
+ * innoQ Deutschland GmbH: http://www.innoq.com/
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.jbasics.net.http;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.UnsupportedEncodingException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.jbasics.annotation.ThreadSafe;
+import org.jbasics.checker.ContractCheck;
+import org.jbasics.codec.RFC3548Base16Codec;
+import org.jbasics.exception.DelegatedException;
+
+/**
+ * {@link HttpCacheStore} keeping each response in a file of a directory.
+ * <p>
+ * The file name is the SHA-1 hash of the URI. Files are written to a temporary file first and renamed so readers
+ * never see a partially written response. Unreadable files are treated as missing and deleted. The store does not
+ * limit the size of the directory.
+ * </p>
+ *
+ * @author Stephan Schloepke
+ * @since 1.0
+ */
+@ThreadSafe
+public class FileHttpCacheStore implements HttpCacheStore {
+	private static final String FILE_SUFFIX = ".response"; //$NON-NLS-1$
+	private final Logger logger = Logger.getLogger(FileHttpCacheStore.class.getName());
+	private final File directory;
+
+	/**
+	 * Creates a store in the given directory. The directory is created if it does not exist.
+	 *
+	 * @param directory The directory to store the responses in (must not be null).
+	 */
+	public FileHttpCacheStore(final File directory) {
+		this.directory = ContractCheck.mustNotBeNull(directory, "directory"); //$NON-NLS-1$
+		if (!directory.isDirectory() && !directory.mkdirs()) {
+			throw new IllegalArgumentException("Cannot create cache directory " + directory); //$NON-NLS-1$
+		}
+	}
+
+	@Override
+	public CachedHttpResponse get(final String uri) {
+		final File file = getFile(uri);
+		try {
+			final DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+			try {
+				if (uri.equals(in.readUTF())) {
+					return CachedHttpResponse.readFrom(in);
+				}
+				return null;
+			} finally {
+				in.close();
+			}
+		} catch (final FileNotFoundException e) {
+			return null;
+		} catch (final IOException e) {
+			if (this.logger.isLoggable(Level.FINE)) {
+				this.logger.log(Level.FINE, "Dropping unreadable cache file " + file, e); //$NON-NLS-1$
+			}
+			file.delete();
+			return null;
+		}
+	}
+
+	@Override
+	public void put(final String uri, final CachedHttpResponse response) {
+		final File file = getFile(uri);
+		try {
+			final File temp = File.createTempFile("put", ".tmp", this.directory); //$NON-NLS-1$ //$NON-NLS-2$
+			try {
+				final DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temp)));
+				try {
+					out.writeUTF(uri);
+					response.writeTo(out);
+				} finally {
+					out.close();
+				}
+				if (!temp.renameTo(file) && !(file.delete() && temp.renameTo(file))) {
+					throw new IOException("Cannot rename " + temp + " to " + file); //$NON-NLS-1$ //$NON-NLS-2$
+				}
+			} finally {
+				temp.delete();
+			}
+		} catch (final IOException e) {
+			if (this.logger.isLoggable(Level.WARNING)) {
+				this.logger.log(Level.WARNING, "Cannot write cache file " + file, e); //$NON-NLS-1$
+			}
+		}
+	}
+
+	@Override
+	public void remove(final String uri) {
+		getFile(uri).delete();
+	}
+
+	@Override
+	public void clear() {
+		final File[] files = this.directory.listFiles();
+		if (files != null) {
+			for (final File file : files) {
+				if (file.getName().endsWith(FileHttpCacheStore.FILE_SUFFIX)) {
+					file.delete();
+				}
+			}
+		}
+	}
+
+	private File getFile(final String uri) {
+		try {
+			final byte[] hash = MessageDigest.getInstance("SHA-1").digest(uri.getBytes("UTF-8")); //$NON-NLS-1$ //$NON-NLS-2$
+			return new File(this.directory, RFC3548Base16Codec.INSTANCE.encode(hash) + FileHttpCacheStore.FILE_SUFFIX);
+		} catch (final NoSuchAlgorithmException e) {
+			throw DelegatedException.delegate(e);
+		} catch (final UnsupportedEncodingException e) {
+			throw DelegatedException.delegate(e);
+		}
+	}
+
+}
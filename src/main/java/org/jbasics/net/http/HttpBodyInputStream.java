@@ -0,0 +1,202 @@
+/*
+ * Copyright (c) 2009 Stephan Schloepke and innoQ Deutschland GmbH
+ * 
+ * Stephan Schloepke: http://www.schloepke.de/
+ * innoQ Deutschland GmbH: http://www.innoq.com/
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.jbasics.net.http;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Input stream reading the body of a HTTP response from a connection which may be reused afterwards.
+ * <p>
+ * Closing the stream does not close the connection. {@link #isComplete()} tells if the body was read completely
+ * and the connection is positioned at the next response.
+ * </p>
+ *
+ * @author Stephan Schloepke
+ * @since 1.0
+ */
+abstract class HttpBodyInputStream extends InputStream {
+	protected final PooledHttpConnection connection;
+	protected boolean complete;
+
+	protected HttpBodyInputStream(final PooledHttpConnection connection) {
+		this.connection = connection;
+	}
+
+	static HttpBodyInputStream empty(final PooledHttpConnection connection) {
+		return new FixedLength(connection, 0);
+	}
+
+	static HttpBodyInputStream fixedLength(final PooledHttpConnection connection, final long length) {
+		return new FixedLength(connection, length);
+	}
+
+	static HttpBodyInputStream chunked(final PooledHttpConnection connection) {
+		return new Chunked(connection);
+	}
+
+	static HttpBodyInputStream untilClose(final PooledHttpConnection connection) {
+		return new UntilClose(connection);
+	}
+
+	/**
+	 * Returns true if the body was read completely and the connection can carry the next request.
+	 *
+	 * @return True if the body is completely read.
+	 */
+	boolean isComplete() {
+		return this.complete;
+	}
+
+	/**
+	 * Skips the rest of the body if it is not larger than the given limit.
+	 *
+	 * @param limit The maximum number of bytes to skip.
+	 * @return True if the body is completely read.
+	 * @throws IOException If reading failed.
+	 */
+	boolean drain(final long limit) throws IOException {
+		final byte[] buffer = new byte[512];
+		long remaining = limit;
+		while (!this.complete && remaining > 0) {
+			final int read = read(buffer, 0, (int) Math.min(buffer.length, remaining));
+			if (read < 0) {
+				break;
+			}
+			remaining -= read;
+		}
+		return this.complete;
+	}
+
+	@Override
+	public int read() throws IOException {
+		final byte[] temp = new byte[1];
+		return read(temp, 0, 1) < 0 ? -1 : temp[0] & 0xff;
+	}
+
+	@Override
+	public abstract int read(byte[] b, int off, int len) throws IOException;
+
+	@Override
+	public void close() {
+		// The connection is owned by the accessor
+	}
+
+	private static final class FixedLength extends HttpBodyInputStream {
+		private long remaining;
+
+		FixedLength(final PooledHttpConnection connection, final long length) {
+			super(connection);
+			this.remaining = length;
+			this.complete = length <= 0;
+		}
+
+		@Override
+		public int read(final byte[] b, final int off, final int len) throws IOException {
+			if (this.complete) {
+				return -1;
+			}
+			if (len == 0) {
+				return 0;
+			}
+			final int read = this.connection.getInputStream().read(b, off, (int) Math.min(len, this.remaining));
+			if (read < 0) {
+				throw new EOFException("Connection closed with " + this.remaining + " bytes of the body missing"); //$NON-NLS-1$ //$NON-NLS-2$
+			}
+			this.remaining -= read;
+			this.complete = this.remaining == 0;
+			return read;
+		}
+
+		@Override
+		public int available() throws IOException {
+			return (int) Math.min(this.remaining, this.connection.getInputStream().available());
+		}
+	}
+
+	private static final class Chunked extends HttpBodyInputStream {
+		private long chunkRemaining;
+
+		Chunked(final PooledHttpConnection connection) {
+			super(connection);
+		}
+
+		@Override
+		public int read(final byte[] b, final int off, final int len) throws IOException {
+			if (this.complete) {
+				return -1;
+			}
+			if (len == 0) {
+				return 0;
+			}
+			if (this.chunkRemaining == 0) {
+				final String sizeLine = this.connection.readLine();
+				final int extension = sizeLine.indexOf(';');
+				try {
+					this.chunkRemaining = Long.parseLong((extension < 0 ? sizeLine : sizeLine.substring(0, extension)).trim(), 16);
+				} catch (final NumberFormatException e) {
+					throw new IOException("Illegal chunk size " + sizeLine); //$NON-NLS-1$
+				}
+				if (this.chunkRemaining == 0) {
+					// skip the trailer
+					while (this.connection.readLine().length() > 0) {
+						// ignore trailer headers
+					}
+					this.complete = true;
+					return -1;
+				}
+			}
+			final int read = this.connection.getInputStream().read(b, off, (int) Math.min(len, this.chunkRemaining));
+			if (read < 0) {
+				throw new EOFException("Connection closed within a chunk"); //$NON-NLS-1$
+			}
+			this.chunkRemaining -= read;
+			if (this.chunkRemaining == 0) {
+				this.connection.readLine();
+			}
+			return read;
+		}
+	}
+
+	private static final class UntilClose extends HttpBodyInputStream {
+
+		UntilClose(final PooledHttpConnection connection) {
+			super(connection);
+		}
+
+		@Override
+		public int read(final byte[] b, final int off, final int len) throws IOException {
+			return this.connection.getInputStream().read(b, off, len);
+		}
+
+		@Override
+		boolean drain(final long limit) {
+			// the connection cannot be reused anyway
+			return false;
+		}
+	}
+
+}
@@ -0,0 +1,66 @@
+/*
+ * Copyright (c) 2009 Stephan Schloepke and innoQ Deutschland GmbH
+ * 
+ * Stephan Schloepke: http://www.schloepke.de/
+ * innoQ Deutschland GmbH: http://www.innoq.com/
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.jbasics.net.http;
+
+/**
+ * Storage of cached HTTP responses used by the {@link CachingHttpAccessor}.
+ * <p>
+ * Implementations must be thread safe. A store is free to drop entries at any time.
+ * </p>
+ *
+ * @author Stephan Schloepke
+ * @since 1.0
+ */
+public interface HttpCacheStore {
+
+	/**
+	 * Returns the cached response for the given absolute URI.
+	 *
+	 * @param uri The absolute URI of the response.
+	 * @return The cached response or null if not cached.
+	 */
+	CachedHttpResponse get(String uri);
+
+	/**
+	 * Stores the response for the given absolute URI replacing any cached response.
+	 *
+	 * @param uri The absolute URI of the response.
+	 * @param response The response to store.
+	 */
+	void put(String uri, CachedHttpResponse response);
+
+	/**
+	 * Removes the cached response for the given absolute URI.
+	 *
+	 * @param uri The absolute URI of the response.
+	 */
+	void remove(String uri);
+
+	/**
+	 * Removes all cached responses.
+	 */
+	void clear();
+
+}
@@ -0,0 +1,215 @@
+/*
+ * Copyright (c) 2009 Stephan Schloepke and innoQ Deutschland GmbH
+ * 
+ * Stephan Schloepke: http://www.schloepke.de/
+ * innoQ Deutschland GmbH: http://www.innoq.com/
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.jbasics.net.http;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PushbackInputStream;
+import java.util.Locale;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * Streaming gzip and deflate content coding for the HTTP accessors.
+ *
+ * @author Stephan Schloepke
+ * @since 1.0
+ */
+final class HttpContentCoding {
+	/**
+	 * The Accept-Encoding header value sent if the request does not specify accepted encodings.
+	 */
+	static final String ACCEPT_ENCODING = HTTPHeaderConstants.GZIP_ENCODING + ", " + HTTPHeaderConstants.DEFLATE_ENCODING; //$NON-NLS-1$
+	private static final String X_GZIP_ENCODING = "x-gzip"; //$NON-NLS-1$
+	private static final int BUFFER_SIZE = 8192;
+
+	private HttpContentCoding() {
+		// no instance
+	}
+
+	/**
+	 * Returns the normalized content coding if it is supported or null if not.
+	 *
+	 * @param encoding The content coding (can be null).
+	 * @return The supported content coding (gzip or deflate) or null.
+	 */
+	static String supported(final String encoding) {
+		if (encoding == null) {
+			return null;
+		}
+		final String temp = encoding.trim().toLowerCase(Locale.ENGLISH);
+		if (HTTPHeaderConstants.GZIP_ENCODING.equals(temp) || HttpContentCoding.X_GZIP_ENCODING.equals(temp)) {
+			return HTTPHeaderConstants.GZIP_ENCODING;
+		} else if (HTTPHeaderConstants.DEFLATE_ENCODING.equals(temp)) {
+			return HTTPHeaderConstants.DEFLATE_ENCODING;
+		}
+		return null;
+	}
+
+	/**
+	 * Wraps the response body so it is decoded according to the content encoding of the response and the bytes read
+	 * are counted in the meta data. If the body is decoded the encoding and content length of the meta data are
+	 * cleared since they describe the encoded body.
+	 *
+	 * @param meta The meta data of the response.
+	 * @param in The body as received.
+	 * @return The decoded body.
+	 * @throws IOException If the body cannot be read.
+	 */
+	static InputStream decode(final ResponseMeta meta, final InputStream in) throws IOException {
+		final String encoding = HttpContentCoding.supported(meta.getEncoding());
+		final InputStream transferred = new CountingInputStream(in, meta, true);
+		if (encoding == null) {
+			return new CountingInputStream(transferred, meta, false);
+		}
+		final PushbackInputStream peek = new PushbackInputStream(transferred, 2);
+		final byte[] header = new byte[2];
+		int length = 0;
+		int read;
+		while (length < 2 && (read = peek.read(header, length, 2 - length)) >= 0) {
+			length += read;
+		}
+		if (length == 0) {
+			// empty body (HEAD or not modified)
+			return new CountingInputStream(peek, meta, false);
+		}
+		peek.unread(header, 0, length);
+		final InputStream decoded;
+		if (HTTPHeaderConstants.GZIP_ENCODING.equals(encoding)) {
+			decoded = new GZIPInputStream(peek, HttpContentCoding.BUFFER_SIZE);
+		} else {
+			// deflate should be zlib wrapped but some servers send the raw deflate format
+			final boolean zlib = length == 2 && (header[0] & 0x0f) == 8 && ((header[0] & 0xff) << 8 | header[1] & 0xff) % 31 == 0;
+			decoded = new EndingInflaterInputStream(peek, new Inflater(!zlib));
+		}
+		meta.setEncoding(null);
+		meta.setContentLength(-1);
+		return new CountingInputStream(decoded, meta, false);
+	}
+
+	/**
+	 * Wraps the output stream so everything written is encoded with the given content coding. Closing the returned
+	 * stream finishes the encoding and closes the given stream.
+	 *
+	 * @param encoding The supported content coding.
+	 * @param out The stream to write the encoded data to.
+	 * @return The stream encoding the data written to it.
+	 * @throws IOException If the encoding cannot be started.
+	 */
+	static OutputStream encode(final String encoding, final OutputStream out) throws IOException {
+		if (HTTPHeaderConstants.GZIP_ENCODING.equals(encoding)) {
+			return new GZIPOutputStream(out, HttpContentCoding.BUFFER_SIZE);
+		} else if (HTTPHeaderConstants.DEFLATE_ENCODING.equals(encoding)) {
+			final Deflater deflater = new Deflater();
+			return new DeflaterOutputStream(out, deflater, HttpContentCoding.BUFFER_SIZE) {
+				@Override
+				public void close() throws IOException {
+					try {
+						super.close();
+					} finally {
+						deflater.end();
+					}
+				}
+			};
+		}
+		throw new IllegalArgumentException("Unsupported content coding " + encoding); //$NON-NLS-1$
+	}
+
+	private static final class EndingInflaterInputStream extends InflaterInputStream {
+		private final Inflater inflater;
+
+		EndingInflaterInputStream(final InputStream in, final Inflater inflater) {
+			super(in, inflater, HttpContentCoding.BUFFER_SIZE);
+			this.inflater = inflater;
+		}
+
+		@Override
+		public void close() throws IOException {
+			try {
+				super.close();
+			} finally {
+				this.inflater.end();
+			}
+		}
+	}
+
+	private static final class CountingInputStream extends FilterInputStream {
+		private final ResponseMeta meta;
+		private final boolean transferred;
+
+		CountingInputStream(final InputStream in, final ResponseMeta meta, final boolean transferred) {
+			super(in);
+			this.meta = meta;
+			this.transferred = transferred;
+		}
+
+		@Override
+		public int read() throws IOException {
+			final int result = super.read();
+			if (result >= 0) {
+				count(1);
+			}
+			return result;
+		}
+
+		@Override
+		public int read(final byte[] b, final int off, final int len) throws IOException {
+			final int result = super.read(b, off, len);
+			if (result > 0) {
+				count(result);
+			}
+			return result;
+		}
+
+		@Override
+		public long skip(final long n) throws IOException {
+			final long result = super.skip(n);
+			if (result > 0) {
+				count(result);
+			}
+			return result;
+		}
+
+		@Override
+		public boolean markSupported() {
+			return false;
+		}
+
+		private void count(final long bytes) {
+			if (this.transferred) {
+				this.meta.addTransferredBytes(bytes);
+			} else {
+				this.meta.addContentBytes(bytes);
+			}
+		}
+	}
+
+}
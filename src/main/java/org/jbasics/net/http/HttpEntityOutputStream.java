@@ -0,0 +1,89 @@
+/*
+ * Copyright (c) 2009 Stephan Schloepke and innoQ Deutschland GmbH
+ * 
+ * Stephan Schloepke: http://www.schloepke.de/
+ * innoQ Deutschland GmbH: http://www.innoq.com/
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.jbasics.net.http;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Writes a request entity to a connection either as is or in chunked transfer coding. Closing the stream finishes
+ * the entity but leaves the connection open.
+ *
+ * @author Stephan Schloepke
+ * @since 1.0
+ */
+final class HttpEntityOutputStream extends OutputStream {
+	private static final byte[] CRLF = { '\r', '\n' };
+	private static final byte[] LAST_CHUNK = { '0', '\r', '\n', '\r', '\n' };
+
+	private final OutputStream out;
+	private final boolean chunked;
+	private boolean closed;
+
+	HttpEntityOutputStream(final OutputStream out, final boolean chunked) {
+		this.out = out;
+		this.chunked = chunked;
+	}
+
+	@Override
+	public void write(final int b) throws IOException {
+		write(new byte[] { (byte) b }, 0, 1);
+	}
+
+	@Override
+	public void write(final byte[] b, final int off, final int len) throws IOException {
+		if (this.closed) {
+			throw new IOException("Entity stream already closed"); //$NON-NLS-1$
+		}
+		if (len == 0) {
+			return;
+		}
+		if (this.chunked) {
+			this.out.write(Integer.toHexString(len).getBytes(HttpHeaderCreator.HEADER_VALUE_CHARSET));
+			this.out.write(HttpEntityOutputStream.CRLF);
+			this.out.write(b, off, len);
+			this.out.write(HttpEntityOutputStream.CRLF);
+		} else {
+			this.out.write(b, off, len);
+		}
+	}
+
+	@Override
+	public void flush() throws IOException {
+		this.out.flush();
+	}
+
+	@Override
+	public void close() throws IOException {
+		if (!this.closed) {
+			this.closed = true;
+			if (this.chunked) {
+				this.out.write(HttpEntityOutputStream.LAST_CHUNK);
+			}
+			this.out.flush();
+		}
+	}
+
+}
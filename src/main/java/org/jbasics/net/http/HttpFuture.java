@@ -0,0 +1,120 @@
+/*
+ * Copyright (c) 2009 Stephan Schloepke and innoQ Deutschland GmbH
+ * 
+ * Stephan Schloepke: http://www.schloepke.de/
+ * innoQ Deutschland GmbH: http://www.innoq.com/
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.jbasics.net.http;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.jbasics.annotation.ThreadSafe;
+import org.jbasics.checker.ContractCheck;
+
+/**
+ * Future of an asynchronous HTTP request completing with the HTTP status code.
+ * <p>
+ * Listeners added before completion are notified on the thread completing the request, listeners added afterwards
+ * are notified immediately on the calling thread.
+ * </p>
+ *
+ * @author Stephan Schloepke
+ * @since 1.0
+ */
+@ThreadSafe
+public class HttpFuture extends FutureTask<Integer> {
+	private final Logger logger = Logger.getLogger(HttpFuture.class.getName());
+	private final List<HttpCompletionListener> listeners = new ArrayList<HttpCompletionListener>(2);
+	private boolean notified;
+
+	/**
+	 * Creates a future executing the given request when run.
+	 *
+	 * @param request The request returning the HTTP status code (must not be null).
+	 */
+	public HttpFuture(final Callable<Integer> request) {
+		super(ContractCheck.mustNotBeNull(request, "request")); //$NON-NLS-1$
+	}
+
+	/**
+	 * Adds a listener to be notified when the request completed.
+	 *
+	 * @param listener The listener (must not be null).
+	 * @return This future for chaining.
+	 */
+	public HttpFuture addListener(final HttpCompletionListener listener) {
+		ContractCheck.mustNotBeNull(listener, "listener"); //$NON-NLS-1$
+		synchronized (this.listeners) {
+			if (!this.notified) {
+				this.listeners.add(listener);
+				return this;
+			}
+		}
+		notifyListener(listener);
+		return this;
+	}
+
+	@Override
+	protected void done() {
+		final HttpCompletionListener[] temp;
+		synchronized (this.listeners) {
+			this.notified = true;
+			temp = this.listeners.toArray(new HttpCompletionListener[this.listeners.size()]);
+			this.listeners.clear();
+		}
+		for (final HttpCompletionListener listener : temp) {
+			notifyListener(listener);
+		}
+	}
+
+	private void notifyListener(final HttpCompletionListener listener) {
+		try {
+			final int status;
+			try {
+				status = get().intValue();
+			} catch (final ExecutionException e) {
+				listener.failed(e.getCause());
+				return;
+			} catch (final CancellationException e) {
+				listener.failed(e);
+				return;
+			} catch (final InterruptedException e) {
+				// cannot happen since the future is done
+				Thread.currentThread().interrupt();
+				listener.failed(e);
+				return;
+			}
+			listener.completed(status);
+		} catch (final RuntimeException e) {
+			if (this.logger.isLoggable(Level.WARNING)) {
+				this.logger.log(Level.WARNING, "Completion listener failed", e); //$NON-NLS-1$
+			}
+		}
+	}
+
+}
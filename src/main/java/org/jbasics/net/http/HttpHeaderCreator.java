@@ -25,16 +25,31 @@
 package org.jbasics.net.http;
 
 import java.io.UnsupportedEncodingException;
+import java.text.ParsePosition;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.Locale;
+import java.util.TimeZone;
 
 import org.jbasics.checker.ContractCheck;
 import org.jbasics.codec.RFC3548Base64Codec;
 import org.jbasics.exception.DelegatedException;
+import org.jbasics.pattern.factory.Factory;
+import org.jbasics.text.FormatPool;
 import org.jbasics.types.tuples.Pair;
 
 public final class HttpHeaderCreator {
 	public static final String URL_ENCODE_CHARSET = "UTF-8"; //$NON-NLS-1$
 	// This might have to be US-ASCII?
 	public static final String HEADER_VALUE_CHARSET = "ISO-8859-1"; //$NON-NLS-1$
+	private static final FormatPool<SimpleDateFormat> HTTP_DATE_FORMAT = new FormatPool<SimpleDateFormat>(new Factory<SimpleDateFormat>() {
+		@Override
+		public SimpleDateFormat newInstance() {
+			final SimpleDateFormat result = new SimpleDateFormat("EEE, dd MMM yyyy HH:mm:ss zzz", Locale.US); //$NON-NLS-1$
+			result.setTimeZone(TimeZone.getTimeZone("GMT")); //$NON-NLS-1$
+			return result;
+		}
+	});
 
 	public static Pair<String, String> createBasicAuthorization(final String username, final String password) {
 		StringBuilder temp = new StringBuilder();
@@ -54,4 +69,55 @@ public final class HttpHeaderCreator {
 		}
 	}
 
+	/**
+	 * Joins the given header values to a comma separated header value skipping null values.
+	 *
+	 * @param quoted True if each value needs to be quoted.
+	 * @param values The values to join (can be null).
+	 * @return The header value or null if no non null value was given.
+	 */
+	public static String createHeaderValue(final boolean quoted, final Object... values) {
+		if (values == null || values.length == 0) {
+			return null;
+		}
+		final StringBuilder temp = new StringBuilder();
+		for (final Object value : values) {
+			if (value == null) {
+				continue;
+			}
+			if (temp.length() > 0) {
+				temp.append(", "); //$NON-NLS-1$
+			}
+			if (quoted) {
+				temp.append("\"").append(value.toString()).append("\""); //$NON-NLS-1$ //$NON-NLS-2$
+			} else {
+				temp.append(value.toString());
+			}
+		}
+		return temp.length() > 0 ? temp.toString() : null;
+	}
+
+	/**
+	 * Formats the date as RFC 1123 date as required for HTTP date headers.
+	 *
+	 * @param date The date to format (must not be null).
+	 * @return The formatted date.
+	 */
+	public static String formatHttpDate(final Date date) {
+		return HttpHeaderCreator.HTTP_DATE_FORMAT.format(ContractCheck.mustNotBeNull(date, "date")); //$NON-NLS-1$
+	}
+
+	/**
+	 * Parses a RFC 1123 HTTP date header value.
+	 *
+	 * @param value The header value (can be null).
+	 * @return The date or null if the value is null or not a valid RFC 1123 date.
+	 */
+	public static Date parseHttpDate(final String value) {
+		if (value == null) {
+			return null;
+		}
+		return (Date) HttpHeaderCreator.HTTP_DATE_FORMAT.parseObject(value.trim(), new ParsePosition(0));
+	}
+
 }
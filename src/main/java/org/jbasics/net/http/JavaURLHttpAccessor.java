@@ -54,6 +54,8 @@ public class JavaURLHttpAccessor implements HttpAccessor {
 	private static final String HTTP_GET_VERB = "GET"; //$NON-NLS-1$
 	private String defaultUserInfo;
 	private URI baseURL;
+	private boolean acceptCompressedResponses = true;
+	private String requestContentEncoding;
 
 	/**
 	 * Standard constructor.
@@ -91,6 +93,34 @@ public class JavaURLHttpAccessor implements HttpAccessor {
 		return temp;
 	}
 
+	/**
+	 * Set if gzip and deflate compressed responses are accepted when the request headers do not specify the accepted
+	 * encodings. Compressed responses are always decoded before they are handed to the {@link RequestHandler}. The
+	 * default is true.
+	 * 
+	 * @param acceptCompressedResponses
+	 *            True to send an Accept-Encoding header for gzip and deflate by default.
+	 */
+	public void setAcceptCompressedResponses(final boolean acceptCompressedResponses) {
+		this.acceptCompressedResponses = acceptCompressedResponses;
+	}
+
+	/**
+	 * Set the content coding used to compress request entities which do not specify a content encoding themselves.
+	 * Compressed entities are sent in chunked streaming mode. The server must support the content coding since there
+	 * is no negotiation for request entities. The default is null (no compression).
+	 * 
+	 * @param requestContentEncoding
+	 *            The content coding (gzip or deflate) or null to send entities as they are.
+	 */
+	public void setRequestContentEncoding(final String requestContentEncoding) {
+		final String temp = HttpContentCoding.supported(requestContentEncoding);
+		if (requestContentEncoding != null && temp == null) {
+			throw new IllegalArgumentException("Unsupported content coding " + requestContentEncoding); //$NON-NLS-1$
+		}
+		this.requestContentEncoding = temp;
+	}
+
 	/**
 	 * Executes a GET method against the given URI. If the URI is relative the base must be set already.
 	 * 
@@ -243,8 +273,12 @@ public class JavaURLHttpAccessor implements HttpAccessor {
 			connection.setDoOutput(entity != null);
 			connection.setRequestMethod(method);
 			fillHeaders(connection, meta);
+			String compression = null;
 			if (entity != null) {
-				fillEntityHeaders(connection, entity);
+				if (entity.getContentEncoding() == null) {
+					compression = this.requestContentEncoding;
+				}
+				fillEntityHeaders(connection, entity, compression);
 			}
 			String userInfo = requestURL.getUserInfo();
 			if (userInfo == null) {
@@ -259,6 +293,9 @@ public class JavaURLHttpAccessor implements HttpAccessor {
 				OutputStream out = null;
 				try {
 					out = connection.getOutputStream();
+					if (compression != null) {
+						out = HttpContentCoding.encode(compression, out);
+					}
 					entity.serializeEntity(out);
 				} finally {
 					if (out != null) {
@@ -267,15 +304,21 @@ public class JavaURLHttpAccessor implements HttpAccessor {
 					}
 				}
 			}
+			final int status = connection.getResponseCode();
 			in = connection.getInputStream();
 			ResponseMeta responseMeta = new ResponseMeta();
+			responseMeta.setStatus(status);
 			responseMeta.setMediaType(MediaType.valueOf(connection.getContentType()));
 			responseMeta.setContentLength(connection.getContentLength());
 			responseMeta.setDate(new Date(connection.getDate()));
 			responseMeta.setLastModified(new Date(connection.getLastModified()));
 			responseMeta.setExpires(new Date(connection.getExpiration()));
+			responseMeta.setETag(connection.getHeaderField(HTTPHeaderConstants.ETAG_HEADER));
+			responseMeta.setCacheControl(connection.getHeaderField(HTTPHeaderConstants.CACHE_CONTROL_HEADER));
+			responseMeta.setEncoding(connection.getContentEncoding());
+			in = HttpContentCoding.decode(responseMeta, in);
 			handler.processInput(responseMeta, in);
-			return connection.getResponseCode();
+			return status;
 		} finally {
 			try {
 				if (in != null) {
@@ -293,10 +336,14 @@ public class JavaURLHttpAccessor implements HttpAccessor {
 		assert connection != null && headers != null;
 		addHeader(connection, HTTPHeaderConstants.ACCEPT_HEADER, false, (Object[]) headers.getAcceptMediaTypes());
 		addHeader(connection, HTTPHeaderConstants.ACCEPT_CHARSET_HEADER, false, (Object[]) headers.getAcceptCharsets());
-		addHeader(connection, HTTPHeaderConstants.ACCEPT_ENCODING_HEADER, false, (Object[]) headers.getAcceptEncodings());
+		if (headers.getAcceptEncodings() == null && this.acceptCompressedResponses) {
+			addHeader(connection, HTTPHeaderConstants.ACCEPT_ENCODING_HEADER, false, HttpContentCoding.ACCEPT_ENCODING);
+		} else {
+			addHeader(connection, HTTPHeaderConstants.ACCEPT_ENCODING_HEADER, false, (Object[]) headers.getAcceptEncodings());
+		}
 		addHeader(connection, HTTPHeaderConstants.ACCEPT_LANGUAGE_HEADER, false, (Object[]) headers.getAcceptLanguages());
-// TODO EntityTAG!
-// addHeader(connection, HTTPHeaderConstants.IF_MATCH_HEADER, true, headers.getIfMatch());
+		addHeader(connection, HTTPHeaderConstants.IF_MATCH_HEADER, false, (Object[]) headers.getIfMatch());
+		addHeader(connection, HTTPHeaderConstants.IF_NONE_MATCH_HEADER, false, (Object[]) headers.getIfNoneMatch());
 		if (headers.getIfModifiedSince() != null) {
 			connection.setIfModifiedSince(headers.getIfModifiedSince().getTime());
 		}
@@ -306,38 +353,29 @@ public class JavaURLHttpAccessor implements HttpAccessor {
 		}
 	}
 
-	private void fillEntityHeaders(final HttpURLConnection connection, final RequestEntity<?> entity) {
+	private void fillEntityHeaders(final HttpURLConnection connection, final RequestEntity<?> entity, final String compression) {
 		assert connection != null && entity != null;
 		addHeader(connection, HTTPHeaderConstants.CONTENT_TYPE_HEADER, false, entity.getContentType());
+		addHeader(connection, HTTPHeaderConstants.CONTENT_LANGUAGE_HEADER, false, entity.getContentLanguage());
+		if (compression != null) {
+			// the length and hash of the compressed content are unknown
+			connection.setChunkedStreamingMode(0);
+			addHeader(connection, HTTPHeaderConstants.CONTENT_ENCODING_HEADER, false, compression);
+			return;
+		}
 		int contentLength = entity.getContentLength();
 		if (contentLength > 0) {
 			connection.setFixedLengthStreamingMode(contentLength);
 		}
-		addHeader(connection, HTTPHeaderConstants.CONTENT_LANGUAGE_HEADER, false, entity.getContentLanguage());
 		addHeader(connection, HTTPHeaderConstants.CONTENT_ENCODING_HEADER, false, entity.getContentEncoding());
 		addHeader(connection, HTTPHeaderConstants.CONTENT_MD5_HEADER, false, RFC3548Base64Codec.INSTANCE.encode(entity.getContentMD5()));
 	}
 
 	private void addHeader(final URLConnection connection, final String headerName, final boolean quoted, final Object... headers) {
 		assert connection != null && headerName != null;
-		if (headers != null && headers.length > 0) {
-			StringBuilder headerBuilder = new StringBuilder();
-			for (Object header : headers) {
-				if (header == null) {
-					continue;
-				}
-				if (headerBuilder.length() > 0) {
-					headerBuilder.append(", "); //$NON-NLS-1$
-				}
-				if (quoted) {
-					headerBuilder.append("\"").append(header.toString()).append("\""); //$NON-NLS-1$ //$NON-NLS-2$
-				} else {
-					headerBuilder.append(header.toString());
-				}
-			}
-			if (headerBuilder.length() > 0) {
-				connection.setRequestProperty(headerName, headerBuilder.toString());
-			}
+		final String value = HttpHeaderCreator.createHeaderValue(quoted, headers);
+		if (value != null) {
+			connection.setRequestProperty(headerName, value);
 		}
 	}
 
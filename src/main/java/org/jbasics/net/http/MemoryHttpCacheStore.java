@@ -0,0 +1,148 @@
+/*
+ * Copyright (c) 2009 Stephan Schloepke and innoQ Deutschland GmbH
+ * 
+ * Stephan Schloepke: http://www.schloepke.de/
+ * innoQ Deutschland GmbH: http://www.innoq.com/
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.jbasics.net.http;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.jbasics.annotation.ThreadSafe;
+import org.jbasics.checker.ContractCheck;
+
+/**
+ * {@link HttpCacheStore} holding the responses in memory bounded by the total size of the bodies.
+ * <p>
+ * The least recently used responses are dropped when the size is exceeded. An optional second level store (usually a
+ * {@link FileHttpCacheStore}) receives every stored response and is asked for responses not held in memory.
+ * </p>
+ *
+ * @author Stephan Schloepke
+ * @since 1.0
+ */
+@ThreadSafe
+public class MemoryHttpCacheStore implements HttpCacheStore {
+	private final long maxSize;
+	private final HttpCacheStore secondLevel;
+	private final LinkedHashMap<String, CachedHttpResponse> responses = new LinkedHashMap<String, CachedHttpResponse>(16, 0.75f, true);
+	private long size;
+
+	/**
+	 * Creates a memory store without second level store.
+	 *
+	 * @param maxSize The maximum total size in bytes of the bodies held in memory (must be positive).
+	 */
+	public MemoryHttpCacheStore(final long maxSize) {
+		this(maxSize, null);
+	}
+
+	/**
+	 * Creates a memory store in front of the given second level store.
+	 *
+	 * @param maxSize The maximum total size in bytes of the bodies held in memory (must be positive).
+	 * @param secondLevel The second level store (can be null).
+	 */
+	public MemoryHttpCacheStore(final long maxSize, final HttpCacheStore secondLevel) {
+		this.maxSize = ContractCheck.mustBeInRange(maxSize, 1, Long.MAX_VALUE, "maxSize"); //$NON-NLS-1$
+		this.secondLevel = secondLevel;
+	}
+
+	@Override
+	public CachedHttpResponse get(final String uri) {
+		synchronized (this.responses) {
+			final CachedHttpResponse result = this.responses.get(uri);
+			if (result != null || this.secondLevel == null) {
+				return result;
+			}
+		}
+		final CachedHttpResponse result = this.secondLevel.get(uri);
+		if (result != null) {
+			putInMemory(uri, result);
+		}
+		return result;
+	}
+
+	@Override
+	public void put(final String uri, final CachedHttpResponse response) {
+		putInMemory(uri, ContractCheck.mustNotBeNull(response, "response")); //$NON-NLS-1$
+		if (this.secondLevel != null) {
+			this.secondLevel.put(uri, response);
+		}
+	}
+
+	@Override
+	public void remove(final String uri) {
+		synchronized (this.responses) {
+			final CachedHttpResponse old = this.responses.remove(uri);
+			if (old != null) {
+				this.size -= old.getSize();
+			}
+		}
+		if (this.secondLevel != null) {
+			this.secondLevel.remove(uri);
+		}
+	}
+
+	@Override
+	public void clear() {
+		synchronized (this.responses) {
+			this.responses.clear();
+			this.size = 0;
+		}
+		if (this.secondLevel != null) {
+			this.secondLevel.clear();
+		}
+	}
+
+	/**
+	 * Returns the total size of the bodies held in memory.
+	 *
+	 * @return The size in bytes.
+	 */
+	public long getSize() {
+		synchronized (this.responses) {
+			return this.size;
+		}
+	}
+
+	private void putInMemory(final String uri, final CachedHttpResponse response) {
+		synchronized (this.responses) {
+			final CachedHttpResponse old = this.responses.remove(uri);
+			if (old != null) {
+				this.size -= old.getSize();
+			}
+			if (response.getSize() > this.maxSize) {
+				return;
+			}
+			this.responses.put(uri, response);
+			this.size += response.getSize();
+			final Iterator<Map.Entry<String, CachedHttpResponse>> it = this.responses.entrySet().iterator();
+			while (this.size > this.maxSize && it.hasNext()) {
+				this.size -= it.next().getValue().getSize();
+				it.remove();
+			}
+		}
+	}
+
+}
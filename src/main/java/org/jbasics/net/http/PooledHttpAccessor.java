@@ -0,0 +1,656 @@
+/*
+ * Copyright (c) 2009 Stephan Schloepke and innoQ Deutschland GmbH
+ * 
+ * Stephan Schloepke: http://www.schloepke.de/
+ * innoQ Deutschland GmbH: http://www.innoq.com/
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.jbasics.net.http;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.net.URI;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+import javax.net.ssl.HttpsURLConnection;
+import javax.net.ssl.SSLPeerUnverifiedException;
+import javax.net.ssl.SSLSocket;
+import javax.net.ssl.SSLSocketFactory;
+
+import org.jbasics.annotation.ThreadSafe;
+import org.jbasics.checker.ContractCheck;
+import org.jbasics.codec.RFC3548Base64Codec;
+import org.jbasics.net.mediatype.MediaType;
+import org.jbasics.types.tuples.Pair;
+
+/**
+ * Implementation of {@link HttpAccessor} speaking HTTP/1.1 over its own pool of keep-alive connections.
+ * <p>
+ * Unlike the {@link JavaURLHttpAccessor} which opens and disconnects a {@link java.net.HttpURLConnection} for every
+ * request the connections are kept open and pooled per route (scheme, host and port). At most the configured number
+ * of connections per route are in use at the same time, further requests wait up to the connect timeout for a
+ * connection to become available. Connections idle longer than the idle timeout are closed on the next access to
+ * the route or when calling {@link #evictIdleConnections()}. A request failing on a reused connection before a
+ * response arrived (usually because the server closed the idle connection) is retried once on a new connection
+ * unless it is a POST.
+ * </p>
+ * <p>
+ * The handler is called for every response including error responses. A response body not consumed by the handler
+ * is skipped if it is small, otherwise the connection is closed instead of being reused.
+ * </p>
+ *
+ * @author Stephan Schloepke
+ * @since 1.0
+ */
+@ThreadSafe
+public class PooledHttpAccessor implements HttpAccessor, Closeable {
+	/**
+	 * The default maximum number of connections used concurrently per route.
+	 */
+	public static final int DEFAULT_MAX_CONNECTIONS_PER_ROUTE = 5;
+	/**
+	 * The default time in milliseconds a connection may be idle before it is closed.
+	 */
+	public static final long DEFAULT_IDLE_TIMEOUT = 30000;
+	/**
+	 * The default connect timeout in milliseconds.
+	 */
+	public static final int DEFAULT_CONNECT_TIMEOUT = 10000;
+	/**
+	 * The default read timeout in milliseconds.
+	 */
+	public static final int DEFAULT_READ_TIMEOUT = 60000;
+
+	private static final String HTTP_TRACE_VERB = "TRACE"; //$NON-NLS-1$
+	private static final String HTTP_OPTIONS_VERB = "OPTIONS"; //$NON-NLS-1$
+	private static final String HTTP_HEAD_VERB = "HEAD"; //$NON-NLS-1$
+	private static final String HTTP_DELETE_VERB = "DELETE"; //$NON-NLS-1$
+	private static final String HTTP_PUT_VERB = "PUT"; //$NON-NLS-1$
+	private static final String HTTP_POST_VERB = "POST"; //$NON-NLS-1$
+	private static final String HTTP_GET_VERB = "GET"; //$NON-NLS-1$
+	private static final String HTTP_VERSION = "HTTP/1.1"; //$NON-NLS-1$
+	private static final String HTTPS_SCHEME = "https"; //$NON-NLS-1$
+	private static final String HTTP_SCHEME = "http"; //$NON-NLS-1$
+	private static final long MAX_DRAIN_LENGTH = 65536;
+
+	private final ConcurrentMap<String, Route> routes = new ConcurrentHashMap<String, Route>();
+	private final int maxConnectionsPerRoute;
+	private final long idleTimeout;
+	private final int connectTimeout;
+	private final int readTimeout;
+	private volatile String defaultUserInfo;
+	private volatile URI baseURL;
+	private volatile boolean closed;
+	private volatile boolean acceptCompressedResponses = true;
+	private volatile String requestContentEncoding;
+
+	/**
+	 * Creates a pooled accessor with the default limits and timeouts.
+	 */
+	public PooledHttpAccessor() {
+		this(PooledHttpAccessor.DEFAULT_MAX_CONNECTIONS_PER_ROUTE, PooledHttpAccessor.DEFAULT_IDLE_TIMEOUT,
+				PooledHttpAccessor.DEFAULT_CONNECT_TIMEOUT, PooledHttpAccessor.DEFAULT_READ_TIMEOUT);
+	}
+
+	/**
+	 * Creates a pooled accessor. Any value less or equal to zero is replaced by its default.
+	 *
+	 * @param maxConnectionsPerRoute The maximum number of connections used concurrently per route.
+	 * @param idleTimeout The time in milliseconds an unused connection is kept open.
+	 * @param connectTimeout The time in milliseconds to wait for connecting as well as for a free connection.
+	 * @param readTimeout The socket read timeout in milliseconds.
+	 */
+	public PooledHttpAccessor(final int maxConnectionsPerRoute, final long idleTimeout, final int connectTimeout, final int readTimeout) {
+		this.maxConnectionsPerRoute = maxConnectionsPerRoute <= 0 ? PooledHttpAccessor.DEFAULT_MAX_CONNECTIONS_PER_ROUTE : maxConnectionsPerRoute;
+		this.idleTimeout = idleTimeout <= 0 ? PooledHttpAccessor.DEFAULT_IDLE_TIMEOUT : idleTimeout;
+		this.connectTimeout = connectTimeout <= 0 ? PooledHttpAccessor.DEFAULT_CONNECT_TIMEOUT : connectTimeout;
+		this.readTimeout = readTimeout <= 0 ? PooledHttpAccessor.DEFAULT_READ_TIMEOUT : readTimeout;
+	}
+
+	/**
+	 * Sets the default basic authentication information used if the request URI has no user info.
+	 *
+	 * @param username The user name for basic authentication (null to remove the default authentication).
+	 * @param password The password for basic authentication (can be null).
+	 */
+	public void setDefaultAuthentication(final String username, final String password) {
+		this.defaultUserInfo = username == null ? null : username + ":" + (password != null ? password : ""); //$NON-NLS-1$ //$NON-NLS-2$
+	}
+
+	/**
+	 * Set if gzip and deflate compressed responses are accepted when the request headers do not specify the accepted
+	 * encodings. Compressed responses are always decoded before they are handed to the {@link RequestHandler}. The
+	 * default is true.
+	 *
+	 * @param acceptCompressedResponses True to send an Accept-Encoding header for gzip and deflate by default.
+	 */
+	public void setAcceptCompressedResponses(final boolean acceptCompressedResponses) {
+		this.acceptCompressedResponses = acceptCompressedResponses;
+	}
+
+	/**
+	 * Set the content coding used to compress request entities which do not specify a content encoding themselves.
+	 * Compressed entities are sent chunked. The server must support the content coding since there is no negotiation
+	 * for request entities. The default is null (no compression).
+	 *
+	 * @param requestContentEncoding The content coding (gzip or deflate) or null to send entities as they are.
+	 */
+	public void setRequestContentEncoding(final String requestContentEncoding) {
+		final String temp = HttpContentCoding.supported(requestContentEncoding);
+		if (requestContentEncoding != null && temp == null) {
+			throw new IllegalArgumentException("Unsupported content coding " + requestContentEncoding); //$NON-NLS-1$
+		}
+		this.requestContentEncoding = temp;
+	}
+
+	@Override
+	public URI setBase(final URI uri) {
+		if (uri != null && !uri.isAbsolute()) {
+			throw new RuntimeException("Base URI must be absolute " + uri); //$NON-NLS-1$
+		}
+		final URI temp = this.baseURL;
+		this.baseURL = uri;
+		return temp;
+	}
+
+	@Override
+	public int get(final URI uri, final RequestHeaders headers, final RequestHandler handler) throws IOException {
+		return method(PooledHttpAccessor.HTTP_GET_VERB, uri, headers, handler);
+	}
+
+	@Override
+	public int post(final URI uri, final RequestEntity<?> entity, final RequestHandler handler) throws IOException {
+		return method(PooledHttpAccessor.HTTP_POST_VERB, uri, entity, handler);
+	}
+
+	@Override
+	public int put(final URI uri, final RequestEntity<?> entity, final RequestHandler handler) throws IOException {
+		return method(PooledHttpAccessor.HTTP_PUT_VERB, uri, entity, handler);
+	}
+
+	@Override
+	public int delete(final URI uri, final RequestHeaders headers, final RequestHandler handler) throws IOException {
+		return method(PooledHttpAccessor.HTTP_DELETE_VERB, uri, headers, handler);
+	}
+
+	@Override
+	public int head(final URI uri, final RequestHeaders headers, final RequestHandler handler) throws IOException {
+		return method(PooledHttpAccessor.HTTP_HEAD_VERB, uri, headers, handler);
+	}
+
+	@Override
+	public int options(final URI uri, final RequestHeaders headers, final RequestHandler handler) throws IOException {
+		return method(PooledHttpAccessor.HTTP_OPTIONS_VERB, uri, headers, handler);
+	}
+
+	@Override
+	public int trace(final URI uri, final RequestHeaders headers, final RequestHandler handler) throws IOException {
+		return method(PooledHttpAccessor.HTTP_TRACE_VERB, uri, headers, handler);
+	}
+
+	/**
+	 * Closes all idle connections which exceeded the idle timeout.
+	 */
+	public void evictIdleConnections() {
+		final long now = System.currentTimeMillis();
+		for (final Route route : this.routes.values()) {
+			route.evictIdle(now, this.idleTimeout);
+		}
+	}
+
+	/**
+	 * Returns the number of idle connections currently held open.
+	 *
+	 * @return The number of idle connections.
+	 */
+	public int getIdleConnectionCount() {
+		int result = 0;
+		for (final Route route : this.routes.values()) {
+			result += route.idle.size();
+		}
+		return result;
+	}
+
+	/**
+	 * Closes all idle connections. Connections in use are closed when their request finished. Any further request
+	 * fails with an {@link IllegalStateException}.
+	 */
+	@Override
+	public void close() {
+		this.closed = true;
+		for (final Route route : this.routes.values()) {
+			route.closeIdle();
+		}
+	}
+
+	private int method(final String method, final URI uri, final RequestHeaders headers, final RequestHandler handler) throws IOException {
+		ContractCheck.mustNotBeNull(uri, "uri"); //$NON-NLS-1$
+		ContractCheck.mustNotBeNull(headers, "headers"); //$NON-NLS-1$
+		ContractCheck.mustNotBeNull(handler, "handler"); //$NON-NLS-1$
+		if (this.closed) {
+			throw new IllegalStateException("Accessor is closed"); //$NON-NLS-1$
+		}
+		final URI requestURI = resolveURI(uri);
+		final Route route = getRoute(requestURI);
+		route.acquire(this.connectTimeout);
+		try {
+			final PooledHttpConnection idle = route.pollIdle(System.currentTimeMillis(), this.idleTimeout);
+			if (idle != null) {
+				try {
+					return execute(route, idle, method, requestURI, headers, handler);
+				} catch (final StaleConnectionException e) {
+					if (PooledHttpAccessor.HTTP_POST_VERB.equals(method)) {
+						throw e.getCause();
+					}
+				}
+			}
+			return execute(route, route.connect(this.connectTimeout, this.readTimeout), method, requestURI, headers, handler);
+		} finally {
+			route.release();
+		}
+	}
+
+	private int execute(final Route route, final PooledHttpConnection connection, final String method, final URI uri,
+			final RequestHeaders headers, final RequestHandler handler) throws IOException {
+		final boolean reused = connection.beginUse();
+		boolean keepAlive = false;
+		try {
+			final ResponseHead response;
+			try {
+				writeRequest(connection.getOutputStream(), method, uri, headers);
+				response = readResponseHead(connection);
+			} catch (final IOException e) {
+				if (reused) {
+					throw new StaleConnectionException(e);
+				}
+				throw e;
+			}
+			final HttpBodyInputStream body = createBody(connection, method, response);
+			final ResponseMeta meta = response.createResponseMeta();
+			final InputStream decoded = HttpContentCoding.decode(meta, body);
+			try {
+				handler.processInput(meta, decoded);
+			} finally {
+				// releases the inflater but leaves the connection open
+				decoded.close();
+			}
+			keepAlive = response.keepAlive && drain(body);
+			return response.status;
+		} finally {
+			if (keepAlive && !this.closed) {
+				route.offerIdle(connection, System.currentTimeMillis());
+			} else {
+				connection.close();
+			}
+		}
+	}
+
+	private boolean drain(final HttpBodyInputStream body) {
+		try {
+			return body.drain(PooledHttpAccessor.MAX_DRAIN_LENGTH);
+		} catch (final IOException e) {
+			// the response was handled already so only the connection is lost
+			return false;
+		}
+	}
+
+	private void writeRequest(final OutputStream out, final String method, final URI uri, final RequestHeaders headers) throws IOException {
+		final StringBuilder head = new StringBuilder(256);
+		head.append(method).append(' ');
+		final String path = uri.getRawPath();
+		head.append(path == null || path.length() == 0 ? "/" : path); //$NON-NLS-1$
+		if (uri.getRawQuery() != null) {
+			head.append('?').append(uri.getRawQuery());
+		}
+		head.append(' ').append(PooledHttpAccessor.HTTP_VERSION).append("\r\n"); //$NON-NLS-1$
+		final int port = uri.getPort();
+		appendHeader(head, HTTPHeaderConstants.HOST_HEADER, port < 0 ? uri.getHost() : uri.getHost() + ":" + port); //$NON-NLS-1$
+		appendHeader(head, HTTPHeaderConstants.ACCEPT_HEADER, HttpHeaderCreator.createHeaderValue(false, (Object[]) headers.getAcceptMediaTypes()));
+		appendHeader(head, HTTPHeaderConstants.ACCEPT_CHARSET_HEADER, HttpHeaderCreator.createHeaderValue(false, (Object[]) headers.getAcceptCharsets()));
+		if (headers.getAcceptEncodings() == null && this.acceptCompressedResponses) {
+			appendHeader(head, HTTPHeaderConstants.ACCEPT_ENCODING_HEADER, HttpContentCoding.ACCEPT_ENCODING);
+		} else {
+			appendHeader(head, HTTPHeaderConstants.ACCEPT_ENCODING_HEADER, HttpHeaderCreator.createHeaderValue(false,
+					(Object[]) headers.getAcceptEncodings()));
+		}
+		appendHeader(head, HTTPHeaderConstants.ACCEPT_LANGUAGE_HEADER, HttpHeaderCreator.createHeaderValue(false, (Object[]) headers.getAcceptLanguages()));
+		if (headers.getIfModifiedSince() != null) {
+			appendHeader(head, HTTPHeaderConstants.IF_MODIFIED_SINCE_HEADER, HttpHeaderCreator.formatHttpDate(headers.getIfModifiedSince()));
+		}
+		appendHeader(head, HTTPHeaderConstants.IF_MATCH_HEADER, HttpHeaderCreator.createHeaderValue(false, (Object[]) headers.getIfMatch()));
+		appendHeader(head, HTTPHeaderConstants.IF_NONE_MATCH_HEADER, HttpHeaderCreator.createHeaderValue(false, (Object[]) headers.getIfNoneMatch()));
+		appendHeader(head, HTTPHeaderConstants.FROM_HEADER, headers.getFromEmail());
+		if (headers.hasExtensionHeaders()) {
+			for (final Map.Entry<String, Object[]> temp : headers.getExtensionHeaders().entrySet()) {
+				appendHeader(head, temp.getKey(), HttpHeaderCreator.createHeaderValue(false, temp.getValue()));
+			}
+		}
+		String userInfo = uri.getRawUserInfo();
+		if (userInfo == null) {
+			userInfo = this.defaultUserInfo;
+		}
+		if (userInfo != null) {
+			final Pair<String, String> authHeader = HttpHeaderCreator.createBasicAuthorization(userInfo);
+			appendHeader(head, authHeader.left(), authHeader.right());
+		}
+		RequestEntity<?> entity = null;
+		String compression = null;
+		if (headers instanceof RequestEntity<?>) {
+			entity = (RequestEntity<?>) headers;
+			appendHeader(head, HTTPHeaderConstants.CONTENT_TYPE_HEADER, HttpHeaderCreator.createHeaderValue(false, entity.getContentType()));
+			appendHeader(head, HTTPHeaderConstants.CONTENT_LANGUAGE_HEADER, HttpHeaderCreator.createHeaderValue(false, entity.getContentLanguage()));
+			if (entity.getContentEncoding() == null) {
+				compression = this.requestContentEncoding;
+			}
+			if (compression != null) {
+				// the length and hash of the compressed content are unknown
+				appendHeader(head, HTTPHeaderConstants.CONTENT_ENCODING_HEADER, compression);
+				appendHeader(head, HTTPHeaderConstants.TRANSFER_ENCODING_HEADER, "chunked"); //$NON-NLS-1$
+			} else {
+				appendHeader(head, HTTPHeaderConstants.CONTENT_ENCODING_HEADER, entity.getContentEncoding());
+				if (entity.getContentMD5() != null) {
+					appendHeader(head, HTTPHeaderConstants.CONTENT_MD5_HEADER, RFC3548Base64Codec.INSTANCE.encode(entity.getContentMD5()).toString());
+				}
+				if (entity.getContentLength() > 0) {
+					appendHeader(head, HTTPHeaderConstants.CONTENT_LENGTH_HEADER, Integer.toString(entity.getContentLength()));
+				} else {
+					appendHeader(head, HTTPHeaderConstants.TRANSFER_ENCODING_HEADER, "chunked"); //$NON-NLS-1$
+				}
+			}
+		}
+		head.append("\r\n"); //$NON-NLS-1$
+		out.write(head.toString().getBytes(HttpHeaderCreator.HEADER_VALUE_CHARSET));
+		if (entity != null) {
+			OutputStream entityOut = new HttpEntityOutputStream(out, compression != null || entity.getContentLength() <= 0);
+			if (compression != null) {
+				entityOut = HttpContentCoding.encode(compression, entityOut);
+			}
+			entity.serializeEntity(entityOut);
+			entityOut.close();
+		} else {
+			out.flush();
+		}
+	}
+
+	private void appendHeader(final StringBuilder head, final String name, final String value) {
+		if (value != null) {
+			head.append(name).append(": ").append(value).append("\r\n"); //$NON-NLS-1$ //$NON-NLS-2$
+		}
+	}
+
+	private ResponseHead readResponseHead(final PooledHttpConnection connection) throws IOException {
+		ResponseHead result;
+		do {
+			final String statusLine = connection.readLine();
+			final int firstSpace = statusLine.indexOf(' ');
+			if (!statusLine.startsWith("HTTP/") || firstSpace < 0) { //$NON-NLS-1$
+				throw new IOException("Illegal HTTP status line " + statusLine); //$NON-NLS-1$
+			}
+			final int secondSpace = statusLine.indexOf(' ', firstSpace + 1);
+			try {
+				result = new ResponseHead(statusLine.substring(0, firstSpace), Integer.parseInt(statusLine.substring(firstSpace + 1,
+						secondSpace < 0 ? statusLine.length() : secondSpace)));
+			} catch (final NumberFormatException e) {
+				throw new IOException("Illegal HTTP status line " + statusLine); //$NON-NLS-1$
+			}
+			String lastName = null;
+			String line;
+			while ((line = connection.readLine()).length() > 0) {
+				if ((line.charAt(0) == ' ' || line.charAt(0) == '\t') && lastName != null) {
+					result.headers.put(lastName, result.headers.get(lastName) + " " + line.trim()); //$NON-NLS-1$
+				} else {
+					final int colon = line.indexOf(':');
+					if (colon > 0) {
+						lastName = line.substring(0, colon).trim();
+						result.addHeader(lastName, line.substring(colon + 1).trim());
+					}
+				}
+			}
+		} while (result.status >= 100 && result.status < 200);
+		result.keepAlive = result.isKeepAlive();
+		return result;
+	}
+
+	private HttpBodyInputStream createBody(final PooledHttpConnection connection, final String method, final ResponseHead response)
+			throws IOException {
+		if (PooledHttpAccessor.HTTP_HEAD_VERB.equals(method) || response.status == 204 || response.status == 304) {
+			return HttpBodyInputStream.empty(connection);
+		}
+		final String transferEncoding = response.headers.get(HTTPHeaderConstants.TRANSFER_ENCODING_HEADER);
+		if (transferEncoding != null && transferEncoding.toLowerCase(Locale.ENGLISH).contains("chunked")) { //$NON-NLS-1$
+			return HttpBodyInputStream.chunked(connection);
+		}
+		final long contentLength = response.getContentLength();
+		if (contentLength >= 0) {
+			return HttpBodyInputStream.fixedLength(connection, contentLength);
+		}
+		response.keepAlive = false;
+		return HttpBodyInputStream.untilClose(connection);
+	}
+
+	private URI resolveURI(final URI uri) throws RelativeURIException {
+		if (uri.isAbsolute()) {
+			return uri;
+		}
+		final URI base = this.baseURL;
+		if (base != null) {
+			return base.resolve(uri);
+		}
+		throw new RelativeURIException("URI is relative but no base URI is set. Cannot resolve URL from given URI"); //$NON-NLS-1$
+	}
+
+	private Route getRoute(final URI uri) throws IOException {
+		final String scheme = uri.getScheme().toLowerCase(Locale.ENGLISH);
+		final boolean secure = PooledHttpAccessor.HTTPS_SCHEME.equals(scheme);
+		if (!secure && !PooledHttpAccessor.HTTP_SCHEME.equals(scheme)) {
+			throw new IOException("Unsupported scheme " + scheme); //$NON-NLS-1$
+		}
+		final String host = uri.getHost();
+		if (host == null) {
+			throw new IOException("URI has no host " + uri); //$NON-NLS-1$
+		}
+		final int port = uri.getPort() < 0 ? secure ? 443 : 80 : uri.getPort();
+		final String key = scheme + "://" + host.toLowerCase(Locale.ENGLISH) + ":" + port; //$NON-NLS-1$ //$NON-NLS-2$
+		Route result = this.routes.get(key);
+		if (result == null) {
+			final Route temp = this.routes.putIfAbsent(key, result = new Route(host, port, secure, this.maxConnectionsPerRoute));
+			if (temp != null) {
+				result = temp;
+			}
+		}
+		return result;
+	}
+
+	private static final class Route {
+		private final String host;
+		private final int port;
+		private final boolean secure;
+		private final Semaphore permits;
+		private final LinkedBlockingDeque<PooledHttpConnection> idle = new LinkedBlockingDeque<PooledHttpConnection>();
+
+		Route(final String host, final int port, final boolean secure, final int maxConnections) {
+			this.host = host;
+			this.port = port;
+			this.secure = secure;
+			this.permits = new Semaphore(maxConnections, true);
+		}
+
+		void acquire(final long timeout) throws IOException {
+			try {
+				if (!this.permits.tryAcquire(timeout, TimeUnit.MILLISECONDS)) {
+					throw new IOException("Timeout waiting for a connection to " + this.host + ":" + this.port); //$NON-NLS-1$ //$NON-NLS-2$
+				}
+			} catch (final InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new IOException("Interrupted waiting for a connection to " + this.host + ":" + this.port); //$NON-NLS-1$ //$NON-NLS-2$
+			}
+		}
+
+		void release() {
+			this.permits.release();
+		}
+
+		PooledHttpConnection pollIdle(final long now, final long idleTimeout) {
+			evictIdle(now, idleTimeout);
+			PooledHttpConnection result;
+			while ((result = this.idle.pollFirst()) != null) {
+				if (!result.isExpired(now, idleTimeout)) {
+					return result;
+				}
+				result.close();
+			}
+			return null;
+		}
+
+		void offerIdle(final PooledHttpConnection connection, final long now) {
+			connection.markIdle(now);
+			this.idle.offerFirst(connection);
+		}
+
+		void evictIdle(final long now, final long idleTimeout) {
+			PooledHttpConnection temp;
+			while ((temp = this.idle.peekLast()) != null && temp.isExpired(now, idleTimeout)) {
+				if (this.idle.removeLastOccurrence(temp)) {
+					temp.close();
+				}
+			}
+		}
+
+		void closeIdle() {
+			PooledHttpConnection temp;
+			while ((temp = this.idle.pollFirst()) != null) {
+				temp.close();
+			}
+		}
+
+		PooledHttpConnection connect(final int connectTimeout, final int readTimeout) throws IOException {
+			Socket socket = new Socket();
+			try {
+				socket.connect(new InetSocketAddress(this.host, this.port), connectTimeout);
+				socket.setSoTimeout(readTimeout);
+				socket.setTcpNoDelay(true);
+				if (this.secure) {
+					final SSLSocket sslSocket = (SSLSocket) ((SSLSocketFactory) SSLSocketFactory.getDefault()).createSocket(socket, this.host,
+							this.port, true);
+					socket = sslSocket;
+					sslSocket.startHandshake();
+					if (!HttpsURLConnection.getDefaultHostnameVerifier().verify(this.host, sslSocket.getSession())) {
+						throw new SSLPeerUnverifiedException("Server certificate does not match host " + this.host); //$NON-NLS-1$
+					}
+				}
+				final PooledHttpConnection result = new PooledHttpConnection(socket);
+				socket = null;
+				return result;
+			} finally {
+				if (socket != null) {
+					socket.close();
+				}
+			}
+		}
+	}
+
+	private static final class ResponseHead {
+		private final String version;
+		private final int status;
+		private final Map<String, String> headers = new TreeMap<String, String>(String.CASE_INSENSITIVE_ORDER);
+		private boolean keepAlive;
+
+		ResponseHead(final String version, final int status) {
+			this.version = version;
+			this.status = status;
+		}
+
+		void addHeader(final String name, final String value) {
+			final String temp = this.headers.get(name);
+			this.headers.put(name, temp == null ? value : temp + ", " + value); //$NON-NLS-1$
+		}
+
+		boolean isKeepAlive() {
+			final String connection = this.headers.get(HTTPHeaderConstants.CONNECTION_HEADER);
+			if (connection != null) {
+				final String temp = connection.toLowerCase(Locale.ENGLISH);
+				if (temp.contains("close")) { //$NON-NLS-1$
+					return false;
+				}
+				if (temp.contains("keep-alive")) { //$NON-NLS-1$
+					return true;
+				}
+			}
+			return PooledHttpAccessor.HTTP_VERSION.equals(this.version);
+		}
+
+		long getContentLength() {
+			final String temp = this.headers.get(HTTPHeaderConstants.CONTENT_LENGTH_HEADER);
+			if (temp != null) {
+				try {
+					return Long.parseLong(temp.trim());
+				} catch (final NumberFormatException e) {
+					// treat as unknown length
+				}
+			}
+			return -1;
+		}
+
+		ResponseMeta createResponseMeta() {
+			final ResponseMeta result = new ResponseMeta();
+			result.setStatus(this.status);
+			final String contentType = this.headers.get(HTTPHeaderConstants.CONTENT_TYPE_HEADER);
+			if (contentType != null) {
+				result.setMediaType(MediaType.valueOf(contentType));
+			}
+			result.setContentLength(getContentLength());
+			result.setEncoding(this.headers.get(HTTPHeaderConstants.CONTENT_ENCODING_HEADER));
+			result.setLanguage(this.headers.get(HTTPHeaderConstants.CONTENT_LANGUAGE_HEADER));
+			result.setETag(this.headers.get(HTTPHeaderConstants.ETAG_HEADER));
+			result.setContentMD5(this.headers.get(HTTPHeaderConstants.CONTENT_MD5_HEADER));
+			result.setDate(HttpHeaderCreator.parseHttpDate(this.headers.get(HTTPHeaderConstants.DATE_HEADER)));
+			result.setLastModified(HttpHeaderCreator.parseHttpDate(this.headers.get(HTTPHeaderConstants.LAST_MODIFIED_HEADER)));
+			result.setExpires(HttpHeaderCreator.parseHttpDate(this.headers.get(HTTPHeaderConstants.EXPIRES_HEADER)));
+			result.setCacheControl(this.headers.get(HTTPHeaderConstants.CACHE_CONTROL_HEADER));
+			return result;
+		}
+	}
+
+	private static final class StaleConnectionException extends IOException {
+		private static final long serialVersionUID = 1L;
+
+		StaleConnectionException(final IOException cause) {
+			super(cause.getMessage());
+			initCause(cause);
+		}
+
+		@Override
+		public synchronized IOException getCause() {
+			return (IOException) super.getCause();
+		}
+	}
+
+}
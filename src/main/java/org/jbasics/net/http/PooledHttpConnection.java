@@ -0,0 +1,113 @@
+/*
+ * Copyright (c) 2009 Stephan Schloepke and innoQ Deutschland GmbH
+ * 
+ * Stephan Schloepke: http://www.schloepke.de/
+ * innoQ Deutschland GmbH: http://www.innoq.com/
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.jbasics.net.http;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.Socket;
+
+/**
+ * A keep-alive HTTP connection owned by a {@link PooledHttpAccessor}.
+ *
+ * @author Stephan Schloepke
+ * @since 1.0
+ */
+final class PooledHttpConnection {
+	private static final int BUFFER_SIZE = 8192;
+	private static final int MAX_LINE_LENGTH = 16384;
+
+	private final Socket socket;
+	private final InputStream in;
+	private final OutputStream out;
+	private long idleSince;
+	private int useCount;
+
+	PooledHttpConnection(final Socket socket) throws IOException {
+		this.socket = socket;
+		this.in = new BufferedInputStream(socket.getInputStream(), PooledHttpConnection.BUFFER_SIZE);
+		this.out = new BufferedOutputStream(socket.getOutputStream(), PooledHttpConnection.BUFFER_SIZE);
+	}
+
+	InputStream getInputStream() {
+		return this.in;
+	}
+
+	OutputStream getOutputStream() {
+		return this.out;
+	}
+
+	/**
+	 * Marks the start of a request and returns true if the connection was used before.
+	 */
+	boolean beginUse() {
+		return this.useCount++ > 0;
+	}
+
+	void markIdle(final long now) {
+		this.idleSince = now;
+	}
+
+	boolean isExpired(final long now, final long idleTimeout) {
+		return this.socket.isClosed() || this.socket.isInputShutdown() || now - this.idleSince > idleTimeout;
+	}
+
+	/**
+	 * Reads a CRLF (or LF) terminated line in ISO-8859-1 without the line terminator.
+	 *
+	 * @return The line read.
+	 * @throws IOException If the stream ended before the line was terminated or the line is too long.
+	 */
+	String readLine() throws IOException {
+		final StringBuilder line = new StringBuilder(64);
+		int c;
+		while ((c = this.in.read()) != '\n') {
+			if (c < 0) {
+				throw new EOFException("Connection closed while reading line"); //$NON-NLS-1$
+			}
+			if (line.length() >= PooledHttpConnection.MAX_LINE_LENGTH) {
+				throw new IOException("HTTP line exceeds " + PooledHttpConnection.MAX_LINE_LENGTH + " characters"); //$NON-NLS-1$ //$NON-NLS-2$
+			}
+			line.append((char) c);
+		}
+		final int length = line.length();
+		if (length > 0 && line.charAt(length - 1) == '\r') {
+			line.setLength(length - 1);
+		}
+		return line.toString();
+	}
+
+	void close() {
+		try {
+			this.socket.close();
+		} catch (final IOException e) {
+			// we are discarding the connection anyway
+		}
+	}
+
+}
@@ -29,6 +29,7 @@ import java.util.HashMap;
 import java.util.Map;
 
 import org.jbasics.net.mediatype.MediaTypeRange;
+import org.jbasics.pattern.strategy.EntityTag;
 
 /**
  * Request headers send with the request.
@@ -59,11 +60,38 @@ public class RequestHeaders {
 	private AcceptParameter<String>[] acceptCharsets = DEFAULT_ACCEPTED_CHARSETS;
 	private AcceptParameter<String>[] acceptEncodings;
 	private AcceptParameter<String>[] acceptLanguages;
-//	private EntityTag ifMatch;
+	private EntityTag[] ifMatch;
+	private EntityTag[] ifNoneMatch;
 	private Date ifModifiedSince;
 	private String fromEmail;
 	private Map<String, Object[]> extensionHeaders;
 
+	/**
+	 * Creates request headers with the default accepted media types and character sets.
+	 */
+	public RequestHeaders() {
+		// Nothing to do here
+	}
+
+	/**
+	 * Creates a copy of the given request headers. The extension headers map is copied, the values are shared.
+	 * 
+	 * @param source The headers to copy (must not be null).
+	 */
+	public RequestHeaders(final RequestHeaders source) {
+		this.acceptMediaTypes = source.acceptMediaTypes;
+		this.acceptCharsets = source.acceptCharsets;
+		this.acceptEncodings = source.acceptEncodings;
+		this.acceptLanguages = source.acceptLanguages;
+		this.ifMatch = source.ifMatch;
+		this.ifNoneMatch = source.ifNoneMatch;
+		this.ifModifiedSince = source.ifModifiedSince;
+		this.fromEmail = source.fromEmail;
+		if (source.hasExtensionHeaders()) {
+			this.extensionHeaders = new HashMap<String, Object[]>(source.extensionHeaders);
+		}
+	}
+
 	/**
 	 * Set the media types accpeted. Currently there is no way to set a media type with its quality factor. This is subject to change soon.
 	 * 
@@ -144,23 +172,41 @@ public class RequestHeaders {
 		return this.acceptLanguages;
 	}
 
-//	/**
-//	 * Set the ifMatch request header to the given entity or null to remove it.
-//	 * 
-//	 * @param ifMatch The ifMatch header to set.
-//	 */
-//	public final void setIfMatch(final EntityTag ifMatch) {
-//		this.ifMatch = ifMatch;
-//	}
-//
-//	/**
-//	 * Returns the if-match ETAG header or null if not set.
-//	 * 
-//	 * @return The ifMatch header.
-//	 */
-//	public final EntityTag getIfMatch() {
-//		return this.ifMatch;
-//	}
+	/**
+	 * Set the if-match header to the given entity tags or null to remove it.
+	 * 
+	 * @param ifMatch The entity tags for the if-match header.
+	 */
+	public final void setIfMatch(final EntityTag... ifMatch) {
+		this.ifMatch = ifMatch;
+	}
+
+	/**
+	 * Returns the if-match entity tags or null if not set.
+	 * 
+	 * @return The if-match entity tags.
+	 */
+	public final EntityTag[] getIfMatch() {
+		return this.ifMatch;
+	}
+
+	/**
+	 * Set the if-none-match header to the given entity tags or null to remove it.
+	 * 
+	 * @param ifNoneMatch The entity tags for the if-none-match header.
+	 */
+	public final void setIfNoneMatch(final EntityTag... ifNoneMatch) {
+		this.ifNoneMatch = ifNoneMatch;
+	}
+
+	/**
+	 * Returns the if-none-match entity tags or null if not set.
+	 * 
+	 * @return The if-none-match entity tags.
+	 */
+	public final EntityTag[] getIfNoneMatch() {
+		return this.ifNoneMatch;
+	}
 
 	/**
 	 * Set the if-modified-since header field.
@@ -34,6 +34,7 @@ import org.jbasics.net.mediatype.MediaType;
  * @author Stephan Schloepke
  */
 public class ResponseMeta {
+	private int status;
 	private MediaType mediaType;
 	private String charset;
 	private String encoding;
@@ -45,6 +46,18 @@ public class ResponseMeta {
 	private Date date;
 	private Date lastModified;
 	private Date expires;
+	private String cacheControl;
+	private long transferredBytes;
+	private long contentBytes;
+
+	/**
+	 * Returns the HTTP status code of the response.
+	 * 
+	 * @return the status
+	 */
+	public int getStatus() {
+		return this.status;
+	}
 
 	/**
 	 * Returns the media type.
@@ -145,6 +158,44 @@ public class ResponseMeta {
 		return this.expires;
 	}
 
+	/**
+	 * Returns the cache control header of the response.
+	 * 
+	 * @return the cacheControl
+	 */
+	public String getCacheControl() {
+		return this.cacheControl;
+	}
+
+	/**
+	 * Returns the number of body bytes read from the connection so far. If the response was compressed this is the
+	 * compressed size.
+	 * 
+	 * @return the number of bytes transferred
+	 */
+	public long getTransferredBytes() {
+		return this.transferredBytes;
+	}
+
+	/**
+	 * Returns the number of (decoded) body bytes read by the handler so far.
+	 * 
+	 * @return the number of content bytes
+	 */
+	public long getContentBytes() {
+		return this.contentBytes;
+	}
+
+	/**
+	 * Sets the HTTP status code of the response.
+	 * 
+	 * @param status
+	 *            the status to set
+	 */
+	protected void setStatus(final int status) {
+		this.status = status;
+	}
+
 	/**
 	 * Sets the media type of the response.
 	 * 
@@ -258,4 +309,22 @@ public class ResponseMeta {
 		this.expires = expires;
 	}
 
+	/**
+	 * Set the cache control header of the response.
+	 * 
+	 * @param cacheControl
+	 *            the cacheControl to set
+	 */
+	protected void setCacheControl(final String cacheControl) {
+		this.cacheControl = cacheControl;
+	}
+
+	void addTransferredBytes(final long bytes) {
+		this.transferredBytes += bytes;
+	}
+
+	void addContentBytes(final long bytes) {
+		this.contentBytes += bytes;
+	}
+
 }
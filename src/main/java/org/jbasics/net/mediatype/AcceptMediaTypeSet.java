@@ -26,6 +26,7 @@ package org.jbasics.net.mediatype;
 
 import java.io.Serializable;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.Comparator;
 import java.util.Enumeration;
 import java.util.Iterator;
@@ -46,18 +47,65 @@ import org.jbasics.checker.ContractCheck;
  * is returned. In case that media types are preferred the best way is to first try to match the closest of the
  * preferred media types and if non matches than match with all available. 
  * </p>
+ * <p>
+ * Sets returned by {@link #valueOf(String)} or {@link #toImmutable()} are immutable and can be shared between
+ * threads. Any attempt to modify them throws an {@link UnsupportedOperationException}.
+ * </p>
  * 
  * @author Stephan Schloepke
  * @since 1.0
  */
 public class AcceptMediaTypeSet implements SortedSet<AcceptMediaTypeRange>, Serializable {
 	private final SortedSet<AcceptMediaTypeRange> acceptMediaTypes;
+	private final boolean immutable;
 
 	/**
 	 * Creates a new {@link AcceptMediaTypeSet} instance to add accept media type headers to it.
 	 */
 	public AcceptMediaTypeSet() {
 		this.acceptMediaTypes = new TreeSet<AcceptMediaTypeRange>();
+		this.immutable = false;
+	}
+
+	private AcceptMediaTypeSet(final SortedSet<AcceptMediaTypeRange> acceptMediaTypes) {
+		this.acceptMediaTypes = Collections.unmodifiableSortedSet(new TreeSet<AcceptMediaTypeRange>(acceptMediaTypes));
+		this.immutable = true;
+	}
+
+	/**
+	 * Returns the immutable {@link AcceptMediaTypeSet} of the given accept header value.
+	 * <p>
+	 * The result is taken from {@link AcceptMediaTypeSetCache#SHARED_INSTANCE} so parsing the same
+	 * header again does not cost more than a hash lookup.
+	 * </p>
+	 * 
+	 * @param acceptHeader The accept header value (must not be null).
+	 * @return The immutable set of accepted media type ranges.
+	 * @throws IllegalArgumentException If the header does not comply to RFC2616.
+	 */
+	public static AcceptMediaTypeSet valueOf(final String acceptHeader) {
+		return AcceptMediaTypeSetCache.SHARED_INSTANCE.get(acceptHeader);
+	}
+
+	/**
+	 * Returns an immutable copy of this set or this set if it is already immutable.
+	 * 
+	 * @return The immutable set.
+	 */
+	public AcceptMediaTypeSet toImmutable() {
+		if (this.immutable) {
+			return this;
+		}
+		return new AcceptMediaTypeSet(this.acceptMediaTypes);
+	}
+
+	/**
+	 * Returns true if this set cannot be modified.
+	 * 
+	 * @return True if the set is immutable.
+	 */
+	public boolean isImmutable() {
+		return this.immutable;
 	}
 
 	/**
@@ -66,13 +114,11 @@ public class AcceptMediaTypeSet implements SortedSet<AcceptMediaTypeRange>, Seri
 	 * @param acceptMediaTypeStrings The string to add.
 	 */
 	public void add(final String acceptMediaTypeString) {
-		String[] splits = ContractCheck.mustNotBeNullOrEmpty(acceptMediaTypeString, "acceptMediaTypeString").split(",");
-		for (String split : splits) {
-			String typeString = split.trim();
-			if (typeString.length() > 0) {
-				this.acceptMediaTypes.add(AcceptMediaTypeRange.valueOf(typeString));
-			}
+		ContractCheck.mustNotBeNullOrEmpty(acceptMediaTypeString, "acceptMediaTypeString");
+		if (this.immutable) {
+			throw new UnsupportedOperationException("Accept media type set is immutable"); //$NON-NLS-1$
 		}
+		MediaTypeScanner.parseAcceptMediaTypes(acceptMediaTypeString, this.acceptMediaTypes);
 	}
 
 	/**
@@ -126,6 +172,7 @@ public class AcceptMediaTypeSet implements SortedSet<AcceptMediaTypeRange>, Seri
 	 *            null.
 	 * @param list The list of media types to check and find the best accepted one.
 	 * @return The best accepted Media type or the default if non matches.
+	 * @see MediaTypeNegotiator
 	 */
 	public MediaType matchClosest(final MediaType defaultType, final MediaType... list) {
 		if (list != null && list.length > 0) {
@@ -0,0 +1,142 @@
+/*
+ * Copyright (c) 2009 Stephan Schloepke and innoQ Deutschland GmbH
+ * 
+ * Stephan Schloepke: http://www.schloepke.de/
+ * innoQ Deutschland GmbH: http://www.innoq.com/
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.jbasics.net.mediatype;
+
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.jbasics.annotation.ThreadSafe;
+import org.jbasics.checker.ContractCheck;
+
+/**
+ * Bounded cache of parsed accept headers.
+ * <p>
+ * Clients tend to send the very same accept header with every request so parsing it over and over
+ * is wasted work. The cache maps the raw header value to an immutable {@link AcceptMediaTypeSet}.
+ * Once the cache holds the maximum number of entries an arbitrary entry is evicted for every new
+ * one. Headers longer than {@link #MAXIMUM_CACHED_HEADER_LENGTH} are parsed but never cached so
+ * that clients cannot flood the cache with large unique values.
+ * </p>
+ * 
+ * @author Stephan Schloepke
+ * @since 1.0
+ */
+@ThreadSafe
+public final class AcceptMediaTypeSetCache {
+	/**
+	 * The default maximum number of cached headers.
+	 */
+	public static final int DEFAULT_MAXIMUM_SIZE = 256;
+	/**
+	 * Headers longer than this are not cached.
+	 */
+	public static final int MAXIMUM_CACHED_HEADER_LENGTH = 1024;
+	/**
+	 * The shared cache used by {@link AcceptMediaTypeSet#valueOf(String)}.
+	 */
+	public static final AcceptMediaTypeSetCache SHARED_INSTANCE = new AcceptMediaTypeSetCache();
+
+	private final ConcurrentMap<String, AcceptMediaTypeSet> cache;
+	private final AtomicInteger size;
+	private final int maximumSize;
+
+	/**
+	 * Creates a cache with the {@link #DEFAULT_MAXIMUM_SIZE}.
+	 */
+	public AcceptMediaTypeSetCache() {
+		this(AcceptMediaTypeSetCache.DEFAULT_MAXIMUM_SIZE);
+	}
+
+	/**
+	 * Creates a cache holding up to the given number of headers.
+	 * 
+	 * @param maximumSize The maximum number of cached headers (if less or equal zero the default
+	 *            is used).
+	 */
+	public AcceptMediaTypeSetCache(final int maximumSize) {
+		this.maximumSize = maximumSize <= 0 ? AcceptMediaTypeSetCache.DEFAULT_MAXIMUM_SIZE : maximumSize;
+		this.cache = new ConcurrentHashMap<String, AcceptMediaTypeSet>();
+		this.size = new AtomicInteger();
+	}
+
+	/**
+	 * Returns the immutable parsed set of the given accept header.
+	 * 
+	 * @param acceptHeader The accept header value (must not be null).
+	 * @return The immutable set of accepted media type ranges.
+	 * @throws IllegalArgumentException If the header does not comply to RFC2616.
+	 */
+	public AcceptMediaTypeSet get(final String acceptHeader) {
+		AcceptMediaTypeSet result = this.cache.get(ContractCheck.mustNotBeNull(acceptHeader, "acceptHeader")); //$NON-NLS-1$
+		if (result == null) {
+			AcceptMediaTypeSet temp = new AcceptMediaTypeSet();
+			MediaTypeScanner.parseAcceptMediaTypes(acceptHeader, temp);
+			result = temp.toImmutable();
+			if (acceptHeader.length() <= AcceptMediaTypeSetCache.MAXIMUM_CACHED_HEADER_LENGTH) {
+				AcceptMediaTypeSet existing = this.cache.putIfAbsent(acceptHeader, result);
+				if (existing != null) {
+					result = existing;
+				} else if (this.size.incrementAndGet() > this.maximumSize) {
+					evict(acceptHeader);
+				}
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Returns the number of cached headers.
+	 * 
+	 * @return The number of cached headers.
+	 */
+	public int size() {
+		return this.size.get();
+	}
+
+	/**
+	 * Removes all cached headers.
+	 */
+	public void clear() {
+		Iterator<String> it = this.cache.keySet().iterator();
+		while (it.hasNext()) {
+			if (this.cache.remove(it.next()) != null) {
+				this.size.decrementAndGet();
+			}
+		}
+	}
+
+	private void evict(final String keep) {
+		Iterator<String> it = this.cache.keySet().iterator();
+		while (it.hasNext() && this.size.get() > this.maximumSize) {
+			String key = it.next();
+			if (!key.equals(keep) && this.cache.remove(key) != null) {
+				this.size.decrementAndGet();
+			}
+		}
+	}
+
+}
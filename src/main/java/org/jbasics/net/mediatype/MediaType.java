@@ -85,6 +85,18 @@ public class MediaType extends MediaTypeRange {
 		super(type, subType, parameters);
 	}
 
+	/**
+	 * Creates a media type from values already validated by the {@link MediaTypeScanner}.
+	 * 
+	 * @param type The type.
+	 * @param subType The sub type (can be null).
+	 * @param parameters The parameters (must not be null).
+	 * @param validated Marker to distinguish this constructor from the public one.
+	 */
+	MediaType(final String type, final String subType, final Pair<String, String>[] parameters, final boolean validated) {
+		super(type, subType, parameters, validated);
+	}
+
 	/**
 	 * Validated the type.
 	 * 
@@ -0,0 +1,247 @@
+/*
+ * Copyright (c) 2009 Stephan Schloepke and innoQ Deutschland GmbH
+ * 
+ * Stephan Schloepke: http://www.schloepke.de/
+ * innoQ Deutschland GmbH: http://www.innoq.com/
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.jbasics.net.mediatype;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.jbasics.annotation.ThreadSafe;
+import org.jbasics.checker.ContractCheck;
+import org.jbasics.types.tuples.Pair;
+
+/**
+ * Reusable content negotiator for a fixed list of offered media types.
+ * <p>
+ * The negotiator returns the same result as
+ * {@link AcceptMediaTypeSet#matchClosest(MediaType, MediaType...)} but indexes the offered media
+ * types by type, sub type and wildcard when it is created. Resolving an accept set only looks up
+ * the candidates of each accept range instead of testing every offered type against every range.
+ * The result of every accept header string is memoized in a bounded cache since the same few
+ * headers are sent over and over again.
+ * </p>
+ * <p>
+ * Create one negotiator per resource (or per set of representations) and keep it.
+ * </p>
+ * 
+ * @author Stephan Schloepke
+ * @since 1.0
+ */
+@ThreadSafe
+public final class MediaTypeNegotiator {
+	private static final int[] NO_CANDIDATES = new int[0];
+	private static final Integer NO_MATCH = Integer.valueOf(-1);
+
+	private final MediaType defaultType;
+	private final MediaType[] offered;
+	private final int[] all;
+	private final Map<String, int[]> byType;
+	private final Map<String, int[]> bySubType;
+	private final Map<String, Map<String, int[]>> byTypeAndSubType;
+	private final ConcurrentMap<String, Integer> memo;
+	private final AtomicInteger memoSize;
+	private final int maximumMemoSize;
+
+	/**
+	 * Creates a negotiator for the given offered media types without a default type.
+	 * 
+	 * @param offered The offered media types in order of preference (must not be null or empty).
+	 */
+	public MediaTypeNegotiator(final MediaType... offered) {
+		this(null, AcceptMediaTypeSetCache.DEFAULT_MAXIMUM_SIZE, offered);
+	}
+
+	/**
+	 * Creates a negotiator for the given offered media types.
+	 * 
+	 * @param defaultType The type returned if none of the offered types is accepted (can be null).
+	 * @param maximumMemoSize The maximum number of memoized accept headers (if less or equal zero
+	 *            the default of {@link AcceptMediaTypeSetCache#DEFAULT_MAXIMUM_SIZE} is used).
+	 * @param offered The offered media types in order of preference (must not be null or empty).
+	 */
+	public MediaTypeNegotiator(final MediaType defaultType, final int maximumMemoSize, final MediaType... offered) {
+		this.defaultType = defaultType;
+		this.offered = ContractCheck.mustNotBeNullOrEmpty(offered, "offered").clone(); //$NON-NLS-1$
+		Map<String, List<Integer>> types = new HashMap<String, List<Integer>>();
+		Map<String, List<Integer>> subTypes = new HashMap<String, List<Integer>>();
+		Map<String, Map<String, List<Integer>>> typesAndSubTypes = new HashMap<String, Map<String, List<Integer>>>();
+		this.all = new int[this.offered.length];
+		for (int i = 0; i < this.offered.length; i++) {
+			MediaType type = ContractCheck.mustNotBeNull(this.offered[i], "offered[i]"); //$NON-NLS-1$
+			String typeKey = type.getType().toLowerCase();
+			String subTypeKey = type.getSubType() == null ? null : type.getSubType().toLowerCase();
+			Integer index = Integer.valueOf(i);
+			this.all[i] = i;
+			MediaTypeNegotiator.candidates(types, typeKey).add(index);
+			MediaTypeNegotiator.candidates(subTypes, subTypeKey).add(index);
+			Map<String, List<Integer>> temp = typesAndSubTypes.get(typeKey);
+			if (temp == null) {
+				temp = new HashMap<String, List<Integer>>();
+				typesAndSubTypes.put(typeKey, temp);
+			}
+			MediaTypeNegotiator.candidates(temp, subTypeKey).add(index);
+		}
+		this.byType = MediaTypeNegotiator.compile(types);
+		this.bySubType = MediaTypeNegotiator.compile(subTypes);
+		this.byTypeAndSubType = new HashMap<String, Map<String, int[]>>();
+		for (Map.Entry<String, Map<String, List<Integer>>> entry : typesAndSubTypes.entrySet()) {
+			this.byTypeAndSubType.put(entry.getKey(), MediaTypeNegotiator.compile(entry.getValue()));
+		}
+		this.memo = new ConcurrentHashMap<String, Integer>();
+		this.memoSize = new AtomicInteger();
+		this.maximumMemoSize = maximumMemoSize <= 0 ? AcceptMediaTypeSetCache.DEFAULT_MAXIMUM_SIZE : maximumMemoSize;
+	}
+
+	/**
+	 * Returns the offered media types in order of preference.
+	 * 
+	 * @return A copy of the offered media types.
+	 */
+	public MediaType[] getOffered() {
+		return this.offered.clone();
+	}
+
+	/**
+	 * Returns the best offered media type for the given accept header.
+	 * <p>
+	 * A missing accept header (null) accepts everything so the first offered type is returned.
+	 * </p>
+	 * 
+	 * @param acceptHeader The accept header value (can be null).
+	 * @return The best accepted offered type or the default type if none is accepted.
+	 * @throws IllegalArgumentException If the header does not comply to RFC2616.
+	 */
+	public MediaType negotiate(final String acceptHeader) {
+		if (acceptHeader == null) {
+			return this.offered[0];
+		}
+		Integer index = this.memo.get(acceptHeader);
+		if (index == null) {
+			int temp = resolve(AcceptMediaTypeSet.valueOf(acceptHeader));
+			index = temp < 0 ? MediaTypeNegotiator.NO_MATCH : Integer.valueOf(temp);
+			if (acceptHeader.length() <= AcceptMediaTypeSetCache.MAXIMUM_CACHED_HEADER_LENGTH && this.memo.putIfAbsent(acceptHeader, index) == null
+					&& this.memoSize.incrementAndGet() > this.maximumMemoSize) {
+				evict(acceptHeader);
+			}
+		}
+		int i = index.intValue();
+		return i < 0 ? this.defaultType : this.offered[i];
+	}
+
+	/**
+	 * Returns the best offered media type for the given accept media type set. The result is not
+	 * memoized.
+	 * 
+	 * @param acceptMediaTypes The accepted media types (must not be null).
+	 * @return The best accepted offered type or the default type if none is accepted.
+	 */
+	public MediaType negotiate(final AcceptMediaTypeSet acceptMediaTypes) {
+		int i = resolve(ContractCheck.mustNotBeNull(acceptMediaTypes, "acceptMediaTypes")); //$NON-NLS-1$
+		return i < 0 ? this.defaultType : this.offered[i];
+	}
+
+	private int resolve(final AcceptMediaTypeSet acceptMediaTypes) {
+		for (AcceptMediaTypeRange acceptType : acceptMediaTypes) {
+			MediaTypeRange range = acceptType.getMediaTypeRange();
+			int[] candidates = candidatesFor(range);
+			Pair<String, String>[] parameters = range.getParameters();
+			for (int i : candidates) {
+				if (parameters.length == 0 || range.isMediaTypeMatching(this.offered[i])) {
+					return i;
+				}
+			}
+		}
+		return -1;
+	}
+
+	private int[] candidatesFor(final MediaTypeRange range) {
+		int[] result;
+		if (range.isAnyType()) {
+			if (range.isAnySubType()) {
+				result = this.all;
+			} else {
+				result = this.bySubType.get(range.getSubType() == null ? null : range.getSubType().toLowerCase());
+			}
+		} else {
+			String typeKey = range.getType().toLowerCase();
+			if (range.isAnySubType()) {
+				result = this.byType.get(typeKey);
+			} else {
+				Map<String, int[]> temp = this.byTypeAndSubType.get(typeKey);
+				result = temp == null ? null : temp.get(range.getSubType() == null ? null : range.getSubType().toLowerCase());
+			}
+		}
+		return result == null ? MediaTypeNegotiator.NO_CANDIDATES : result;
+	}
+
+	private void evict(final String keep) {
+		Iterator<String> it = this.memo.keySet().iterator();
+		while (it.hasNext() && this.memoSize.get() > this.maximumMemoSize) {
+			String key = it.next();
+			if (!key.equals(keep) && this.memo.remove(key) != null) {
+				this.memoSize.decrementAndGet();
+			}
+		}
+	}
+
+	private static List<Integer> candidates(final Map<String, List<Integer>> index, final String key) {
+		List<Integer> result = index.get(key);
+		if (result == null) {
+			result = new ArrayList<Integer>();
+			index.put(key, result);
+		}
+		return result;
+	}
+
+	private static Map<String, int[]> compile(final Map<String, List<Integer>> index) {
+		Map<String, int[]> result = new HashMap<String, int[]>();
+		for (Map.Entry<String, List<Integer>> entry : index.entrySet()) {
+			int[] temp = new int[entry.getValue().size()];
+			for (int i = 0; i < temp.length; i++) {
+				temp[i] = entry.getValue().get(i).intValue();
+			}
+			result.put(entry.getKey(), temp);
+		}
+		return result;
+	}
+
+	/**
+	 * Returns a string representation of this negotiator.
+	 * 
+	 * @return The string representation.
+	 * @see java.lang.Object#toString()
+	 */
+	@Override
+	public String toString() {
+		return "MediaTypeNegotiator " + Arrays.toString(this.offered); //$NON-NLS-1$
+	}
+
+}
@@ -80,6 +80,22 @@ public class MediaTypeRange implements Serializable {
 		this.parameters = parameters == null ? RFC2616MediaTypeParser.EMPTY_KEY_VALUE_ARRAY : parameters;
 	}
 
+	/**
+	 * Creates a media type range from type, sub type and parameters which were already validated
+	 * by the {@link MediaTypeScanner}. The validation of {@link #processTypeString(String)} and
+	 * {@link #processSubtypeString(String)} is skipped.
+	 * 
+	 * @param type The type.
+	 * @param subType The sub type (can be null).
+	 * @param parameters The parameters (must not be null).
+	 * @param validated Marker to distinguish this constructor from the public one.
+	 */
+	MediaTypeRange(final String type, final String subType, final Pair<String, String>[] parameters, final boolean validated) {
+		this.type = type;
+		this.subType = subType;
+		this.parameters = parameters;
+	}
+
 	/**
 	 * Returns the main type.
 	 * 
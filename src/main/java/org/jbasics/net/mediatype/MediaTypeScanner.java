@@ -0,0 +1,312 @@
+/*
+ * Copyright (c) 2009 Stephan Schloepke and innoQ Deutschland GmbH
+ * 
+ * Stephan Schloepke: http://www.schloepke.de/
+ * innoQ Deutschland GmbH: http://www.innoq.com/
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.jbasics.net.mediatype;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import org.jbasics.types.tuples.Pair;
+
+/**
+ * Single pass scanner for media types, media type ranges and accept headers as of RFC2616.
+ * <p>
+ * The scanner accepts exactly what the patterns in {@link RFC2616MediaTypeParser} describe but
+ * walks the characters only once and allocates nothing except the resulting strings and objects.
+ * Whitespace may be a space or a horizontal tab. A scanner instance is not thread safe and only
+ * lives for a single parse call.
+ * </p>
+ * 
+ * @author Stephan Schloepke
+ * @since 1.0
+ */
+final class MediaTypeScanner {
+	private static final int MEDIA_TYPE = 0;
+	private static final int MEDIA_TYPE_RANGE = 1;
+	private static final int ACCEPT_MEDIA_TYPE = 2;
+	private static final String[] KIND_NAMES = new String[] { "Media type", "Media type range", "Accept media type" }; //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+
+	private final String input;
+	private final int kind;
+	private final boolean list;
+	private int position;
+	private int entryStart;
+	private boolean qualifyFactorFound;
+	private String qualifyFactor;
+
+	/**
+	 * Parses a media type.
+	 * 
+	 * @param mediaTypeString The media type string (must not be null).
+	 * @return The parsed media type.
+	 * @throws IllegalArgumentException If the string does not comply to RFC2616.
+	 */
+	static MediaType parseMediaType(final String mediaTypeString) {
+		MediaTypeScanner scanner = new MediaTypeScanner(mediaTypeString, MediaTypeScanner.MEDIA_TYPE, false);
+		MediaTypeRange result = scanner.scanMediaTypeRange(false);
+		scanner.expectEnd();
+		return (MediaType) result;
+	}
+
+	/**
+	 * Parses a media type range.
+	 * 
+	 * @param mediaTypeRangeString The media type range string (must not be null).
+	 * @return The parsed media type range.
+	 * @throws IllegalArgumentException If the string does not comply to RFC2616.
+	 */
+	static MediaTypeRange parseMediaTypeRange(final String mediaTypeRangeString) {
+		MediaTypeScanner scanner = new MediaTypeScanner(mediaTypeRangeString, MediaTypeScanner.MEDIA_TYPE_RANGE, false);
+		MediaTypeRange result = scanner.scanMediaTypeRange(false);
+		scanner.expectEnd();
+		return result;
+	}
+
+	/**
+	 * Parses a single accept media type entry.
+	 * 
+	 * @param acceptString The accept entry (must not be null).
+	 * @return The parsed accept media type range.
+	 * @throws IllegalArgumentException If the string does not comply to RFC2616.
+	 */
+	static AcceptMediaTypeRange parseAcceptMediaTypeRange(final String acceptString) {
+		MediaTypeScanner scanner = new MediaTypeScanner(acceptString, MediaTypeScanner.ACCEPT_MEDIA_TYPE, false);
+		AcceptMediaTypeRange result = scanner.scanAcceptMediaTypeRange();
+		scanner.expectEnd();
+		return result;
+	}
+
+	/**
+	 * Parses a comma separated accept header and adds every entry to the given collection. Empty
+	 * entries are skipped.
+	 * 
+	 * @param acceptHeader The accept header value (must not be null).
+	 * @param target The collection to add the parsed entries to.
+	 * @throws IllegalArgumentException If an entry does not comply to RFC2616.
+	 */
+	static void parseAcceptMediaTypes(final String acceptHeader, final Collection<? super AcceptMediaTypeRange> target) {
+		MediaTypeScanner scanner = new MediaTypeScanner(acceptHeader, MediaTypeScanner.ACCEPT_MEDIA_TYPE, true);
+		int length = acceptHeader.length();
+		while (scanner.position < length) {
+			scanner.skipWhitespace();
+			scanner.entryStart = scanner.position;
+			if (scanner.position < length && acceptHeader.charAt(scanner.position) != ',') {
+				target.add(scanner.scanAcceptMediaTypeRange());
+			}
+			if (scanner.position < length) {
+				if (acceptHeader.charAt(scanner.position) != ',') {
+					throw scanner.fail();
+				}
+				scanner.position++;
+			}
+		}
+	}
+
+	private MediaTypeScanner(final String input, final int kind, final boolean list) {
+		this.input = input;
+		this.kind = kind;
+		this.list = list;
+	}
+
+	private AcceptMediaTypeRange scanAcceptMediaTypeRange() {
+		this.qualifyFactorFound = false;
+		this.qualifyFactor = null;
+		MediaTypeRange range = scanMediaTypeRange(true);
+		if (!this.qualifyFactorFound) {
+			return new AcceptMediaTypeRange(range, null, RFC2616MediaTypeParser.EMPTY_KEY_VALUE_ARRAY);
+		}
+		Double factor = this.qualifyFactor == null ? null : Double.valueOf(parseQualifyFactor(this.qualifyFactor));
+		return new AcceptMediaTypeRange(range, factor, scanParameters(false));
+	}
+
+	private MediaTypeRange scanMediaTypeRange(final boolean detectQualifyFactor) {
+		boolean wildcardAllowed = this.kind != MediaTypeScanner.MEDIA_TYPE;
+		skipWhitespace();
+		String type = scanToken(wildcardAllowed);
+		String subType = null;
+		if (this.position < this.input.length() && this.input.charAt(this.position) == '/') {
+			this.position++;
+			subType = scanToken(wildcardAllowed);
+		}
+		skipWhitespace();
+		Pair<String, String>[] parameters = scanParameters(detectQualifyFactor);
+		if (this.kind == MediaTypeScanner.MEDIA_TYPE) {
+			return new MediaType(type, subType, parameters, true);
+		} else if (parameters.length == 0 && subType != null && MediaTypeRange.WILDCARD.equals(type) && MediaTypeRange.WILDCARD.equals(subType)) {
+			return MediaTypeRange.ALL_MEDIA;
+		} else {
+			return new MediaTypeRange(type, subType, parameters, true);
+		}
+	}
+
+	private String scanToken(final boolean wildcardAllowed) {
+		String in = this.input;
+		int length = in.length();
+		int start = this.position;
+		if (start >= length) {
+			throw fail();
+		}
+		char c = in.charAt(start);
+		if (c == '*' && wildcardAllowed) {
+			this.position++;
+			return MediaTypeRange.WILDCARD;
+		}
+		if (!isLetter(c)) {
+			throw fail();
+		}
+		boolean upperCase = c <= 'Z';
+		int i = start + 1;
+		while (i < length) {
+			c = in.charAt(i);
+			if (isLetter(c)) {
+				upperCase |= c <= 'Z';
+			} else if (!(c >= '0' && c <= '9' || c == '+' || c == '-')) {
+				break;
+			}
+			i++;
+		}
+		this.position = i;
+		String token = in.substring(start, i);
+		return upperCase ? token.toLowerCase() : token;
+	}
+
+	private Pair<String, String>[] scanParameters(final boolean detectQualifyFactor) {
+		String in = this.input;
+		int length = in.length();
+		List<Pair<String, String>> result = null;
+		while (this.position < length && in.charAt(this.position) == ';') {
+			this.position++;
+			skipWhitespace();
+			int keyStart = this.position;
+			while (this.position < length && !isParameterDelimiter(in.charAt(this.position), true)) {
+				this.position++;
+			}
+			int keyEnd = this.position;
+			if (keyEnd == keyStart) {
+				throw fail();
+			}
+			boolean quality = detectQualifyFactor && keyEnd == keyStart + 1 && in.charAt(keyStart) == 'q';
+			if (quality && this.position < length && in.charAt(this.position) == '=') {
+				// The quality factor has to follow the equal sign directly and may be empty
+				int valueStart = ++this.position;
+				while (this.position < length && !isParameterDelimiter(in.charAt(this.position), false)) {
+					this.position++;
+				}
+				if (isQualifyFactor(valueStart, this.position)) {
+					this.qualifyFactorFound = true;
+					this.qualifyFactor = valueStart == this.position ? null : in.substring(valueStart, this.position);
+					skipWhitespace();
+					break;
+				}
+				this.position = valueStart - 1;
+			}
+			skipWhitespace();
+			if (this.position >= length || in.charAt(this.position) != '=') {
+				throw fail();
+			}
+			this.position++;
+			skipWhitespace();
+			int valueStart = this.position;
+			while (this.position < length && !isParameterDelimiter(in.charAt(this.position), false)) {
+				this.position++;
+			}
+			if (valueStart == this.position) {
+				throw fail();
+			}
+			if (result == null) {
+				result = new ArrayList<Pair<String, String>>(2);
+			}
+			result.add(new Pair<String, String>(in.substring(keyStart, keyEnd), in.substring(valueStart, this.position)));
+			skipWhitespace();
+		}
+		return result == null ? RFC2616MediaTypeParser.EMPTY_KEY_VALUE_ARRAY : result.toArray(RFC2616MediaTypeParser.EMPTY_KEY_VALUE_ARRAY);
+	}
+
+	private boolean isQualifyFactor(final int start, final int end) {
+		int i = start;
+		if (i < end && (this.input.charAt(i) == '0' || this.input.charAt(i) == '1')) {
+			i++;
+		}
+		if (i < end && this.input.charAt(i) == '.') {
+			i++;
+			while (i < end && this.input.charAt(i) >= '0' && this.input.charAt(i) <= '9') {
+				i++;
+			}
+		}
+		return i == end;
+	}
+
+	private static double parseQualifyFactor(final String value) {
+		int length = value.length();
+		if (length > 5) {
+			return Double.parseDouble(value);
+		}
+		int i = 0;
+		int whole = 0;
+		if (value.charAt(0) != '.') {
+			whole = value.charAt(0) - '0';
+			i++;
+		}
+		int fraction = 0;
+		int divisor = 1;
+		for (i++; i < length; i++) {
+			fraction = fraction * 10 + (value.charAt(i) - '0');
+			divisor *= 10;
+		}
+		return whole + (double) fraction / divisor;
+	}
+
+	private void skipWhitespace() {
+		while (this.position < this.input.length() && isWhitespace(this.input.charAt(this.position))) {
+			this.position++;
+		}
+	}
+
+	private void expectEnd() {
+		skipWhitespace();
+		if (this.position != this.input.length()) {
+			throw fail();
+		}
+	}
+
+	private boolean isParameterDelimiter(final char c, final boolean key) {
+		return c == ';' || isWhitespace(c) || key && c == '=' || this.list && c == ',';
+	}
+
+	private IllegalArgumentException fail() {
+		int end = this.list ? this.input.indexOf(',', this.position) : -1;
+		String text = this.input.substring(this.entryStart, end < 0 ? this.input.length() : end);
+		return new IllegalArgumentException(MediaTypeScanner.KIND_NAMES[this.kind] + " " + text + " does not comply to RFC2616"); //$NON-NLS-1$ //$NON-NLS-2$
+	}
+
+	private static boolean isLetter(final char c) {
+		return c >= 'a' && c <= 'z' || c >= 'A' && c <= 'Z';
+	}
+
+	private static boolean isWhitespace(final char c) {
+		return c == ' ' || c == '\t';
+	}
+
+}
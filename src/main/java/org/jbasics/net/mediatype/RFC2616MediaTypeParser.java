@@ -26,7 +26,6 @@ package org.jbasics.net.mediatype;
 
 import java.util.ArrayList;
 import java.util.List;
-import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
 import org.jbasics.checker.ContractCheck;
@@ -38,6 +37,12 @@ import org.jbasics.types.tuples.Pair;
  * Typically this is not used directly but instead the {@code valueOf(String)} methods of the
  * corresponding type.
  * </p>
+ * <p>
+ * Parsing is done by a single pass scanner accepting the same syntax as described by the public
+ * patterns. The patterns are kept for anyone who needs to check or dissect strings directly.
+ * Repeated accept headers should be parsed with {@link AcceptMediaTypeSet#valueOf(String)} which
+ * caches the parsed result.
+ * </p>
  * 
  * @author Stephan Schloepke
  * @since 1.0
@@ -72,17 +77,7 @@ public final class RFC2616MediaTypeParser {
 	 */
 	public static MediaTypeRange parseMediaTypeRange(final String mediaTypeRange) {
 		ContractCheck.mustNotBeNullOrEmpty(mediaTypeRange, "mediaTypeRange");
-		Matcher m = MEDIA_TYPE_RANGE_PATTERN.matcher(mediaTypeRange);
-		if (m.matches()) {
-			String type = m.group(1).toLowerCase();
-			String subtype = m.group(2);
-			if (subtype != null) {
-				subtype = subtype.toLowerCase();
-			}
-			return new MediaTypeRange(type, subtype, parseParameterList(m.group(3)));
-		} else {
-			throw new IllegalArgumentException("Media type range " + mediaTypeRange + " does not comply to RFC2616");
-		}
+		return MediaTypeScanner.parseMediaTypeRange(mediaTypeRange);
 	}
 
 	/**
@@ -95,17 +90,7 @@ public final class RFC2616MediaTypeParser {
 	 */
 	public static MediaType parseMediaType(final String mediaTypeString) {
 		ContractCheck.mustNotBeNullOrEmpty(mediaTypeString, "mediaTypeString");
-		Matcher m = MEDIA_TYPE_PATTERN.matcher(mediaTypeString);
-		if (m.matches()) {
-			String type = m.group(1).toLowerCase();
-			String subtype = m.group(2);
-			if (subtype != null) {
-				subtype = subtype.toLowerCase();
-			}
-			return new MediaType(type, subtype, parseParameterList(m.group(3)));
-		} else {
-			throw new IllegalArgumentException("Media type " + mediaTypeString + " does not comply to RFC2616");
-		}
+		return MediaTypeScanner.parseMediaType(mediaTypeString);
 	}
 
 	/**
@@ -167,28 +152,19 @@ public final class RFC2616MediaTypeParser {
 	 */
 	public static AcceptMediaTypeRange parseAcceptMediaTypeEntry(final String acceptString) {
 		ContractCheck.mustNotBeNullOrEmpty(acceptString, "acceptString");
-		Matcher m = ACCEPT_TYPE_PATTERN.matcher(acceptString);
-		if (m.matches()) {
-			MediaTypeRange mediaTypeRange = parseMediaTypeRange(m.group(1));
-			String temp = m.group(2);
-			Double qualifyFactor = temp != null && temp.trim().length() > 0 ? Double.valueOf(temp) : null;
-			Pair<String, String>[] acceptParameter = parseParameterList(m.group(3));
-			return new AcceptMediaTypeRange(mediaTypeRange, qualifyFactor, acceptParameter);
-		} else {
-			throw new IllegalArgumentException("Accept media type " + acceptString + " does not comply to RFC2616");
-		}
+		return MediaTypeScanner.parseAcceptMediaTypeRange(acceptString);
 	}
-	
+
+	/**
+	 * Parse the given comma separated accept strings into a new {@link AcceptMediaTypeSet}.
+	 * 
+	 * @param acceptMediaTypeStrings The accept header values to parse.
+	 * @return The parsed and modifiable set.
+	 */
 	public static AcceptMediaTypeSet parseAcceptMediaTypes(String...acceptMediaTypeStrings) {
 		AcceptMediaTypeSet result = new AcceptMediaTypeSet();
 		for (String temp : ContractCheck.mustNotBeNullOrEmpty(acceptMediaTypeStrings, "acceptMediaTypeStrings")) {
-			String[] splits = temp.split(",");
-			for (String split : splits) {
-				String typeString = split.trim();
-				if (typeString.length() > 0) {
-					result.add(parseAcceptMediaTypeEntry(typeString));
-				}
-			}
+			MediaTypeScanner.parseAcceptMediaTypes(temp, result);
 		}
 		return result;
 	}
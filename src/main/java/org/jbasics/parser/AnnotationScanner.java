@@ -30,6 +30,7 @@ import java.util.Map;
 
 import javax.xml.namespace.QName;
 
+import org.jbasics.checker.ContractCheck;
 import org.jbasics.parser.annotations.AnyAttribute;
 import org.jbasics.parser.annotations.AnyElement;
 import org.jbasics.parser.annotations.Attribute;
@@ -39,11 +40,14 @@ import org.jbasics.parser.annotations.Element;
 import org.jbasics.parser.annotations.ElementBuilder;
 import org.jbasics.parser.annotations.ElementImplementor;
 import org.jbasics.parser.annotations.ElementImplementors;
+import org.jbasics.parser.annotations.ParallelBuild;
 import org.jbasics.parser.annotations.QualifiedName;
 import org.jbasics.parser.invoker.AttributeInvoker;
 import org.jbasics.parser.invoker.ContentInvoker;
 import org.jbasics.parser.invoker.ElementInvoker;
+import org.jbasics.parser.invoker.GeneratedMethodCallerStrategy;
 import org.jbasics.parser.invoker.Invoker;
+import org.jbasics.parser.invoker.MethodCallerStrategy;
 import org.jbasics.parser.invoker.QualifiedNameInvoker;
 import org.jbasics.pattern.builder.Builder;
 import org.jbasics.pattern.builder.ReflectionBuilderFactory;
@@ -54,6 +58,15 @@ import org.jbasics.types.tuples.Pair;
 @SuppressWarnings("unchecked")
 public class AnnotationScanner {
 //	private final Map<Class<? extends Builder>, ParsingInfo> parsedBuilders = new HashMap<Class<? extends Builder>, ParsingInfo>();
+	private final MethodCallerStrategy callerStrategy;
+
+	public AnnotationScanner() {
+		this(GeneratedMethodCallerStrategy.SHARED_INSTANCE);
+	}
+
+	public AnnotationScanner(MethodCallerStrategy callerStrategy) {
+		this.callerStrategy = ContractCheck.mustNotBeNull(callerStrategy, "callerStrategy");
+	}
 
 	public Map<QName, ParsingInfo> scan(Class<?>... root) {
 		if (root == null || root.length == 0) {
@@ -91,10 +104,10 @@ public class AnnotationScanner {
 	private <T> ParsingInfoBuilder scan(ParsingInfoBuilder builder, Class<T> implClass) {
 		ElementBuilder temp = implClass.getAnnotation(ElementBuilder.class);
 		Class<? extends Builder> builderType;
-		Factory<? extends Builder> factory;
+		Factory<? extends Builder<?>> factory;
 		if (temp != null) {
 			builderType = temp.value();
-			factory = ReflectionFactory.create(builderType);
+			factory = ReflectionFactory.create(temp.value());
 		} else {
 			ReflectionBuilderFactory<T> tempFactory = ReflectionBuilderFactory.createFactory(implClass);
 			builderType = tempFactory.getBuilderClass();
@@ -104,13 +117,13 @@ public class AnnotationScanner {
 	}
 
 	private ParsingInfoBuilder scanType(ParsingInfoBuilder builder, Class<? extends Builder> builderType,
-			Factory<? extends Builder> builderFactory) {
+			Factory<? extends Builder<?>> builderFactory) {
 		assert builderType != null;
 		builder.setBuilderType(builderType);
 		if (builderFactory != null) {
 			builder.setBuilderFactory(builderFactory);
 		} else {
-			builder.setBuilderFactory(ReflectionFactory.create(builderType));
+			builder.setBuilderFactory((Factory<? extends Builder<?>>) ReflectionFactory.create(builderType));
 		}
 		for (Method m : builderType.getMethods()) {
 			QualifiedName qualifiedName = m.getAnnotation(QualifiedName.class);
@@ -126,7 +139,7 @@ public class AnnotationScanner {
 						+ m.getName());
 			}
 			if (qualifiedName != null) {
-				builder.setQualifiedName(QualifiedNameInvoker.createInvoker(builderType, m));
+				builder.setQualifiedName(QualifiedNameInvoker.createInvoker(builderType, m, this.callerStrategy));
 			} else if (contentElement != null) {
 				processContent(builder, builderType, m, contentElement);
 			} else if (commentElement != null) {
@@ -145,12 +158,12 @@ public class AnnotationScanner {
 		if (contentElement.mixed()) {
 			throw new UnsupportedOperationException("Mixed content is not yet implemented");
 		} else {
-			builder.setContentInvoker(ContentInvoker.createInvoker(builderType, m));
+			builder.setContentInvoker(ContentInvoker.createInvoker(builderType, m, this.callerStrategy));
 		}
 	}
 
     private void processComment(ParsingInfoBuilder builder, Class<? extends Builder> builderType, Method m, Comment commentElement) {
-    	builder.setCommentInvoker(ContentInvoker.createInvoker(builderType, m));
+    	builder.setCommentInvoker(ContentInvoker.createInvoker(builderType, m, this.callerStrategy));
     }
 
 	private ParsingInfoBuilder processAttribute(ParsingInfoBuilder builder, Class<? extends Builder> builderType,
@@ -158,9 +171,9 @@ public class AnnotationScanner {
 		assert m != null && (directAttribute != null || anyAttribute != null);
 		if (directAttribute != null) {
 			QName qualifiedName = new QName(directAttribute.namespace(), directAttribute.name());
-			builder.addAttribute(qualifiedName, AttributeInvoker.createInvoker(builderType, m));
+			builder.addAttribute(qualifiedName, AttributeInvoker.createInvoker(builderType, m, this.callerStrategy));
 		} else if (anyAttribute != null) {
-			builder.setAnyAttribute(AttributeInvoker.createInvoker(builderType, m));
+			builder.setAnyAttribute(AttributeInvoker.createInvoker(builderType, m, this.callerStrategy));
 		}
 		return builder;
 	}
@@ -182,7 +195,7 @@ public class AnnotationScanner {
 		// 2. Annotate the builder class at the instance type with a BuilderAnnotation
 		// 3. Annotate the builder in the element description
 		Class<? extends Builder> subBuilderType = null;
-		Factory<? extends Builder> subBuilderFactory = null;
+		Factory<? extends Builder<?>> subBuilderFactory = null;
 		try {
 			ElementBuilder temp = m.getAnnotation(ElementBuilder.class);
 			if (temp == null) {
@@ -190,7 +203,7 @@ public class AnnotationScanner {
 			}
 			if (temp != null) {
 				subBuilderType = temp.value();
-				subBuilderFactory = ReflectionFactory.create(subBuilderType);
+				subBuilderFactory = ReflectionFactory.create(temp.value());
 			} else {
 				ReflectionBuilderFactory<?> tempFactory = ReflectionBuilderFactory.createFactory(type);
 				subBuilderType = tempFactory.getBuilderClass();
@@ -211,12 +224,18 @@ public class AnnotationScanner {
 		// one than the builder of the element we now want to add! So the parsing info could
 		// possible have the right builder set
 		Pair<ParsingInfo, Invoker<?, ?>> x = new Pair<ParsingInfo, Invoker<?, ?>>(subInfo, ElementInvoker
-				.createInvoker(builder.getBuilderType(), type, m));
+				.createInvoker(builder.getBuilderType(), type, m, this.callerStrategy));
+		boolean parallel = m.isAnnotationPresent(ParallelBuild.class) || type.isAnnotationPresent(ParallelBuild.class)
+				|| subBuilderType.isAnnotationPresent(ParallelBuild.class);
 		if (directElement != null) {
 			QName qualifiedName = new QName(directElement.namespace(), directElement.name());
 			builder.addElement(qualifiedName, x);
+			if (parallel) {
+				builder.addParallelElement(qualifiedName);
+			}
 		} else if (anyElement != null) {
 			builder.setAnyElement(x);
+			builder.setAnyElementParallel(parallel);
 		}
 		return builder;
 	}
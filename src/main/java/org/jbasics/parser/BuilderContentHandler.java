@@ -27,7 +27,14 @@ package org.jbasics.parser;
 import java.net.URI;
 import java.util.Collections;
 import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import javax.xml.namespace.QName;
 
@@ -43,7 +50,11 @@ import org.jbasics.types.tuples.Pair;
 
 @SuppressWarnings("unchecked")
 public class BuilderContentHandler<T> extends DefaultHandler2 {
+	private static final int MAX_PENDING_PARALLEL_BUILDS = 4 * Runtime.getRuntime().availableProcessors();
+
 	private final BuilderParserContext<T> context;
+	private final ParsingInfo subtreeInfo;
+	private Executor parallelExecutor;
 	private final AtomicBoolean parsing;
 	private StateStack<BuildHandler> states;
 	private T result;
@@ -56,11 +67,36 @@ public class BuilderContentHandler<T> extends DefaultHandler2 {
 	private ContentHandler activeCustomParserContentHandler;
 	private int customParserDepth;
 
+	private SAXEventBuffer capture;
+	private ParsingInfo captureInfo;
+	private QName captureName;
+	private int captureDepth;
+
 	public BuilderContentHandler(final BuilderParserContext<T> context) {
+		this(context, null);
+	}
+
+	/**
+	 * Creates a handler building a single subtree with the given parsing info. Elements marked
+	 * for parallel building are built sequentially by such a handler.
+	 */
+	BuilderContentHandler(final BuilderParserContext<T> context, final ParsingInfo subtreeInfo) {
 		this.context = context;
+		this.subtreeInfo = subtreeInfo;
 		this.parsing = new AtomicBoolean(false);
 	}
 
+	/**
+	 * Sets the executor building the elements marked with
+	 * {@link org.jbasics.parser.annotations.ParallelBuild}. If not set a shared pool with one daemon
+	 * thread per processor is used.
+	 * 
+	 * @param parallelExecutor The executor (null for the shared pool).
+	 */
+	public void setParallelExecutor(final Executor parallelExecutor) {
+		this.parallelExecutor = parallelExecutor;
+	}
+
 	public T getParsingResult() {
 		return this.result;
 	}
@@ -84,6 +120,8 @@ public class BuilderContentHandler<T> extends DefaultHandler2 {
 		if (!this.parsing.compareAndSet(true, false)) {
 			throw new IllegalStateException("End of document event occured while not parsing");
 		}
+		// only an incomplete document leaves children being built
+		cancelParallelBuilds();
 		this.prefixes = null;
 		this.characterBuffer = null;
 		this.states = null;
@@ -95,6 +133,11 @@ public class BuilderContentHandler<T> extends DefaultHandler2 {
 			throw new IllegalStateException("Start of Element event occured while not parsing"); //$NON-NLS-1$
 		}
 		try {
+			if (this.capture != null) {
+				this.capture.startElement(uri, localName, qName, attributes);
+				this.captureDepth++;
+				return;
+			}
 			if (this.activeCustomParserContentHandler != null) {
 				this.activeCustomParserContentHandler.startElement(uri, localName, qName, attributes);
 				this.customParserDepth++;
@@ -104,7 +147,7 @@ public class BuilderContentHandler<T> extends DefaultHandler2 {
 			ParsingInfo parseInfo = null;
 			if (this.states.isEmpty()) {
 				// Root processing
-				parseInfo = this.context.getParsingInfo(name);
+				parseInfo = this.subtreeInfo != null ? this.subtreeInfo : this.context.getParsingInfo(name);
 				if (parseInfo == null) {
 					throw new SAXException("Unknown root element " + name);
 				}
@@ -140,6 +183,19 @@ public class BuilderContentHandler<T> extends DefaultHandler2 {
 				if (parseInfo != null) {
 					Pair<ParsingInfo, Invoker<?, ?>> x = parseInfo.getElementInvoker(name);
 					if (x != null) {
+						if (current instanceof ParallelBuildHandler && parseInfo.isParallelElement(name)) {
+							// Record the subtree and build it on the worker pool once it is complete. The prefixes in
+							// scope are recorded first so custom parsers within the subtree see them as well.
+							this.capture = new SAXEventBuffer();
+							this.captureInfo = x.first();
+							this.captureName = name;
+							this.captureDepth = 0;
+							for (Pair<String, URI> prefix : this.prefixes) {
+								this.capture.startPrefixMapping(prefix.left(), prefix.right().toString());
+							}
+							this.capture.startElement(uri, localName, qName, attributes);
+							return;
+						}
 						parseInfo = x.first();
 					} else {
 						parseInfo = null;
@@ -158,13 +214,20 @@ public class BuilderContentHandler<T> extends DefaultHandler2 {
 			// everything instead of the following
 
 			BuildHandler handler = new BuildHandlerImpl(name, parseInfo);
+			if (this.subtreeInfo == null && parseInfo.hasParallelElements()) {
+				handler = new ParallelBuildHandler(handler, BuilderContentHandler.MAX_PENDING_PARALLEL_BUILDS);
+			}
 			for (int i = 0; i < attributes.getLength(); i++) {
 				QName attrName = createQualifiedName(attributes.getURI(i), attributes.getLocalName(i), attributes.getQName(i));
 				String attrValue = attributes.getValue(i);
 				handler.setAttribute(attrName, attrValue);
 			}
 			this.states.push(handler);
+		} catch (SAXException e) {
+			cancelParallelBuilds();
+			throw e;
 		} catch (RuntimeException eo) {
+			cancelParallelBuilds();
 			throw createParsingException(eo);
 		}
 	}
@@ -173,7 +236,22 @@ public class BuilderContentHandler<T> extends DefaultHandler2 {
 	public void endElement(final String uri, final String localName, final String qName) throws SAXException {
 		if (this.parsing.get()) {
 			try {
-				if (this.activeCustomParserContentHandler != null) {
+				if (this.capture != null) {
+					this.capture.endElement(uri, localName, qName);
+					if (this.captureDepth <= 0) {
+						for (Pair<String, URI> prefix : this.prefixes) {
+							this.capture.endPrefixMapping(prefix.left());
+						}
+						FutureTask<Object> task = new FutureTask<Object>(new SubtreeBuild(this.context, this.captureInfo, this.capture));
+						((ParallelBuildHandler) this.states.peek()).addPending(this.captureName, task);
+						this.capture = null;
+						this.captureInfo = null;
+						this.captureName = null;
+						getParallelExecutor().execute(task);
+					} else {
+						this.captureDepth--;
+					}
+				} else if (this.activeCustomParserContentHandler != null) {
 					this.activeCustomParserContentHandler.endElement(uri, localName, qName);
 					if (this.customParserDepth <= 0) {
 						this.activeCustomParserContentHandler.endDocument();
@@ -201,7 +279,11 @@ public class BuilderContentHandler<T> extends DefaultHandler2 {
 						parent.addElement(name, current.getResult());
 					}
 				}
+			} catch (SAXException e) {
+				cancelParallelBuilds();
+				throw e;
 			} catch (RuntimeException e) {
+				cancelParallelBuilds();
 				throw createParsingException(e);
 			}
 		} else {
@@ -211,7 +293,9 @@ public class BuilderContentHandler<T> extends DefaultHandler2 {
 
 	@Override
 	public void startPrefixMapping(final String prefix, final String uri) throws SAXException {
-		if (this.activeCustomParserContentHandler != null) {
+		if (this.capture != null) {
+			this.capture.startPrefixMapping(prefix, uri);
+		} else if (this.activeCustomParserContentHandler != null) {
 			this.activeCustomParserContentHandler.startPrefixMapping(prefix, uri);
 		} else {
 			this.prefixes.pushMapping(prefix, URI.create(uri));
@@ -220,7 +304,9 @@ public class BuilderContentHandler<T> extends DefaultHandler2 {
 
 	@Override
 	public void endPrefixMapping(final String prefix) throws SAXException {
-		if (this.activeCustomParserContentHandler != null) {
+		if (this.capture != null) {
+			this.capture.endPrefixMapping(prefix);
+		} else if (this.activeCustomParserContentHandler != null) {
 			this.activeCustomParserContentHandler.endPrefixMapping(prefix);
 		} else {
 			this.prefixes.popMapping(prefix);
@@ -229,7 +315,9 @@ public class BuilderContentHandler<T> extends DefaultHandler2 {
 
 	@Override
 	public void characters(final char[] ch, final int start, final int length) throws SAXException {
-		if (this.activeCustomParserContentHandler != null) {
+		if (this.capture != null) {
+			this.capture.characters(ch, start, length);
+		} else if (this.activeCustomParserContentHandler != null) {
 			this.activeCustomParserContentHandler.characters(ch, start, length);
 		} else {
 			if (this.commentBuffer.length() > 0) {
@@ -243,13 +331,21 @@ public class BuilderContentHandler<T> extends DefaultHandler2 {
 
 	@Override
 	public void ignorableWhitespace(final char[] ch, final int start, final int length) throws SAXException {
-		if (this.activeCustomParserContentHandler != null) {
+		if (this.capture != null) {
+			this.capture.ignorableWhitespace(ch, start, length);
+		} else if (this.activeCustomParserContentHandler != null) {
 			this.activeCustomParserContentHandler.ignorableWhitespace(ch, start, length);
 		} else {
 			System.out.println("Found ignorable whitespace");
 		}
 	}
 
+	@Override
+	public void fatalError(final SAXParseException e) throws SAXException {
+		cancelParallelBuilds();
+		throw e;
+	}
+
 	@Override
 	public void setDocumentLocator(final Locator locator) {
 		super.setDocumentLocator(locator);
@@ -300,6 +396,10 @@ public class BuilderContentHandler<T> extends DefaultHandler2 {
 	public void comment(final char[] ch, final int start, final int length) throws SAXException {
 		// Ok we need to hand over the comment since in some cases we actually want to receive comments (JavaScript in
 		// HTML for example)
+		if (this.capture != null) {
+			this.capture.comment(ch, start, length);
+			return;
+		}
 		if (this.characterBuffer.length() > 0) {
 			BuildHandler current = this.states.peek();
 			current.addText(this.characterBuffer.toString());
@@ -307,4 +407,63 @@ public class BuilderContentHandler<T> extends DefaultHandler2 {
 		}
 		this.commentBuffer.append(ch, start, length);
 	}
+
+	/**
+	 * Stops the elements still being built on the worker pool since nobody is going to wait for them.
+	 */
+	private void cancelParallelBuilds() {
+		this.capture = null;
+		this.captureInfo = null;
+		this.captureName = null;
+		if (this.states != null) {
+			for (int i = 1; i <= this.states.size(); i++) {
+				BuildHandler handler = this.states.peek(i);
+				if (handler instanceof ParallelBuildHandler) {
+					((ParallelBuildHandler) handler).cancel();
+				}
+			}
+		}
+	}
+
+	private Executor getParallelExecutor() {
+		return this.parallelExecutor != null ? this.parallelExecutor : ParallelBuildPool.EXECUTOR;
+	}
+
+	/**
+	 * Builds a recorded subtree with its own content handler.
+	 */
+	private static final class SubtreeBuild implements Callable<Object> {
+		private final BuilderParserContext<?> context;
+		private final ParsingInfo info;
+		private final SAXEventBuffer events;
+
+		SubtreeBuild(final BuilderParserContext<?> context, final ParsingInfo info, final SAXEventBuffer events) {
+			this.context = context;
+			this.info = info;
+			this.events = events;
+		}
+
+		public Object call() throws SAXException {
+			BuilderContentHandler<Object> handler = new BuilderContentHandler<Object>((BuilderParserContext<Object>) this.context, this.info);
+			handler.startDocument();
+			this.events.replay(handler);
+			handler.endDocument();
+			return handler.getParsingResult();
+		}
+	}
+
+	/**
+	 * Shared pool used if no executor is set.
+	 */
+	private static final class ParallelBuildPool {
+		static final ExecutorService EXECUTOR = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors(), new ThreadFactory() {
+			private final AtomicInteger counter = new AtomicInteger();
+
+			public Thread newThread(final Runnable r) {
+				Thread result = new Thread(r, "BuilderContentHandler-Parallel-" + this.counter.incrementAndGet()); //$NON-NLS-1$
+				result.setDaemon(true);
+				return result;
+			}
+		});
+	}
 }
@@ -61,6 +61,10 @@ public class BuilderParserContext<T> {
 		return new BuilderContentHandler<T>(this);
 	}
 
+	public BuilderStreamParser<T> createStreamParser() {
+		return new BuilderStreamParser<T>(this);
+	}
+
 	public ParsingInfo getParsingInfo(QName name) {
 		return this.parsingInformation.get(name);
 	}
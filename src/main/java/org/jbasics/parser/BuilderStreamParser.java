@@ -0,0 +1,404 @@
+/*
+ * Copyright (c) 2009 Stephan Schloepke and innoQ Deutschland GmbH
+ * 
+ * Stephan Schloepke: http://www.schloepke.de/
+ * innoQ Deutschland GmbH: http://www.innoq.com/
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.jbasics.parser;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+import javax.xml.namespace.QName;
+import javax.xml.stream.Location;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+import org.jbasics.checker.ContractCheck;
+import org.jbasics.exception.DelegatedException;
+import org.jbasics.parser.invoker.Invoker;
+import org.jbasics.pattern.builder.Builder;
+import org.jbasics.types.tuples.Pair;
+
+/**
+ * Pull parser driving the builders of a {@link BuilderParserContext} from an {@link XMLStreamReader}.
+ * <p>
+ * The parser uses the same {@link ParsingInfo} as the {@link BuilderContentHandler} but keeps the
+ * open builders in plain arrays instead of creating a {@link BuildHandler} per element. Element
+ * and attribute names are looked up against the names known to the {@link ParsingInfo} so no
+ * {@link QName} is created for them unless a builder wants the qualified name or only an any
+ * element / any attribute invoker matches. Character data and comments are only collected if the
+ * current builder has a content respectively comment invoker.
+ * </p>
+ * <p>
+ * Unknown elements are an error by default just like with the {@link BuilderContentHandler}. With
+ * {@link #setSkipUnknownElements(boolean)} they are skipped together with their whole subtree.
+ * Custom parsers ({@link CustomParserRegistry}) are not supported.
+ * </p>
+ * <p>
+ * Besides parsing a whole document with {@link #parse(XMLStreamReader)} the children of the root
+ * element can be consumed one by one with {@link #iterateChildren(XMLStreamReader, Class)}. In
+ * that case the children are not added to the root builder so only one child is held in memory
+ * at a time.
+ * </p>
+ * <p>
+ * A parser instance is not thread safe but can be reused to parse one document after the other.
+ * </p>
+ * 
+ * @author Stephan Schloepke
+ * @since 1.0
+ */
+@SuppressWarnings("unchecked")
+public class BuilderStreamParser<T> {
+	private static final int INITIAL_DEPTH = 16;
+
+	private final BuilderParserContext<T> context;
+	private final StringBuilder characterBuffer;
+	private final StringBuilder commentBuffer;
+	private boolean skipUnknownElements;
+	private ParsingInfo[] infos;
+	private Builder<?>[] builders;
+	private QName[] names;
+	private Invoker<Builder<?>, Object>[] elementInvokers;
+	private int depth;
+
+	public BuilderStreamParser(final BuilderParserContext<T> context) {
+		this.context = ContractCheck.mustNotBeNull(context, "context"); //$NON-NLS-1$
+		this.characterBuffer = new StringBuilder();
+		this.commentBuffer = new StringBuilder();
+		this.infos = new ParsingInfo[BuilderStreamParser.INITIAL_DEPTH];
+		this.builders = new Builder<?>[BuilderStreamParser.INITIAL_DEPTH];
+		this.names = new QName[BuilderStreamParser.INITIAL_DEPTH];
+		this.elementInvokers = (Invoker<Builder<?>, Object>[]) new Invoker<?, ?>[BuilderStreamParser.INITIAL_DEPTH];
+	}
+
+	/**
+	 * Sets if unknown elements and their subtree are skipped instead of raising an error.
+	 * 
+	 * @param skipUnknownElements True to skip unknown elements.
+	 * @return This parser for chaining.
+	 */
+	public BuilderStreamParser<T> setSkipUnknownElements(final boolean skipUnknownElements) {
+		this.skipUnknownElements = skipUnknownElements;
+		return this;
+	}
+
+	/**
+	 * Parses the next root element of the reader and returns its result. The reader has to be
+	 * positioned before or on the root element and is left on its end element.
+	 * 
+	 * @param reader The reader to parse from (must not be null).
+	 * @return The result of the root builder.
+	 * @throws XMLStreamException If reading fails or an element cannot be handled.
+	 */
+	public T parse(final XMLStreamReader reader) throws XMLStreamException {
+		startRoot(ContractCheck.mustNotBeNull(reader, "reader")); //$NON-NLS-1$
+		return (T) advance(reader, false);
+	}
+
+	/**
+	 * Returns an iterator over the built children of the root element. Each child is built when the
+	 * iterator reaches it and is not added to the root builder. The root builder itself is never
+	 * built. The reader has to be positioned before or on the root element.
+	 * <p>
+	 * Reading errors are thrown as {@link DelegatedException} by the iterator.
+	 * </p>
+	 * 
+	 * @param <E> The type of the children.
+	 * @param reader The reader to parse from (must not be null).
+	 * @param childType The type of the children (must not be null).
+	 * @return The iterator of the children.
+	 * @throws XMLStreamException If the root element cannot be read.
+	 */
+	public <E> Iterator<E> iterateChildren(final XMLStreamReader reader, final Class<E> childType) throws XMLStreamException {
+		ContractCheck.mustNotBeNull(childType, "childType"); //$NON-NLS-1$
+		startRoot(ContractCheck.mustNotBeNull(reader, "reader")); //$NON-NLS-1$
+		return new ChildIterator<E>(reader, childType);
+	}
+
+	private void startRoot(final XMLStreamReader reader) throws XMLStreamException {
+		this.depth = 0;
+		this.characterBuffer.setLength(0);
+		this.commentBuffer.setLength(0);
+		int event = reader.getEventType();
+		while (event != XMLStreamConstants.START_ELEMENT) {
+			if (event == XMLStreamConstants.END_DOCUMENT || !reader.hasNext()) {
+				throw new XMLStreamException("No root element found", reader.getLocation()); //$NON-NLS-1$
+			}
+			event = reader.next();
+		}
+		QName name = createQualifiedName(reader, namespace(reader));
+		ParsingInfo info = this.context.getParsingInfo(name);
+		if (info == null) {
+			throw new XMLStreamException("Unknown root element " + name, reader.getLocation()); //$NON-NLS-1$
+		}
+		try {
+			push(reader, info, name, null);
+		} catch (RuntimeException e) {
+			throw createParsingException(reader.getLocation(), e);
+		}
+	}
+
+	/**
+	 * Reads events until the root element ends or, if children are yielded, a child of the root
+	 * ends.
+	 */
+	private Object advance(final XMLStreamReader reader, final boolean yieldChildren) throws XMLStreamException {
+		try {
+			while (reader.hasNext()) {
+				switch (reader.next()) {
+					case XMLStreamConstants.START_ELEMENT:
+						startElement(reader);
+						break;
+					case XMLStreamConstants.END_ELEMENT:
+						flushText();
+						if (yieldChildren && this.depth == 1) {
+							// the root builder only collected the children which were handed out already
+							pop();
+							this.names[0] = null;
+							return null;
+						}
+						Object result = pop().build();
+						Invoker<Builder<?>, Object> invoker = this.elementInvokers[this.depth];
+						QName name = this.names[this.depth];
+						this.elementInvokers[this.depth] = null;
+						this.names[this.depth] = null;
+						if (this.depth == 0 || yieldChildren && this.depth == 1) {
+							return result;
+						}
+						invoker.invoke(this.builders[this.depth - 1], name, result);
+						break;
+					case XMLStreamConstants.CHARACTERS:
+					case XMLStreamConstants.CDATA:
+					case XMLStreamConstants.SPACE:
+						if (this.infos[this.depth - 1].getContentInvoker() != null) {
+							if (this.commentBuffer.length() > 0) {
+								flushComment();
+							}
+							this.characterBuffer.append(reader.getTextCharacters(), reader.getTextStart(), reader.getTextLength());
+						}
+						break;
+					case XMLStreamConstants.COMMENT:
+						if (this.infos[this.depth - 1].getCommentInvoker() != null) {
+							if (this.characterBuffer.length() > 0) {
+								flushCharacters();
+							}
+							this.commentBuffer.append(reader.getTextCharacters(), reader.getTextStart(), reader.getTextLength());
+						}
+						break;
+					default:
+						break;
+				}
+			}
+		} catch (RuntimeException e) {
+			throw createParsingException(reader.getLocation(), e);
+		}
+		throw new XMLStreamException("Unexpected end of document", reader.getLocation()); //$NON-NLS-1$
+	}
+
+	private void startElement(final XMLStreamReader reader) throws XMLStreamException {
+		flushText();
+		ParsingInfo parent = this.infos[this.depth - 1];
+		String namespace = namespace(reader);
+		QName name = parent.internElementName(namespace, reader.getLocalName());
+		Pair<ParsingInfo, Invoker<?, ?>> element = name == null ? null : parent.getDeclaredElementInvoker(name);
+		if (element == null) {
+			element = parent.getAnyElementInvoker();
+			if (element == null) {
+				if (this.skipUnknownElements) {
+					skipElement(reader);
+					return;
+				}
+				throw new XMLStreamException("Unrecognized element " + createQualifiedName(reader, namespace), reader.getLocation()); //$NON-NLS-1$
+			}
+			name = createQualifiedName(reader, namespace);
+		}
+		ParsingInfo info = element.first() == ParsingInfo.SELF ? parent : element.first();
+		if (info.getQualifiedNameInvoker() != null && reader.getPrefix() != null && reader.getPrefix().length() > 0) {
+			name = createQualifiedName(reader, namespace);
+		}
+		push(reader, info, name, (Invoker<Builder<?>, Object>) element.second());
+	}
+
+	private void push(final XMLStreamReader reader, final ParsingInfo info, final QName name, final Invoker<Builder<?>, Object> elementInvoker) {
+		if (this.depth == this.infos.length) {
+			grow();
+		}
+		Builder<?> builder = info.getBuilderFactory().newInstance();
+		Invoker<Builder<?>, QName> qualifiedNameInvoker = (Invoker<Builder<?>, QName>) info.getQualifiedNameInvoker();
+		if (qualifiedNameInvoker != null) {
+			qualifiedNameInvoker.invoke(builder, name, name);
+		}
+		for (int i = 0, count = reader.getAttributeCount(); i < count; i++) {
+			String namespace = reader.getAttributeNamespace(i);
+			namespace = namespace == null ? "" : stripTrailingSlash(namespace); //$NON-NLS-1$
+			QName attributeName = info.internAttributeName(namespace, reader.getAttributeLocalName(i));
+			if (attributeName == null) {
+				String prefix = reader.getAttributePrefix(i);
+				attributeName = prefix == null || prefix.length() == 0 ? new QName(namespace, reader.getAttributeLocalName(i)) : new QName(namespace, reader
+						.getAttributeLocalName(i), prefix);
+			}
+			Invoker<Builder<?>, String> invoker = (Invoker<Builder<?>, String>) info.getAttributeInvoker(attributeName);
+			if (invoker == null) {
+				throw new RuntimeException("Unknown attribute " + attributeName + " for builder " + builder.getClass()); //$NON-NLS-1$ //$NON-NLS-2$
+			}
+			invoker.invoke(builder, attributeName, reader.getAttributeValue(i));
+		}
+		this.infos[this.depth] = info;
+		this.builders[this.depth] = builder;
+		this.names[this.depth] = name;
+		this.elementInvokers[this.depth] = elementInvoker;
+		this.depth++;
+	}
+
+	private Builder<?> pop() {
+		this.depth--;
+		Builder<?> result = this.builders[this.depth];
+		this.builders[this.depth] = null;
+		this.infos[this.depth] = null;
+		return result;
+	}
+
+	private void grow() {
+		int length = this.infos.length * 2;
+		ParsingInfo[] tempInfos = new ParsingInfo[length];
+		System.arraycopy(this.infos, 0, tempInfos, 0, this.depth);
+		this.infos = tempInfos;
+		Builder<?>[] tempBuilders = new Builder<?>[length];
+		System.arraycopy(this.builders, 0, tempBuilders, 0, this.depth);
+		this.builders = tempBuilders;
+		QName[] tempNames = new QName[length];
+		System.arraycopy(this.names, 0, tempNames, 0, this.depth);
+		this.names = tempNames;
+		Invoker<Builder<?>, Object>[] tempInvokers = (Invoker<Builder<?>, Object>[]) new Invoker<?, ?>[length];
+		System.arraycopy(this.elementInvokers, 0, tempInvokers, 0, this.depth);
+		this.elementInvokers = tempInvokers;
+	}
+
+	private void skipElement(final XMLStreamReader reader) throws XMLStreamException {
+		int level = 1;
+		while (level > 0) {
+			int event = reader.next();
+			if (event == XMLStreamConstants.START_ELEMENT) {
+				level++;
+			} else if (event == XMLStreamConstants.END_ELEMENT) {
+				level--;
+			}
+		}
+	}
+
+	private void flushText() {
+		if (this.characterBuffer.length() > 0) {
+			flushCharacters();
+		}
+		if (this.commentBuffer.length() > 0) {
+			flushComment();
+		}
+	}
+
+	private void flushCharacters() {
+		Invoker<Builder<?>, String> invoker = (Invoker<Builder<?>, String>) this.infos[this.depth - 1].getContentInvoker();
+		invoker.invoke(this.builders[this.depth - 1], null, this.characterBuffer.toString());
+		this.characterBuffer.setLength(0);
+	}
+
+	private void flushComment() {
+		Invoker<Builder<?>, String> invoker = (Invoker<Builder<?>, String>) this.infos[this.depth - 1].getCommentInvoker();
+		invoker.invoke(this.builders[this.depth - 1], null, this.commentBuffer.toString());
+		this.commentBuffer.setLength(0);
+	}
+
+	private String namespace(final XMLStreamReader reader) {
+		String namespace = reader.getNamespaceURI();
+		return namespace == null ? "" : stripTrailingSlash(namespace); //$NON-NLS-1$
+	}
+
+	private String stripTrailingSlash(final String namespace) {
+		// Same as the BuilderContentHandler a trailing slash of a namespace is removed
+		return namespace.endsWith("/") ? namespace.substring(0, namespace.length() - 1) : namespace; //$NON-NLS-1$
+	}
+
+	private QName createQualifiedName(final XMLStreamReader reader, final String namespace) {
+		String prefix = reader.getPrefix();
+		if (prefix != null && prefix.length() > 0) {
+			return new QName(namespace, reader.getLocalName(), prefix);
+		} else {
+			return new QName(namespace, reader.getLocalName());
+		}
+	}
+
+	private XMLStreamException createParsingException(final Location location, final RuntimeException eo) {
+		Throwable e = eo;
+		while (e.getCause() != null && e.getCause() != e) {
+			e = e.getCause();
+		}
+		StringBuilder message = new StringBuilder();
+		message.append("[").append(e.getClass().getSimpleName()).append("] ").append(e.getMessage()); //$NON-NLS-1$ //$NON-NLS-2$
+		return new XMLStreamException(message.toString(), location, e);
+	}
+
+	private final class ChildIterator<E> implements Iterator<E> {
+		private final XMLStreamReader reader;
+		private final Class<E> childType;
+		private E next;
+		private boolean ready;
+		private boolean finished;
+
+		ChildIterator(final XMLStreamReader reader, final Class<E> childType) {
+			this.reader = reader;
+			this.childType = childType;
+		}
+
+		public boolean hasNext() {
+			if (!this.ready && !this.finished) {
+				try {
+					Object temp = advance(this.reader, true);
+					if (BuilderStreamParser.this.depth == 0) {
+						this.finished = true;
+					} else {
+						this.next = this.childType.cast(temp);
+						this.ready = true;
+					}
+				} catch (XMLStreamException e) {
+					this.finished = true;
+					throw DelegatedException.delegate(e);
+				}
+			}
+			return this.ready;
+		}
+
+		public E next() {
+			if (!hasNext()) {
+				throw new NoSuchElementException();
+			}
+			E result = this.next;
+			this.next = null;
+			this.ready = false;
+			return result;
+		}
+
+		public void remove() {
+			throw new UnsupportedOperationException();
+		}
+	}
+
+}
@@ -41,7 +41,7 @@ public class NamespacePrefixStack implements Iterable<Pair<String, URI>> {
 	}
 
 	public Iterator<Pair<String, URI>> iterator() {
-		return null;
+		return new Itr(this.prefixMappings);
 	}
 
 	void pushMapping(String prefix, URI namespace) {
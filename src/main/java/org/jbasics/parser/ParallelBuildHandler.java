@@ -0,0 +1,190 @@
+/*
+ * Copyright (c) 2009 Stephan Schloepke and innoQ Deutschland GmbH
+ * 
+ * Stephan Schloepke: http://www.schloepke.de/
+ * innoQ Deutschland GmbH: http://www.innoq.com/
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.jbasics.parser;
+
+import java.util.LinkedList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+
+import javax.xml.namespace.QName;
+
+import org.jbasics.checker.ContractCheck;
+import org.jbasics.exception.DelegatedException;
+
+/**
+ * {@link BuildHandler} decorator for elements with children built in parallel.
+ * <p>
+ * As soon as a child is pending every following call adding an element, text or comment is
+ * queued behind it so the delegate receives everything in document order. Completed children at
+ * the head of the queue are handed over whenever something is added. If too many children are
+ * pending the SAX thread waits for the oldest one. If parsing fails {@link #cancel()} stops the
+ * children still being built.
+ * </p>
+ * 
+ * @author Stephan Schloepke
+ * @since 1.0
+ */
+final class ParallelBuildHandler implements BuildHandler {
+	private static final int ELEMENT = 0;
+	private static final int TEXT = 1;
+	private static final int COMMENT = 2;
+
+	private final BuildHandler delegate;
+	private final int maxPending;
+	private final LinkedList<Entry> queue;
+	private int pending;
+
+	ParallelBuildHandler(final BuildHandler delegate, final int maxPending) {
+		this.delegate = ContractCheck.mustNotBeNull(delegate, "delegate"); //$NON-NLS-1$
+		this.maxPending = maxPending;
+		this.queue = new LinkedList<Entry>();
+	}
+
+	public ParsingInfo getParsingInfo() {
+		return this.delegate.getParsingInfo();
+	}
+
+	public void setAttribute(final QName name, final String value) {
+		this.delegate.setAttribute(name, value);
+	}
+
+	/**
+	 * Adds a child which is built by the given future.
+	 * 
+	 * @param name The name of the child element.
+	 * @param result The future building the child.
+	 */
+	void addPending(final QName name, final Future<Object> result) {
+		this.queue.add(new Entry(ParallelBuildHandler.ELEMENT, name, null, result));
+		this.pending++;
+		drain(false);
+		while (this.pending > this.maxPending) {
+			handOver(this.queue.removeFirst());
+		}
+	}
+
+	public void addElement(final QName name, final Object element) {
+		if (this.queue.isEmpty()) {
+			this.delegate.addElement(name, element);
+		} else {
+			this.queue.add(new Entry(ParallelBuildHandler.ELEMENT, name, element, null));
+			drain(false);
+		}
+	}
+
+	public void addText(final String text) {
+		if (this.queue.isEmpty()) {
+			this.delegate.addText(text);
+		} else {
+			this.queue.add(new Entry(ParallelBuildHandler.TEXT, null, text, null));
+		}
+	}
+
+	public void addComment(final String comment) {
+		if (this.queue.isEmpty()) {
+			this.delegate.addComment(comment);
+		} else {
+			this.queue.add(new Entry(ParallelBuildHandler.COMMENT, null, comment, null));
+		}
+	}
+
+	/**
+	 * Cancels all children still being built and drops everything queued.
+	 */
+	void cancel() {
+		for (Entry entry : this.queue) {
+			if (entry.future != null) {
+				entry.future.cancel(true);
+			}
+		}
+		this.queue.clear();
+		this.pending = 0;
+	}
+
+	public Object getResult() {
+		drain(true);
+		return this.delegate.getResult();
+	}
+
+	private void drain(final boolean wait) {
+		while (!this.queue.isEmpty() && (wait || this.queue.getFirst().isDone())) {
+			handOver(this.queue.removeFirst());
+		}
+	}
+
+	private void handOver(final Entry entry) {
+		switch (entry.kind) {
+			case ELEMENT:
+				if (entry.future != null) {
+					this.pending--;
+					this.delegate.addElement(entry.name, entry.get());
+				} else {
+					this.delegate.addElement(entry.name, entry.value);
+				}
+				break;
+			case TEXT:
+				this.delegate.addText((String) entry.value);
+				break;
+			default:
+				this.delegate.addComment((String) entry.value);
+				break;
+		}
+	}
+
+	private static final class Entry {
+		final int kind;
+		final QName name;
+		final Object value;
+		final Future<Object> future;
+
+		Entry(final int kind, final QName name, final Object value, final Future<Object> future) {
+			this.kind = kind;
+			this.name = name;
+			this.value = value;
+			this.future = future;
+		}
+
+		boolean isDone() {
+			return this.future == null || this.future.isDone();
+		}
+
+		Object get() {
+			try {
+				return this.future.get();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new IllegalStateException("Interrupted while waiting for " + this.name, e); //$NON-NLS-1$
+			} catch (ExecutionException e) {
+				if (e.getCause() instanceof RuntimeException) {
+					throw (RuntimeException) e.getCause();
+				} else if (e.getCause() instanceof Error) {
+					throw (Error) e.getCause();
+				}
+				throw DelegatedException.delegate(e.getCause());
+			}
+		}
+	}
+
+}
@@ -24,7 +24,11 @@
  */
 package org.jbasics.parser;
 
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.Map;
+import java.util.Set;
 
 import javax.xml.namespace.QName;
 
@@ -38,7 +42,7 @@ import org.jbasics.types.tuples.Pair;
 public class ParsingInfo {
 	public static final ParsingInfo SELF = new ParsingInfo();
 
-	private final Factory<? extends Builder> builderFactory;
+	private final Factory<? extends Builder<?>> builderFactory;
 	private final Invoker<?, QName> qualifiedNameInvoker;
 	private final Map<QName, Invoker<?, String>> attributeInvokers;
 	private final Invoker<?, String> defaultAttributeInvoker;
@@ -46,6 +50,10 @@ public class ParsingInfo {
 	private final Pair<ParsingInfo, Invoker<?, ?>> defaultElementInvoker;
 	private final Invoker<?, String> contentInvoker;
 	private final Invoker<?, String> commentInvoker;
+	private final Set<QName> parallelElements;
+	private final boolean anyElementParallel;
+	private volatile Map<String, Map<String, QName>> elementNameTable;
+	private volatile Map<String, Map<String, QName>> attributeNameTable;
 
 	private ParsingInfo() {
 		// To create self;
@@ -57,12 +65,22 @@ public class ParsingInfo {
 		this.defaultElementInvoker = null;
 		this.contentInvoker = null;
 		this.commentInvoker = null;
+		this.parallelElements = null;
+		this.anyElementParallel = false;
 	}
 
-	protected ParsingInfo(Factory<? extends Builder> builderFactory, Invoker<?, QName> qualifiedNameInvoker,
+	protected ParsingInfo(Factory<? extends Builder<?>> builderFactory, Invoker<?, QName> qualifiedNameInvoker,
 	        Map<QName, Invoker<?, String>> attributeInvokers, Invoker<?, String> defaultAttributeInvoker,
 	        Map<QName, Pair<ParsingInfo, Invoker<?, ?>>> elementInvokers, Pair<ParsingInfo, Invoker<?, ?>> defaultElementInvoker,
 	        Invoker<?, String> contentInvoker, Invoker<?, String> commentInvoker) {
+		this(builderFactory, qualifiedNameInvoker, attributeInvokers, defaultAttributeInvoker, elementInvokers, defaultElementInvoker, contentInvoker,
+				commentInvoker, Collections.<QName> emptySet(), false);
+	}
+
+	protected ParsingInfo(Factory<? extends Builder<?>> builderFactory, Invoker<?, QName> qualifiedNameInvoker,
+	        Map<QName, Invoker<?, String>> attributeInvokers, Invoker<?, String> defaultAttributeInvoker,
+	        Map<QName, Pair<ParsingInfo, Invoker<?, ?>>> elementInvokers, Pair<ParsingInfo, Invoker<?, ?>> defaultElementInvoker,
+	        Invoker<?, String> contentInvoker, Invoker<?, String> commentInvoker, Set<QName> parallelElements, boolean anyElementParallel) {
 		this.builderFactory = ContractCheck.mustNotBeNull(builderFactory, "builderFactory");
 		this.qualifiedNameInvoker = qualifiedNameInvoker;
 		this.attributeInvokers = attributeInvokers;
@@ -71,12 +89,14 @@ public class ParsingInfo {
 		this.defaultElementInvoker = defaultElementInvoker;
 		this.contentInvoker = contentInvoker;
 		this.commentInvoker = commentInvoker;
+		this.parallelElements = ContractCheck.mustNotBeNull(parallelElements, "parallelElements");
+		this.anyElementParallel = anyElementParallel;
 	}
 
 	/**
 	 * @return the builderFactory
 	 */
-	public Factory<? extends Builder> getBuilderFactory() {
+	public Factory<? extends Builder<?>> getBuilderFactory() {
 		return this.builderFactory;
 	}
 
@@ -114,4 +134,80 @@ public class ParsingInfo {
 	    return this.commentInvoker;
     }
 
+	/**
+	 * Returns true if the element with the given name is built in parallel.
+	 * 
+	 * @param name The name of the element.
+	 * @return True if the element is marked with
+	 *         {@link org.jbasics.parser.annotations.ParallelBuild}.
+	 */
+	public boolean isParallelElement(QName name) {
+		if (this.parallelElements == null) {
+			return false;
+		}
+		return this.parallelElements.contains(name) || this.anyElementParallel && !this.elementInvokers.containsKey(name);
+	}
+
+	/**
+	 * Returns true if any of the elements is built in parallel.
+	 * 
+	 * @return True if there is at least one element built in parallel.
+	 */
+	public boolean hasParallelElements() {
+		return this.parallelElements != null && (this.anyElementParallel || !this.parallelElements.isEmpty());
+	}
+
+	/**
+	 * Returns the element invoker without resolving {@link #SELF} and without falling back to the
+	 * any element invoker.
+	 */
+	Pair<ParsingInfo, Invoker<?, ?>> getDeclaredElementInvoker(QName name) {
+		return this.elementInvokers.get(name);
+	}
+
+	Pair<ParsingInfo, Invoker<?, ?>> getAnyElementInvoker() {
+		return this.defaultElementInvoker;
+	}
+
+	/**
+	 * Returns the declared element name for the given namespace and local name or null if there is
+	 * no such element. Looking up the name does not create a {@link QName} instance.
+	 */
+	QName internElementName(String namespace, String localName) {
+		Map<String, Map<String, QName>> table = this.elementNameTable;
+		if (table == null) {
+			table = createNameTable(this.elementInvokers.keySet());
+			this.elementNameTable = table;
+		}
+		Map<String, QName> temp = table.get(namespace);
+		return temp == null ? null : temp.get(localName);
+	}
+
+	/**
+	 * Returns the declared attribute name for the given namespace and local name or null if there
+	 * is no such attribute.
+	 */
+	QName internAttributeName(String namespace, String localName) {
+		Map<String, Map<String, QName>> table = this.attributeNameTable;
+		if (table == null) {
+			table = createNameTable(this.attributeInvokers.keySet());
+			this.attributeNameTable = table;
+		}
+		Map<String, QName> temp = table.get(namespace);
+		return temp == null ? null : temp.get(localName);
+	}
+
+	private static Map<String, Map<String, QName>> createNameTable(Collection<QName> names) {
+		Map<String, Map<String, QName>> result = new HashMap<String, Map<String, QName>>();
+		for (QName name : names) {
+			Map<String, QName> temp = result.get(name.getNamespaceURI());
+			if (temp == null) {
+				temp = new HashMap<String, QName>();
+				result.put(name.getNamespaceURI(), temp);
+			}
+			temp.put(name.getLocalPart(), name);
+		}
+		return result;
+	}
+
 }
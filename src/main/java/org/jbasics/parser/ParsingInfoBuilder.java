@@ -25,8 +25,10 @@
 package org.jbasics.parser;
 
 import java.util.Collections;
+import java.util.HashSet;
 import java.util.LinkedHashMap;
 import java.util.Map;
+import java.util.Set;
 
 import javax.xml.namespace.QName;
 
@@ -39,7 +41,7 @@ import org.jbasics.types.tuples.Pair;
 @SuppressWarnings("unchecked")
 public class ParsingInfoBuilder implements Builder<Object> {
 	private Class<? extends Builder> builderType;
-	private Factory<? extends Builder> builderFactory;
+	private Factory<? extends Builder<?>> builderFactory;
 	private Invoker<?, QName> qualifiedNameInvoker;
 	private Map<QName, Invoker<?, String>> attributeInvokers;
 	private Invoker<?, String> anyAttributeInvoker;
@@ -47,6 +49,8 @@ public class ParsingInfoBuilder implements Builder<Object> {
 	private Pair<ParsingInfo, Invoker<?, ?>> anyElementInvoker;
 	private Invoker<?, String> contentInvoker;
 	private Invoker<?, String> commentInvoker;
+	private Set<QName> parallelElements;
+	private boolean anyElementParallel;
 
 	public static ParsingInfoBuilder newInstance() {
 		return new ParsingInfoBuilder();
@@ -69,8 +73,14 @@ public class ParsingInfoBuilder implements Builder<Object> {
 			elements.putAll(this.elementInvokers);
 			elements = Collections.unmodifiableMap(elements);
 		}
+		Set<QName> parallel;
+		if (this.parallelElements == null) {
+			parallel = Collections.emptySet();
+		} else {
+			parallel = Collections.unmodifiableSet(new HashSet<QName>(this.parallelElements));
+		}
 		return new ParsingInfo(this.builderFactory, this.qualifiedNameInvoker, attributes, this.anyAttributeInvoker,
-				elements, this.anyElementInvoker, this.contentInvoker, this.commentInvoker);
+				elements, this.anyElementInvoker, this.contentInvoker, this.commentInvoker, parallel, this.anyElementParallel);
 	}
 
 	public void reset() {
@@ -87,9 +97,13 @@ public class ParsingInfoBuilder implements Builder<Object> {
 		this.anyElementInvoker = null;
 		this.contentInvoker = null;
 		this.commentInvoker = null;
+		if (this.parallelElements != null) {
+			this.parallelElements.clear();
+		}
+		this.anyElementParallel = false;
 	}
 
-	public ParsingInfoBuilder setBuilderFactory(Factory<? extends Builder> builderFactory) {
+	public ParsingInfoBuilder setBuilderFactory(Factory<? extends Builder<?>> builderFactory) {
 		this.builderFactory = ContractCheck.mustNotBeNull(builderFactory, "builderFactory");
 		return this;
 	}
@@ -129,6 +143,19 @@ public class ParsingInfoBuilder implements Builder<Object> {
 		return this;
 	}
 
+	public ParsingInfoBuilder addParallelElement(QName name) {
+		if (this.parallelElements == null) {
+			this.parallelElements = new HashSet<QName>();
+		}
+		this.parallelElements.add(ContractCheck.mustNotBeNull(name, "name"));
+		return this;
+	}
+
+	public ParsingInfoBuilder setAnyElementParallel(boolean anyElementParallel) {
+		this.anyElementParallel = anyElementParallel;
+		return this;
+	}
+
 	public ParsingInfoBuilder setAnyElement(Pair<ParsingInfo, Invoker<?, ?>> invoker) {
 		if (this.anyElementInvoker != null) {
 			throw new IllegalStateException("Any Element Method already set to " + this.anyElementInvoker
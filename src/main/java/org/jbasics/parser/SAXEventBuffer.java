@@ -0,0 +1,137 @@
+/*
+ * Copyright (c) 2009 Stephan Schloepke and innoQ Deutschland GmbH
+ * 
+ * Stephan Schloepke: http://www.schloepke.de/
+ * innoQ Deutschland GmbH: http://www.innoq.com/
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.jbasics.parser;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.xml.sax.Attributes;
+import org.xml.sax.SAXException;
+import org.xml.sax.ext.DefaultHandler2;
+import org.xml.sax.helpers.AttributesImpl;
+
+/**
+ * Records the SAX events of an element subtree so it can be replayed on another thread.
+ * <p>
+ * Attributes and character data are copied since the parser reuses its buffers.
+ * </p>
+ * 
+ * @author Stephan Schloepke
+ * @since 1.0
+ */
+final class SAXEventBuffer extends DefaultHandler2 {
+	private static final Integer START_ELEMENT = Integer.valueOf(0);
+	private static final Integer END_ELEMENT = Integer.valueOf(1);
+	private static final Integer CHARACTERS = Integer.valueOf(2);
+	private static final Integer COMMENT = Integer.valueOf(3);
+	private static final Integer START_PREFIX_MAPPING = Integer.valueOf(4);
+	private static final Integer END_PREFIX_MAPPING = Integer.valueOf(5);
+
+	private static final Attributes NO_ATTRIBUTES = new AttributesImpl();
+
+	private final List<Object> events = new ArrayList<Object>();
+
+	@Override
+	public void startElement(final String uri, final String localName, final String qName, final Attributes attributes) {
+		this.events.add(SAXEventBuffer.START_ELEMENT);
+		this.events.add(uri);
+		this.events.add(localName);
+		this.events.add(qName);
+		this.events.add(attributes.getLength() == 0 ? SAXEventBuffer.NO_ATTRIBUTES : new AttributesImpl(attributes));
+	}
+
+	@Override
+	public void endElement(final String uri, final String localName, final String qName) {
+		this.events.add(SAXEventBuffer.END_ELEMENT);
+		this.events.add(uri);
+		this.events.add(localName);
+		this.events.add(qName);
+	}
+
+	@Override
+	public void characters(final char[] ch, final int start, final int length) {
+		this.events.add(SAXEventBuffer.CHARACTERS);
+		this.events.add(Arrays.copyOfRange(ch, start, start + length));
+	}
+
+	@Override
+	public void ignorableWhitespace(final char[] ch, final int start, final int length) {
+		characters(ch, start, length);
+	}
+
+	@Override
+	public void comment(final char[] ch, final int start, final int length) {
+		this.events.add(SAXEventBuffer.COMMENT);
+		this.events.add(Arrays.copyOfRange(ch, start, start + length));
+	}
+
+	@Override
+	public void startPrefixMapping(final String prefix, final String uri) {
+		this.events.add(SAXEventBuffer.START_PREFIX_MAPPING);
+		this.events.add(prefix);
+		this.events.add(uri);
+	}
+
+	@Override
+	public void endPrefixMapping(final String prefix) {
+		this.events.add(SAXEventBuffer.END_PREFIX_MAPPING);
+		this.events.add(prefix);
+	}
+
+	/**
+	 * Replays the recorded events to the given handler.
+	 * 
+	 * @param handler The handler to receive the events.
+	 * @throws SAXException If the handler fails.
+	 */
+	void replay(final DefaultHandler2 handler) throws SAXException {
+		int i = 0;
+		int size = this.events.size();
+		while (i < size) {
+			Object event = this.events.get(i++);
+			if (event == SAXEventBuffer.START_ELEMENT) {
+				handler.startElement((String) this.events.get(i), (String) this.events.get(i + 1), (String) this.events.get(i + 2), (Attributes) this.events
+						.get(i + 3));
+				i += 4;
+			} else if (event == SAXEventBuffer.END_ELEMENT) {
+				handler.endElement((String) this.events.get(i), (String) this.events.get(i + 1), (String) this.events.get(i + 2));
+				i += 3;
+			} else if (event == SAXEventBuffer.CHARACTERS) {
+				char[] text = (char[]) this.events.get(i++);
+				handler.characters(text, 0, text.length);
+			} else if (event == SAXEventBuffer.COMMENT) {
+				char[] text = (char[]) this.events.get(i++);
+				handler.comment(text, 0, text.length);
+			} else if (event == SAXEventBuffer.START_PREFIX_MAPPING) {
+				handler.startPrefixMapping((String) this.events.get(i), (String) this.events.get(i + 1));
+				i += 2;
+			} else {
+				handler.endPrefixMapping((String) this.events.get(i++));
+			}
+		}
+	}
+
+}
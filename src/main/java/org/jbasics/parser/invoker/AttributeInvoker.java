@@ -34,19 +34,16 @@ import org.jbasics.pattern.factory.ParameterFactory;
 import org.jbasics.types.factories.ValueOfStringTypeFactory;
 
 public class AttributeInvoker<T> implements Invoker<T, String> {
-	private final boolean useExtendedForm;
-	private final Method method;
+	private final MethodCaller caller;
 	private final ParameterFactory<?, String> factory;
 
-	private AttributeInvoker(Method method) {
-		this.method = ContractCheck.mustNotBeNull(method, "method");
+	private AttributeInvoker(Method method, MethodCallerStrategy strategy) {
+		ContractCheck.mustNotBeNull(method, "method");
 		Class<?>[] params = method.getParameterTypes();
 		Class<?> type = null;
 		if (params.length == 1) {
-			this.useExtendedForm = false;
 			type = params[0];
 		} else if (params.length == 2) {
-			this.useExtendedForm = true;
 			if (params[0] != QName.class) {
 				throw new IllegalArgumentException(
 						"Supplied method has not the right signature. Must be either method(type) or method(QName, type)");
@@ -61,6 +58,7 @@ public class AttributeInvoker<T> implements Invoker<T, String> {
 		} else {
 			this.factory = null;
 		}
+		this.caller = ContractCheck.mustNotBeNull(strategy, "strategy").createCaller(method);
 	}
 
 	public void invoke(T instance, QName name, String data) {
@@ -69,11 +67,7 @@ public class AttributeInvoker<T> implements Invoker<T, String> {
 			temp = this.factory.create(data);
 		}
 		try {
-			if (this.useExtendedForm) {
-				this.method.invoke(instance, name, temp);
-			} else {
-				this.method.invoke(instance, temp);
-			}
+			this.caller.call(instance, name, temp);
 		} catch (InvocationTargetException e) {
 			if (e.getCause() instanceof RuntimeException) {
 				throw (RuntimeException)e.getCause();
@@ -85,7 +79,11 @@ public class AttributeInvoker<T> implements Invoker<T, String> {
 	}
 
 	public static <T> AttributeInvoker<T> createInvoker(Class<T> type, Method m) {
-		return new AttributeInvoker<T>(m);
+		return new AttributeInvoker<T>(m, ReflectionMethodCallerStrategy.SHARED_INSTANCE);
+	}
+
+	public static <T> AttributeInvoker<T> createInvoker(Class<T> type, Method m, MethodCallerStrategy strategy) {
+		return new AttributeInvoker<T>(m, strategy);
 	}
 
 }
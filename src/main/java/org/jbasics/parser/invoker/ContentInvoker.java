@@ -32,10 +32,10 @@ import javax.xml.namespace.QName;
 import org.jbasics.checker.ContractCheck;
 
 public class ContentInvoker<T> implements Invoker<T, String> {
-	private final Method method;
+	private final MethodCaller caller;
 
-	private ContentInvoker(Method method) {
-		this.method = ContractCheck.mustNotBeNull(method, "method");
+	private ContentInvoker(Method method, MethodCallerStrategy strategy) {
+		ContractCheck.mustNotBeNull(method, "method");
 		Class<?>[] params = method.getParameterTypes();
 		if (params.length != 1) {
 			throw new IllegalArgumentException(
@@ -45,11 +45,12 @@ public class ContentInvoker<T> implements Invoker<T, String> {
 			throw new IllegalArgumentException(
 					"Supplied method has not the right signature. Must be setContent(String)");
 		}
+		this.caller = ContractCheck.mustNotBeNull(strategy, "strategy").createCaller(method);
 	}
 
 	public void invoke(T instance, QName name, String data) {
 		try {
-			this.method.invoke(instance, data);
+			this.caller.call(instance, name, data);
 		} catch (InvocationTargetException e) {
 			throw new RuntimeException(e);
 		} catch (IllegalAccessException e) {
@@ -58,7 +59,11 @@ public class ContentInvoker<T> implements Invoker<T, String> {
 	}
 
 	public static <T> ContentInvoker<T> createInvoker(Class<T> type, Method m) {
-		return new ContentInvoker<T>(m);
+		return new ContentInvoker<T>(m, ReflectionMethodCallerStrategy.SHARED_INSTANCE);
+	}
+
+	public static <T> ContentInvoker<T> createInvoker(Class<T> type, Method m, MethodCallerStrategy strategy) {
+		return new ContentInvoker<T>(m, strategy);
 	}
 
 }
@@ -33,21 +33,22 @@ import org.jbasics.checker.ContractCheck;
 
 @SuppressWarnings("unchecked")
 public class ElementInvoker<T, E> implements Invoker<T, E> {
-	private final Method method;
+	private final MethodCaller caller;
 	private final Class<E> dataClass;
 
-	private ElementInvoker(Method method) {
-		this.method = ContractCheck.mustNotBeNull(method, "method");
+	private ElementInvoker(Method method, MethodCallerStrategy strategy) {
+		ContractCheck.mustNotBeNull(method, "method");
 		Class<?>[] params = method.getParameterTypes();
 		if (params.length != 1) {
 			throw new IllegalArgumentException("Method signature does not fit");
 		}
 		this.dataClass = (Class<E>) params[0];
+		this.caller = ContractCheck.mustNotBeNull(strategy, "strategy").createCaller(method);
 	}
 
 	public void invoke(T instance, QName name, E data) {
 		try {
-			this.method.invoke(instance, this.dataClass.cast(data));
+			this.caller.call(instance, name, this.dataClass.cast(data));
 		} catch (InvocationTargetException e) {
 			throw new RuntimeException(e);
 		} catch (IllegalAccessException e) {
@@ -56,7 +57,11 @@ public class ElementInvoker<T, E> implements Invoker<T, E> {
 	}
 
 	public static <T, E> ElementInvoker<T, E> createInvoker(Class<T> instanceType, Class<E> dataType, Method method) {
-		return new ElementInvoker<T, E>(method);
+		return new ElementInvoker<T, E>(method, ReflectionMethodCallerStrategy.SHARED_INSTANCE);
+	}
+
+	public static <T, E> ElementInvoker<T, E> createInvoker(Class<T> instanceType, Class<E> dataType, Method method, MethodCallerStrategy strategy) {
+		return new ElementInvoker<T, E>(method, strategy);
 	}
 
 }
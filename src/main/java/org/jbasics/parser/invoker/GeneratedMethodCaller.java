@@ -0,0 +1,107 @@
+/*
+ * Copyright (c) 2009 Stephan Schloepke and innoQ Deutschland GmbH
+ * 
+ * Stephan Schloepke: http://www.schloepke.de/
+ * innoQ Deutschland GmbH: http://www.innoq.com/
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.jbasics.parser.invoker;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+
+import javax.xml.namespace.QName;
+
+/**
+ * Base class of the callers created by {@link GeneratedMethodCallerStrategy}.
+ * <p>
+ * The generated subclass implements {@link #doCall(Object, QName, Object)} by casting the
+ * arguments and calling the builder method directly. This class has to be public since the
+ * generated subclasses live in their own class loader.
+ * </p>
+ * <p>
+ * The arguments are checked before the generated code runs so a cast or unboxing failure is never
+ * mistaken for an exception of the called method. Arguments not matching the method exactly are
+ * passed on to reflection which applies widening conversions or reports them as illegal.
+ * </p>
+ * 
+ * @author Stephan Schloepke
+ * @since 1.0
+ */
+public abstract class GeneratedMethodCaller extends MethodCaller {
+	private Class<?> instanceType;
+	private Class<?> dataType;
+	private boolean primitive;
+	private MethodCaller reflective;
+
+	/**
+	 * Constructor for the generated subclasses.
+	 */
+	protected GeneratedMethodCaller() {
+		// only the generated subclasses call this
+	}
+
+	/**
+	 * Binds the caller to the method the generated code calls. Called by
+	 * {@link GeneratedMethodCallerStrategy} before the caller is handed out.
+	 * 
+	 * @param method The method called by the generated code.
+	 */
+	final void bind(final Method method) {
+		Class<?>[] params = method.getParameterTypes();
+		Class<?> type = params[params.length - 1];
+		this.instanceType = method.getDeclaringClass();
+		this.primitive = type.isPrimitive();
+		this.dataType = this.primitive ? MethodCallerClassWriter.wrapper(type) : type;
+		this.reflective = ReflectionMethodCallerStrategy.SHARED_INSTANCE.createCaller(method);
+	}
+
+	/**
+	 * Calls the generated {@link #doCall(Object, QName, Object)} and wraps whatever it throws in an
+	 * {@link InvocationTargetException}. Arguments the generated code cannot take as they are go
+	 * through reflection instead.
+	 * 
+	 * @see org.jbasics.parser.invoker.MethodCaller#call(java.lang.Object, javax.xml.namespace.QName,
+	 *      java.lang.Object)
+	 */
+	@Override
+	public final void call(final Object instance, final QName name, final Object data) throws InvocationTargetException, IllegalAccessException {
+		if (this.instanceType.isInstance(instance) && (data == null ? !this.primitive : this.dataType.isInstance(data))) {
+			try {
+				doCall(instance, name, data);
+			} catch (Throwable e) {
+				throw new InvocationTargetException(e);
+			}
+		} else {
+			this.reflective.call(instance, name, data);
+		}
+	}
+
+	/**
+	 * Implemented by the generated subclass to call the method directly.
+	 * 
+	 * @param instance The instance to call the method on.
+	 * @param name The qualified name.
+	 * @param data The data argument.
+	 * @throws Throwable Whatever the called method throws.
+	 */
+	protected abstract void doCall(Object instance, QName name, Object data) throws Throwable;
+
+}
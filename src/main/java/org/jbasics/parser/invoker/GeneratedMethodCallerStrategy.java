@@ -0,0 +1,187 @@
+/*
+ * Copyright (c) 2009 Stephan Schloepke and innoQ Deutschland GmbH
+ * 
+ * Stephan Schloepke: http://www.schloepke.de/
+ * innoQ Deutschland GmbH: http://www.innoq.com/
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.jbasics.parser.invoker;
+
+import java.lang.ref.WeakReference;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.Collections;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import javax.xml.namespace.QName;
+
+import org.jbasics.annotation.ThreadSafe;
+import org.jbasics.checker.ContractCheck;
+
+/**
+ * {@link MethodCallerStrategy} generating a small class per builder method which calls the method
+ * directly instead of going through {@link Method#invoke(Object, Object...)}.
+ * <p>
+ * Direct calls need the declaring class, the method and the argument types to be public and
+ * accessible from the class loader of the declaring class. Primitive arguments are unboxed by the
+ * generated code. Methods which cannot be called directly for any other reason (including a
+ * failure to define the generated class) are handled by the fallback strategy, which is
+ * {@link ReflectionMethodCallerStrategy} by default.
+ * </p>
+ * <p>
+ * All callers of builders from the same class loader are defined by one class loader. It is only
+ * weakly referenced so it goes away together with its callers.
+ * </p>
+ * 
+ * @author Stephan Schloepke
+ * @since 1.0
+ */
+@ThreadSafe(derived = true)
+public final class GeneratedMethodCallerStrategy implements MethodCallerStrategy {
+	/**
+	 * The shared instance of this strategy falling back to reflection.
+	 */
+	public static final GeneratedMethodCallerStrategy SHARED_INSTANCE = new GeneratedMethodCallerStrategy(ReflectionMethodCallerStrategy.SHARED_INSTANCE);
+
+	private static final String GENERATED_PACKAGE = "org.jbasics.parser.invoker.generated."; //$NON-NLS-1$
+	private static final Logger LOGGER = Logger.getLogger(GeneratedMethodCallerStrategy.class.getName());
+	private static final AtomicInteger COUNTER = new AtomicInteger();
+	private static final Map<ClassLoader, WeakReference<CallerClassLoader>> LOADERS = Collections
+			.synchronizedMap(new WeakHashMap<ClassLoader, WeakReference<CallerClassLoader>>());
+
+	private final MethodCallerStrategy fallback;
+
+	/**
+	 * Creates a strategy generating callers and using the given fallback for methods which cannot
+	 * be called directly.
+	 * 
+	 * @param fallback The fallback strategy (must not be null).
+	 */
+	public GeneratedMethodCallerStrategy(final MethodCallerStrategy fallback) {
+		this.fallback = ContractCheck.mustNotBeNull(fallback, "fallback"); //$NON-NLS-1$
+	}
+
+	/**
+	 * Creates a generated caller for the method or the caller of the fallback strategy if the method
+	 * cannot be called directly.
+	 * 
+	 * @param method The method to call (must not be null).
+	 * @return The caller.
+	 * @see org.jbasics.parser.invoker.MethodCallerStrategy#createCaller(java.lang.reflect.Method)
+	 */
+	public MethodCaller createCaller(final Method method) {
+		ContractCheck.mustNotBeNull(method, "method"); //$NON-NLS-1$
+		if (isDirectlyCallable(method)) {
+			String className = GeneratedMethodCallerStrategy.GENERATED_PACKAGE + method.getDeclaringClass().getSimpleName() + "$" + method.getName() //$NON-NLS-1$
+					+ "$Caller" + GeneratedMethodCallerStrategy.COUNTER.incrementAndGet(); //$NON-NLS-1$
+			try {
+				CallerClassLoader loader = GeneratedMethodCallerStrategy.callerClassLoader(method.getDeclaringClass().getClassLoader());
+				Class<?> callerClass = loader.define(className, MethodCallerClassWriter.write(className, method));
+				GeneratedMethodCaller caller = (GeneratedMethodCaller) callerClass.getConstructor().newInstance();
+				caller.bind(method);
+				return caller;
+			} catch (LinkageError e) {
+				logFallback(method, e);
+			} catch (NoSuchMethodException e) {
+				logFallback(method, e);
+			} catch (InvocationTargetException e) {
+				logFallback(method, e);
+			} catch (InstantiationException e) {
+				logFallback(method, e);
+			} catch (IllegalAccessException e) {
+				logFallback(method, e);
+			} catch (SecurityException e) {
+				logFallback(method, e);
+			}
+		}
+		return this.fallback.createCaller(method);
+	}
+
+	private boolean isDirectlyCallable(final Method method) {
+		Class<?> owner = method.getDeclaringClass();
+		if (owner.getClassLoader() == null || !isPublic(owner) || !Modifier.isPublic(method.getModifiers()) || Modifier.isStatic(method.getModifiers())) {
+			return false;
+		}
+		Class<?>[] params = method.getParameterTypes();
+		if (params.length == 2 && params[0] != QName.class || params.length < 1 || params.length > 2) {
+			return false;
+		}
+		return isPublic(params[params.length - 1]);
+	}
+
+	private boolean isPublic(final Class<?> type) {
+		Class<?> temp = type;
+		while (temp.isArray()) {
+			temp = temp.getComponentType();
+		}
+		return temp.isPrimitive() || Modifier.isPublic(temp.getModifiers());
+	}
+
+	private static CallerClassLoader callerClassLoader(final ClassLoader parent) {
+		synchronized (GeneratedMethodCallerStrategy.LOADERS) {
+			WeakReference<CallerClassLoader> reference = GeneratedMethodCallerStrategy.LOADERS.get(parent);
+			CallerClassLoader result = reference == null ? null : reference.get();
+			if (result == null) {
+				result = new CallerClassLoader(parent);
+				// weak since the loader references its parent which would keep the key alive
+				GeneratedMethodCallerStrategy.LOADERS.put(parent, new WeakReference<CallerClassLoader>(result));
+			}
+			return result;
+		}
+	}
+
+	private void logFallback(final Method method, final Throwable e) {
+		if (GeneratedMethodCallerStrategy.LOGGER.isLoggable(Level.FINE)) {
+			GeneratedMethodCallerStrategy.LOGGER.log(Level.FINE, "Cannot generate caller for " + method + ", using " + this.fallback, e); //$NON-NLS-1$ //$NON-NLS-2$
+		}
+	}
+
+	/**
+	 * Class loader defining the generated caller classes of one builder class loader. The base class
+	 * of the generated callers is always resolved to the one of this library while everything else
+	 * comes from the class loader of the builder.
+	 */
+	private static final class CallerClassLoader extends ClassLoader {
+
+		CallerClassLoader(final ClassLoader parent) {
+			super(parent);
+		}
+
+		Class<?> define(final String name, final byte[] classFile) {
+			return defineClass(name, classFile, 0, classFile.length);
+		}
+
+		@Override
+		protected Class<?> loadClass(final String name, final boolean resolve) throws ClassNotFoundException {
+			if (GeneratedMethodCaller.class.getName().equals(name)) {
+				return GeneratedMethodCaller.class;
+			} else if (QName.class.getName().equals(name)) {
+				return QName.class;
+			}
+			return super.loadClass(name, resolve);
+		}
+	}
+
+}
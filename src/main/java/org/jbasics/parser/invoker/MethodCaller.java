@@ -0,0 +1,55 @@
+/*
+ * Copyright (c) 2009 Stephan Schloepke and innoQ Deutschland GmbH
+ * 
+ * Stephan Schloepke: http://www.schloepke.de/
+ * innoQ Deutschland GmbH: http://www.innoq.com/
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.jbasics.parser.invoker;
+
+import java.lang.reflect.InvocationTargetException;
+
+import javax.xml.namespace.QName;
+
+/**
+ * Calls a resolved builder method for an {@link Invoker}.
+ * <p>
+ * The caller passes the qualified name only to methods of the form method(QName, type). Whatever
+ * the called method throws is reported as {@link InvocationTargetException} just like
+ * {@link java.lang.reflect.Method#invoke(Object, Object...)} does.
+ * </p>
+ * 
+ * @author Stephan Schloepke
+ * @since 1.0
+ */
+public abstract class MethodCaller {
+
+	/**
+	 * Calls the method on the given instance.
+	 * 
+	 * @param instance The instance to call the method on.
+	 * @param name The qualified name (only passed to method(QName, type) methods).
+	 * @param data The data argument.
+	 * @throws InvocationTargetException If the called method throws an exception.
+	 * @throws IllegalAccessException If the method cannot be accessed.
+	 */
+	public abstract void call(Object instance, QName name, Object data) throws InvocationTargetException, IllegalAccessException;
+
+}
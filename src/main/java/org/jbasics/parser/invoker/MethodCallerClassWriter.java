@@ -0,0 +1,279 @@
+/*
+ * Copyright (c) 2009 Stephan Schloepke and innoQ Deutschland GmbH
+ * 
+ * Stephan Schloepke: http://www.schloepke.de/
+ * innoQ Deutschland GmbH: http://www.innoq.com/
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.jbasics.parser.invoker;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.lang.reflect.Method;
+
+import javax.xml.namespace.QName;
+
+import org.jbasics.exception.DelegatedException;
+
+/**
+ * Writes the class file of a {@link GeneratedMethodCaller} subclass calling one builder method.
+ * <p>
+ * The generated doCall method loads the instance, optionally the qualified name and the data
+ * argument, casts them to the declared types and calls the method with invokevirtual or
+ * invokeinterface. A primitive data argument is cast to its wrapper and unboxed, so passing null
+ * fails with a {@link NullPointerException}. The code has no branches so no stack map frames are
+ * required.
+ * </p>
+ * 
+ * @author Stephan Schloepke
+ * @since 1.0
+ */
+final class MethodCallerClassWriter {
+	private static final int CLASS_FILE_MAGIC = 0xCAFEBABE;
+	private static final int CLASS_FILE_VERSION = 50;
+	private static final int ACC_PUBLIC = 0x0001;
+	private static final int ACC_FINAL = 0x0010;
+	private static final int ACC_SUPER = 0x0020;
+	private static final int CONSTANT_UTF8 = 1;
+	private static final int CONSTANT_CLASS = 7;
+	private static final int CONSTANT_METHODREF = 10;
+	private static final int CONSTANT_INTERFACE_METHODREF = 11;
+	private static final int CONSTANT_NAME_AND_TYPE = 12;
+	private static final int ALOAD_0 = 0x2a;
+	private static final int ALOAD_1 = 0x2b;
+	private static final int ALOAD_2 = 0x2c;
+	private static final int ALOAD_3 = 0x2d;
+	private static final int POP = 0x57;
+	private static final int POP2 = 0x58;
+	private static final int RETURN = 0xb1;
+	private static final int INVOKEVIRTUAL = 0xb6;
+	private static final int INVOKESPECIAL = 0xb7;
+	private static final int INVOKEINTERFACE = 0xb9;
+	private static final int CHECKCAST = 0xc0;
+
+	private final ByteArrayOutputStream constantPoolBytes = new ByteArrayOutputStream();
+	private final DataOutputStream constantPool = new DataOutputStream(this.constantPoolBytes);
+	private int constantPoolCount = 1;
+
+	private MethodCallerClassWriter() {
+		// created by write only
+	}
+
+	/**
+	 * Writes the caller class for the given method.
+	 * 
+	 * @param className The binary name of the class to write.
+	 * @param method The method to call. It has to take one argument or a {@link QName} and one
+	 *            argument.
+	 * @return The class file bytes.
+	 */
+	static byte[] write(final String className, final Method method) {
+		try {
+			return new MethodCallerClassWriter().writeClass(className, method);
+		} catch (IOException e) {
+			throw DelegatedException.delegate(e);
+		}
+	}
+
+	private byte[] writeClass(final String className, final Method method) throws IOException {
+		Class<?> owner = method.getDeclaringClass();
+		Class<?>[] params = method.getParameterTypes();
+		Class<?> dataType = params[params.length - 1];
+		int thisClass = addClass(MethodCallerClassWriter.internalName(className));
+		int superClass = addClass(MethodCallerClassWriter.internalName(GeneratedMethodCaller.class.getName()));
+		int superConstructor = addMethodRef(MethodCallerClassWriter.CONSTANT_METHODREF, superClass, "<init>", "()V"); //$NON-NLS-1$ //$NON-NLS-2$
+		int doCallName = addUtf8("doCall"); //$NON-NLS-1$
+		int doCallDescriptor = addUtf8("(Ljava/lang/Object;" + MethodCallerClassWriter.descriptor(QName.class) + "Ljava/lang/Object;)V"); //$NON-NLS-1$ //$NON-NLS-2$
+		int codeName = addUtf8("Code"); //$NON-NLS-1$
+		int constructorName = addUtf8("<init>"); //$NON-NLS-1$
+		int constructorDescriptor = addUtf8("()V"); //$NON-NLS-1$
+		int ownerClass = addClass(MethodCallerClassWriter.internalName(owner.getName()));
+		int target = addMethodRef(owner.isInterface() ? MethodCallerClassWriter.CONSTANT_INTERFACE_METHODREF : MethodCallerClassWriter.CONSTANT_METHODREF,
+				ownerClass, method.getName(), MethodCallerClassWriter.descriptor(method));
+		int dataClass = 0;
+		int unboxMethod = 0;
+		if (dataType.isPrimitive()) {
+			Class<?> wrapper = MethodCallerClassWriter.wrapper(dataType);
+			dataClass = addClass(MethodCallerClassWriter.internalName(wrapper.getName()));
+			unboxMethod = addMethodRef(MethodCallerClassWriter.CONSTANT_METHODREF, dataClass, dataType.getName() + "Value", "()" //$NON-NLS-1$ //$NON-NLS-2$
+					+ MethodCallerClassWriter.descriptor(dataType));
+		} else if (dataType != Object.class) {
+			dataClass = addClass(MethodCallerClassWriter.internalName(dataType.getName()));
+		}
+		int argumentSize = params.length + (dataType == long.class || dataType == double.class ? 2 : 1);
+
+		ByteArrayOutputStream constructorBytes = new ByteArrayOutputStream();
+		DataOutputStream constructor = new DataOutputStream(constructorBytes);
+		constructor.writeByte(MethodCallerClassWriter.ALOAD_0);
+		constructor.writeByte(MethodCallerClassWriter.INVOKESPECIAL);
+		constructor.writeShort(superConstructor);
+		constructor.writeByte(MethodCallerClassWriter.RETURN);
+
+		ByteArrayOutputStream callBytes = new ByteArrayOutputStream();
+		DataOutputStream call = new DataOutputStream(callBytes);
+		call.writeByte(MethodCallerClassWriter.ALOAD_1);
+		call.writeByte(MethodCallerClassWriter.CHECKCAST);
+		call.writeShort(ownerClass);
+		if (params.length == 2) {
+			call.writeByte(MethodCallerClassWriter.ALOAD_2);
+		}
+		call.writeByte(MethodCallerClassWriter.ALOAD_3);
+		if (dataClass != 0) {
+			call.writeByte(MethodCallerClassWriter.CHECKCAST);
+			call.writeShort(dataClass);
+		}
+		if (unboxMethod != 0) {
+			call.writeByte(MethodCallerClassWriter.INVOKEVIRTUAL);
+			call.writeShort(unboxMethod);
+		}
+		if (owner.isInterface()) {
+			call.writeByte(MethodCallerClassWriter.INVOKEINTERFACE);
+			call.writeShort(target);
+			call.writeByte(argumentSize);
+			call.writeByte(0);
+		} else {
+			call.writeByte(MethodCallerClassWriter.INVOKEVIRTUAL);
+			call.writeShort(target);
+		}
+		Class<?> returnType = method.getReturnType();
+		int returnSize = 0;
+		if (returnType == long.class || returnType == double.class) {
+			call.writeByte(MethodCallerClassWriter.POP2);
+			returnSize = 2;
+		} else if (returnType != void.class) {
+			call.writeByte(MethodCallerClassWriter.POP);
+			returnSize = 1;
+		}
+		call.writeByte(MethodCallerClassWriter.RETURN);
+
+		ByteArrayOutputStream result = new ByteArrayOutputStream(256 + this.constantPoolBytes.size());
+		DataOutputStream out = new DataOutputStream(result);
+		out.writeInt(MethodCallerClassWriter.CLASS_FILE_MAGIC);
+		out.writeShort(0);
+		out.writeShort(MethodCallerClassWriter.CLASS_FILE_VERSION);
+		out.writeShort(this.constantPoolCount);
+		this.constantPool.flush();
+		this.constantPoolBytes.writeTo(out);
+		out.writeShort(MethodCallerClassWriter.ACC_PUBLIC | MethodCallerClassWriter.ACC_FINAL | MethodCallerClassWriter.ACC_SUPER);
+		out.writeShort(thisClass);
+		out.writeShort(superClass);
+		out.writeShort(0); // interfaces
+		out.writeShort(0); // fields
+		out.writeShort(2); // methods
+		writeMethod(out, constructorName, constructorDescriptor, codeName, 1, 1, constructorBytes);
+		writeMethod(out, doCallName, doCallDescriptor, codeName, Math.max(argumentSize, returnSize), 4, callBytes);
+		out.writeShort(0); // class attributes
+		out.flush();
+		return result.toByteArray();
+	}
+
+	private void writeMethod(final DataOutputStream out, final int name, final int descriptor, final int codeName, final int maxStack, final int maxLocals,
+			final ByteArrayOutputStream code) throws IOException {
+		out.writeShort(MethodCallerClassWriter.ACC_PUBLIC);
+		out.writeShort(name);
+		out.writeShort(descriptor);
+		out.writeShort(1); // attributes
+		out.writeShort(codeName);
+		out.writeInt(12 + code.size());
+		out.writeShort(maxStack);
+		out.writeShort(maxLocals);
+		out.writeInt(code.size());
+		code.writeTo(out);
+		out.writeShort(0); // exception table
+		out.writeShort(0); // code attributes
+	}
+
+	private int addUtf8(final String value) throws IOException {
+		this.constantPool.writeByte(MethodCallerClassWriter.CONSTANT_UTF8);
+		this.constantPool.writeUTF(value);
+		return this.constantPoolCount++;
+	}
+
+	private int addClass(final String internalName) throws IOException {
+		int name = addUtf8(internalName);
+		this.constantPool.writeByte(MethodCallerClassWriter.CONSTANT_CLASS);
+		this.constantPool.writeShort(name);
+		return this.constantPoolCount++;
+	}
+
+	private int addMethodRef(final int tag, final int owner, final String name, final String descriptor) throws IOException {
+		int nameIndex = addUtf8(name);
+		int descriptorIndex = addUtf8(descriptor);
+		this.constantPool.writeByte(MethodCallerClassWriter.CONSTANT_NAME_AND_TYPE);
+		this.constantPool.writeShort(nameIndex);
+		this.constantPool.writeShort(descriptorIndex);
+		int nameAndType = this.constantPoolCount++;
+		this.constantPool.writeByte(tag);
+		this.constantPool.writeShort(owner);
+		this.constantPool.writeShort(nameAndType);
+		return this.constantPoolCount++;
+	}
+
+	private static String internalName(final String binaryName) {
+		return binaryName.replace('.', '/');
+	}
+
+	static Class<?> wrapper(final Class<?> primitive) {
+		if (primitive == boolean.class) {
+			return Boolean.class;
+		} else if (primitive == byte.class) {
+			return Byte.class;
+		} else if (primitive == char.class) {
+			return Character.class;
+		} else if (primitive == short.class) {
+			return Short.class;
+		} else if (primitive == int.class) {
+			return Integer.class;
+		} else if (primitive == long.class) {
+			return Long.class;
+		} else if (primitive == float.class) {
+			return Float.class;
+		} else {
+			return Double.class;
+		}
+	}
+
+	private static String descriptor(final Method method) {
+		StringBuilder result = new StringBuilder().append('(');
+		for (Class<?> param : method.getParameterTypes()) {
+			result.append(MethodCallerClassWriter.descriptor(param));
+		}
+		return result.append(')').append(MethodCallerClassWriter.descriptor(method.getReturnType())).toString();
+	}
+
+	private static String descriptor(final Class<?> type) {
+		if (type.isArray()) {
+			return MethodCallerClassWriter.internalName(type.getName());
+		} else if (!type.isPrimitive()) {
+			return "L" + MethodCallerClassWriter.internalName(type.getName()) + ";"; //$NON-NLS-1$ //$NON-NLS-2$
+		} else if (type == void.class) {
+			return "V"; //$NON-NLS-1$
+		} else if (type == boolean.class) {
+			return "Z"; //$NON-NLS-1$
+		} else if (type == long.class) {
+			return "J"; //$NON-NLS-1$
+		} else {
+			// B, C, D, F, I, S are the upper case first letters of the type
+			return String.valueOf(Character.toUpperCase(type.getName().charAt(0)));
+		}
+	}
+
+}
@@ -32,10 +32,10 @@ import javax.xml.namespace.QName;
 import org.jbasics.checker.ContractCheck;
 
 public class QualifiedNameInvoker<T> implements Invoker<T, QName> {
-	private final Method method;
+	private final MethodCaller caller;
 
-	private QualifiedNameInvoker(Method method) {
-		this.method = ContractCheck.mustNotBeNull(method, "method");
+	private QualifiedNameInvoker(Method method, MethodCallerStrategy strategy) {
+		ContractCheck.mustNotBeNull(method, "method");
 		Class<?>[] params = method.getParameterTypes();
 		if (params.length == 1) {
 			if (params[0] != QName.class) {
@@ -46,11 +46,12 @@ public class QualifiedNameInvoker<T> implements Invoker<T, QName> {
 			throw new IllegalArgumentException(
 					"Supplied method has not the right signature. must be setQualifiedName(QName name)");
 		}
+		this.caller = ContractCheck.mustNotBeNull(strategy, "strategy").createCaller(method);
 	}
 
 	public void invoke(T instance, QName name, QName data) {
 		try {
-			this.method.invoke(instance, data);
+			this.caller.call(instance, name, data);
 		} catch (InvocationTargetException e) {
 			throw new RuntimeException(e);
 		} catch (IllegalAccessException e) {
@@ -59,7 +60,11 @@ public class QualifiedNameInvoker<T> implements Invoker<T, QName> {
 	}
 
 	public static <T> QualifiedNameInvoker<T> createInvoker(Class<T> type, Method m) {
-		return new QualifiedNameInvoker<T>(m);
+		return new QualifiedNameInvoker<T>(m, ReflectionMethodCallerStrategy.SHARED_INSTANCE);
+	}
+
+	public static <T> QualifiedNameInvoker<T> createInvoker(Class<T> type, Method m, MethodCallerStrategy strategy) {
+		return new QualifiedNameInvoker<T>(m, strategy);
 	}
 
 }
@@ -0,0 +1,84 @@
+/*
+ * Copyright (c) 2009 Stephan Schloepke and innoQ Deutschland GmbH
+ * 
+ * Stephan Schloepke: http://www.schloepke.de/
+ * innoQ Deutschland GmbH: http://www.innoq.com/
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.jbasics.parser.invoker;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+
+import javax.xml.namespace.QName;
+
+import org.jbasics.annotation.ThreadSafe;
+import org.jbasics.checker.ContractCheck;
+
+/**
+ * {@link MethodCallerStrategy} calling the builder methods with
+ * {@link Method#invoke(Object, Object...)}.
+ * 
+ * @author Stephan Schloepke
+ * @since 1.0
+ */
+@ThreadSafe
+public final class ReflectionMethodCallerStrategy implements MethodCallerStrategy {
+	/**
+	 * The shared instance of this strategy.
+	 */
+	public static final ReflectionMethodCallerStrategy SHARED_INSTANCE = new ReflectionMethodCallerStrategy();
+
+	/**
+	 * Creates a caller using reflection for the given method.
+	 * 
+	 * @param method The method to call (must not be null).
+	 * @return The reflective caller.
+	 * @see org.jbasics.parser.invoker.MethodCallerStrategy#createCaller(java.lang.reflect.Method)
+	 */
+	public MethodCaller createCaller(final Method method) {
+		return new ReflectiveCaller(ContractCheck.mustNotBeNull(method, "method")); //$NON-NLS-1$
+	}
+
+	private static final class ReflectiveCaller extends MethodCaller {
+		private final Method method;
+		private final boolean useExtendedForm;
+
+		ReflectiveCaller(final Method method) {
+			this.method = method;
+			this.useExtendedForm = method.getParameterTypes().length == 2;
+		}
+
+		@Override
+		public void call(final Object instance, final QName name, final Object data) throws InvocationTargetException, IllegalAccessException {
+			if (this.useExtendedForm) {
+				this.method.invoke(instance, name, data);
+			} else {
+				this.method.invoke(instance, data);
+			}
+		}
+
+		@Override
+		public String toString() {
+			return this.method.toString();
+		}
+	}
+
+}
@@ -0,0 +1,48 @@
+/*
+ * Copyright (c) 2009 Stephan Schloepke and innoQ Deutschland GmbH
+ * 
+ * Stephan Schloepke: http://www.schloepke.de/
+ * innoQ Deutschland GmbH: http://www.innoq.com/
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.jbasics.pattern.coder;
+
+/**
+ * Receives the data of a streaming {@link Encoder} or {@link Decoder} in chunks. The value is the concatenation of all
+ * chunks written (for byte arrays and character sequences) or the one single chunk for all other types.
+ * <p>
+ * A sink created by a {@link StreamEncoder} or {@link StreamDecoder} writes at least one (possibly empty) chunk to its
+ * target before closing it so the receiver always sees the type of the data.
+ * </p>
+ *
+ * @param <T> The type of the chunks
+ * @author Stephan Schloepke
+ * @since 1.0
+ */
+public interface CodecSink<T> {
+
+	void write(T chunk);
+
+	/**
+	 * Signals the end of the data. Any pending data is written and the target sink is closed as well.
+	 */
+	void close();
+
+}
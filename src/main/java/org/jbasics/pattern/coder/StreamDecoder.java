@@ -0,0 +1,45 @@
+/*
+ * Copyright (c) 2009 Stephan Schloepke and innoQ Deutschland GmbH
+ * 
+ * Stephan Schloepke: http://www.schloepke.de/
+ * innoQ Deutschland GmbH: http://www.innoq.com/
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.jbasics.pattern.coder;
+
+/**
+ * A {@link Decoder} able to decode data chunk by chunk with a bounded amount of memory.
+ *
+ * @param <T> The type of the normal (decoded) representation
+ * @param <TEnc> The type of the encoded representation
+ * @author Stephan Schloepke
+ * @since 1.0
+ */
+public interface StreamDecoder<T, TEnc> extends Decoder<T, TEnc> {
+
+	/**
+	 * Opens a new decoding pass writing the decoded chunks to the given target.
+	 *
+	 * @param target The sink receiving the decoded data (must not be null)
+	 * @return The sink to write the encoded data to
+	 */
+	CodecSink<TEnc> openDecoder(CodecSink<? super T> target);
+
+}
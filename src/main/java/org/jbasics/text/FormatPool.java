@@ -31,15 +31,15 @@ import java.text.ParsePosition;
 import org.jbasics.checker.ContractCheck;
 import org.jbasics.pattern.factory.Factory;
 import org.jbasics.pattern.pooling.Pool;
-import org.jbasics.types.pools.LazyQueuePool;
 import org.jbasics.types.pools.PooledDelegate;
+import org.jbasics.types.pools.StripedPool;
 
 public class FormatPool<T extends Format> extends Format implements Pool<T> {
 	private static final long serialVersionUID = 1L;
 	private final Pool<T> formatPool;
 
 	public FormatPool(final Factory<T> formatFactory) {
-		this.formatPool = new LazyQueuePool<T>(ContractCheck.mustNotBeNull(formatFactory, "formatFactory"));
+		this.formatPool = new StripedPool<T>(ContractCheck.mustNotBeNull(formatFactory, "formatFactory"));
 	}
 
 	@Override
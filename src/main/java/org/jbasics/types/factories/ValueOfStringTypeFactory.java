@@ -25,60 +25,152 @@
 package org.jbasics.types.factories;
 
 import java.lang.ref.Reference;
-import java.lang.ref.SoftReference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
 import java.lang.reflect.Constructor;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
 import java.lang.reflect.Modifier;
-import java.util.HashMap;
-import java.util.Map;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
+import javax.xml.namespace.QName;
+
+import org.jbasics.annotation.ThreadSafe;
 import org.jbasics.pattern.factory.ParameterFactory;
 
 /**
- * Listenbeschreibung
+ * Factory creating an instance of a type from its string representation.
  * <p>
- * Detailierte Beschreibung
+ * The JDK primitives and their wrappers, {@link BigDecimal}, {@link BigInteger}, {@link QName}
+ * and enums without an <code>xmlValueOf(String)</code> method are converted directly. Any other
+ * type is created by calling its static <code>xmlValueOf(String)</code> or
+ * <code>valueOf(String)</code> method or its string constructor. All factories are kept in
+ * concurrent maps so looking them up never blocks. Types which cannot be unloaded before this
+ * class (loaded by its class loader or one of the parents) are cached strongly. The factories of
+ * any other type are cached as long as the type is alive. Their key and the factory only hold the
+ * type and its method or constructor weakly so they never keep the class loader of the type alive.
  * </p>
  * 
  * @author stephan
  */
+@ThreadSafe
 public class ValueOfStringTypeFactory<InstanceType> implements ParameterFactory<InstanceType, String> {
-	private final Method valueOfMethod;
-	private final Constructor<InstanceType> stringConstructor;
+	private static final ConcurrentMap<Class<?>, ParameterFactory<?, String>> FACTORIES = new ConcurrentHashMap<Class<?>, ParameterFactory<?, String>>();
+	private static final ConcurrentMap<TypeKey, ParameterFactory<?, String>> DYNAMIC_FACTORIES = new ConcurrentHashMap<TypeKey, ParameterFactory<?, String>>();
+	private static final ReferenceQueue<Class<?>> COLLECTED_TYPES = new ReferenceQueue<Class<?>>();
+	static {
+		ValueOfStringTypeFactory.registerStandard(StandardTypeFactory.BOOLEAN, Boolean.class, Boolean.TYPE);
+		ValueOfStringTypeFactory.registerStandard(StandardTypeFactory.BYTE, Byte.class, Byte.TYPE);
+		ValueOfStringTypeFactory.registerStandard(StandardTypeFactory.SHORT, Short.class, Short.TYPE);
+		ValueOfStringTypeFactory.registerStandard(StandardTypeFactory.CHARACTER, Character.class, Character.TYPE);
+		ValueOfStringTypeFactory.registerStandard(StandardTypeFactory.INTEGER, Integer.class, Integer.TYPE);
+		ValueOfStringTypeFactory.registerStandard(StandardTypeFactory.LONG, Long.class, Long.TYPE);
+		ValueOfStringTypeFactory.registerStandard(StandardTypeFactory.FLOAT, Float.class, Float.TYPE);
+		ValueOfStringTypeFactory.registerStandard(StandardTypeFactory.DOUBLE, Double.class, Double.TYPE);
+		ValueOfStringTypeFactory.registerStandard(StandardTypeFactory.BIG_DECIMAL, BigDecimal.class);
+		ValueOfStringTypeFactory.registerStandard(StandardTypeFactory.BIG_INTEGER, BigInteger.class);
+		ValueOfStringTypeFactory.registerStandard(StandardTypeFactory.QNAME, QName.class);
+		ValueOfStringTypeFactory.registerStandard(StandardTypeFactory.STRING, String.class);
+	}
 
-	private static Reference<Map<Class<?>, ValueOfStringTypeFactory<?>>> factoryCache;
+	private final WeakReference<Class<InstanceType>> type;
+	private final boolean useConstructor;
+	private volatile WeakReference<Method> valueOfMethod;
+	private volatile WeakReference<Constructor<InstanceType>> stringConstructor;
 
 	@SuppressWarnings("unchecked")
-	public synchronized static <T> ParameterFactory<T, String> getFactoryFor(Class<T> type) {
-		Map<Class<?>, ValueOfStringTypeFactory<?>> cacheMap = factoryCache != null ? factoryCache.get() : null;
-		ValueOfStringTypeFactory<T> result = cacheMap != null ? (ValueOfStringTypeFactory<T>) cacheMap.get(type) : null;
-		if (result == null) {
+	public static <T> ParameterFactory<T, String> getFactoryFor(Class<T> type) {
+		if (type == null) {
+			throw new IllegalArgumentException("Null parameter: type");
+		}
+		ParameterFactory<?, String> result = ValueOfStringTypeFactory.FACTORIES.get(type);
+		if (result != null) {
+			return (ParameterFactory<T, String>) result;
+		}
+		boolean shared = ValueOfStringTypeFactory.isSharedClassLoader(type.getClassLoader());
+		if (!shared) {
+			result = ValueOfStringTypeFactory.DYNAMIC_FACTORIES.get(new TypeKey(type, null));
+			if (result != null) {
+				return (ParameterFactory<T, String>) result;
+			}
+		}
+		if (type.isEnum() && getStaticMethod(type, "xmlValueOf") == null) {
+			result = ValueOfStringTypeFactory.createEnumTypeFactory(type);
+		} else {
 			result = new ValueOfStringTypeFactory<T>(type);
-			if (cacheMap == null) {
-				cacheMap = new HashMap<Class<?>, ValueOfStringTypeFactory<?>>();
-				factoryCache = new SoftReference<Map<Class<?>, ValueOfStringTypeFactory<?>>>(cacheMap);
+		}
+		ParameterFactory<?, String> existing;
+		if (shared) {
+			existing = ValueOfStringTypeFactory.FACTORIES.putIfAbsent(type, result);
+		} else {
+			ValueOfStringTypeFactory.expungeCollectedTypes();
+			existing = ValueOfStringTypeFactory.DYNAMIC_FACTORIES.putIfAbsent(new TypeKey(type, ValueOfStringTypeFactory.COLLECTED_TYPES), result);
+		}
+		return (ParameterFactory<T, String>) (existing != null ? existing : result);
+	}
+
+	private static boolean isSharedClassLoader(ClassLoader loader) {
+		if (loader == null) {
+			return true;
+		}
+		for (ClassLoader temp = ValueOfStringTypeFactory.class.getClassLoader(); temp != null; temp = temp.getParent()) {
+			if (temp == loader) {
+				return true;
 			}
-			cacheMap.put(type, result);
+		}
+		return false;
+	}
+
+	private static void expungeCollectedTypes() {
+		Reference<? extends Class<?>> reference;
+		while ((reference = ValueOfStringTypeFactory.COLLECTED_TYPES.poll()) != null) {
+			// a key with a collected type is only equal to itself
+			ValueOfStringTypeFactory.DYNAMIC_FACTORIES.remove(reference);
+		}
+	}
+
+	private static <T> Class<T> typeOf(WeakReference<Class<T>> reference) {
+		Class<T> result = reference.get();
+		if (result == null) {
+			throw new IllegalStateException("Type of the factory was unloaded");
 		}
 		return result;
 	}
 
+	@SuppressWarnings("unchecked")
+	private static <E extends Enum<E>> EnumTypeFactory<E> createEnumTypeFactory(Class<?> type) {
+		return new EnumTypeFactory<E>((Class<E>) type);
+	}
+
+	private static void registerStandard(int kind, Class<?>... types) {
+		StandardTypeFactory factory = new StandardTypeFactory(kind);
+		for (Class<?> type : types) {
+			ValueOfStringTypeFactory.FACTORIES.put(type, factory);
+		}
+	}
+
 	private ValueOfStringTypeFactory(Class<InstanceType> type) {
 		if (type == null) {
 			throw new IllegalArgumentException("Null parameter: type");
 		}
-		this.valueOfMethod = getStaticValueOfStringMethod(type);
-		if (this.valueOfMethod == null) {
-			this.stringConstructor = getStringConstructor(type);
-			if (this.stringConstructor == null) {
+		this.type = new WeakReference<Class<InstanceType>>(type);
+		Method method = getStaticValueOfStringMethod(type);
+		if (method == null) {
+			Constructor<InstanceType> constructor = getStringConstructor(type);
+			if (constructor == null) {
 				throw new RuntimeException("Cannot find static valueOf(String) method or string constructor (" + type
 						+ ")");
 			}
-		} else if (!type.isAssignableFrom(this.valueOfMethod.getReturnType())) {
+			this.useConstructor = true;
+			this.stringConstructor = new WeakReference<Constructor<InstanceType>>(constructor);
+		} else if (!type.isAssignableFrom(method.getReturnType())) {
 			throw new RuntimeException("Type of the valueOf(String) method does not match with the type to create");
 		} else {
-			this.stringConstructor = null;
+			this.useConstructor = false;
+			this.valueOfMethod = new WeakReference<Method>(method);
 		}
 	}
 
@@ -86,10 +178,10 @@ public class ValueOfStringTypeFactory<InstanceType> implements ParameterFactory<
 	public InstanceType create(String value) {
 		if (value != null) {
 			try {
-				if (this.valueOfMethod != null) {
-					return (InstanceType) this.valueOfMethod.invoke(null, value);
+				if (this.useConstructor) {
+					return stringConstructor().newInstance(value);
 				} else {
-					return this.stringConstructor.newInstance(value);
+					return (InstanceType) valueOfMethod().invoke(null, value);
 				}
 			} catch (IllegalAccessException e) {
 				throw new RuntimeException(e);
@@ -102,28 +194,50 @@ public class ValueOfStringTypeFactory<InstanceType> implements ParameterFactory<
 		return null;
 	}
 
+	/**
+	 * The method is only held weakly since it references the type. It is looked up again once it
+	 * was collected.
+	 */
+	private Method valueOfMethod() {
+		Method result = this.valueOfMethod.get();
+		if (result == null) {
+			result = getStaticValueOfStringMethod(ValueOfStringTypeFactory.typeOf(this.type));
+			this.valueOfMethod = new WeakReference<Method>(result);
+		}
+		return result;
+	}
+
+	private Constructor<InstanceType> stringConstructor() {
+		Constructor<InstanceType> result = this.stringConstructor.get();
+		if (result == null) {
+			result = getStringConstructor(ValueOfStringTypeFactory.typeOf(this.type));
+			this.stringConstructor = new WeakReference<Constructor<InstanceType>>(result);
+		}
+		return result;
+	}
+
 	private static <T> Method getStaticValueOfStringMethod(Class<T> type) {
 		assert type != null;
-		Method temp = null;
-		try {
-			temp = type.getMethod("xmlValueOf", String.class);
-		} catch (NoSuchMethodException e) {
-			try {
-				temp = type.getMethod("valueOf", String.class);
-			} catch (NoSuchMethodException e2) {
-				return null;
-			}
+		Method temp = getStaticMethod(type, "xmlValueOf");
+		if (temp == null) {
+			temp = getStaticMethod(type, "valueOf");
 		}
-		assert temp != null;
-		if (Modifier.isStatic(temp.getModifiers())) {
-			if (temp.getReturnType().isAssignableFrom(type)) {
-				return temp;
-			}
+		if (temp != null && temp.getReturnType().isAssignableFrom(type)) {
+			return temp;
 		}
 		return null;
 	}
 
-	private <T> Constructor<T> getStringConstructor(Class<T> type) {
+	private static Method getStaticMethod(Class<?> type, String name) {
+		try {
+			Method temp = type.getMethod(name, String.class);
+			return Modifier.isStatic(temp.getModifiers()) ? temp : null;
+		} catch (NoSuchMethodException e) {
+			return null;
+		}
+	}
+
+	private static <T> Constructor<T> getStringConstructor(Class<T> type) {
 		assert type != null;
 		try {
 			return type.getConstructor(String.class);
@@ -132,4 +246,110 @@ public class ValueOfStringTypeFactory<InstanceType> implements ParameterFactory<
 		}
 	}
 
+	/**
+	 * Direct conversion for the JDK types with the same result as their <code>valueOf</code>
+	 * method.
+	 */
+	private static final class StandardTypeFactory implements ParameterFactory<Object, String> {
+		static final int BOOLEAN = 0;
+		static final int BYTE = 1;
+		static final int SHORT = 2;
+		static final int CHARACTER = 3;
+		static final int INTEGER = 4;
+		static final int LONG = 5;
+		static final int FLOAT = 6;
+		static final int DOUBLE = 7;
+		static final int BIG_DECIMAL = 8;
+		static final int BIG_INTEGER = 9;
+		static final int QNAME = 10;
+		static final int STRING = 11;
+
+		private final int kind;
+
+		StandardTypeFactory(int kind) {
+			this.kind = kind;
+		}
+
+		public Object create(String value) {
+			if (value == null) {
+				return null;
+			}
+			switch (this.kind) {
+				case BOOLEAN:
+					return Boolean.valueOf(value);
+				case BYTE:
+					return Byte.valueOf(value);
+				case SHORT:
+					return Short.valueOf(value);
+				case CHARACTER:
+					if (value.length() != 1) {
+						throw new IllegalArgumentException("Character value must be exactly one character long: " + value);
+					}
+					return Character.valueOf(value.charAt(0));
+				case INTEGER:
+					return Integer.valueOf(value);
+				case LONG:
+					return Long.valueOf(value);
+				case FLOAT:
+					return Float.valueOf(value);
+				case DOUBLE:
+					return Double.valueOf(value);
+				case BIG_DECIMAL:
+					return new BigDecimal(value);
+				case BIG_INTEGER:
+					return new BigInteger(value);
+				case QNAME:
+					return QName.valueOf(value);
+				default:
+					return value;
+			}
+		}
+	}
+
+	/**
+	 * Direct conversion for enum types using {@link Enum#valueOf(Class, String)}. The enum type is
+	 * only held weakly.
+	 */
+	private static final class EnumTypeFactory<E extends Enum<E>> implements ParameterFactory<E, String> {
+		private final WeakReference<Class<E>> enumType;
+
+		EnumTypeFactory(Class<E> enumType) {
+			this.enumType = new WeakReference<Class<E>>(enumType);
+		}
+
+		public E create(String value) {
+			return value == null ? null : Enum.valueOf(ValueOfStringTypeFactory.typeOf(this.enumType), value);
+		}
+	}
+
+	/**
+	 * Key of the dynamic factories holding the type weakly. Compares the types by identity and a key
+	 * whose type was collected is only equal to itself.
+	 */
+	private static final class TypeKey extends WeakReference<Class<?>> {
+		private final int hashCode;
+
+		TypeKey(Class<?> type, ReferenceQueue<Class<?>> queue) {
+			super(type, queue);
+			this.hashCode = System.identityHashCode(type);
+		}
+
+		@Override
+		public int hashCode() {
+			return this.hashCode;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (this == obj) {
+				return true;
+			}
+			if (!(obj instanceof TypeKey)) {
+				return false;
+			}
+			Class<?> type = get();
+			return type != null && type == ((TypeKey) obj).get();
+		}
+	}
+
 }
@@ -24,12 +24,25 @@
  */
 package org.jbasics.types.pools;
 
+import java.lang.ref.WeakReference;
 import java.util.ArrayList;
-import java.util.Iterator;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
-import java.util.concurrent.ArrayBlockingQueue;
-import java.util.concurrent.BlockingQueue;
+import java.util.Set;
+import java.util.concurrent.BlockingDeque;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -40,8 +53,27 @@ import org.jbasics.pattern.factory.Factory;
 import org.jbasics.pattern.pooling.NewPool;
 import org.jbasics.pattern.pooling.PooledInstance;
 
+/**
+ * A {@link NewPool} handing out at most a maximum number of active instances and blocking the caller until an instance
+ * is released or the wait time elapsed.
+ * <p>
+ * Idle instances are handed out last in first out. If an idle timeout is given a background sweeper releases instances
+ * idle for longer than the timeout. With test on borrow an instance failing to {@link LifecycleDelegate#activate()} is
+ * released and the next instance is tried instead of handing the failure to the caller. The current state and the
+ * counters of the pool can be read with {@link #getStatistics()}.
+ * </p>
+ * <p>
+ * The former protected fields <code>passiveInstances</code> and <code>managedInstances</code> are no longer
+ * accessible since they now hold entries with the idle time rather than the plain instances. Subclasses can read the
+ * instances with {@link #getPassiveInstances()} and {@link #getManagedInstances()} instead.
+ * </p>
+ *
+ * @param <T> The type of the pooled instances
+ * @author Stephan Schloepke
+ * @since 1.0
+ */
 public class BlockingPool<T> implements NewPool<T> {
-	private final Logger logger = Logger.getLogger(BlockingQueue.class.getName());
+	private final Logger logger = Logger.getLogger(BlockingPool.class.getName());
 
 	public final static long DEFAULT_MAX_WAIT = 5000;
 	public final static int DEFAULT_MAX_IDLE = 5;
@@ -50,29 +82,66 @@ public class BlockingPool<T> implements NewPool<T> {
 	protected final int maxIdle;
 	protected final int maxActive;
 	protected final long maxWait;
+	protected final long idleTimeout;
+	protected final boolean testOnBorrow;
 	protected final Factory<LifecycleDelegate<T>> instanceFactory;
 
-	protected final BlockingQueue<LifecycleDelegate<T>> passiveInstances;
-	protected final List<LifecycleDelegate<T>> managedInstances;
+	private final BlockingDeque<PoolEntry<T>> passiveInstances;
+	private final Set<PoolEntry<T>> managedInstances;
+	private final AtomicInteger managedCount = new AtomicInteger();
+	private final AtomicInteger activeCount = new AtomicInteger();
+	private final AtomicLong createdCount = new AtomicLong();
+	private final AtomicLong destroyedCount = new AtomicLong();
+	private final AtomicLong borrowedCount = new AtomicLong();
+	private final AtomicLong timeoutCount = new AtomicLong();
+	private final AtomicLong validationFailureCount = new AtomicLong();
+	private final AtomicLong totalWaitNanos = new AtomicLong();
+	private final AtomicLong maxWaitNanos = new AtomicLong();
+	private final ScheduledFuture<?> sweeper;
+	// signalled whenever an idle instance is offered or capacity is freed so waiting borrowers retry
+	private final Lock availableLock = new ReentrantLock();
+	private final Condition available = this.availableLock.newCondition();
 
-	protected boolean closed = false;
+	protected volatile boolean closed = false;
 
 	public BlockingPool(final Factory<LifecycleDelegate<T>> instanceFactory, final int maxIdle, final int maxActive, final long maxWait) {
+		this(instanceFactory, maxIdle, maxActive, maxWait, 0, false);
+	}
+
+	/**
+	 * Creates a blocking pool.
+	 *
+	 * @param instanceFactory The factory creating new instances (must not be null)
+	 * @param maxIdle The maximum number of idle instances kept (default if not greater than zero)
+	 * @param maxActive The maximum number of instances in use and idle (default if not greater than zero)
+	 * @param maxWait The time in milliseconds {@link #aquire()} waits for an instance (default if negative, zero waits
+	 *            forever)
+	 * @param idleTimeout The time in milliseconds after which an idle instance is released (zero or less keeps idle
+	 *            instances forever)
+	 * @param testOnBorrow True if an instance failing to activate should be released and replaced
+	 */
+	public BlockingPool(final Factory<LifecycleDelegate<T>> instanceFactory, final int maxIdle, final int maxActive, final long maxWait,
+			final long idleTimeout, final boolean testOnBorrow) {
 		this.instanceFactory = ContractCheck.mustNotBeNull(instanceFactory, "instanceFactory"); //$NON-NLS-1$
 		this.maxIdle = maxIdle <= 0 ? BlockingPool.DEFAULT_MAX_IDLE : maxIdle;
 		final int maxActiveTemp = maxActive <= 0 ? BlockingPool.DEFAULT_MAX_ACTIVE : maxActive;
-		this.maxActive = maxIdle > maxActiveTemp ? maxIdle : maxActiveTemp;
+		this.maxActive = this.maxIdle > maxActiveTemp ? this.maxIdle : maxActiveTemp;
 		this.maxWait = maxWait < 0 ? BlockingPool.DEFAULT_MAX_WAIT : maxWait;
-		this.passiveInstances = new ArrayBlockingQueue<LifecycleDelegate<T>>(this.maxIdle);
-		this.managedInstances = new ArrayList<LifecycleDelegate<T>>();
+		this.idleTimeout = idleTimeout < 0 ? 0 : idleTimeout;
+		this.testOnBorrow = testOnBorrow;
+		this.passiveInstances = new LinkedBlockingDeque<PoolEntry<T>>(this.maxIdle);
+		this.managedInstances = Collections.newSetFromMap(new ConcurrentHashMap<PoolEntry<T>, Boolean>());
+		if (this.idleTimeout > 0) {
+			final long period = Math.max(this.idleTimeout / 2, 1);
+			this.sweeper = Sweeper.EXECUTOR.scheduleWithFixedDelay(new Sweeper(this), period, period, TimeUnit.MILLISECONDS);
+		} else {
+			this.sweeper = null;
+		}
 	}
 
 	@Override
 	public PooledInstance<T> aquire() {
-		if (this.closed) {
-			throw new IllegalStateException("Pool already closed"); //$NON-NLS-1$
-		}
-		return new PooledDelegate(-1);
+		return aquire(this.maxWait);
 	}
 
 	@Override
@@ -86,16 +155,236 @@ public class BlockingPool<T> implements NewPool<T> {
 	@Override
 	public void close() {
 		this.closed = true;
-		for (final LifecycleDelegate<T> pooled : this.managedInstances) {
+		if (this.sweeper != null) {
+			this.sweeper.cancel(false);
+		}
+		this.passiveInstances.clear();
+		for (final PoolEntry<T> entry : this.managedInstances) {
 			try {
-				pooled.passivate();
+				entry.instance.passivate();
 			} catch (final RuntimeException e) {
 				if (this.logger.isLoggable(Level.SEVERE)) {
 					this.logger.log(Level.SEVERE, "Could not passivate pool instance", e); //$NON-NLS-1$
 				}
 			}
+			destroy(entry);
+		}
+	}
+
+	/**
+	 * Releases all idle instances which are idle longer than the idle timeout. Called by the background sweeper but can
+	 * also be called directly.
+	 *
+	 * @return The number of instances released
+	 */
+	public int evictIdleInstances() {
+		if (this.idleTimeout <= 0) {
+			return 0;
+		}
+		final long limit = System.nanoTime() - TimeUnit.MILLISECONDS.toNanos(this.idleTimeout);
+		int evicted = 0;
+		// the idle instances are used last in first out so the longest idle instances are at the end
+		for (int i = this.passiveInstances.size(); i > 0; i--) {
+			final PoolEntry<T> entry = this.passiveInstances.pollLast();
+			if (entry == null) {
+				break;
+			} else if (entry.idleSince - limit <= 0) {
+				destroy(entry);
+				evicted++;
+			} else {
+				if (this.passiveInstances.offerLast(entry)) {
+					signalAvailable(false);
+				} else {
+					destroy(entry);
+				}
+				break;
+			}
+		}
+		return evicted;
+	}
+
+	/**
+	 * Returns a snapshot of the idle instances in the order they are handed out next.
+	 *
+	 * @return The unmodifiable list of idle instances
+	 */
+	protected List<LifecycleDelegate<T>> getPassiveInstances() {
+		return BlockingPool.instancesOf(this.passiveInstances);
+	}
+
+	/**
+	 * Returns a snapshot of all instances created by this pool and not yet released (in use and idle).
+	 *
+	 * @return The unmodifiable list of managed instances
+	 */
+	protected List<LifecycleDelegate<T>> getManagedInstances() {
+		return BlockingPool.instancesOf(this.managedInstances);
+	}
+
+	private static <T> List<LifecycleDelegate<T>> instancesOf(final Collection<PoolEntry<T>> entries) {
+		final List<LifecycleDelegate<T>> result = new ArrayList<LifecycleDelegate<T>>(entries.size());
+		for (final PoolEntry<T> entry : entries) {
+			result.add(entry.instance);
+		}
+		return Collections.unmodifiableList(result);
+	}
+
+	/**
+	 * Returns a snapshot of the current state and the counters of this pool.
+	 *
+	 * @return The statistics snapshot
+	 */
+	public BlockingPoolStatistics getStatistics() {
+		return new BlockingPoolStatistics(this.maxIdle, this.maxActive, this.activeCount.get(), this.passiveInstances.size(),
+				this.createdCount.get(), this.destroyedCount.get(), this.borrowedCount.get(), this.timeoutCount.get(),
+				this.validationFailureCount.get(), this.totalWaitNanos.get(), this.maxWaitNanos.get());
+	}
+
+	private PoolEntry<T> borrow(final long timeout) {
+		final long start = System.nanoTime();
+		try {
+			while (true) {
+				PoolEntry<T> entry = this.passiveInstances.pollFirst();
+				if (entry == null) {
+					entry = create();
+				}
+				if (entry == null) {
+					// we did not create one so we must already be at the limit. Wait until an instance is given back or
+					// released and retry since a released instance frees capacity without offering anything.
+					if (!awaitAvailable(timeout > 0 ? TimeUnit.MILLISECONDS.toNanos(timeout) - (System.nanoTime() - start) : -1)) {
+						this.timeoutCount.incrementAndGet();
+						throw new RuntimeException("Pool did not provide an instance to be used within the given time out"); //$NON-NLS-1$
+					}
+					continue;
+				}
+				if (activate(entry)) {
+					this.borrowedCount.incrementAndGet();
+					this.activeCount.incrementAndGet();
+					return entry;
+				}
+			}
+		} catch (final InterruptedException e) {
+			throw DelegatedException.delegate(e);
+		} finally {
+			final long waited = System.nanoTime() - start;
+			this.totalWaitNanos.addAndGet(waited);
+			long max = this.maxWaitNanos.get();
+			while (waited > max && !this.maxWaitNanos.compareAndSet(max, waited)) {
+				max = this.maxWaitNanos.get();
+			}
+		}
+	}
+
+	/**
+	 * Waits until an idle instance is present or a new one can be created.
+	 *
+	 * @param nanos The time to wait in nanoseconds or a negative value to wait forever
+	 * @return True if the borrower should retry, false if the time elapsed
+	 * @throws InterruptedException If the waiting thread was interrupted
+	 */
+	private boolean awaitAvailable(final long nanos) throws InterruptedException {
+		long remaining = nanos;
+		this.availableLock.lock();
+		try {
+			while (this.passiveInstances.isEmpty() && this.managedCount.get() >= this.maxActive) {
+				if (this.closed) {
+					throw new IllegalStateException("Pool already closed"); //$NON-NLS-1$
+				}
+				if (nanos < 0) {
+					this.available.await();
+				} else if (remaining > 0) {
+					remaining = this.available.awaitNanos(remaining);
+				} else {
+					return false;
+				}
+			}
+			return true;
+		} catch (final InterruptedException e) {
+			// hand a signal we might have consumed on to the next waiter
+			this.available.signal();
+			throw e;
+		} finally {
+			this.availableLock.unlock();
+		}
+	}
+
+	private void signalAvailable(final boolean all) {
+		this.availableLock.lock();
+		try {
+			if (all) {
+				this.available.signalAll();
+			} else {
+				this.available.signal();
+			}
+		} finally {
+			this.availableLock.unlock();
+		}
+	}
+
+	private PoolEntry<T> create() {
+		int current;
+		do {
+			current = this.managedCount.get();
+			if (current >= this.maxActive) {
+				return null;
+			}
+		} while (!this.managedCount.compareAndSet(current, current + 1));
+		final PoolEntry<T> entry;
+		try {
+			entry = new PoolEntry<T>(this.instanceFactory.newInstance());
+		} catch (final RuntimeException e) {
+			this.managedCount.decrementAndGet();
+			signalAvailable(false);
+			throw e;
+		}
+		this.managedInstances.add(entry);
+		this.createdCount.incrementAndGet();
+		return entry;
+	}
+
+	private boolean activate(final PoolEntry<T> entry) {
+		try {
+			entry.instance.activate();
+			return true;
+		} catch (final RuntimeException e) {
+			destroy(entry);
+			if (!this.testOnBorrow) {
+				throw e;
+			}
+			this.validationFailureCount.incrementAndGet();
+			if (this.logger.isLoggable(Level.FINE)) {
+				this.logger.log(Level.FINE, "Pool instance failed to activate and is replaced", e); //$NON-NLS-1$
+			}
+			return false;
+		}
+	}
+
+	private void giveBack(final PoolEntry<T> entry) {
+		this.activeCount.decrementAndGet();
+		try {
+			entry.instance.passivate();
+		} catch (final RuntimeException e) {
+			if (this.logger.isLoggable(Level.WARNING)) {
+				this.logger.log(Level.WARNING, "Could not passivate pool instance", e); //$NON-NLS-1$
+			}
+			destroy(entry);
+			return;
+		}
+		entry.idleSince = System.nanoTime();
+		if (this.closed || !this.passiveInstances.offerFirst(entry)) {
+			destroy(entry);
+		} else {
+			signalAvailable(false);
+		}
+	}
+
+	private void destroy(final PoolEntry<T> entry) {
+		if (this.managedInstances.remove(entry)) {
+			this.managedCount.decrementAndGet();
+			this.destroyedCount.incrementAndGet();
+			signalAvailable(this.closed);
 			try {
-				pooled.release();
+				entry.instance.release();
 			} catch (final RuntimeException e) {
 				if (this.logger.isLoggable(Level.SEVERE)) {
 					this.logger.log(Level.SEVERE, "Could not release pool instance", e); //$NON-NLS-1$
@@ -106,7 +395,7 @@ public class BlockingPool<T> implements NewPool<T> {
 
 	class PooledDelegate implements PooledInstance<T> {
 		private final long timeout;
-		private LifecycleDelegate<T> instance = null;
+		private PoolEntry<T> instance = null;
 
 		protected PooledDelegate(final long timeout) {
 			this.timeout = timeout;
@@ -115,21 +404,9 @@ public class BlockingPool<T> implements NewPool<T> {
 		@Override
 		public boolean release() {
 			if (this.instance != null) {
-				this.instance.passivate();
-				if (!BlockingPool.this.passiveInstances.offer(this.instance)) {
-					this.instance.release();
-					synchronized (BlockingPool.this.managedInstances) {
-						final Iterator<LifecycleDelegate<T>> i = BlockingPool.this.managedInstances.iterator();
-						while (i.hasNext()) {
-							// we want to remove the exact instance NOT the equals checked instance
-							if (this.instance == i.next()) {
-								i.remove();
-								break;
-							}
-						}
-					}
-				}
+				final PoolEntry<T> temp = this.instance;
 				this.instance = null;
+				giveBack(temp);
 			}
 			return true;
 		}
@@ -140,33 +417,58 @@ public class BlockingPool<T> implements NewPool<T> {
 				throw new IllegalStateException("Pool already closed and therefor all pooled instance are freed"); //$NON-NLS-1$
 			}
 			if (this.instance == null) {
-				this.instance = BlockingPool.this.passiveInstances.poll();
-				if (this.instance == null) {
-					synchronized (BlockingPool.this.managedInstances) {
-						final int currentActive = BlockingPool.this.managedInstances.size();
-						if (currentActive < BlockingPool.this.maxActive) {
-							BlockingPool.this.managedInstances.add(this.instance = BlockingPool.this.instanceFactory.newInstance());
-						}
-					}
-				}
-				if (this.instance == null) {
-					// we did not create one so we must already be at the limit. Go and take rather than poll.
-					try {
-						if (this.timeout > 0) {
-							this.instance = BlockingPool.this.passiveInstances.poll(this.timeout, TimeUnit.MILLISECONDS);
-						} else {
-							this.instance = BlockingPool.this.passiveInstances.take();
-						}
-					} catch (final InterruptedException e) {
-						throw DelegatedException.delegate(e);
-					}
-					if (this.instance == null) {
-						throw new RuntimeException("Pool did not provide an instance to be used within the given time out"); //$NON-NLS-1$
-					}
+				this.instance = borrow(this.timeout);
+			}
+			return this.instance.instance.delegate();
+		}
+	}
+
+	/**
+	 * Wraps a managed instance so it can be tracked by identity and remembers since when it is idle.
+	 */
+	private static final class PoolEntry<T> {
+		final LifecycleDelegate<T> instance;
+		volatile long idleSince;
+
+		PoolEntry(final LifecycleDelegate<T> instance) {
+			this.instance = ContractCheck.mustNotBeNull(instance, "instance"); //$NON-NLS-1$
+		}
+	}
+
+	/**
+	 * Background task evicting idle instances. Only holds the pool weakly so a pool never closed can still be
+	 * collected.
+	 */
+	private static final class Sweeper implements Runnable {
+		static final ScheduledExecutorService EXECUTOR = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+			@Override
+			public Thread newThread(final Runnable r) {
+				final Thread result = new Thread(r, "BlockingPool-Sweeper"); //$NON-NLS-1$
+				result.setDaemon(true);
+				return result;
+			}
+		});
+
+		private final WeakReference<BlockingPool<?>> pool;
+
+		Sweeper(final BlockingPool<?> pool) {
+			this.pool = new WeakReference<BlockingPool<?>>(pool);
+		}
+
+		@Override
+		public void run() {
+			final BlockingPool<?> temp = this.pool.get();
+			if (temp == null) {
+				// throwing suppresses all further executions of this task
+				throw new IllegalStateException("Pool was garbage collected"); //$NON-NLS-1$
+			}
+			try {
+				temp.evictIdleInstances();
+			} catch (final RuntimeException e) {
+				if (temp.logger.isLoggable(Level.WARNING)) {
+					temp.logger.log(Level.WARNING, "Evicting idle pool instances failed", e); //$NON-NLS-1$
 				}
-				this.instance.activate();
 			}
-			return this.instance.delegate();
 		}
 	}
 
@@ -0,0 +1,173 @@
+/*
+ * Copyright (c) 2009 Stephan Schloepke and innoQ Deutschland GmbH
+ * 
+ * Stephan Schloepke: http://www.schloepke.de/
+ * innoQ Deutschland GmbH: http://www.innoq.com/
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.jbasics.types.pools;
+
+import java.util.concurrent.TimeUnit;
+
+import org.jbasics.annotation.ImmutableState;
+import org.jbasics.annotation.ThreadSafe;
+
+/**
+ * Snapshot of the state and the counters of a {@link BlockingPool}. All counters are counted since the pool was
+ * created.
+ *
+ * @author Stephan Schloepke
+ * @since 1.0
+ */
+@ThreadSafe
+@ImmutableState
+public final class BlockingPoolStatistics {
+	private final int maxIdle;
+	private final int maxActive;
+	private final int active;
+	private final int idle;
+	private final long created;
+	private final long destroyed;
+	private final long borrowed;
+	private final long timeouts;
+	private final long validationFailures;
+	private final long totalWaitNanos;
+	private final long maxWaitNanos;
+
+	public BlockingPoolStatistics(final int maxIdle, final int maxActive, final int active, final int idle, final long created,
+			final long destroyed, final long borrowed, final long timeouts, final long validationFailures, final long totalWaitNanos,
+			final long maxWaitNanos) {
+		this.maxIdle = maxIdle;
+		this.maxActive = maxActive;
+		this.active = active;
+		this.idle = idle;
+		this.created = created;
+		this.destroyed = destroyed;
+		this.borrowed = borrowed;
+		this.timeouts = timeouts;
+		this.validationFailures = validationFailures;
+		this.totalWaitNanos = totalWaitNanos;
+		this.maxWaitNanos = maxWaitNanos;
+	}
+
+	public int getMaxIdle() {
+		return this.maxIdle;
+	}
+
+	public int getMaxActive() {
+		return this.maxActive;
+	}
+
+	/**
+	 * Returns the number of instances currently borrowed.
+	 *
+	 * @return The number of active instances
+	 */
+	public int getActive() {
+		return this.active;
+	}
+
+	/**
+	 * Returns the number of instances currently waiting in the pool.
+	 *
+	 * @return The number of idle instances
+	 */
+	public int getIdle() {
+		return this.idle;
+	}
+
+	public long getCreated() {
+		return this.created;
+	}
+
+	/**
+	 * Returns the number of instances released because the pool was full, they were idle for too long or failed to
+	 * activate or passivate.
+	 *
+	 * @return The number of destroyed instances
+	 */
+	public long getDestroyed() {
+		return this.destroyed;
+	}
+
+	public long getBorrowed() {
+		return this.borrowed;
+	}
+
+	/**
+	 * Returns the number of borrow requests which did not get an instance within their time out.
+	 *
+	 * @return The number of time outs
+	 */
+	public long getTimeouts() {
+		return this.timeouts;
+	}
+
+	/**
+	 * Returns the number of instances replaced because they failed to activate on borrow.
+	 *
+	 * @return The number of validation failures
+	 */
+	public long getValidationFailures() {
+		return this.validationFailures;
+	}
+
+	/**
+	 * Returns the accumulated time in nanoseconds callers waited to borrow an instance (including creation).
+	 *
+	 * @return The total wait time in nanoseconds
+	 */
+	public long getTotalWaitNanos() {
+		return this.totalWaitNanos;
+	}
+
+	/**
+	 * Returns the longest time in nanoseconds a caller waited to borrow an instance.
+	 *
+	 * @return The maximum wait time in nanoseconds
+	 */
+	public long getMaxWaitNanos() {
+		return this.maxWaitNanos;
+	}
+
+	/**
+	 * Returns the average time in nanoseconds a borrow request waited.
+	 *
+	 * @return The average wait time in nanoseconds
+	 */
+	public long getAverageWaitNanos() {
+		final long requests = this.borrowed + this.timeouts;
+		return requests == 0 ? 0 : this.totalWaitNanos / requests;
+	}
+
+	@Override
+	public String toString() {
+		final StringBuilder builder = new StringBuilder();
+		builder.append("BlockingPoolStatistics [active=").append(this.active).append(", idle=").append(this.idle) //$NON-NLS-1$ //$NON-NLS-2$
+				.append(", maxActive=").append(this.maxActive).append(", maxIdle=").append(this.maxIdle) //$NON-NLS-1$ //$NON-NLS-2$
+				.append(", created=").append(this.created).append(", destroyed=").append(this.destroyed) //$NON-NLS-1$ //$NON-NLS-2$
+				.append(", borrowed=").append(this.borrowed).append(", timeouts=").append(this.timeouts) //$NON-NLS-1$ //$NON-NLS-2$
+				.append(", validationFailures=").append(this.validationFailures) //$NON-NLS-1$
+				.append(", averageWait=").append(TimeUnit.NANOSECONDS.toMillis(getAverageWaitNanos())) //$NON-NLS-1$
+				.append("ms, maxWait=").append(TimeUnit.NANOSECONDS.toMillis(this.maxWaitNanos)).append("ms]"); //$NON-NLS-1$ //$NON-NLS-2$
+		return builder.toString();
+	}
+
+}
@@ -0,0 +1,172 @@
+/*
+ * Copyright (c) 2009 Stephan Schloepke and innoQ Deutschland GmbH
+ * 
+ * Stephan Schloepke: http://www.schloepke.de/
+ * innoQ Deutschland GmbH: http://www.innoq.com/
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.jbasics.types.pools;
+
+import java.lang.ref.SoftReference;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import org.jbasics.checker.ContractCheck;
+import org.jbasics.pattern.factory.Factory;
+import org.jbasics.pattern.pooling.Pool;
+
+/**
+ * A {@link Pool} without any lock suitable for many threads acquiring and releasing at a high rate.
+ * <p>
+ * Idle instances are kept in a number of slots and each thread uses the slot selected by its id and the neighbouring
+ * slots first. Only if those slots are empty (on acquire) or taken (on release) the shared overflow queue is used. The number of idle instances is
+ * bounded by the maximum pool size. If the pool is empty a new instance is created with the factory so acquire never
+ * blocks.
+ * </p>
+ * <p>
+ * Like the {@link LazyQueuePool} the idle instances are only softly referenced. Under memory pressure the garbage
+ * collector can drop all of them and the pool starts over empty.
+ * </p>
+ *
+ * @param <T> The type of the pool instance.
+ * @author Stephan Schloepke
+ * @since 1.0
+ */
+public class StripedPool<T> implements Pool<T> {
+	private static final int MAX_STRIPES = 64;
+	private static final int NEIGHBOURS_TO_PROBE = 2;
+
+	private final Factory<T> factory;
+	private final int stripes;
+	private final int mask;
+	private final int maxOverflowSize;
+	private volatile SoftReference<Store<T>> store;
+
+	/**
+	 * Creates a pool keeping up to two idle instances per stripe.
+	 *
+	 * @param factory The factory to create new instances (must not be null).
+	 */
+	public StripedPool(final Factory<T> factory) {
+		this(factory, StripedPool.defaultStripes() * 2);
+	}
+
+	/**
+	 * Creates a pool keeping up to maxPoolSize idle instances.
+	 *
+	 * @param factory The factory to create new instances (must not be null).
+	 * @param maxPoolSize The maximum number of idle instances (must not be negative, zero disables pooling).
+	 */
+	public StripedPool(final Factory<T> factory, final int maxPoolSize) {
+		this.factory = ContractCheck.mustNotBeNull(factory, "factory"); //$NON-NLS-1$
+		ContractCheck.mustBeInRange(maxPoolSize, 0, Integer.MAX_VALUE, "maxPoolSize"); //$NON-NLS-1$
+		int stripes = 1;
+		while (stripes < StripedPool.defaultStripes() && stripes * 2 <= maxPoolSize) {
+			stripes <<= 1;
+		}
+		this.stripes = maxPoolSize == 0 ? 0 : stripes;
+		this.mask = stripes - 1;
+		this.maxOverflowSize = maxPoolSize - this.stripes;
+	}
+
+	public T acquire() {
+		final Store<T> current = this.store != null ? this.store.get() : null;
+		if (current != null) {
+			final int length = current.slots.length();
+			final int index = stripe();
+			for (int i = 0; i <= StripedPool.NEIGHBOURS_TO_PROBE && i < length; i++) {
+				final int slot = index + i & this.mask;
+				final T result = current.slots.get(slot);
+				if (result != null && current.slots.compareAndSet(slot, result, null)) {
+					return result;
+				}
+			}
+			final T result = current.overflow.poll();
+			if (result != null) {
+				current.overflowSize.decrementAndGet();
+				return result;
+			}
+		}
+		return this.factory.newInstance();
+	}
+
+	public boolean release(final T object) {
+		if (object == null || this.stripes == 0) {
+			return false;
+		}
+		final Store<T> current = store();
+		final int index = stripe();
+		for (int i = 0; i <= StripedPool.NEIGHBOURS_TO_PROBE && i < this.stripes; i++) {
+			final int slot = index + i & this.mask;
+			if (current.slots.get(slot) == null && current.slots.compareAndSet(slot, null, object)) {
+				return true;
+			}
+		}
+		if (current.overflowSize.incrementAndGet() <= this.maxOverflowSize) {
+			return current.overflow.offer(object);
+		}
+		current.overflowSize.decrementAndGet();
+		return false;
+	}
+
+	private Store<T> store() {
+		Store<T> result = this.store != null ? this.store.get() : null;
+		if (result == null) {
+			// Two threads may create a store at the same time, the instances of the lost one are simply collected
+			result = new Store<T>(this.stripes);
+			this.store = new SoftReference<Store<T>>(result);
+		}
+		return result;
+	}
+
+	private int stripe() {
+		// spread the thread ids since they are usually sequential
+		final long id = Thread.currentThread().getId();
+		final int hash = (int) (id ^ id >>> 32) * 0x9E3779B9;
+		return (hash ^ hash >>> 16) & this.mask;
+	}
+
+	private static int defaultStripes() {
+		final int processors = Runtime.getRuntime().availableProcessors();
+		int stripes = 1;
+		while (stripes < processors && stripes < StripedPool.MAX_STRIPES) {
+			stripes <<= 1;
+		}
+		return stripes;
+	}
+
+	/**
+	 * The softly referenced idle instances.
+	 */
+	private static final class Store<T> {
+		final AtomicReferenceArray<T> slots;
+		final Queue<T> overflow;
+		final AtomicInteger overflowSize;
+
+		Store(final int stripes) {
+			this.slots = new AtomicReferenceArray<T>(stripes);
+			this.overflow = new ConcurrentLinkedQueue<T>();
+			this.overflowSize = new AtomicInteger();
+		}
+	}
+
+}
@@ -0,0 +1,326 @@
+/*
+ * Copyright (c) 2009 Stephan Schloepke and innoQ Deutschland GmbH
+ * 
+ * Stephan Schloepke: http://www.schloepke.de/
+ * innoQ Deutschland GmbH: http://www.innoq.com/
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.jbasics.xml.transform;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.JarURLConnection;
+import java.net.MalformedURLException;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.net.URLConnection;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import javax.xml.transform.Source;
+import javax.xml.transform.Templates;
+import javax.xml.transform.Transformer;
+import javax.xml.transform.TransformerConfigurationException;
+import javax.xml.transform.TransformerFactory;
+import javax.xml.transform.dom.DOMSource;
+import javax.xml.transform.sax.SAXSource;
+import javax.xml.transform.stream.StreamSource;
+
+import org.xml.sax.InputSource;
+
+import org.jbasics.checker.ContractCheck;
+import org.jbasics.exception.DelegatedException;
+import org.jbasics.pattern.delegation.Delegate;
+import org.jbasics.types.delegates.LazySoftReferenceDelegate;
+
+/**
+ * Cache of compiled style sheets ({@link Templates}) keyed by the URL (system id) of the style sheet.
+ * <p>
+ * A style sheet is compiled once and recompiled only if its modification time changes. The modification time is
+ * checked at most once per check interval. For files the file time stamp is used, for HTTP a HEAD request and for other
+ * URLs the connection. Only sources which merely reference a style sheet by a URL system id are cached. Sources
+ * carrying their content (a stream, reader or node) or having no URL system id cannot be identified reliably and are
+ * always compiled.
+ * </p>
+ * <p>
+ * {@link #getTransformer(URL)} returns a {@link Transformer} private to the calling thread which is reset and reused on
+ * the next call of the same thread for the same style sheet. {@link #newTransformer(URL)} returns a new transformer
+ * the caller can keep.
+ * </p>
+ *
+ * @author Stephan Schloepke
+ * @since 1.0
+ */
+public class TemplatesCache {
+	public static final long DEFAULT_CHECK_INTERVAL = 1000;
+	public static final TemplatesCache SHARED_INSTANCE = new TemplatesCache();
+
+	private final Delegate<TransformerFactory> transformerFactoryDelegate;
+	private final long checkInterval;
+	private final ConcurrentMap<String, Entry> templates = new ConcurrentHashMap<String, Entry>();
+	private final ThreadLocal<Map<Templates, Transformer>> threadTransformers = new ThreadLocal<Map<Templates, Transformer>>() {
+		@Override
+		protected Map<Templates, Transformer> initialValue() {
+			// weak so replaced templates do not stay reachable through the threads
+			return new WeakHashMap<Templates, Transformer>();
+		}
+	};
+
+	public TemplatesCache() {
+		this(null, TemplatesCache.DEFAULT_CHECK_INTERVAL);
+	}
+
+	/**
+	 * Creates a templates cache.
+	 *
+	 * @param transformerFactoryDelegate The delegate of the factory to compile the style sheets with (default factory if
+	 *            null)
+	 * @param checkInterval The minimum time in milliseconds between two checks of the modification time of a style
+	 *            sheet (zero checks on every access, negative never checks)
+	 */
+	public TemplatesCache(final Delegate<TransformerFactory> transformerFactoryDelegate, final long checkInterval) {
+		this.transformerFactoryDelegate = transformerFactoryDelegate != null ? transformerFactoryDelegate
+				: new LazySoftReferenceDelegate<TransformerFactory>(new TransformerFactoryFactory());
+		this.checkInterval = checkInterval;
+	}
+
+	/**
+	 * Returns the compiled style sheet of the given URL.
+	 *
+	 * @param stylesheet The URL of the style sheet (must not be null)
+	 * @return The compiled style sheet
+	 */
+	public Templates getTemplates(final URL stylesheet) {
+		final String systemId = ContractCheck.mustNotBeNull(stylesheet, "stylesheet").toExternalForm(); //$NON-NLS-1$
+		return getEntry(systemId).get(stylesheet);
+	}
+
+	/**
+	 * Returns the compiled style sheet of the given source. If the source only references the style sheet by a URL
+	 * system id the cached style sheet of the URL is returned. Any other source is compiled on every call since its
+	 * content may differ from what the system id points to.
+	 *
+	 * @param source The source of the style sheet (must not be null)
+	 * @return The compiled style sheet
+	 */
+	public Templates getTemplates(final Source source) {
+		final URL url = TemplatesCache.referencedURL(ContractCheck.mustNotBeNull(source, "source")); //$NON-NLS-1$
+		if (url == null) {
+			return compile(source);
+		}
+		return getTemplates(url);
+	}
+
+	/**
+	 * Returns the transformer of the calling thread for the given style sheet. The transformer is reset and must not be
+	 * used any more once the same thread requests a transformer for the same style sheet again.
+	 *
+	 * @param stylesheet The URL of the style sheet (must not be null)
+	 * @return The reset transformer of the calling thread
+	 */
+	public Transformer getTransformer(final URL stylesheet) {
+		final Templates temp = getTemplates(stylesheet);
+		final Map<Templates, Transformer> transformers = this.threadTransformers.get();
+		Transformer result = transformers.get(temp);
+		if (result == null) {
+			result = TemplatesCache.newTransformer(temp);
+			transformers.put(temp, result);
+		} else {
+			// not every implementation drops the parameters on reset
+			result.reset();
+			result.clearParameters();
+		}
+		return result;
+	}
+
+	/**
+	 * Returns a new transformer for the given style sheet.
+	 *
+	 * @param stylesheet The URL of the style sheet (must not be null)
+	 * @return The new transformer
+	 */
+	public Transformer newTransformer(final URL stylesheet) {
+		return TemplatesCache.newTransformer(getTemplates(stylesheet));
+	}
+
+	/**
+	 * Returns a new transformer for the given style sheet.
+	 *
+	 * @param source The source of the style sheet (must not be null)
+	 * @return The new transformer
+	 */
+	public Transformer newTransformer(final Source source) {
+		return TemplatesCache.newTransformer(getTemplates(source));
+	}
+
+	/**
+	 * Removes all compiled style sheets.
+	 */
+	public void clear() {
+		this.templates.clear();
+	}
+
+	private Entry getEntry(final String systemId) {
+		Entry result = this.templates.get(systemId);
+		if (result == null) {
+			final Entry temp = new Entry(systemId);
+			result = this.templates.putIfAbsent(systemId, temp);
+			if (result == null) {
+				result = temp;
+			}
+		}
+		return result;
+	}
+
+	private Templates compile(final Source source) {
+		final TransformerFactory factory = this.transformerFactoryDelegate.delegate();
+		try {
+			// a transformer factory is not thread safe
+			synchronized (factory) {
+				return factory.newTemplates(source);
+			}
+		} catch (final TransformerConfigurationException e) {
+			throw DelegatedException.delegate(e);
+		}
+	}
+
+	/**
+	 * Returns the URL of the system id if the source has no content of its own and only references the style sheet.
+	 *
+	 * @param source The source
+	 * @return The URL or null if the source carries content or has no URL system id
+	 */
+	private static URL referencedURL(final Source source) {
+		final String systemId = source.getSystemId();
+		if (systemId == null) {
+			return null;
+		}
+		if (source instanceof StreamSource) {
+			final StreamSource temp = (StreamSource) source;
+			if (temp.getInputStream() != null || temp.getReader() != null) {
+				return null;
+			}
+		} else if (source instanceof SAXSource) {
+			final SAXSource temp = (SAXSource) source;
+			final InputSource input = temp.getInputSource();
+			if (temp.getXMLReader() != null || input != null && (input.getByteStream() != null || input.getCharacterStream() != null)) {
+				return null;
+			}
+		} else if (!(source instanceof DOMSource) || ((DOMSource) source).getNode() != null) {
+			return null;
+		}
+		try {
+			return new URL(systemId);
+		} catch (final MalformedURLException e) {
+			return null;
+		}
+	}
+
+	private static Transformer newTransformer(final Templates templates) {
+		try {
+			return templates.newTransformer();
+		} catch (final TransformerConfigurationException e) {
+			throw DelegatedException.delegate(e);
+		}
+	}
+
+	private static long lastModified(final URL url) {
+		if ("file".equals(url.getProtocol())) { //$NON-NLS-1$
+			try {
+				return new File(url.toURI()).lastModified();
+			} catch (final URISyntaxException e) {
+				// fall back to the connection
+			} catch (final IllegalArgumentException e) {
+				// fall back to the connection
+			}
+		}
+		try {
+			final URLConnection connection = url.openConnection();
+			if (connection instanceof JarURLConnection) {
+				// the entries of a jar change with the jar itself
+				return TemplatesCache.lastModified(((JarURLConnection) connection).getJarFileURL());
+			}
+			if (connection instanceof HttpURLConnection) {
+				final HttpURLConnection http = (HttpURLConnection) connection;
+				try {
+					http.setRequestMethod("HEAD"); //$NON-NLS-1$
+					return http.getLastModified();
+				} finally {
+					http.disconnect();
+				}
+			}
+			try {
+				return connection.getLastModified();
+			} finally {
+				// getLastModified opens the stream for some protocols (like jar) which we need to close again
+				try {
+					connection.getInputStream().close();
+				} catch (final IOException e) {
+					// ignore since we only wanted to release it
+				}
+			}
+		} catch (final IOException e) {
+			return 0;
+		}
+	}
+
+	private final class Entry {
+		private final String systemId;
+		private Templates templates;
+		private long lastModified;
+		private long lastChecked;
+
+		Entry(final String systemId) {
+			this.systemId = systemId;
+		}
+
+		synchronized Templates get(final URL url) {
+			final long now = System.currentTimeMillis();
+			if (this.templates != null && (TemplatesCache.this.checkInterval < 0 || now - this.lastChecked < TemplatesCache.this.checkInterval)) {
+				return this.templates;
+			}
+			final long modified = TemplatesCache.lastModified(url);
+			this.lastChecked = now;
+			if (this.templates == null || modified != this.lastModified) {
+				this.lastModified = modified;
+				this.templates = compile(url);
+			}
+			return this.templates;
+		}
+
+		private Templates compile(final URL url) {
+			try {
+				final InputStream in = url.openStream();
+				try {
+					return TemplatesCache.this.compile(new StreamSource(in, this.systemId));
+				} finally {
+					in.close();
+				}
+			} catch (final IOException e) {
+				throw DelegatedException.delegate(e);
+			}
+		}
+	}
+
+}
@@ -35,6 +35,14 @@ import org.jbasics.pattern.factory.Factory;
 import org.jbasics.pattern.factory.ParameterFactory;
 import org.jbasics.types.delegates.LazySoftReferenceDelegate;
 
+/**
+ * Factory creating {@link Transformer}s. Transformers for a style sheet source are created from compiled style sheets
+ * kept in a {@link TemplatesCache} so a style sheet referenced by a URL system id is only compiled once. A source
+ * carrying its content (a stream, reader or node) is compiled every time.
+ *
+ * @author Stephan Schloepke
+ * @since 1.0
+ */
 public class XMLTransformerFactory implements Factory<Transformer>, ParameterFactory<Transformer, Source> {
 	public final static XMLTransformerFactory SHARED_INSTANCE = new XMLTransformerFactory();
 
@@ -42,14 +50,17 @@ public class XMLTransformerFactory implements Factory<Transformer>, ParameterFac
 			new LazySoftReferenceDelegate<TransformerFactory>(new TransformerFactoryFactory());
 
 	private final Delegate<TransformerFactory> transformerFactoryDelegate;
+	private final TemplatesCache templatesCache;
 
 	public XMLTransformerFactory() {
 		this(null);
 	}
 
 	public XMLTransformerFactory(final Delegate<TransformerFactory> tranformerFactoryDelegate) {
-		this.transformerFactoryDelegate = this.transformerFactoryDelegate != null ? tranformerFactoryDelegate :
+		this.transformerFactoryDelegate = tranformerFactoryDelegate != null ? tranformerFactoryDelegate :
 				XMLTransformerFactory.DEFAULT_TRANSFORMER_FACTORY_DELEGATE;
+		this.templatesCache = tranformerFactoryDelegate != null ? new TemplatesCache(tranformerFactoryDelegate,
+				TemplatesCache.DEFAULT_CHECK_INTERVAL) : TemplatesCache.SHARED_INSTANCE;
 	}
 
 	@Override
@@ -66,11 +77,7 @@ public class XMLTransformerFactory implements Factory<Transformer>, ParameterFac
 		if (templateSource == null) {
 			return newInstance();
 		} else {
-			try {
-				return this.transformerFactoryDelegate.delegate().newTransformer(templateSource);
-			} catch (final TransformerConfigurationException e) {
-				throw DelegatedException.delegate(e);
-			}
+			return this.templatesCache.newTransformer(templateSource);
 		}
 	}
 
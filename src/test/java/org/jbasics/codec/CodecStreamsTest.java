@@ -0,0 +1,121 @@
+/*
+ * Copyright (c) 2009 Stephan Schloepke and innoQ Deutschland GmbH
+ * 
+ * Stephan Schloepke: http://www.schloepke.de/
+ * innoQ Deutschland GmbH: http://www.innoq.com/
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.jbasics.codec;
+
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import org.jbasics.pattern.coder.Codec;
+import org.jbasics.pattern.coder.CodecSink;
+import org.jbasics.pattern.coder.Decoder;
+import org.jbasics.pattern.coder.Encoder;
+import org.jbasics.pattern.coder.StreamDecoder;
+import org.jbasics.pattern.coder.StreamEncoder;
+
+@SuppressWarnings("nls")
+public class CodecStreamsTest {
+
+	private static byte[] createData(final int size) {
+		final byte[] data = new byte[size];
+		new Random(4711).nextBytes(data);
+		return data;
+	}
+
+	@Test
+	public void testBase64Streaming() {
+		for (final int size : new int[] { 0, 1, 2, 3, 4, 3071, 3072, 3073, 100000 }) {
+			final byte[] data = CodecStreamsTest.createData(size);
+			final String expected = RFC3548Base64Codec.INSTANCE.encode(data).toString();
+			Assert.assertEquals(expected, CodecStreams.encode(RFC3548Base64Codec.INSTANCE, data));
+			Assert.assertArrayEquals(data, CodecStreams.decode(RFC3548Base64Codec.INSTANCE, expected));
+		}
+	}
+
+	@Test
+	public void testChunkedStreaming() {
+		final ChunkedEncoder encoder = new ChunkedEncoder(76, "\r\n");
+		final String input = RFC3548Base64Codec.INSTANCE.encode(CodecStreamsTest.createData(50000)).toString();
+		final CollectingCodecSink<CharSequence> result = new CollectingCodecSink<CharSequence>();
+		final CodecSink<CharSequence> sink = encoder.openEncoder(result);
+		// odd pieces to check the chunks are counted across writes
+		for (int i = 0; i < input.length(); i += 33) {
+			sink.write(input.substring(i, Math.min(input.length(), i + 33)));
+		}
+		sink.close();
+		Assert.assertEquals(encoder.encode(input).toString(), result.getResult());
+	}
+
+	@Test
+	public void testFusedChain() {
+		final StringBuilder temp = new StringBuilder();
+		for (int i = 0; i < 20000; i++) {
+			temp.append("Line ").append(i).append(" with some text \u00e4\u00f6\u00fc\u20ac\n");
+		}
+		final String input = temp.toString();
+		final XOrCryptCodec crypt = new XOrCryptCodec("secret");
+		final ChunkedEncoder chunked = new ChunkedEncoder(76, "\n");
+		final Encoder<CharSequence, CharSequence> encoder = new EncoderChain<CharSequence, CharSequence>(
+				new EncoderChain<CharSequence, CharSequence>(crypt, RFC3548Base64Codec.INSTANCE), chunked);
+		final Decoder<CharSequence, CharSequence> decoder = new DecoderChain<CharSequence, CharSequence>(RFC3548Base64Codec.INSTANCE, crypt);
+		final CharSequence encoded = encoder.encode(input);
+		Assert.assertEquals(76, encoded.toString().indexOf('\n'));
+		Assert.assertEquals(input, decoder.decode(encoded).toString());
+		// the none fused way needs to be able to read it as well
+		Assert.assertEquals(input, crypt.decode(RFC3548Base64Codec.INSTANCE.decode(encoded)).toString());
+	}
+
+	@Test
+	public void testAdaptedStages() {
+		final Codec<byte[], byte[]> reverse = new Codec<byte[], byte[]>() {
+			@Override
+			public byte[] encode(final byte[] input) {
+				final byte[] result = new byte[input.length];
+				for (int i = 0; i < input.length; i++) {
+					result[i] = input[input.length - i - 1];
+				}
+				return result;
+			}
+
+			@Override
+			public byte[] decode(final byte[] encodedInput) {
+				return encode(encodedInput);
+			}
+		};
+		final StreamEncoder<byte[], byte[]> streamEncoder = CodecStreams.streamEncoder(reverse);
+		final StreamDecoder<byte[], byte[]> streamDecoder = CodecStreams.streamDecoder(reverse);
+		Assert.assertSame(RFC3548Base64Codec.INSTANCE, CodecStreams.streamEncoder(RFC3548Base64Codec.INSTANCE));
+		final byte[] data = CodecStreamsTest.createData(20000);
+		final byte[] reversed = CodecStreams.encode(streamEncoder, data);
+		Assert.assertEquals(data[0], reversed[reversed.length - 1]);
+		Assert.assertArrayEquals(data, CodecStreams.decode(streamDecoder, reversed));
+		final Codec<byte[], CharSequence> codec = new CombinedCodec<byte[], CharSequence>(
+				new EncoderChain<byte[], CharSequence>(reverse, RFC3548Base16Codec.INSTANCE),
+				new DecoderChain<byte[], CharSequence>(RFC3548Base16Codec.INSTANCE, reverse));
+		Assert.assertArrayEquals(data, codec.decode(codec.encode(data)));
+	}
+
+}
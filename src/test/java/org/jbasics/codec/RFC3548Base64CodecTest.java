@@ -24,6 +24,13 @@
  */
 package org.jbasics.codec;
 
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
 import java.util.Arrays;
 import java.util.Collection;
 
@@ -106,6 +113,45 @@ public class RFC3548Base64CodecTest {
 		}
 	}
 
+	@Test
+	public void testBase64Buffers() throws Exception {
+		final byte[] data = this.testData.getBytes("ISO-8859-1");
+		final RFC3548Base64Codec coder = RFC3548Base64Codec.INSTANCE;
+		Assert.assertEquals(this.expectedCoded.length(), coder.getEncodedLength(data.length));
+		final ByteBuffer in = ByteBuffer.wrap(data);
+		final CharBuffer out = CharBuffer.allocate(coder.getEncodedLength(data.length));
+		Assert.assertTrue(coder.encode(in, out, true));
+		Assert.assertFalse(in.hasRemaining());
+		out.flip();
+		Assert.assertEquals(this.expectedCoded, out.toString());
+		final ByteBuffer decoded = ByteBuffer.allocate(data.length + 3);
+		Assert.assertTrue(coder.decode(out, decoded, true));
+		decoded.flip();
+		Assert.assertEquals(ByteBuffer.wrap(data), decoded);
+	}
+
+	@Test
+	public void testBase64Streams() throws Exception {
+		final byte[] data = this.testData.getBytes("ISO-8859-1");
+		final StringWriter writer = new StringWriter();
+		final OutputStream encoding = RFC3548Base64Codec.INSTANCE.newEncodingStream(writer);
+		for (final byte b : data) {
+			encoding.write(b);
+			encoding.flush();
+		}
+		encoding.close();
+		Assert.assertEquals(this.expectedCoded, writer.toString());
+		final InputStream decoding = RFC3548Base64Codec.INSTANCE.newDecodingStream(new StringReader(this.expectedCoded));
+		final ByteArrayOutputStream decoded = new ByteArrayOutputStream();
+		final byte[] buffer = new byte[2];
+		int read;
+		while ((read = decoding.read(buffer)) >= 0) {
+			decoded.write(buffer, 0, read);
+		}
+		decoding.close();
+		Assert.assertArrayEquals(data, decoded.toByteArray());
+	}
+
 	@Test
 	public void testNullAccess() {
 		RFC3548Base64Codec coder = new RFC3548Base64Codec(true, true);
@@ -0,0 +1,79 @@
+/*
+ * Copyright (c) 2009 Stephan Schloepke and innoQ Deutschland GmbH
+ * 
+ * Stephan Schloepke: http://www.schloepke.de/
+ * innoQ Deutschland GmbH: http://www.innoq.com/
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.jbasics.csv;
+
+import java.io.IOException;
+import java.io.StringReader;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class CSVColumnTableTest {
+	private static final String DATA = "ID,Name,Amount,Price\r\n" + // Dont break;
+			"1,One,10,1.5\r\n" + // Dont break;
+			"2,\"Two, \"\"quoted\"\"\",-20,2.25\r\n" + // Dont break;
+			"3,Three,9223372036854775807,\n" + // Dont break;
+			"4,Four\n"; // Dont break;
+
+	@Test
+	public void testBuildFromParser() throws IOException {
+		final CSVColumnTableBuilder builder = new CSVColumnTableBuilder();
+		new CSVParser().parse(new StringReader(CSVColumnTableTest.DATA), builder);
+		final CSVColumnTable table = builder.build();
+		final CSVTable expected = new CSVParser().parse(CSVColumnTableTest.DATA);
+		Assert.assertEquals(4, table.size());
+		Assert.assertEquals(4, table.getColumnCount());
+		Assert.assertEquals(expected.toString(), table.toString());
+		Assert.assertEquals(expected.toString(), table.toTable().toString());
+		Assert.assertEquals("Two, \"quoted\"", table.getField(1, 1));
+		Assert.assertEquals("Two, \"quoted\"", table.getFieldChars(1, 1).toString());
+		Assert.assertEquals(2, table.getRecordSize(3));
+		Assert.assertEquals(2, table.getRecord(3).size());
+		Assert.assertEquals(2, table.getColumnIndex("Amount"));
+		Assert.assertEquals(4, table.map("Name").size());
+	}
+
+	@Test
+	public void testTypedColumns() {
+		final CSVColumnTable table = new CSVColumnTableBuilder().appendRecords(new CSVParser().parse(CSVColumnTableTest.DATA)).build();
+		Assert.assertArrayEquals(new int[] { 1, 2, 3, 4 }, table.getIntColumn(0));
+		Assert.assertSame(table.getIntColumn(0), table.getIntColumn(0));
+		Assert.assertArrayEquals(new long[] { 10L, -20L, Long.MAX_VALUE, 0L }, table.getLongColumn(2));
+		Assert.assertArrayEquals(new double[] { 1.5d, 2.25d, 0.0d, 0.0d }, table.getDoubleColumn(3), 0.0d);
+		try {
+			table.getIntColumn(2);
+			Assert.fail("Long.MAX_VALUE must not fit into an int column");
+		} catch (final NumberFormatException e) {
+			// expected
+		}
+		try {
+			table.getLongColumn(1);
+			Assert.fail("Names are not numbers");
+		} catch (final NumberFormatException e) {
+			// expected
+		}
+	}
+
+}
@@ -0,0 +1,86 @@
+/*
+ * Copyright (c) 2009 Stephan Schloepke and innoQ Deutschland GmbH
+ * 
+ * Stephan Schloepke: http://www.schloepke.de/
+ * innoQ Deutschland GmbH: http://www.innoq.com/
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.jbasics.csv;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class CSVFieldTokenizerTest {
+
+	@Test
+	public void testSlicesAndCopies() throws IOException {
+		final String data = "plain,\"quoted\",\"with \"\"escape\"\"\",mid\"dle\"x,\r\n\r\n\"multi\nline\",last";
+		// tiny buffer to force compaction and growing while in a field
+		final CSVFieldTokenizer tokenizer = new CSVFieldTokenizer(new StringReader(data), ',', true, 4);
+		final List<String> values = new ArrayList<String>();
+		final List<Class<?>> types = new ArrayList<Class<?>>();
+		final CSVFieldVisitor visitor = new CSVFieldVisitor() {
+			public void visitField(final int index, final CharSequence value) {
+				Assert.assertEquals(values.size() < 5 ? values.size() : values.size() - 5, index);
+				values.add(value.toString());
+				types.add(value.getClass());
+			}
+		};
+		Assert.assertEquals(5, tokenizer.nextRecord(visitor));
+		Assert.assertEquals(2, tokenizer.nextRecord(visitor));
+		Assert.assertEquals(-1, tokenizer.nextRecord(visitor));
+		tokenizer.close();
+		Assert.assertEquals("plain", values.get(0));
+		Assert.assertEquals("quoted", values.get(1));
+		Assert.assertEquals("with \"escape\"", values.get(2));
+		Assert.assertEquals("middlex", values.get(3));
+		Assert.assertEquals("", values.get(4));
+		Assert.assertEquals("multi\nline", values.get(5));
+		Assert.assertEquals("last", values.get(6));
+		// only the fields which are not consecutive in the input are copied
+		Assert.assertSame(types.get(0), types.get(1));
+		Assert.assertSame(StringBuilder.class, types.get(2));
+		Assert.assertSame(StringBuilder.class, types.get(3));
+		Assert.assertSame(types.get(0), types.get(5));
+	}
+
+	@Test
+	public void testSelectedFieldsOnly() throws IOException {
+		final CSVFieldTokenizer tokenizer = new CSVFieldTokenizer(new StringReader("a,1,x\nb,2,y\nc,3,z\n"));
+		final long[] sum = new long[1];
+		final CSVFieldVisitor visitor = new CSVFieldVisitor() {
+			public void visitField(final int index, final CharSequence value) {
+				if (index == 1) {
+					sum[0] += value.charAt(0) - '0';
+				}
+			}
+		};
+		while (tokenizer.nextRecord(visitor) >= 0) {
+			// just consume
+		}
+		Assert.assertEquals(6L, sum[0]);
+	}
+
+}
@@ -0,0 +1,114 @@
+/*
+ * Copyright (c) 2009 Stephan Schloepke and innoQ Deutschland GmbH
+ * 
+ * Stephan Schloepke: http://www.schloepke.de/
+ * innoQ Deutschland GmbH: http://www.innoq.com/
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.jbasics.csv;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class CSVMappedFileParserTest {
+
+	@Test
+	public void testParseSameAsParser() throws IOException {
+		final StringBuilder t = new StringBuilder("ID,Name,Comment\r\n");
+		for (int i = 0; i < 500; i++) {
+			t.append(i).append(",Name ").append(i).append(',');
+			if (i % 3 == 0) {
+				t.append("\"Multi\nline, \"\"quoted\"\"\r\ncomment ").append(i).append('"');
+			} else {
+				t.append("Simple \u00e4\u00f6\u00fc comment");
+			}
+			t.append(i % 7 == 0 ? "\r\n\r\n" : "\n");
+		}
+		final Charset charset = Charset.forName("UTF-8");
+		final File file = File.createTempFile("CSVMappedFileParserTest", ".csv");
+		file.deleteOnExit();
+		final Writer out = new OutputStreamWriter(new FileOutputStream(file), charset);
+		try {
+			out.append(t);
+		} finally {
+			out.close();
+		}
+		final CSVTable expected = new CSVParser().parse(t.toString());
+		final ExecutorService executor = Executors.newFixedThreadPool(4);
+		try {
+			final CSVTable actual = new CSVMappedFileParser(true, ',', true, charset, 64, executor).parse(file);
+			Assert.assertEquals(expected.toString(), actual.toString());
+			Assert.assertEquals(500, actual.size());
+			Assert.assertEquals("Multi\nline, \"quoted\"\r\ncomment 3", actual.getField(3, 2));
+		} finally {
+			executor.shutdown();
+			file.delete();
+		}
+	}
+
+	@Test
+	public void testCarriageReturnLineBreaks() throws IOException {
+		final StringBuilder t = new StringBuilder("ID,Name\r");
+		for (int i = 0; i < 200; i++) {
+			t.append(i).append(",\"Name\r").append(i).append("\"\r");
+		}
+		final Charset charset = Charset.forName("ISO-8859-1");
+		final File file = File.createTempFile("CSVMappedFileParserTest", ".csv");
+		file.deleteOnExit();
+		final Writer out = new OutputStreamWriter(new FileOutputStream(file), charset);
+		try {
+			out.append(t);
+		} finally {
+			out.close();
+		}
+		final AtomicInteger chunks = new AtomicInteger();
+		final ExecutorService executor = new ThreadPoolExecutor(4, 4, 0, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>()) {
+			@Override
+			public void execute(final Runnable command) {
+				chunks.incrementAndGet();
+				super.execute(command);
+			}
+		};
+		try {
+			final CSVTable actual = new CSVMappedFileParser(true, ',', true, charset, 32, executor).parse(file);
+			Assert.assertTrue(chunks.get() > 10);
+			Assert.assertEquals(new CSVParser().parse(t.toString()).toString(), actual.toString());
+			Assert.assertEquals(200, actual.size());
+			Assert.assertEquals("Name\r199", actual.getField(199, 1));
+		} finally {
+			executor.shutdown();
+			file.delete();
+		}
+	}
+
+}
@@ -0,0 +1,153 @@
+/*
+ * Copyright (c) 2009 Stephan Schloepke and innoQ Deutschland GmbH
+ * 
+ * Stephan Schloepke: http://www.schloepke.de/
+ * innoQ Deutschland GmbH: http://www.innoq.com/
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.jbasics.csv;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.StringReader;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.ws.rs.core.MediaType;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import org.jbasics.pattern.container.Indexed;
+import org.jbasics.pattern.transpose.Transposer;
+import org.jbasics.pattern.visitor.SingleVisitor;
+
+public class CSVRecordMapperTest {
+	private static final String DATA = "ID,name,Amount,Unknown,active\n" + // Dont break;
+			"1,One,1.50,x,true\n" + // Dont break;
+			"2,,,y,\n"; // Dont break;
+
+	@Test
+	public void testFieldMapping() throws IOException {
+		final List<Bean> beans = new ArrayList<Bean>();
+		new CSVParser().parse(new StringReader(CSVRecordMapperTest.DATA), CSVRecordMapper.createVisitor(Bean.class, new SingleVisitor<Bean>() {
+			public void visit(final Bean element) {
+				beans.add(element);
+			}
+		}));
+		Assert.assertEquals(2, beans.size());
+		Assert.assertEquals(1, beans.get(0).id);
+		Assert.assertEquals("One", beans.get(0).name);
+		Assert.assertEquals(new BigDecimal("1.50"), beans.get(0).amount);
+		Assert.assertTrue(beans.get(0).active);
+		Assert.assertEquals(2, beans.get(1).id);
+		Assert.assertEquals("", beans.get(1).name);
+		Assert.assertNull(beans.get(1).amount);
+		Assert.assertFalse(beans.get(1).active);
+	}
+
+	@Test
+	public void testConstructorMapping() {
+		final CSVTable table = new CSVParser().parse(CSVRecordMapperTest.DATA);
+		final CSVRecordMapper<Value> mapper = CSVRecordMapper.forConstructor(Value.class, table.getHeaders(), "Amount", "ID");
+		final Value value = mapper.transpose(table.getRecord(0));
+		Assert.assertEquals(new BigDecimal("1.50"), value.amount);
+		Assert.assertEquals(Long.valueOf(1L), value.id);
+	}
+
+	@Test
+	public void testConverterMapping() {
+		final CSVTable table = new CSVParser().parse(CSVRecordMapperTest.DATA);
+		final Transposer<Bean, Indexed<String>> mapping = CSVRecordConverter.createFieldMapping(Bean.class, table.getHeaders());
+		Assert.assertEquals(1, mapping.transpose(table.getRecord(0)).id);
+		final Value value = CSVRecordConverter.createConstructorMapping(Value.class, table.getHeaders(), "Amount", "ID").transpose(table.getRecord(1));
+		Assert.assertNull(value.amount);
+		Assert.assertEquals(Long.valueOf(2L), value.id);
+	}
+
+	@Test
+	public void testProviderMapping() throws IOException {
+		final List<Bean> beans = new ArrayList<Bean>();
+		new CSVTableProvider().readFrom(Bean.class, MediaType.valueOf("text/csv;charset=UTF-8"), null, //$NON-NLS-1$
+				new ByteArrayInputStream(CSVRecordMapperTest.DATA.getBytes("UTF-8")), new SingleVisitor<Bean>() { //$NON-NLS-1$
+					public void visit(final Bean element) {
+						beans.add(element);
+					}
+				});
+		Assert.assertEquals(2, beans.size());
+		Assert.assertEquals("One", beans.get(0).name);
+		Assert.assertEquals(2, beans.get(1).id);
+	}
+
+	@Test
+	public void testConstructorSelection() {
+		final CSVTable table = new CSVParser().parse(CSVRecordMapperTest.DATA);
+		try {
+			CSVRecordMapper.forConstructor(Overloaded.class, table.getHeaders(), "ID", "active");
+			Assert.fail("Expected exception");
+		} catch (final IllegalArgumentException e) {
+			// expected
+		}
+		final CSVRecordMapper<Overloaded> mapper = CSVRecordMapper.forConstructor(Overloaded.class, table.getHeaders(), new Class<?>[] {
+				Integer.TYPE, Boolean.TYPE }, "ID", "active");
+		final Overloaded first = mapper.transpose(table.getRecord(0));
+		Assert.assertEquals(1, first.id);
+		Assert.assertTrue(first.active);
+		final Overloaded second = mapper.transpose(table.getRecord(1));
+		Assert.assertEquals(2, second.id);
+		Assert.assertFalse(second.active);
+		final Overloaded missing = CSVRecordMapper.forConstructor(Overloaded.class, table.getHeaders(), new Class<?>[] { Integer.TYPE, Boolean.TYPE },
+				"Amount", "active").transpose(table.getRecord(1));
+		Assert.assertEquals(0, missing.id);
+	}
+
+	static class Bean {
+		private int id;
+		private String name;
+		private BigDecimal amount;
+		private boolean active;
+	}
+
+	static class Value {
+		final BigDecimal amount;
+		final Long id;
+
+		Value(final BigDecimal amount, final Long id) {
+			this.amount = amount;
+			this.id = id;
+		}
+	}
+
+	static class Overloaded {
+		final int id;
+		final boolean active;
+
+		Overloaded(final int id, final boolean active) {
+			this.id = id;
+			this.active = active;
+		}
+
+		Overloaded(final String id, final String active) {
+			this(Integer.parseInt(id), Boolean.parseBoolean(active));
+		}
+	}
+
+}
@@ -47,6 +47,46 @@ public class CSVRecordReaderTest {
 			records.add(current);
 		}
 		Assert.assertEquals(3, records.size());
+		Assert.assertEquals("2nd,One", records.get(1).getField(0));
+		Assert.assertEquals("2ndTwo", records.get(1).getField(1));
+		Assert.assertEquals("LastOne", records.get(2).getField(0));
+		Assert.assertEquals("Last\nTwo", records.get(2).getField(1));
+		Assert.assertEquals("LastThree", records.get(2).getField(2));
+	}
+
+	@Test
+	public void testIterateWithSmallBuffer() {
+		final CSVRecordReader reader = new CSVRecordReader(new StringReader(CSVRecordReaderTest.csvFileData + "\r\n\r\n\"a\"\"b\","), ',', true, 3);
+		final List<CSVRecord> records = new ArrayList<CSVRecord>(4);
+		for (final CSVRecord record : reader) {
+			records.add(record);
+		}
+		Assert.assertEquals(4, records.size());
+		Assert.assertEquals("One", records.get(0).getField(0));
+		Assert.assertEquals("2nd,One", records.get(1).getField(0));
+		Assert.assertEquals(2, records.get(3).size());
+		Assert.assertEquals("a\"b", records.get(3).getField(0));
+		Assert.assertEquals("", records.get(3).getField(1));
+	}
+
+	@Test
+	public void testParseStreaming() throws IOException {
+		final List<CSVRecord> records = new ArrayList<CSVRecord>(2);
+		final CSVRecord[] headers = new CSVRecord[1];
+		new CSVParser().parse(new StringReader(CSVRecordReaderTest.csvFileData), new CSVRecordVisitor() {
+			public void visitHeaders(final CSVRecord headerRecord) {
+				headers[0] = headerRecord;
+			}
+
+			public void visitRecord(final CSVRecord record) {
+				records.add(record);
+			}
+		});
+		Assert.assertEquals("Three", headers[0].getField(2));
+		Assert.assertEquals(2, records.size());
+		final CSVTable table = new CSVParser().parse(CSVRecordReaderTest.csvFileData);
+		Assert.assertEquals(2, table.size());
+		Assert.assertEquals("Last\nTwo", table.getField(1, 1));
 	}
 
 }
@@ -24,7 +24,12 @@
  */
 package org.jbasics.csv;
 
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.StringWriter;
+import java.nio.channels.Channels;
+import java.nio.charset.Charset;
+import java.util.Arrays;
 
 import junit.framework.Assert;
 
@@ -43,4 +48,31 @@ public class CSVRecordWriterTest {
 		new CSVRecordWriter(out2).write(record).write(record2).write(record, record2).close();
 		Assert.assertEquals("One,Two,Three\r\nOneOne,\"Two,Two\",ThreeThree\r\nOne,Two,Three\r\nOneOne,\"Two,Two\",ThreeThree\r\n", out2.toString());
 	}
+
+	@Test
+	public void testBufferedWriter() throws IOException {
+		final CSVTable table = new CSVTable(new String[] { "A", "B" }, new CSVRecord("1", "Two,\"Two\""), new CSVRecord("3", null));
+		final StringWriter out = new StringWriter();
+		final CSVRecordWriter writer = new CSVRecordWriter(out, ',', 16);
+		writer.write(table);
+		writer.flush();
+		Assert.assertEquals("A,B\r\n1,\"Two,\"\"Two\"\"\"\r\n3,\r\n", out.toString());
+		writer.write(Arrays.asList(new CSVRecord("x", "y")));
+		writer.close();
+		Assert.assertEquals(table.toString() + "x,y\r\n", out.toString());
+	}
+
+	@Test
+	public void testChannelWriter() throws IOException {
+		final StringBuilder longValue = new StringBuilder();
+		for (int i = 0; i < 100; i++) {
+			longValue.append("\u00e4\ud83d\ude00");
+		}
+		final CSVRecord record = new CSVRecord("One", longValue.toString(), "Some;Text");
+		final Charset charset = Charset.forName("UTF-8");
+		final ByteArrayOutputStream out = new ByteArrayOutputStream();
+		new CSVRecordWriter(Channels.newChannel(out), charset, ';', 17).write(record).write(record).close();
+		final String expected = record.append(new StringBuilder(), ';').append("\r\n").toString();
+		Assert.assertEquals(expected + expected, new String(out.toByteArray(), charset));
+	}
 }
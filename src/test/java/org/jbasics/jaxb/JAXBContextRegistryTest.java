@@ -0,0 +1,166 @@
+/*
+ * Copyright (c) 2009 Stephan Schloepke and innoQ Deutschland GmbH
+ * 
+ * Stephan Schloepke: http://www.schloepke.de/
+ * innoQ Deutschland GmbH: http://www.innoq.com/
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.jbasics.jaxb;
+
+import java.lang.ref.WeakReference;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.xml.bind.JAXBContext;
+import javax.xml.bind.JAXBException;
+import javax.xml.bind.Marshaller;
+import javax.xml.bind.Unmarshaller;
+import javax.xml.bind.Validator;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+@SuppressWarnings({ "nls", "deprecation" })
+public class JAXBContextRegistryTest {
+
+	private static class DummyContext extends JAXBContext {
+		@Override
+		public Unmarshaller createUnmarshaller() throws JAXBException {
+			throw new UnsupportedOperationException();
+		}
+
+		@Override
+		public Marshaller createMarshaller() throws JAXBException {
+			throw new UnsupportedOperationException();
+		}
+
+		@Override
+		public Validator createValidator() throws JAXBException {
+			throw new UnsupportedOperationException();
+		}
+	}
+
+	private static class CountingRegistry extends JAXBContextRegistry {
+		private final AtomicInteger created = new AtomicInteger();
+
+		@Override
+		protected JAXBContext createContext(final String contextPath, final ClassLoader classLoader) throws JAXBException {
+			this.created.incrementAndGet();
+			try {
+				// make the creation slow enough for concurrent requests to meet
+				Thread.sleep(50);
+			} catch (final InterruptedException e) {
+				throw new JAXBException(e);
+			}
+			return new DummyContext();
+		}
+
+		@Override
+		protected JAXBContext createContext(final Class<?>... classes) throws JAXBException {
+			this.created.incrementAndGet();
+			return new DummyContext();
+		}
+	}
+
+	@Test
+	public void testSameKeySameContext() {
+		final CountingRegistry registry = new CountingRegistry();
+		final JAXBContext first = registry.getContext("org.example.a:org.example.b");
+		Assert.assertSame(first, registry.getContext(" org.example.b : org.example.a"));
+		Assert.assertNotSame(first, registry.getContext("org.example.a"));
+		final JAXBContext classes = registry.getContext(String.class, Integer.class);
+		Assert.assertSame(classes, registry.getContext(Integer.class, String.class));
+		Assert.assertEquals(3, registry.created.get());
+		Assert.assertEquals(3, registry.size());
+		registry.clear();
+		Assert.assertEquals(0, registry.size());
+	}
+
+	@Test
+	public void testSingleCreationUnderConcurrency() throws Exception {
+		final CountingRegistry registry = new CountingRegistry();
+		final ExecutorService executor = Executors.newFixedThreadPool(8);
+		try {
+			final CountDownLatch start = new CountDownLatch(1);
+			final List<Future<JAXBContext>> results = new ArrayList<Future<JAXBContext>>();
+			for (int i = 0; i < 8; i++) {
+				results.add(executor.submit(new Callable<JAXBContext>() {
+					@Override
+					public JAXBContext call() throws Exception {
+						start.await();
+						return registry.getContext("org.example.concurrent");
+					}
+				}));
+			}
+			start.countDown();
+			final JAXBContext expected = results.get(0).get();
+			for (final Future<JAXBContext> result : results) {
+				Assert.assertSame(expected, result.get());
+			}
+			Assert.assertEquals(1, registry.created.get());
+		} finally {
+			executor.shutdown();
+		}
+	}
+
+	@Test
+	public void testClassLoaderNotPinned() throws Exception {
+		final CountingRegistry registry = new CountingRegistry();
+		final WeakReference<ClassLoader> loader = registerWithLoader(registry);
+		Assert.assertEquals(1, registry.size());
+		for (int i = 0; i < 50 && (loader.get() != null || registry.size() > 0); i++) {
+			System.gc();
+			Thread.sleep(20);
+		}
+		Assert.assertNull("Registry pins the class loader", loader.get());
+		Assert.assertEquals(0, registry.size());
+	}
+
+	private WeakReference<ClassLoader> registerWithLoader(final JAXBContextRegistry registry) {
+		final ClassLoader loader = new URLClassLoader(new URL[0], null);
+		final Thread current = Thread.currentThread();
+		final ClassLoader previous = current.getContextClassLoader();
+		current.setContextClassLoader(loader);
+		try {
+			registry.getContext("org.example.loader");
+		} finally {
+			current.setContextClassLoader(previous);
+		}
+		return new WeakReference<ClassLoader>(loader);
+	}
+
+	@Test
+	public void testWarmUp() {
+		final CountingRegistry registry = new CountingRegistry();
+		registry.warmUp("org.example.a", "org.example.b");
+		Assert.assertEquals(2, registry.created.get());
+		registry.getContext("org.example.b");
+		Assert.assertEquals(2, registry.created.get());
+	}
+
+}
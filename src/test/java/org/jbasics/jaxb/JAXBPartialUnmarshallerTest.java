@@ -0,0 +1,175 @@
+/*
+ * Copyright (c) 2009 Stephan Schloepke and innoQ Deutschland GmbH
+ * 
+ * Stephan Schloepke: http://www.schloepke.de/
+ * innoQ Deutschland GmbH: http://www.innoq.com/
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.jbasics.jaxb;
+
+import java.io.StringReader;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.xml.bind.JAXBContext;
+import javax.xml.bind.JAXBElement;
+import javax.xml.bind.JAXBException;
+import javax.xml.bind.Marshaller;
+import javax.xml.bind.Unmarshaller;
+import javax.xml.bind.Validator;
+import javax.xml.namespace.QName;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import javax.xml.stream.util.StreamReaderDelegate;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import org.jbasics.pattern.visitor.SingleVisitor;
+
+@SuppressWarnings({ "nls", "deprecation" })
+public class JAXBPartialUnmarshallerTest {
+	private static final String DOCUMENT = "<?xml version=\"1.0\"?>\n<catalogue xmlns=\"urn:test\"><header><item>not me</item></header>"
+			+ "<items><t:item xmlns:t=\"urn:test\">one</t:item><item>two</item>\n<item>three</item><other><item>four</item></other></items></catalogue>";
+
+	/**
+	 * Minimal context since no JAXB implementation is available. The unmarshaller returns the text of the element and
+	 * leaves the reader after the end of the element like a real one does.
+	 */
+	private static class TextContext extends JAXBContext {
+		private int created;
+		private int unmarshalled;
+
+		@Override
+		public Unmarshaller createUnmarshaller() throws JAXBException {
+			this.created++;
+			return (Unmarshaller) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[] { Unmarshaller.class },
+					new InvocationHandler() {
+						@Override
+						public Object invoke(final Object proxy, final Method method, final Object[] args) throws Throwable {
+							if ("unmarshal".equals(method.getName()) && args.length == 2 && args[0] instanceof XMLStreamReader) {
+								final XMLStreamReader reader = (XMLStreamReader) args[0];
+								final QName name = reader.getName();
+								final String text = reader.getElementText();
+								reader.next();
+								TextContext.this.unmarshalled++;
+								return new JAXBElement<String>(name, String.class, text);
+							}
+							throw new UnsupportedOperationException(method.getName());
+						}
+					});
+		}
+
+		@Override
+		public Marshaller createMarshaller() throws JAXBException {
+			throw new UnsupportedOperationException();
+		}
+
+		@Override
+		public Validator createValidator() throws JAXBException {
+			throw new UnsupportedOperationException();
+		}
+	}
+
+	private static class ClosingReader extends StreamReaderDelegate {
+		private int closed;
+
+		public ClosingReader() throws Exception {
+			super(JAXBPartialUnmarshallerTest.createReader());
+		}
+
+		@Override
+		public void close() throws XMLStreamException {
+			this.closed++;
+			super.close();
+		}
+	}
+
+	private static XMLStreamReader createReader() throws Exception {
+		return XMLInputFactory.newInstance().createXMLStreamReader(new StringReader(JAXBPartialUnmarshallerTest.DOCUMENT));
+	}
+
+	@Test
+	public void testIteration() throws Exception {
+		final TextContext context = new TextContext();
+		final JAXBPool pool = new JAXBPool(context);
+		final JAXBPartialUnmarshaller<String> items = new JAXBPartialUnmarshaller<String>(pool, String.class, new QName("urn:test", "item"),
+				JAXBPartialUnmarshallerTest.createReader());
+		final List<String> result = new ArrayList<String>();
+		while (items.hasNext()) {
+			result.add(items.next());
+		}
+		Assert.assertEquals(5, result.size());
+		Assert.assertEquals("one", result.get(1));
+		Assert.assertEquals("four", result.get(4));
+		Assert.assertFalse(items.hasNext());
+		// the unmarshaller went back to the pool and is reused
+		pool.releaseUnmarshaller(pool.aquireUnmarshaller());
+		Assert.assertEquals(1, context.created);
+	}
+
+	@Test
+	public void testVisitor() throws Exception {
+		final TextContext context = new TextContext();
+		final List<String> result = new ArrayList<String>();
+		final int count = new JAXBPartialUnmarshaller<String>(new JAXBPool(context), String.class, new QName("item"),
+				JAXBPartialUnmarshallerTest.createReader()).visitAll(new SingleVisitor<String>() {
+			@Override
+			public void visit(final String element) {
+				result.add(element);
+			}
+		});
+		Assert.assertEquals(5, count);
+		Assert.assertEquals(5, context.unmarshalled);
+		Assert.assertEquals("not me", result.get(0));
+	}
+
+	@Test
+	public void testNoMatch() throws Exception {
+		final JAXBPartialUnmarshaller<String> items = new JAXBPartialUnmarshaller<String>(new JAXBPool(new TextContext()), String.class,
+				new QName("urn:other", "item"), JAXBPartialUnmarshallerTest.createReader());
+		Assert.assertFalse(items.hasNext());
+	}
+
+	@Test
+	public void testReaderClosed() throws Exception {
+		final JAXBPool pool = new JAXBPool(new TextContext());
+		final ClosingReader readToEnd = new ClosingReader();
+		final JAXBPartialUnmarshaller<String> items = new JAXBPartialUnmarshaller<String>(pool, String.class, new QName("item"), readToEnd);
+		while (items.hasNext()) {
+			items.next();
+		}
+		Assert.assertEquals(1, readToEnd.closed);
+		items.close();
+		Assert.assertEquals(1, readToEnd.closed);
+		final ClosingReader abandoned = new ClosingReader();
+		final JAXBPartialUnmarshaller<String> first = new JAXBPartialUnmarshaller<String>(pool, String.class, new QName("item"), abandoned);
+		Assert.assertEquals("not me", first.next());
+		Assert.assertEquals(0, abandoned.closed);
+		first.close();
+		Assert.assertEquals(1, abandoned.closed);
+		Assert.assertFalse(first.hasNext());
+	}
+
+}
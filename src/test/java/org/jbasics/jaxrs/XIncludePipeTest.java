@@ -0,0 +1,136 @@
+/*
+ * Copyright (c) 2009 Stephan Schloepke and innoQ Deutschland GmbH
+ * 
+ * Stephan Schloepke: http://www.schloepke.de/
+ * innoQ Deutschland GmbH: http://www.innoq.com/
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.jbasics.jaxrs;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import javax.xml.bind.MarshalException;
+import javax.xml.bind.Marshaller;
+import javax.xml.transform.Transformer;
+import javax.xml.transform.TransformerFactory;
+import javax.xml.transform.stream.StreamResult;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class XIncludePipeTest {
+
+	@Test
+	public void testIncludeResolved() throws Exception {
+		final File included = File.createTempFile("included", ".xml"); //$NON-NLS-1$ //$NON-NLS-2$
+		try {
+			final Writer w = new OutputStreamWriter(new FileOutputStream(included), "UTF-8"); //$NON-NLS-1$
+			try {
+				w.write("<included>\u00e4\u00f6\u00fc</included>"); //$NON-NLS-1$
+			} finally {
+				w.close();
+			}
+			final StringBuilder document = new StringBuilder("<root xmlns:xi=\"http://www.w3.org/2001/XInclude\">"); //$NON-NLS-1$
+			for (int i = 0; i < 2000; i++) {
+				document.append("<item>").append(i).append("</item>"); //$NON-NLS-1$ //$NON-NLS-2$
+			}
+			document.append("<xi:include href=\"").append(included.toURI().toASCIIString()).append("\"/></root>"); //$NON-NLS-1$ //$NON-NLS-2$
+			final XIncludePipe pipe = new XIncludePipe(createMarshaller(document.toString(), null), new Object(),
+					"<?xml-stylesheet type=\"text/xsl\" href=\"test.xsl\" ?>\n"); //$NON-NLS-1$
+			final StringWriter result = new StringWriter();
+			final Transformer transformer = TransformerFactory.newInstance().newTransformer();
+			transformer.transform(pipe.getSource(), new StreamResult(result));
+			pipe.finish();
+			final String out = result.toString();
+			Assert.assertTrue(out.contains("<?xml-stylesheet")); //$NON-NLS-1$
+			Assert.assertTrue(out.contains("<item>1999</item>")); //$NON-NLS-1$
+			Assert.assertTrue(out.contains("\u00e4\u00f6\u00fc</included>")); //$NON-NLS-1$
+			Assert.assertFalse(out.contains("xi:include")); //$NON-NLS-1$
+		} finally {
+			included.delete();
+		}
+	}
+
+	@Test(expected = MarshalException.class)
+	public void testMarshallerFailureReported() throws Exception {
+		final XIncludePipe pipe = new XIncludePipe(createMarshaller("<root/>", new MarshalException("failed")), new Object(), null); //$NON-NLS-1$ //$NON-NLS-2$
+		final Transformer transformer = TransformerFactory.newInstance().newTransformer();
+		transformer.transform(pipe.getSource(), new StreamResult(new StringWriter()));
+		pipe.finish();
+	}
+
+	@Test
+	public void testAbortWaitsForMarshaller() throws Exception {
+		final CountDownLatch writing = new CountDownLatch(1);
+		final AtomicBoolean ended = new AtomicBoolean();
+		final Marshaller endless = (Marshaller) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[] { Marshaller.class },
+				new InvocationHandler() {
+					@Override
+					public Object invoke(final Object proxy, final Method method, final Object[] args) throws Throwable {
+						try {
+							final Writer w = (Writer) args[1];
+							w.write("<root>"); //$NON-NLS-1$
+							writing.countDown();
+							while (true) {
+								w.write("<item/>"); //$NON-NLS-1$
+								w.flush();
+							}
+						} catch (final IOException e) {
+							throw new MarshalException(e);
+						} finally {
+							ended.set(true);
+						}
+					}
+				});
+		final XIncludePipe pipe = new XIncludePipe(endless, new Object(), null);
+		writing.await();
+		final Exception failure = new IllegalStateException("transform failed"); //$NON-NLS-1$
+		pipe.abort(failure);
+		Assert.assertTrue(ended.get());
+		Assert.assertTrue(failure.getCause() instanceof MarshalException);
+	}
+
+	private Marshaller createMarshaller(final String document, final Exception failure) {
+		return (Marshaller) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[] { Marshaller.class }, new InvocationHandler() {
+			@Override
+			public Object invoke(final Object proxy, final Method method, final Object[] args) throws Throwable {
+				if ("marshal".equals(method.getName()) && args.length == 2 && args[1] instanceof Writer) { //$NON-NLS-1$
+					((Writer) args[1]).write(document);
+					if (failure != null) {
+						throw failure;
+					}
+					return null;
+				}
+				throw new UnsupportedOperationException(method.getName());
+			}
+		});
+	}
+
+}
@@ -0,0 +1,158 @@
+/*
+ * Copyright (c) 2009 Stephan Schloepke and innoQ Deutschland GmbH
+ * 
+ * Stephan Schloepke: http://www.schloepke.de/
+ * innoQ Deutschland GmbH: http://www.innoq.com/
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.jbasics.math.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.math.BigDecimal;
+import java.math.MathContext;
+import java.math.RoundingMode;
+
+import org.jbasics.math.BigDecimalMathLibrary;
+import org.junit.Test;
+
+public class TrigonometricIrationalNumberTest {
+	private static final MathContext MC = new MathContext(100, RoundingMode.HALF_EVEN);
+	private static final MathContext MC_1000 = new MathContext(1000, RoundingMode.HALF_EVEN);
+	// sin and cos of 1E+20 to 1000 digits computed independently with a Machin pi and a plain Taylor series in
+	// Python's decimal module at 1100 and 1300 digits of working precision (both agree)
+	private static final String SIN_1E20 = "-0.6452512852657808442058117113125230074069041966868971183031170068878986162188568608555379550092177" //
+			+ "1323551626277147178837214581049028680438700783372157947980546389686693314371086953140933639432046252" //
+			+ "4705475201529819660170466831804221717084483076574618212611535208212978823899726621000916555467289068" //
+			+ "6874417752670880113568972615752747458730789443386514381454621458725970009811311633402689763419033095" //
+			+ "8825878200708443544350092378139922028898001308331982255965639007185656711237947828180652880465011570" //
+			+ "2215310706391270447365041029619825779790137697700627438318586141972915322832433412385450113574238477" //
+			+ "5804045473984932768701130706647068417478803553687061631998927310888678433210277270881108331337136577" //
+			+ "1089464843973762710833657354096808002373401956047852379322107889789395896056819664502673669410000478" //
+			+ "8974236818766787899471430623213747437262420891810029699748829316440079051250262858371801201866339183" //
+			+ "6782062015762981247062083932158032725616307945962702465693577234645633631618794648447851900360957225" //
+			+ "058";
+	private static final String COS_1E20 = "0.76397040444172830040014680273788112283447344174700448062218906694658973919782346157637017690509655" //
+			+ "9861200784796827882745448520940429880331079795001120273892829443628908917346300857075934314152366022" //
+			+ "1714235211733409585614371717715117752416962746608018706376287207226785674283198206649846874704220996" //
+			+ "9790282356779921955458015859577395097100743936040862776743546414332513058810231335348414090669389303" //
+			+ "8875057696783993741702069686456660651795867676852854956053316409152053209059630729909864960932436476" //
+			+ "2011690811513117745694253725169747314625372938720010536641854366312703698099277037505859176670794886" //
+			+ "1617188158441193092331621410577250211421984252463954399828488078448667355763435565646355137007560828" //
+			+ "8354032813457325154403745362576738632570437810133509254709381645637995289228194021646856074519656884" //
+			+ "4577577430905864607683867536145051658830016438572088938613590550848269992991196165867163672988675254" //
+			+ "0641941677069364426508469890520480538575303179112639440687553363841922717515863417647074956082575580" //
+			+ "43";
+
+	@Test
+	public void testSineCosineTangent() {
+		assertEquals(new BigDecimal("0.841470984807896506652502321630298999622563060798371065672751709991910404391239668948639743543052695854349")
+				.round(TrigonometricIrationalNumberTest.MC), BigDecimalMathLibrary.sin(BigDecimal.ONE).valueToPrecision(
+				TrigonometricIrationalNumberTest.MC));
+		assertEquals(new BigDecimal("0.540302305868139717400936607442976603732310420617922227670097255381100394774471764517951856087183089343572")
+				.round(TrigonometricIrationalNumberTest.MC), BigDecimalMathLibrary.cos(BigDecimal.ONE).valueToPrecision(
+				TrigonometricIrationalNumberTest.MC));
+		assertEquals(new BigDecimal("1.55740772465490223050697480745836017308725077238152003838394660569886139715172728955509996520224298380463")
+				.round(TrigonometricIrationalNumberTest.MC), BigDecimalMathLibrary.tan(BigDecimal.ONE).valueToPrecision(
+				TrigonometricIrationalNumberTest.MC));
+	}
+
+	@Test
+	public void testLargeArgument() {
+		BigDecimal x = new BigDecimal("1E+20");
+		assertEquals(new BigDecimal("-0.645251285265780844205811711312523007406904196686897118303117006887898616218856860855537955009217713235516")
+				.round(TrigonometricIrationalNumberTest.MC), BigDecimalMathLibrary.sin(x).valueToPrecision(TrigonometricIrationalNumberTest.MC));
+		assertEquals(new BigDecimal("0.763970404441728300400146802737881122834473441747004480622189066946589739197823461576370176905096559861201")
+				.round(TrigonometricIrationalNumberTest.MC), BigDecimalMathLibrary.cos(x).valueToPrecision(TrigonometricIrationalNumberTest.MC));
+	}
+
+	@Test
+	public void testLargeArgumentThousandDigits() {
+		BigDecimal x = new BigDecimal("1E+20");
+		assertEquals(new BigDecimal(TrigonometricIrationalNumberTest.SIN_1E20), BigDecimalMathLibrary.sin(x).valueToPrecision(
+				TrigonometricIrationalNumberTest.MC_1000));
+		assertEquals(new BigDecimal(TrigonometricIrationalNumberTest.COS_1E20), BigDecimalMathLibrary.cos(x).valueToPrecision(
+				TrigonometricIrationalNumberTest.MC_1000));
+	}
+
+	@Test
+	public void testTimePerDigit() {
+		// bounds are generous so slow build machines pass, the times are printed for comparison
+		timeTrigonometric(100, 2000);
+		timeTrigonometric(1000, 10000);
+		timeTrigonometric(3000, 60000);
+	}
+
+	private void timeTrigonometric(int digits, long maxMillis) {
+		MathContext mc = new MathContext(digits, RoundingMode.HALF_EVEN);
+		// a fresh argument per run so no value calculated before is reused
+		BigDecimal x = new BigDecimal("0.7").add(BigDecimal.valueOf(digits, 9));
+		long time = System.currentTimeMillis();
+		BigDecimalMathLibrary.sin(x).valueToPrecision(mc);
+		long sin = System.currentTimeMillis() - time;
+		time = System.currentTimeMillis();
+		BigDecimalMathLibrary.cos(x).valueToPrecision(mc);
+		long cos = System.currentTimeMillis() - time;
+		time = System.currentTimeMillis();
+		BigDecimalMathLibrary.atan(x).valueToPrecision(mc);
+		long atan = System.currentTimeMillis() - time;
+		System.out.println(String.format("%4d digits: sin %5dms, cos %5dms, atan %5dms", digits, sin, cos, atan));
+		assertTrue("sin took " + sin + "ms for " + digits + " digits", sin <= maxMillis);
+		assertTrue("cos took " + cos + "ms for " + digits + " digits", cos <= maxMillis);
+		assertTrue("atan took " + atan + "ms for " + digits + " digits", atan <= maxMillis);
+	}
+
+	@Test
+	public void testInverseFunctions() {
+		assertEquals(new BigDecimal("3.09686756642105980721294715060795181429298884261294763814430688632665430579865555666966714885613767691492")
+				.round(TrigonometricIrationalNumberTest.MC), BigDecimalMathLibrary.acos(new BigDecimal("-0.999")).valueToPrecision(
+				TrigonometricIrationalNumberTest.MC));
+		assertEquals(new BigDecimal("-1.43373015248470898664047190966988736486097388935182381207249092267346485485032051817963492273253952415178")
+				.round(TrigonometricIrationalNumberTest.MC), BigDecimalMathLibrary.atan(new BigDecimal("-7.25")).valueToPrecision(
+				TrigonometricIrationalNumberTest.MC));
+		assertEquals(BigDecimal.ZERO, BigDecimalMathLibrary.asin(BigDecimal.ZERO).valueToPrecision(TrigonometricIrationalNumberTest.MC));
+		try {
+			BigDecimalMathLibrary.asin(new BigDecimal("1.5")).valueToPrecision(TrigonometricIrationalNumberTest.MC);
+			fail("Expected exception");
+		} catch (IllegalArgumentException e) {
+			// expected
+		}
+	}
+
+	@Test
+	public void testThousandDigitsAgainstPi() {
+		BigDecimal pi = BigDecimalMathLibrary.PI.valueToPrecision(TrigonometricIrationalNumberTest.MC_1000);
+		BigDecimal ulp = pi.ulp().multiply(BigDecimal.TEN);
+		BigDecimal atan = BigDecimalMathLibrary.atan(BigDecimal.ONE).valueToPrecision(TrigonometricIrationalNumberTest.MC_1000);
+		assertTrue(atan.multiply(BigDecimal.valueOf(4)).subtract(pi).abs().compareTo(ulp) <= 0);
+		BigDecimal asin = BigDecimalMathLibrary.asin(MathImplConstants.HALF).valueToPrecision(TrigonometricIrationalNumberTest.MC_1000);
+		assertTrue(asin.multiply(BigDecimal.valueOf(6)).subtract(pi).abs().compareTo(ulp) <= 0);
+
+		BigDecimal x = new BigDecimal("0.7");
+		BigDecimal sin = BigDecimalMathLibrary.sin(x).valueToPrecision(TrigonometricIrationalNumberTest.MC_1000);
+		BigDecimal cos = BigDecimalMathLibrary.cos(x).valueToPrecision(TrigonometricIrationalNumberTest.MC_1000);
+		BigDecimal one = sin.multiply(sin).add(cos.multiply(cos));
+		assertTrue(one.subtract(BigDecimal.ONE).abs().compareTo(ulp) <= 0);
+		assertEquals(1000, sin.precision());
+	}
+
+}
@@ -0,0 +1,138 @@
+/*
+ * Copyright (c) 2009 Stephan Schloepke and innoQ Deutschland GmbH
+ * 
+ * Stephan Schloepke: http://www.schloepke.de/
+ * innoQ Deutschland GmbH: http://www.innoq.com/
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.jbasics.net.http;
+
+import java.io.File;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class CachingHttpAccessorTest {
+
+	@Test
+	public void testRevalidation() throws Exception {
+		final TestHttpServer server = new TestHttpServer(new TestHttpServer.Responder() {
+			@Override
+			public String respond(final TestHttpServer.Request request) {
+				if ("\"v1\"".equals(request.headers.get("If-None-Match"))) {
+					return TestHttpServer.response(304, null, null, "ETag: \"v1\"");
+				}
+				return TestHttpServer.response(200, "text/plain", "Reference document", "ETag: \"v1\"", "Cache-Control: no-cache");
+			}
+		});
+		final CachingHttpAccessor accessor = new CachingHttpAccessor(new PooledHttpAccessor());
+		try {
+			for (int i = 0; i < 3; i++) {
+				final PooledHttpAccessorTest.Collector collector = new PooledHttpAccessorTest.Collector();
+				Assert.assertEquals(200, accessor.get(server.getURI("/doc"), new RequestHeaders(), collector));
+				Assert.assertEquals("Reference document", collector.getText());
+				Assert.assertEquals("\"v1\"", collector.meta.getETag());
+			}
+			Assert.assertEquals(3, server.getRequests().size());
+			Assert.assertNull(server.getRequests().get(0).headers.get("If-None-Match"));
+			Assert.assertEquals("\"v1\"", server.getRequests().get(2).headers.get("If-None-Match"));
+		} finally {
+			server.close();
+		}
+	}
+
+	@Test
+	public void testFreshAndInvalidation() throws Exception {
+		final TestHttpServer server = new TestHttpServer(new TestHttpServer.Responder() {
+			@Override
+			public String respond(final TestHttpServer.Request request) {
+				if (request.target.equals("/private")) {
+					return TestHttpServer.response(200, "text/plain", "Secret", "Cache-Control: no-store");
+				}
+				return TestHttpServer.response(200, "text/plain", "Fresh " + request.method, "Cache-Control: max-age=60");
+			}
+		});
+		final CachingHttpAccessor accessor = new CachingHttpAccessor(new PooledHttpAccessor());
+		try {
+			for (int i = 0; i < 3; i++) {
+				final PooledHttpAccessorTest.Collector collector = new PooledHttpAccessorTest.Collector();
+				Assert.assertEquals(200, accessor.get(server.getURI("/fresh"), new RequestHeaders(), collector));
+				Assert.assertEquals("Fresh GET", collector.getText());
+				accessor.get(server.getURI("/private"), new RequestHeaders(), new PooledHttpAccessorTest.Collector());
+			}
+			Assert.assertEquals(4, server.getRequests().size());
+			accessor.put(server.getURI("/fresh"), new CharSequenceRequestEntity("update"), new PooledHttpAccessorTest.Collector());
+			accessor.get(server.getURI("/fresh"), new RequestHeaders(), new PooledHttpAccessorTest.Collector());
+			Assert.assertEquals(6, server.getRequests().size());
+		} finally {
+			server.close();
+		}
+	}
+
+	@Test
+	public void testHugeMaxAge() throws Exception {
+		final TestHttpServer server = new TestHttpServer(new TestHttpServer.Responder() {
+			@Override
+			public String respond(final TestHttpServer.Request request) {
+				return TestHttpServer.response(200, "text/plain", "Forever", "Cache-Control: max-age=99999999999999999999999");
+			}
+		});
+		final CachingHttpAccessor accessor = new CachingHttpAccessor(new PooledHttpAccessor());
+		try {
+			for (int i = 0; i < 2; i++) {
+				final PooledHttpAccessorTest.Collector collector = new PooledHttpAccessorTest.Collector();
+				Assert.assertEquals(200, accessor.get(server.getURI("/forever"), new RequestHeaders(), collector));
+				Assert.assertEquals("Forever", collector.getText());
+			}
+			Assert.assertEquals(1, server.getRequests().size());
+		} finally {
+			server.close();
+		}
+	}
+
+	@Test
+	public void testFileStore() throws Exception {
+		final File directory = File.createTempFile("httpcache", "");
+		directory.delete();
+		final TestHttpServer server = new TestHttpServer(new TestHttpServer.Responder() {
+			@Override
+			public String respond(final TestHttpServer.Request request) {
+				return TestHttpServer.response(200, "text/plain; charset=UTF-8", "Stored", "Cache-Control: max-age=60",
+						"Last-Modified: Thu, 01 Jan 1970 00:00:01 GMT");
+			}
+		});
+		try {
+			new CachingHttpAccessor(new PooledHttpAccessor(), directory).get(server.getURI("/stored"), new RequestHeaders(),
+					new PooledHttpAccessorTest.Collector());
+			final PooledHttpAccessorTest.Collector collector = new PooledHttpAccessorTest.Collector();
+			Assert.assertEquals(200, new CachingHttpAccessor(new PooledHttpAccessor(), directory).get(server.getURI("/stored"),
+					new RequestHeaders(), collector));
+			Assert.assertEquals("Stored", collector.getText());
+			Assert.assertEquals("UTF-8", collector.meta.getCharset());
+			Assert.assertEquals(1000L, collector.meta.getLastModified().getTime());
+			Assert.assertEquals(1, server.getRequests().size());
+		} finally {
+			server.close();
+			new FileHttpCacheStore(directory).clear();
+			directory.delete();
+		}
+	}
+
+}
@@ -0,0 +1,124 @@
+/*
+ * Copyright (c) 2009 Stephan Schloepke and innoQ Deutschland GmbH
+ * 
+ * Stephan Schloepke: http://www.schloepke.de/
+ * innoQ Deutschland GmbH: http://www.innoq.com/
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.jbasics.net.http;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class ExecutorHttpAccessorTest {
+
+	@Test
+	public void testFanOut() throws Exception {
+		final TestHttpServer server = new TestHttpServer(new TestHttpServer.Responder() {
+			@Override
+			public String respond(final TestHttpServer.Request request) {
+				return TestHttpServer.response(200, "text/plain", request.target);
+			}
+		});
+		final ExecutorHttpAccessor accessor = new ExecutorHttpAccessor();
+		try {
+			final int count = 50;
+			final CountDownLatch latch = new CountDownLatch(count);
+			final AtomicInteger succeeded = new AtomicInteger();
+			final List<HttpFuture> futures = new ArrayList<HttpFuture>();
+			final List<PooledHttpAccessorTest.Collector> collectors = new ArrayList<PooledHttpAccessorTest.Collector>();
+			for (int i = 0; i < count; i++) {
+				final PooledHttpAccessorTest.Collector collector = new PooledHttpAccessorTest.Collector();
+				collectors.add(collector);
+				futures.add(accessor.get(server.getURI("/" + i), new RequestHeaders(), collector).addListener(new HttpCompletionListener() {
+					@Override
+					public void completed(final int status) {
+						if (status == 200) {
+							succeeded.incrementAndGet();
+						}
+						latch.countDown();
+					}
+
+					@Override
+					public void failed(final Throwable cause) {
+						latch.countDown();
+					}
+				}));
+			}
+			Assert.assertTrue(latch.await(30, TimeUnit.SECONDS));
+			Assert.assertEquals(count, succeeded.get());
+			for (int i = 0; i < count; i++) {
+				Assert.assertEquals(Integer.valueOf(200), futures.get(i).get());
+				Assert.assertEquals("/" + i, collectors.get(i).getText());
+			}
+			Assert.assertTrue(server.getConnectionCount() <= ExecutorHttpAccessor.DEFAULT_MAX_CONCURRENT_REQUESTS);
+		} finally {
+			accessor.close();
+			server.close();
+		}
+	}
+
+	@Test
+	public void testFailure() throws Exception {
+		final ServerSocket unused = new ServerSocket(0);
+		final URI uri = URI.create("http://localhost:" + unused.getLocalPort() + "/");
+		unused.close();
+		final ExecutorHttpAccessor accessor = new ExecutorHttpAccessor(new PooledHttpAccessor(), 1);
+		try {
+			final HttpFuture future = accessor.get(uri, new RequestHeaders(), new PooledHttpAccessorTest.Collector());
+			try {
+				future.get(10, TimeUnit.SECONDS);
+				Assert.fail("Expected the connection to be refused");
+			} catch (final ExecutionException e) {
+				Assert.assertTrue(e.getCause() instanceof IOException);
+			}
+			final AtomicReference<Throwable> failure = new AtomicReference<Throwable>();
+			final CountDownLatch notified = new CountDownLatch(1);
+			future.addListener(new HttpCompletionListener() {
+				@Override
+				public void completed(final int status) {
+					Assert.fail("Request must not complete");
+				}
+
+				@Override
+				public void failed(final Throwable cause) {
+					failure.set(cause);
+					notified.countDown();
+				}
+			});
+			Assert.assertTrue(notified.await(10, TimeUnit.SECONDS));
+			Assert.assertTrue(failure.get() instanceof IOException);
+		} finally {
+			accessor.close();
+		}
+	}
+
+}
@@ -0,0 +1,131 @@
+/*
+ * Copyright (c) 2009 Stephan Schloepke and innoQ Deutschland GmbH
+ * 
+ * Stephan Schloepke: http://www.schloepke.de/
+ * innoQ Deutschland GmbH: http://www.innoq.com/
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.jbasics.net.http;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class JavaURLHttpAccessorTest {
+	static final String CONTENT = createContent();
+
+	@Test
+	public void testCompressedResponses() throws Exception {
+		final TestHttpServer server = createCompressingServer();
+		try {
+			assertCompressedResponses(new JavaURLHttpAccessor(), server);
+			assertCompressedResponses(new PooledHttpAccessor(), server);
+			Assert.assertEquals("gzip, deflate", server.getRequests().get(0).headers.get("Accept-Encoding"));
+		} finally {
+			server.close();
+		}
+	}
+
+	@Test
+	public void testCompressedRequest() throws Exception {
+		final TestHttpServer server = createCompressingServer();
+		try {
+			final JavaURLHttpAccessor javaAccessor = new JavaURLHttpAccessor();
+			javaAccessor.setRequestContentEncoding("gzip");
+			javaAccessor.post(server.getURI("/"), new CharSequenceRequestEntity(JavaURLHttpAccessorTest.CONTENT), new PooledHttpAccessorTest.Collector());
+			final PooledHttpAccessor pooledAccessor = new PooledHttpAccessor();
+			pooledAccessor.setRequestContentEncoding("gzip");
+			pooledAccessor.post(server.getURI("/"), new CharSequenceRequestEntity(JavaURLHttpAccessorTest.CONTENT), new PooledHttpAccessorTest.Collector());
+			for (final TestHttpServer.Request request : server.getRequests()) {
+				Assert.assertEquals("gzip", request.headers.get("Content-Encoding"));
+				Assert.assertTrue(request.body.length < JavaURLHttpAccessorTest.CONTENT.length() / 5);
+				Assert.assertEquals(JavaURLHttpAccessorTest.CONTENT, new String(readFully(new GZIPInputStream(new ByteArrayInputStream(request.body))),
+						"ISO-8859-1"));
+			}
+		} finally {
+			server.close();
+		}
+	}
+
+	private void assertCompressedResponses(final HttpAccessor accessor, final TestHttpServer server) throws IOException {
+		for (final String path : new String[] { "/gzip", "/deflate", "/identity" }) {
+			final PooledHttpAccessorTest.Collector collector = new PooledHttpAccessorTest.Collector();
+			Assert.assertEquals(200, accessor.get(server.getURI(path), new RequestHeaders(), collector));
+			Assert.assertEquals(JavaURLHttpAccessorTest.CONTENT, collector.getText());
+			Assert.assertNull(collector.meta.getEncoding());
+			Assert.assertEquals(JavaURLHttpAccessorTest.CONTENT.length(), collector.meta.getContentBytes());
+			if (path.equals("/identity")) {
+				Assert.assertEquals(JavaURLHttpAccessorTest.CONTENT.length(), collector.meta.getTransferredBytes());
+			} else {
+				Assert.assertTrue(collector.meta.getTransferredBytes() < JavaURLHttpAccessorTest.CONTENT.length() / 5);
+			}
+		}
+	}
+
+	private TestHttpServer createCompressingServer() throws IOException {
+		final String gzip = compress(true);
+		final String deflate = compress(false);
+		return new TestHttpServer(new TestHttpServer.Responder() {
+			@Override
+			public String respond(final TestHttpServer.Request request) {
+				if (request.target.equals("/gzip")) {
+					return TestHttpServer.response(200, "text/plain", gzip, "Content-Encoding: gzip");
+				} else if (request.target.equals("/deflate")) {
+					return TestHttpServer.response(200, "text/plain", deflate, "Content-Encoding: deflate");
+				}
+				return TestHttpServer.response(200, "text/plain", JavaURLHttpAccessorTest.CONTENT);
+			}
+		});
+	}
+
+	private static String compress(final boolean gzip) throws IOException {
+		final ByteArrayOutputStream temp = new ByteArrayOutputStream();
+		final DeflaterOutputStream out = gzip ? new GZIPOutputStream(temp) : new DeflaterOutputStream(temp);
+		out.write(JavaURLHttpAccessorTest.CONTENT.getBytes("ISO-8859-1"));
+		out.close();
+		return new String(temp.toByteArray(), "ISO-8859-1");
+	}
+
+	private static byte[] readFully(final InputStream in) throws IOException {
+		final ByteArrayOutputStream temp = new ByteArrayOutputStream();
+		final byte[] buffer = new byte[1024];
+		int read;
+		while ((read = in.read(buffer)) >= 0) {
+			temp.write(buffer, 0, read);
+		}
+		return temp.toByteArray();
+	}
+
+	private static String createContent() {
+		final StringBuilder result = new StringBuilder();
+		for (int i = 0; i < 1000; i++) {
+			result.append("<item id=\"").append(i).append("\">Some repeated content</item>\n");
+		}
+		return result.toString();
+	}
+
+}
@@ -0,0 +1,250 @@
+/*
+ * Copyright (c) 2009 Stephan Schloepke and innoQ Deutschland GmbH
+ * 
+ * Stephan Schloepke: http://www.schloepke.de/
+ * innoQ Deutschland GmbH: http://www.innoq.com/
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.jbasics.net.http;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Locale;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.jbasics.net.mediatype.MediaType;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class PooledHttpAccessorTest {
+
+	@Test
+	public void testConnectionReused() throws Exception {
+		final TestHttpServer server = new TestHttpServer(new TestHttpServer.Responder() {
+			@Override
+			public String respond(final TestHttpServer.Request request) {
+				if (request.target.equals("/chunked")) {
+					return "HTTP/1.1 200 OK\r\nContent-Type: text/plain\r\nTransfer-Encoding: chunked\r\n\r\n5\r\nHello\r\n6\r\n World\r\n0\r\n\r\n";
+				}
+				return TestHttpServer.response(200, "text/plain", "Hello " + request.target, "ETag: \"1\"",
+						"Last-Modified: Thu, 01 Jan 1970 00:00:01 GMT");
+			}
+		});
+		final PooledHttpAccessor accessor = new PooledHttpAccessor();
+		try {
+			for (int i = 0; i < 3; i++) {
+				final Collector collector = new Collector();
+				Assert.assertEquals(200, accessor.get(server.getURI("/" + i), new RequestHeaders(), collector));
+				Assert.assertEquals("Hello /" + i, collector.getText());
+				Assert.assertEquals("\"1\"", collector.meta.getETag());
+				Assert.assertEquals(1000L, collector.meta.getLastModified().getTime());
+				Assert.assertEquals("text", collector.meta.getMediaType().getType());
+			}
+			final Collector collector = new Collector();
+			accessor.setBase(server.getURI("/"));
+			Assert.assertEquals(200, accessor.get(java.net.URI.create("chunked"), new RequestHeaders(), collector));
+			Assert.assertEquals("Hello World", collector.getText());
+			// a not consumed body is skipped
+			accessor.get(server.getURI("/ignored"), new RequestHeaders(), new RequestHandler() {
+				@Override
+				public void processInput(final ResponseMeta metaData, final InputStream in) {
+					// ignore the body
+				}
+			});
+			Assert.assertEquals(1, server.getConnectionCount());
+			Assert.assertEquals(1, accessor.getIdleConnectionCount());
+			Assert.assertTrue(server.getRequests().get(0).headers.get("Host").startsWith("localhost:"));
+		} finally {
+			accessor.close();
+			server.close();
+		}
+		Assert.assertEquals(0, accessor.getIdleConnectionCount());
+	}
+
+	@Test
+	public void testEntities() throws Exception {
+		final TestHttpServer server = new TestHttpServer(new TestHttpServer.Responder() {
+			@Override
+			public String respond(final TestHttpServer.Request request) {
+				try {
+					return TestHttpServer.response(201, "text/plain", request.method + " " + new String(request.body, "UTF-8"));
+				} catch (final IOException e) {
+					throw new RuntimeException(e);
+				}
+			}
+		});
+		final PooledHttpAccessor accessor = new PooledHttpAccessor();
+		try {
+			Collector collector = new Collector();
+			Assert.assertEquals(201, accessor.post(server.getURI("/"), new CharSequenceRequestEntity("Some content"), collector));
+			Assert.assertEquals("POST Some content", collector.getText());
+			collector = new Collector();
+			Assert.assertEquals(201, accessor.put(server.getURI("/"), new StreamingEntity("Chunked content"), collector));
+			Assert.assertEquals("PUT Chunked content", collector.getText());
+			Assert.assertEquals("chunked", server.getRequests().get(1).headers.get("Transfer-Encoding"));
+			Assert.assertEquals(1, server.getConnectionCount());
+		} finally {
+			accessor.close();
+			server.close();
+		}
+	}
+
+	@Test
+	public void testServerClosingConnection() throws Exception {
+		final TestHttpServer server = new TestHttpServer(new TestHttpServer.Responder() {
+			@Override
+			public String respond(final TestHttpServer.Request request) {
+				return TestHttpServer.response(404, "text/plain", "Not found", "Connection: close");
+			}
+		});
+		final PooledHttpAccessor accessor = new PooledHttpAccessor();
+		try {
+			for (int i = 0; i < 2; i++) {
+				final Collector collector = new Collector();
+				Assert.assertEquals(404, accessor.get(server.getURI("/"), new RequestHeaders(), collector));
+				Assert.assertEquals("Not found", collector.getText());
+			}
+			Assert.assertEquals(2, server.getConnectionCount());
+			Assert.assertEquals(0, accessor.getIdleConnectionCount());
+		} finally {
+			accessor.close();
+			server.close();
+		}
+	}
+
+	@Test
+	public void testMaxConnectionsPerRoute() throws Exception {
+		final TestHttpServer server = new TestHttpServer(new TestHttpServer.Responder() {
+			@Override
+			public String respond(final TestHttpServer.Request request) {
+				return TestHttpServer.response(200, "text/plain", "OK");
+			}
+		});
+		final PooledHttpAccessor accessor = new PooledHttpAccessor(1, 0, 200, 0);
+		final CountDownLatch inHandler = new CountDownLatch(1);
+		final CountDownLatch done = new CountDownLatch(1);
+		final AtomicReference<Exception> failure = new AtomicReference<Exception>();
+		final Thread blocker = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				try {
+					accessor.get(server.getURI("/"), new RequestHeaders(), new RequestHandler() {
+						@Override
+						public void processInput(final ResponseMeta metaData, final InputStream in) throws IOException {
+							inHandler.countDown();
+							try {
+								done.await(5, TimeUnit.SECONDS);
+							} catch (final InterruptedException e) {
+								Thread.currentThread().interrupt();
+							}
+						}
+					});
+				} catch (final Exception e) {
+					failure.set(e);
+				}
+			}
+		});
+		blocker.start();
+		try {
+			Assert.assertTrue(inHandler.await(5, TimeUnit.SECONDS));
+			try {
+				accessor.get(server.getURI("/"), new RequestHeaders(), new Collector());
+				Assert.fail("Expected timeout waiting for a connection");
+			} catch (final IOException e) {
+				// expected
+			}
+			done.countDown();
+			blocker.join(5000);
+			Assert.assertNull(failure.get());
+			Assert.assertEquals(200, accessor.get(server.getURI("/"), new RequestHeaders(), new Collector()));
+			Assert.assertEquals(1, server.getConnectionCount());
+		} finally {
+			done.countDown();
+			accessor.close();
+			server.close();
+		}
+	}
+
+	static class Collector implements RequestHandler {
+		ResponseMeta meta;
+		byte[] data;
+
+		@Override
+		public void processInput(final ResponseMeta metaData, final InputStream in) throws IOException {
+			this.meta = metaData;
+			final ByteArrayOutputStream temp = new ByteArrayOutputStream();
+			final byte[] buffer = new byte[3];
+			int read;
+			while ((read = in.read(buffer)) >= 0) {
+				temp.write(buffer, 0, read);
+			}
+			this.data = temp.toByteArray();
+		}
+
+		String getText() throws IOException {
+			return new String(this.data, "UTF-8");
+		}
+	}
+
+	static class StreamingEntity extends RequestEntity<String> {
+		private final String content;
+
+		StreamingEntity(final String content) {
+			this.content = content;
+		}
+
+		@Override
+		public MediaType getContentType() {
+			return MediaType.TEXT_PLAIN_TYPE;
+		}
+
+		@Override
+		public int getContentLength() {
+			return 0;
+		}
+
+		@Override
+		public Locale getContentLanguage() {
+			return null;
+		}
+
+		@Override
+		public String getContentEncoding() {
+			return null;
+		}
+
+		@Override
+		public byte[] getContentMD5() {
+			return null;
+		}
+
+		@Override
+		public void serializeEntity(final OutputStream out) throws IOException {
+			final byte[] temp = this.content.getBytes("UTF-8");
+			out.write(temp, 0, 7);
+			out.write(temp, 7, temp.length - 7);
+		}
+	}
+
+}
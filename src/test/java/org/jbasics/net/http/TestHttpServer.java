@@ -0,0 +1,200 @@
+/*
+ * Copyright (c) 2009 Stephan Schloepke and innoQ Deutschland GmbH
+ * 
+ * Stephan Schloepke: http://www.schloepke.de/
+ * innoQ Deutschland GmbH: http://www.innoq.com/
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.jbasics.net.http;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.URI;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Minimal HTTP/1.1 server for testing accessors. Each connection is served by its own thread and kept open until
+ * the client closes it or the response asks for closing it.
+ */
+class TestHttpServer {
+
+	interface Responder {
+		String respond(Request request);
+	}
+
+	static final class Request {
+		final String method;
+		final String target;
+		final Map<String, String> headers = new TreeMap<String, String>(String.CASE_INSENSITIVE_ORDER);
+		byte[] body;
+
+		Request(final String method, final String target) {
+			this.method = method;
+			this.target = target;
+		}
+	}
+
+	private final ServerSocket serverSocket;
+	private final Responder responder;
+	private final AtomicInteger connections = new AtomicInteger();
+	private final List<Request> requests = new CopyOnWriteArrayList<Request>();
+
+	TestHttpServer(final Responder responder) throws IOException {
+		this.serverSocket = new ServerSocket(0);
+		this.responder = responder;
+		final Thread acceptor = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				try {
+					while (true) {
+						serve(TestHttpServer.this.serverSocket.accept());
+					}
+				} catch (final IOException e) {
+					// closed
+				}
+			}
+		});
+		acceptor.setDaemon(true);
+		acceptor.start();
+	}
+
+	static String response(final int status, final String contentType, final String body, final String... headers) {
+		final StringBuilder result = new StringBuilder();
+		result.append("HTTP/1.1 ").append(status).append(" Status\r\n");
+		if (contentType != null) {
+			result.append("Content-Type: ").append(contentType).append("\r\n");
+		}
+		for (final String header : headers) {
+			result.append(header).append("\r\n");
+		}
+		if (body != null) {
+			result.append("Content-Length: ").append(body.length()).append("\r\n\r\n").append(body);
+		} else {
+			result.append("\r\n");
+		}
+		return result.toString();
+	}
+
+	URI getURI(final String path) {
+		return URI.create("http://localhost:" + this.serverSocket.getLocalPort() + path);
+	}
+
+	int getConnectionCount() {
+		return this.connections.get();
+	}
+
+	List<Request> getRequests() {
+		return this.requests;
+	}
+
+	void close() throws IOException {
+		this.serverSocket.close();
+	}
+
+	private void serve(final Socket socket) {
+		this.connections.incrementAndGet();
+		final Thread worker = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				try {
+					final InputStream in = new BufferedInputStream(socket.getInputStream());
+					final OutputStream out = socket.getOutputStream();
+					Request request;
+					while ((request = readRequest(in)) != null) {
+						TestHttpServer.this.requests.add(request);
+						final String response = TestHttpServer.this.responder.respond(request);
+						out.write(response.getBytes("ISO-8859-1"));
+						out.flush();
+						if (response.contains("Connection: close")) {
+							break;
+						}
+					}
+				} catch (final IOException e) {
+					// connection dropped
+				} finally {
+					try {
+						socket.close();
+					} catch (final IOException e) {
+						// ignore
+					}
+				}
+			}
+		});
+		worker.setDaemon(true);
+		worker.start();
+	}
+
+	private Request readRequest(final InputStream in) throws IOException {
+		final String requestLine = readLine(in);
+		if (requestLine == null || requestLine.length() == 0) {
+			return null;
+		}
+		final String[] parts = requestLine.split(" ");
+		final Request result = new Request(parts[0], parts[1]);
+		String line;
+		while ((line = readLine(in)) != null && line.length() > 0) {
+			final int colon = line.indexOf(':');
+			result.headers.put(line.substring(0, colon).trim(), line.substring(colon + 1).trim());
+		}
+		final ByteArrayOutputStream body = new ByteArrayOutputStream();
+		if ("chunked".equals(result.headers.get("Transfer-Encoding"))) {
+			int size;
+			while ((size = Integer.parseInt(readLine(in), 16)) > 0) {
+				copy(in, body, size);
+				readLine(in);
+			}
+			readLine(in);
+		} else if (result.headers.containsKey("Content-Length")) {
+			copy(in, body, Integer.parseInt(result.headers.get("Content-Length")));
+		}
+		result.body = body.toByteArray();
+		return result;
+	}
+
+	private void copy(final InputStream in, final OutputStream out, final int length) throws IOException {
+		for (int i = 0; i < length; i++) {
+			out.write(in.read());
+		}
+	}
+
+	private String readLine(final InputStream in) throws IOException {
+		final StringBuilder result = new StringBuilder();
+		int c;
+		while ((c = in.read()) != '\n') {
+			if (c < 0) {
+				return null;
+			}
+			if (c != '\r') {
+				result.append((char) c);
+			}
+		}
+		return result.toString();
+	}
+
+}
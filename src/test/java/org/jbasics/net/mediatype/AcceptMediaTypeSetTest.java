@@ -25,7 +25,11 @@
 package org.jbasics.net.mediatype;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 
 import org.jbasics.testing.Java14LoggingTestCase;
 import org.junit.Test;
@@ -44,4 +48,42 @@ public class AcceptMediaTypeSetTest extends Java14LoggingTestCase {
 		this.logger.exiting(AcceptMediaTypeSetTest.class.getName(), "testSimple");
 	}
 
+	@Test
+	public void testValueOfIsCachedAndImmutable() {
+		String header = "application/xml;q=0.9, text/html, */*;q=0.1";
+		AcceptMediaTypeSet temp = AcceptMediaTypeSet.valueOf(header);
+		assertSame(temp, AcceptMediaTypeSet.valueOf(new String(header)));
+		assertTrue(temp.isImmutable());
+		assertSame(temp, temp.toImmutable());
+		assertEquals(3, temp.size());
+		assertEquals(MediaType.TEXT_HTML_TYPE, temp.matchClosest(null, MediaType.APPLICATION_XML_TYPE, MediaType.TEXT_HTML_TYPE));
+		try {
+			temp.add("text/plain");
+			fail("Expected exception");
+		} catch (UnsupportedOperationException e) {
+			// expected
+		}
+		try {
+			temp.clear();
+			fail("Expected exception");
+		} catch (UnsupportedOperationException e) {
+			// expected
+		}
+		assertEquals(3, temp.size());
+	}
+
+	@Test
+	public void testCacheIsBounded() {
+		AcceptMediaTypeSetCache cache = new AcceptMediaTypeSetCache(4);
+		for (int i = 0; i < 20; i++) {
+			assertEquals(1, cache.get("application/x-test" + i).size());
+			assertTrue(cache.size() <= 4);
+		}
+		AcceptMediaTypeSet mutable = new AcceptMediaTypeSet();
+		mutable.add("text/html");
+		assertFalse(mutable.isImmutable());
+		cache.clear();
+		assertEquals(0, cache.size());
+	}
+
 }
@@ -0,0 +1,73 @@
+/*
+ * Copyright (c) 2009 Stephan Schloepke and innoQ Deutschland GmbH
+ * 
+ * Stephan Schloepke: http://www.schloepke.de/
+ * innoQ Deutschland GmbH: http://www.innoq.com/
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.jbasics.net.mediatype;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import org.jbasics.testing.Java14LoggingTestCase;
+import org.junit.Test;
+
+public class MediaTypeNegotiatorTest extends Java14LoggingTestCase {
+	private static final MediaType[] OFFERED = new MediaType[] { MediaType.APPLICATION_XML_TYPE, MediaType.valueOf("application/json"),
+			MediaType.TEXT_HTML_TYPE, MediaType.valueOf("text/html; level=1"), MediaType.TEXT_PLAIN_TYPE, MediaType.valueOf("image/png"),
+			MediaType.valueOf("text") };
+
+	private static final String[] HEADERS = new String[] { "*/*", "text/*", "text/html", "text/html;level=1, text/html;q=0.5",
+			"text/plain;q=0.2, application/json;q=0.9, */*;q=0.1", "image/*;q=0.8, text/*;q=0.9", "*/png", "TEXT/HTML", "text",
+			"audio/basic", "audio/*; q=0.2, audio/basic", "application/xhtml+xml, application/xml;q=0.9, */*;q=0.8", "text/html;level=2",
+			"text/html; charset=utf-8; q=0.9, text/plain", "" };
+
+	@Test
+	public void testSameResultAsMatchClosest() {
+		MediaTypeNegotiator negotiator = new MediaTypeNegotiator(MediaTypeNegotiatorTest.OFFERED);
+		for (String header : MediaTypeNegotiatorTest.HEADERS) {
+			AcceptMediaTypeSet accept = new AcceptMediaTypeSet();
+			if (header.length() > 0) {
+				accept.add(header);
+			}
+			MediaType expected = accept.matchClosest(null, MediaTypeNegotiatorTest.OFFERED);
+			assertSame(header, expected, negotiator.negotiate(accept));
+			assertSame(header, expected, negotiator.negotiate(header));
+			// second time from the memo
+			assertSame(header, expected, negotiator.negotiate(header));
+		}
+	}
+
+	@Test
+	public void testDefaultAndMissingHeader() {
+		MediaType fallback = MediaType.valueOf("application/octet-stream");
+		MediaTypeNegotiator negotiator = new MediaTypeNegotiator(fallback, 2, MediaType.TEXT_PLAIN_TYPE, MediaType.TEXT_HTML_TYPE);
+		assertSame(MediaType.TEXT_PLAIN_TYPE, negotiator.negotiate((String) null));
+		assertSame(fallback, negotiator.negotiate("image/*"));
+		assertSame(MediaType.TEXT_HTML_TYPE, negotiator.negotiate("text/html"));
+		assertSame(fallback, negotiator.negotiate("audio/*"));
+		assertSame(fallback, negotiator.negotiate("image/*"));
+		assertNull(new MediaTypeNegotiator(MediaType.TEXT_PLAIN_TYPE).negotiate("image/*"));
+		assertEquals(2, negotiator.getOffered().length);
+	}
+
+}
@@ -0,0 +1,114 @@
+/*
+ * Copyright (c) 2009 Stephan Schloepke and innoQ Deutschland GmbH
+ * 
+ * Stephan Schloepke: http://www.schloepke.de/
+ * innoQ Deutschland GmbH: http://www.innoq.com/
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.jbasics.net.mediatype;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.jbasics.testing.Java14LoggingTestCase;
+import org.junit.Test;
+
+public class MediaTypeScannerTest extends Java14LoggingTestCase {
+
+	@Test
+	public void testMediaType() {
+		MediaType temp = MediaTypeScanner.parseMediaType("  Text/HTML ;\tcharset = UTF-8;level=1  ");
+		assertEquals("text", temp.getType());
+		assertEquals("html", temp.getSubType());
+		assertEquals("UTF-8", temp.getParameter("charset"));
+		assertEquals("1", temp.getParameter("level"));
+		assertEquals(new MediaType("text", "html", temp.getParameters()), temp);
+		assertNull(MediaTypeScanner.parseMediaType("text").getSubType());
+		assertInvalidMediaType("text/*");
+		assertInvalidMediaType("text/");
+		assertInvalidMediaType("text/html;");
+		assertInvalidMediaType("text/html; charset");
+		assertInvalidMediaType("text/html; =utf-8");
+		assertInvalidMediaType("1text/html");
+	}
+
+	@Test
+	public void testMediaTypeRange() {
+		assertSame(MediaTypeRange.ALL_MEDIA, MediaTypeScanner.parseMediaTypeRange("*/*"));
+		MediaTypeRange temp = MediaTypeScanner.parseMediaTypeRange("text/*; charset=utf-8");
+		assertEquals("text", temp.getType());
+		assertEquals(MediaTypeRange.WILDCARD, temp.getSubType());
+		assertEquals("utf-8", temp.getParameter("charset"));
+		try {
+			MediaTypeScanner.parseMediaTypeRange("text/**");
+			fail("Expected exception");
+		} catch (IllegalArgumentException e) {
+			assertEquals("Media type range text/** does not comply to RFC2616", e.getMessage());
+		}
+	}
+
+	@Test
+	public void testAcceptMediaTypeRange() {
+		AcceptMediaTypeRange temp = MediaTypeScanner.parseAcceptMediaTypeRange("text/html; charset=UTF-8; q=0.5; test=true");
+		assertEquals(MediaType.valueOf("text/html; charset=UTF-8"), new MediaType("text", "html", temp.getMediaTypeRange().getParameters()));
+		assertEquals(0.5d, temp.getQualifyFactor(), 0.0d);
+		assertEquals("true", temp.getAcceptParameter("test"));
+		assertEquals(0.5d, MediaTypeScanner.parseAcceptMediaTypeRange("text/html;q=.5").getQualifyFactor(), 0.0d);
+		assertEquals(1.0d, MediaTypeScanner.parseAcceptMediaTypeRange("text/html; q=1").getQualifyFactor(), 0.0d);
+		assertEquals(1.0d, MediaTypeScanner.parseAcceptMediaTypeRange("text/html; q=; test=true").getQualifyFactor(), 0.0d);
+		assertEquals(0.123d, MediaTypeScanner.parseAcceptMediaTypeRange("text/html; q=0.123").getQualifyFactor(), 0.0d);
+		assertEquals(0.12345d, MediaTypeScanner.parseAcceptMediaTypeRange("text/html; q=0.12345").getQualifyFactor(), 0.0d);
+		// Not a qualify factor so it stays a parameter of the media type range
+		temp = MediaTypeScanner.parseAcceptMediaTypeRange("text/html; q=high");
+		assertEquals(1.0d, temp.getQualifyFactor(), 0.0d);
+		assertEquals("high", temp.getMediaTypeRange().getParameter("q"));
+	}
+
+	@Test
+	public void testAcceptHeader() {
+		List<AcceptMediaTypeRange> temp = new ArrayList<AcceptMediaTypeRange>();
+		MediaTypeScanner.parseAcceptMediaTypes(" text/html;q=0.9,, application/xhtml+xml ,*/*;q=0.1 ,", temp);
+		assertEquals(3, temp.size());
+		assertEquals(AcceptMediaTypeRange.valueOf("text/html;q=0.9").toString(), temp.get(0).toString());
+		assertEquals("application/xhtml+xml", temp.get(1).getMediaTypeRange().toString());
+		assertSame(MediaTypeRange.ALL_MEDIA, temp.get(2).getMediaTypeRange());
+		try {
+			MediaTypeScanner.parseAcceptMediaTypes("text/html, text/html x, */*", temp);
+			fail("Expected exception");
+		} catch (IllegalArgumentException e) {
+			assertEquals("Accept media type text/html x does not comply to RFC2616", e.getMessage());
+		}
+	}
+
+	private static void assertInvalidMediaType(final String mediaType) {
+		try {
+			MediaTypeScanner.parseMediaType(mediaType);
+			fail("Expected exception for " + mediaType);
+		} catch (IllegalArgumentException e) {
+			assertEquals("Media type " + mediaType + " does not comply to RFC2616", e.getMessage());
+		}
+	}
+
+}
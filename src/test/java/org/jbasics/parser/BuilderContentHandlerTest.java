@@ -0,0 +1,232 @@
+/*
+ * Copyright (c) 2009 Stephan Schloepke and innoQ Deutschland GmbH
+ * 
+ * Stephan Schloepke: http://www.schloepke.de/
+ * innoQ Deutschland GmbH: http://www.innoq.com/
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.jbasics.parser;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.StringReader;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.xml.parsers.SAXParserFactory;
+
+import org.jbasics.parser.annotations.Attribute;
+import org.jbasics.parser.annotations.Comment;
+import org.jbasics.parser.annotations.Element;
+import org.jbasics.parser.annotations.ElementBuilder;
+import org.jbasics.parser.annotations.ElementImplementor;
+import org.jbasics.parser.annotations.ParallelBuild;
+import org.jbasics.pattern.builder.Builder;
+import org.jbasics.types.tuples.Pair;
+import org.junit.Test;
+import org.xml.sax.InputSource;
+import org.xml.sax.SAXException;
+import org.xml.sax.XMLReader;
+
+public class BuilderContentHandlerTest {
+	private static final String NS = "urn:test:order";
+
+	@ElementImplementor(namespace = BuilderContentHandlerTest.NS, localName = "order", builderClass = Order.class)
+	@ElementBuilder(OrderBuilder.class)
+	public static class Order {
+		final List<String> entries;
+
+		Order(final List<String> entries) {
+			this.entries = entries;
+		}
+	}
+
+	public static class OrderBuilder implements Builder<Order> {
+		private final List<String> entries = new ArrayList<String>();
+
+		@ParallelBuild
+		@Element(namespace = BuilderContentHandlerTest.NS, name = "line")
+		public void addLine(final Line line) {
+			this.entries.add(line.toString());
+		}
+
+		@Element(namespace = BuilderContentHandlerTest.NS, name = "note")
+		public void addNote(final String note) {
+			this.entries.add("note:" + note);
+		}
+
+		@Comment
+		public void addComment(final String comment) {
+			this.entries.add("comment:" + comment);
+		}
+
+		public Order build() {
+			return new Order(new ArrayList<String>(this.entries));
+		}
+
+		public void reset() {
+			this.entries.clear();
+		}
+	}
+
+	@ElementBuilder(LineBuilder.class)
+	public static class Line {
+		final Integer number;
+		final List<String> parts;
+
+		Line(final Integer number, final List<String> parts) {
+			this.number = number;
+			this.parts = parts;
+		}
+
+		@Override
+		public String toString() {
+			return this.number + ":" + this.parts;
+		}
+	}
+
+	public static class LineBuilder implements Builder<Line> {
+		private Integer number;
+		private final List<String> parts = new ArrayList<String>();
+
+		@Attribute(name = "number")
+		public void setNumber(final Integer number) {
+			this.number = number;
+		}
+
+		@Element(namespace = BuilderContentHandlerTest.NS, name = "part")
+		public void addPart(final String part) {
+			this.parts.add(part);
+		}
+
+		public Line build() {
+			return new Line(this.number, new ArrayList<String>(this.parts));
+		}
+
+		public void reset() {
+			this.number = null;
+			this.parts.clear();
+		}
+	}
+
+	@Test
+	public void testParallelElementsKeepDocumentOrder() throws Exception {
+		StringBuilder document = new StringBuilder("<order xmlns=\"urn:test:order\">");
+		List<String> expected = new ArrayList<String>();
+		for (int i = 0; i < 200; i++) {
+			document.append("<line number=\"").append(i).append("\"><part>a").append(i).append("</part><part>b</part></line>");
+			expected.add(i + ":[a" + i + ", b]");
+			if (i % 17 == 0) {
+				document.append("<note>n").append(i).append("</note>");
+				expected.add("note:n" + i);
+			}
+			if (i % 31 == 0) {
+				document.append("<!--c").append(i).append("-->");
+				expected.add("comment:c" + i);
+			}
+		}
+		document.append("</order>");
+
+		assertEquals(expected, parse(document.toString(), null).entries);
+		final ExecutorService executor = Executors.newFixedThreadPool(3);
+		final AtomicInteger executed = new AtomicInteger();
+		try {
+			assertEquals(expected, parse(document.toString(), new Executor() {
+				public void execute(final Runnable command) {
+					executed.incrementAndGet();
+					executor.execute(command);
+				}
+			}).entries);
+			assertEquals(200, executed.get());
+		} finally {
+			executor.shutdown();
+		}
+	}
+
+	@Test
+	public void testFailingParallelElement() throws Exception {
+		try {
+			parse("<order xmlns=\"urn:test:order\"><line number=\"1\"/><line number=\"x\"/></order>", null);
+			fail("Expected exception");
+		} catch (SAXException e) {
+			assertTrue(e.getMessage() != null);
+		}
+	}
+
+	@Test
+	public void testFailureCancelsParallelElements() throws Exception {
+		final List<Runnable> submitted = new ArrayList<Runnable>();
+		try {
+			parse("<order xmlns=\"urn:test:order\"><line number=\"1\"/><line number=\"2\"/><unknown/></order>", new Executor() {
+				public void execute(final Runnable command) {
+					// never run so the lines are still pending when the unknown element fails
+					submitted.add(command);
+				}
+			});
+			fail("Expected exception");
+		} catch (SAXException e) {
+			assertTrue(e.getMessage().contains("unknown"));
+		}
+		assertEquals(2, submitted.size());
+		for (Runnable task : submitted) {
+			assertTrue(((Future<?>) task).isCancelled());
+		}
+	}
+
+	@Test
+	public void testNamespacePrefixes() {
+		NamespacePrefixStack prefixes = new NamespacePrefixStack();
+		prefixes.pushMapping("a", URI.create("urn:a"));
+		prefixes.pushMapping("b", URI.create("urn:b"));
+		prefixes.pushMapping("a", URI.create("urn:inner"));
+		Map<String, URI> inScope = new HashMap<String, URI>();
+		for (Pair<String, URI> prefix : prefixes) {
+			inScope.put(prefix.left(), prefix.right());
+		}
+		assertEquals(2, inScope.size());
+		assertEquals(URI.create("urn:inner"), inScope.get("a"));
+		prefixes.popMapping("a");
+		prefixes.popMapping("b");
+		assertEquals(URI.create("urn:a"), prefixes.iterator().next().right());
+	}
+
+	private static Order parse(final String document, final Executor executor) throws Exception {
+		SAXParserFactory factory = SAXParserFactory.newInstance();
+		factory.setNamespaceAware(true);
+		XMLReader xmlReader = factory.newSAXParser().getXMLReader();
+		BuilderContentHandler<Order> handler = BuilderParserContext.<Order> getOrCreateContext(Order.class).createContentHandler();
+		handler.setParallelExecutor(executor);
+		xmlReader.setContentHandler(handler);
+		xmlReader.setProperty("http://xml.org/sax/properties/lexical-handler", handler);
+		xmlReader.parse(new InputSource(new StringReader(document)));
+		return handler.getParsingResult();
+	}
+
+}
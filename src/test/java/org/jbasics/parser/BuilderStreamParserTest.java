@@ -0,0 +1,246 @@
+/*
+ * Copyright (c) 2009 Stephan Schloepke and innoQ Deutschland GmbH
+ * 
+ * Stephan Schloepke: http://www.schloepke.de/
+ * innoQ Deutschland GmbH: http://www.innoq.com/
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.jbasics.parser;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+import javax.xml.parsers.SAXParserFactory;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+import org.jbasics.parser.annotations.Attribute;
+import org.jbasics.parser.annotations.Comment;
+import org.jbasics.parser.annotations.Content;
+import org.jbasics.parser.annotations.Element;
+import org.jbasics.parser.annotations.ElementBuilder;
+import org.jbasics.parser.annotations.ElementImplementor;
+import org.jbasics.pattern.builder.Builder;
+import org.junit.Test;
+import org.xml.sax.InputSource;
+import org.xml.sax.XMLReader;
+
+public class BuilderStreamParserTest {
+	private static final String NS = "urn:test:catalog";
+	private static final String DOCUMENT = "<?xml version=\"1.0\"?>\n<c:catalog xmlns:c=\"urn:test:catalog\" title=\"Parts\">"
+			+ "<!--first--><c:item id=\"1\">Bolt<c:name>M6</c:name></c:item>\n"
+			+ "<c:item id=\"2\"><![CDATA[Nut & washer]]><c:name>M8</c:name></c:item><c:item id=\"3\"/></c:catalog>";
+
+	@ElementImplementor(namespace = BuilderStreamParserTest.NS, localName = "catalog", builderClass = Catalog.class)
+	@ElementBuilder(CatalogBuilder.class)
+	public static class Catalog {
+		final String title;
+		final List<Item> items;
+		final List<String> comments;
+
+		Catalog(final String title, final List<Item> items, final List<String> comments) {
+			this.title = title;
+			this.items = items;
+			this.comments = comments;
+		}
+	}
+
+	public static class CatalogBuilder implements Builder<Catalog> {
+		private String title;
+		private final List<Item> items = new ArrayList<Item>();
+		private final List<String> comments = new ArrayList<String>();
+
+		@Attribute(name = "title")
+		public void setTitle(final String title) {
+			this.title = title;
+		}
+
+		@Element(namespace = BuilderStreamParserTest.NS, name = "item")
+		public void addItem(final Item item) {
+			this.items.add(item);
+		}
+
+		@Comment
+		public void addComment(final String comment) {
+			this.comments.add(comment);
+		}
+
+		public Catalog build() {
+			return new Catalog(this.title, this.items, this.comments);
+		}
+
+		public void reset() {
+			this.items.clear();
+		}
+	}
+
+	@ElementBuilder(ItemBuilder.class)
+	public static class Item {
+		final Integer id;
+		final String name;
+		final String text;
+
+		Item(final Integer id, final String name, final String text) {
+			this.id = id;
+			this.name = name;
+			this.text = text;
+		}
+
+		@Override
+		public String toString() {
+			return this.id + ":" + this.name + ":" + this.text;
+		}
+	}
+
+	public static class ItemBuilder implements Builder<Item> {
+		private Integer id;
+		private String name;
+		private final StringBuilder text = new StringBuilder();
+
+		@Attribute(name = "id")
+		public void setId(final Integer id) {
+			this.id = id;
+		}
+
+		@Element(namespace = BuilderStreamParserTest.NS, name = "name")
+		public void setName(final String name) {
+			this.name = name;
+		}
+
+		@Content
+		public void setText(final String text) {
+			this.text.append(text);
+		}
+
+		public Item build() {
+			return new Item(this.id, this.name, this.text.toString());
+		}
+
+		public void reset() {
+			this.id = null;
+		}
+	}
+
+	@ElementImplementor(namespace = BuilderStreamParserTest.NS, localName = "batch", builderClass = Batch.class)
+	@ElementBuilder(BatchBuilder.class)
+	public static class Batch {
+		final List<Item> items;
+
+		Batch(final List<Item> items) {
+			this.items = items;
+		}
+	}
+
+	public static class BatchBuilder implements Builder<Batch> {
+		private final List<Item> items = new ArrayList<Item>();
+
+		@Element(namespace = BuilderStreamParserTest.NS, name = "item")
+		public void addItem(final Item item) {
+			this.items.add(item);
+		}
+
+		public Batch build() {
+			if (this.items.isEmpty()) {
+				throw new IllegalStateException("A batch needs at least one item");
+			}
+			return new Batch(this.items);
+		}
+
+		public void reset() {
+			this.items.clear();
+		}
+	}
+
+	@Test
+	public void testSameResultAsContentHandler() throws Exception {
+		BuilderParserContext<Catalog> context = BuilderParserContext.getOrCreateContext(Catalog.class);
+		Catalog streamed = context.createStreamParser().parse(createReader(BuilderStreamParserTest.DOCUMENT));
+
+		SAXParserFactory factory = SAXParserFactory.newInstance();
+		factory.setNamespaceAware(true);
+		XMLReader xmlReader = factory.newSAXParser().getXMLReader();
+		BuilderContentHandler<Catalog> handler = context.createContentHandler();
+		xmlReader.setContentHandler(handler);
+		xmlReader.setProperty("http://xml.org/sax/properties/lexical-handler", handler);
+		xmlReader.parse(new InputSource(new StringReader(BuilderStreamParserTest.DOCUMENT)));
+		Catalog pushed = handler.getParsingResult();
+
+		assertEquals("Parts", streamed.title);
+		assertEquals("[1:M6:Bolt, 2:M8:Nut & washer, 3:null:]", streamed.items.toString());
+		assertEquals("[first]", streamed.comments.toString());
+		assertEquals(pushed.title, streamed.title);
+		assertEquals(pushed.items.toString(), streamed.items.toString());
+		assertEquals(pushed.comments, streamed.comments);
+	}
+
+	@Test
+	public void testIterateChildren() throws Exception {
+		BuilderStreamParser<Catalog> parser = BuilderParserContext.<Catalog> getOrCreateContext(Catalog.class).createStreamParser();
+		Iterator<Item> it = parser.iterateChildren(createReader(BuilderStreamParserTest.DOCUMENT), Item.class);
+		List<String> ids = new ArrayList<String>();
+		while (it.hasNext()) {
+			ids.add(String.valueOf(it.next().id));
+		}
+		assertEquals("[1, 2, 3]", ids.toString());
+		assertFalse(it.hasNext());
+	}
+
+	@Test
+	public void testIterateChildrenDoesNotBuildRoot() throws Exception {
+		String document = "<batch xmlns=\"urn:test:catalog\"><item id=\"1\"/><item id=\"2\"/></batch>";
+		BuilderStreamParser<Batch> parser = BuilderParserContext.<Batch> getOrCreateContext(Batch.class).createStreamParser();
+		Iterator<Item> it = parser.iterateChildren(createReader(document), Item.class);
+		List<String> ids = new ArrayList<String>();
+		while (it.hasNext()) {
+			ids.add(String.valueOf(it.next().id));
+		}
+		assertEquals("[1, 2]", ids.toString());
+		assertEquals(2, parser.parse(createReader(document)).items.size());
+	}
+
+	@Test
+	public void testUnknownElements() throws Exception {
+		String document = "<catalog xmlns=\"urn:test:catalog\"><item id=\"1\"><extra><name>X</name></extra><name>Y</name></item></catalog>";
+		BuilderStreamParser<Catalog> parser = BuilderParserContext.<Catalog> getOrCreateContext(Catalog.class).createStreamParser();
+		try {
+			parser.parse(createReader(document));
+			fail("Expected exception");
+		} catch (XMLStreamException e) {
+			assertTrue(e.getMessage(), e.getMessage().contains("Unrecognized element {urn:test:catalog}extra"));
+		}
+		Catalog result = parser.setSkipUnknownElements(true).parse(createReader(document));
+		assertEquals("[1:Y:]", result.items.toString());
+	}
+
+	private static XMLStreamReader createReader(final String document) throws XMLStreamException {
+		XMLInputFactory factory = XMLInputFactory.newInstance();
+		factory.setProperty(XMLInputFactory.IS_COALESCING, Boolean.FALSE);
+		return factory.createXMLStreamReader(new StringReader(document));
+	}
+
+}
@@ -0,0 +1,204 @@
+/*
+ * Copyright (c) 2009 Stephan Schloepke and innoQ Deutschland GmbH
+ * 
+ * Stephan Schloepke: http://www.schloepke.de/
+ * innoQ Deutschland GmbH: http://www.innoq.com/
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.jbasics.parser.invoker;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.xml.namespace.QName;
+
+import org.junit.Test;
+
+public class GeneratedMethodCallerStrategyTest {
+	private static final QName NAME = new QName("urn:test", "value");
+
+	public interface Sink {
+		void accept(String value);
+	}
+
+	public static class Target implements Sink {
+		final List<Object> calls = new ArrayList<Object>();
+
+		public void setName(final String name) {
+			this.calls.add(name);
+		}
+
+		public Target setValue(final QName name, final Integer value) {
+			this.calls.add(name);
+			this.calls.add(value);
+			return this;
+		}
+
+		public long addAll(final String[] values) {
+			for (String value : values) {
+				this.calls.add(value);
+			}
+			return values.length;
+		}
+
+		public void accept(final String value) {
+			this.calls.add("accepted " + value);
+		}
+
+		public void setCount(final int count) {
+			this.calls.add(Integer.valueOf(count));
+		}
+
+		public void setSize(final QName name, final long size) {
+			this.calls.add(Long.valueOf(size));
+		}
+
+		public double setRatio(final double ratio) {
+			this.calls.add(Double.valueOf(ratio));
+			return ratio;
+		}
+
+		public void setEnabled(final boolean enabled) {
+			this.calls.add(Boolean.valueOf(enabled));
+		}
+
+		public void setSeparator(final char separator) {
+			this.calls.add(Character.valueOf(separator));
+		}
+
+		public void fail(final String message) throws IOException {
+			throw new IOException(message);
+		}
+	}
+
+	static class Hidden {
+		public void setName(final String name) {
+			// not reachable from a generated class
+		}
+	}
+
+	@Test
+	public void testDirectCalls() throws Exception {
+		Target target = new Target();
+		call(Target.class.getMethod("setName", String.class), target, "first");
+		call(Target.class.getMethod("setValue", QName.class, Integer.class), target, Integer.valueOf(42));
+		call(Target.class.getMethod("addAll", String[].class), target, new String[] { "a", "b" });
+		call(Sink.class.getMethod("accept", String.class), target, "interface");
+		assertEquals("[first, " + GeneratedMethodCallerStrategyTest.NAME + ", 42, a, b, accepted interface]", target.calls.toString());
+	}
+
+	@Test
+	public void testPrimitiveCalls() throws Exception {
+		Target target = new Target();
+		call(Target.class.getMethod("setCount", int.class), target, Integer.valueOf(7));
+		call(Target.class.getMethod("setSize", QName.class, long.class), target, Long.valueOf(Long.MAX_VALUE));
+		call(Sink.class.getMethod("accept", String.class), target, "interface");
+		call(Target.class.getMethod("setRatio", double.class), target, Double.valueOf(0.5));
+		call(Target.class.getMethod("setEnabled", boolean.class), target, Boolean.TRUE);
+		call(Target.class.getMethod("setSeparator", char.class), target, Character.valueOf(';'));
+		assertEquals("[7, " + Long.MAX_VALUE + ", accepted interface, 0.5, true, ;]", target.calls.toString());
+	}
+
+	@Test
+	public void testSharedClassLoader() throws Exception {
+		MethodCaller first = GeneratedMethodCallerStrategy.SHARED_INSTANCE.createCaller(Target.class.getMethod("setName", String.class));
+		MethodCaller second = GeneratedMethodCallerStrategy.SHARED_INSTANCE.createCaller(Target.class.getMethod("setCount", int.class));
+		assertSame(first.getClass().getClassLoader(), second.getClass().getClassLoader());
+	}
+
+	@Test
+	public void testExceptionsAreWrapped() throws Exception {
+		MethodCaller caller = GeneratedMethodCallerStrategy.SHARED_INSTANCE.createCaller(Target.class.getMethod("fail", String.class));
+		try {
+			caller.call(new Target(), null, "expected");
+			fail("Expected exception");
+		} catch (InvocationTargetException e) {
+			assertTrue(e.getCause() instanceof IOException);
+			assertEquals("expected", e.getCause().getMessage());
+		}
+	}
+
+	@Test
+	public void testIllegalArguments() throws Exception {
+		MethodCaller caller = GeneratedMethodCallerStrategy.SHARED_INSTANCE.createCaller(Target.class.getMethod("setCount", int.class));
+		assertTrue(caller instanceof GeneratedMethodCaller);
+		Target target = new Target();
+		try {
+			caller.call(target, null, null);
+			fail("Expected exception");
+		} catch (IllegalArgumentException e) {
+			// null for a primitive
+		}
+		try {
+			caller.call(target, null, "7");
+			fail("Expected exception");
+		} catch (IllegalArgumentException e) {
+			// wrong type
+		}
+		try {
+			caller.call(new Object(), null, Integer.valueOf(7));
+			fail("Expected exception");
+		} catch (IllegalArgumentException e) {
+			// wrong instance
+		}
+		try {
+			caller.call(null, null, Integer.valueOf(7));
+			fail("Expected exception");
+		} catch (NullPointerException e) {
+			// no instance
+		}
+		GeneratedMethodCallerStrategy.SHARED_INSTANCE.createCaller(Target.class.getMethod("setSize", QName.class, long.class)).call(target, null,
+				Integer.valueOf(3));
+		assertEquals("[3]", target.calls.toString());
+	}
+
+	@Test
+	public void testFallback() throws Exception {
+		MethodCaller caller = GeneratedMethodCallerStrategy.SHARED_INSTANCE.createCaller(Hidden.class.getMethod("setName", String.class));
+		assertFalse(caller instanceof GeneratedMethodCaller);
+		caller.call(new Hidden(), null, "reflective");
+	}
+
+	@Test
+	public void testAttributeInvoker() throws Exception {
+		Target target = new Target();
+		AttributeInvoker<Target> invoker = AttributeInvoker.createInvoker(Target.class, Target.class.getMethod("setValue", QName.class, Integer.class),
+				GeneratedMethodCallerStrategy.SHARED_INSTANCE);
+		invoker.invoke(target, GeneratedMethodCallerStrategyTest.NAME, "12");
+		assertSame(GeneratedMethodCallerStrategyTest.NAME, target.calls.get(0));
+		assertEquals(Integer.valueOf(12), target.calls.get(1));
+	}
+
+	private static void call(final Method method, final Target target, final Object data) throws Exception {
+		MethodCaller caller = GeneratedMethodCallerStrategy.SHARED_INSTANCE.createCaller(method);
+		assertTrue(caller instanceof GeneratedMethodCaller);
+		caller.call(target, GeneratedMethodCallerStrategyTest.NAME, data);
+	}
+
+}
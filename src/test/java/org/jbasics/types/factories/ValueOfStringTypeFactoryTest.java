@@ -0,0 +1,157 @@
+/*
+ * Copyright (c) 2009 Stephan Schloepke and innoQ Deutschland GmbH
+ * 
+ * Stephan Schloepke: http://www.schloepke.de/
+ * innoQ Deutschland GmbH: http://www.innoq.com/
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.jbasics.types.factories;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.lang.ref.WeakReference;
+import java.net.URI;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.concurrent.TimeUnit;
+
+import javax.xml.namespace.QName;
+
+import org.jbasics.pattern.factory.ParameterFactory;
+import org.jbasics.xml.types.XmlSpaceType;
+import org.junit.Test;
+
+public class ValueOfStringTypeFactoryTest {
+
+	public enum Color {
+		RED, GREEN
+	}
+
+	public static class Amount {
+		private final String value;
+
+		private Amount(String value) {
+			this.value = value;
+		}
+
+		public static Amount valueOf(String value) {
+			return new Amount(value);
+		}
+
+		@Override
+		public String toString() {
+			return this.value;
+		}
+	}
+
+	@Test
+	public void testStandardTypes() {
+		assertEquals(Integer.valueOf(-42), ValueOfStringTypeFactory.getFactoryFor(Integer.TYPE).create("-42"));
+		assertEquals(Integer.valueOf(42), ValueOfStringTypeFactory.getFactoryFor(Integer.class).create("42"));
+		assertEquals(Long.valueOf(9876543210L), ValueOfStringTypeFactory.getFactoryFor(Long.TYPE).create("9876543210"));
+		assertEquals(Boolean.TRUE, ValueOfStringTypeFactory.getFactoryFor(Boolean.TYPE).create("TRUE"));
+		assertEquals(Boolean.FALSE, ValueOfStringTypeFactory.getFactoryFor(Boolean.class).create("yes"));
+		assertEquals(Short.valueOf((short) 7), ValueOfStringTypeFactory.getFactoryFor(Short.TYPE).create("7"));
+		assertEquals(Byte.valueOf((byte) 7), ValueOfStringTypeFactory.getFactoryFor(Byte.class).create("7"));
+		assertEquals(Character.valueOf('x'), ValueOfStringTypeFactory.getFactoryFor(Character.TYPE).create("x"));
+		assertEquals(Double.valueOf(1.5), ValueOfStringTypeFactory.getFactoryFor(Double.TYPE).create("1.5"));
+		assertEquals(Float.valueOf(1.5f), ValueOfStringTypeFactory.getFactoryFor(Float.class).create("1.5"));
+		assertEquals(new BigDecimal("1.50"), ValueOfStringTypeFactory.getFactoryFor(BigDecimal.class).create("1.50"));
+		assertEquals(new BigInteger("123456789012345678901234567890"), ValueOfStringTypeFactory.getFactoryFor(BigInteger.class).create(
+				"123456789012345678901234567890"));
+		assertEquals(new QName("urn:test", "a"), ValueOfStringTypeFactory.getFactoryFor(QName.class).create("{urn:test}a"));
+		assertEquals("text", ValueOfStringTypeFactory.getFactoryFor(String.class).create("text"));
+		assertNull(ValueOfStringTypeFactory.getFactoryFor(Integer.TYPE).create(null));
+	}
+
+	@Test
+	public void testInvalidValues() {
+		try {
+			ValueOfStringTypeFactory.getFactoryFor(Integer.TYPE).create("4x");
+			fail("Expected exception");
+		} catch (NumberFormatException e) {
+			// expected
+		}
+		try {
+			ValueOfStringTypeFactory.getFactoryFor(Character.class).create("xy");
+			fail("Expected exception");
+		} catch (IllegalArgumentException e) {
+			// expected
+		}
+	}
+
+	@Test
+	public void testEnumsAndFallback() {
+		assertEquals(TimeUnit.SECONDS, ValueOfStringTypeFactory.getFactoryFor(TimeUnit.class).create("SECONDS"));
+		assertEquals(XmlSpaceType.PRESERVED, ValueOfStringTypeFactory.getFactoryFor(XmlSpaceType.class).create("preserved"));
+		assertEquals(URI.create("http://example.org/"), ValueOfStringTypeFactory.getFactoryFor(URI.class).create("http://example.org/"));
+	}
+
+	@Test
+	public void testFactoriesAreCached() {
+		ParameterFactory<URI, String> factory = ValueOfStringTypeFactory.getFactoryFor(URI.class);
+		assertSame(factory, ValueOfStringTypeFactory.getFactoryFor(URI.class));
+		assertSame(ValueOfStringTypeFactory.getFactoryFor(Integer.TYPE), ValueOfStringTypeFactory.getFactoryFor(Integer.class));
+	}
+
+	@Test
+	public void testFactoryCachedWhileTypeAlive() throws Exception {
+		URL classes = ValueOfStringTypeFactoryTest.class.getProtectionDomain().getCodeSource().getLocation();
+		Class<?> type = new URLClassLoader(new URL[] { classes }, null).loadClass(Amount.class.getName());
+		WeakReference<ParameterFactory<?, String>> reference = new WeakReference<ParameterFactory<?, String>>(
+				ValueOfStringTypeFactory.getFactoryFor(type));
+		for (int i = 0; i < 5; i++) {
+			System.gc();
+			Thread.sleep(10);
+		}
+		assertNotNull(reference.get());
+		assertSame(reference.get(), ValueOfStringTypeFactory.getFactoryFor(type));
+		// the valueOf method held weakly is looked up again after it was collected
+		assertEquals("12.50", reference.get().create("12.50").toString());
+		assertSame(type, reference.get().create("1").getClass());
+	}
+
+	@Test
+	public void testClassLoaderNotPinned() throws Exception {
+		URL classes = ValueOfStringTypeFactoryTest.class.getProtectionDomain().getCodeSource().getLocation();
+		ClassLoader loader = new URLClassLoader(new URL[] { classes }, null);
+		Class<?> type = loader.loadClass(Color.class.getName());
+		assertNotSame(Color.class, type);
+		ParameterFactory<?, String> factory = ValueOfStringTypeFactory.getFactoryFor(type);
+		assertEquals("GREEN", factory.create("GREEN").toString());
+		WeakReference<ClassLoader> reference = new WeakReference<ClassLoader>(loader);
+		loader = null;
+		type = null;
+		factory = null;
+		for (int i = 0; i < 50 && reference.get() != null; i++) {
+			System.gc();
+			Thread.sleep(10);
+		}
+		assertNull(reference.get());
+	}
+
+}
@@ -0,0 +1,182 @@
+/*
+ * Copyright (c) 2009 Stephan Schloepke and innoQ Deutschland GmbH
+ * 
+ * Stephan Schloepke: http://www.schloepke.de/
+ * innoQ Deutschland GmbH: http://www.innoq.com/
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.jbasics.types.pools;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import org.jbasics.pattern.delegation.LifecycleDelegate;
+import org.jbasics.pattern.factory.Factory;
+import org.jbasics.pattern.pooling.PooledInstance;
+
+public class BlockingPoolTest {
+
+	private static class TestInstance implements LifecycleDelegate<Object> {
+		private final Object instance = new Object();
+		private boolean broken;
+		private boolean released;
+		private volatile boolean passivateFails;
+
+		@Override
+		public Object delegate() {
+			return this.instance;
+		}
+
+		@Override
+		public boolean release() {
+			this.released = true;
+			return true;
+		}
+
+		@Override
+		public void activate() {
+			if (this.broken) {
+				throw new IllegalStateException("broken"); //$NON-NLS-1$
+			}
+		}
+
+		@Override
+		public void passivate() {
+			if (this.passivateFails) {
+				throw new IllegalStateException("passivate"); //$NON-NLS-1$
+			}
+		}
+	}
+
+	private static class TestFactory implements Factory<LifecycleDelegate<Object>> {
+		private final AtomicInteger created = new AtomicInteger();
+		private TestInstance last;
+
+		@Override
+		public LifecycleDelegate<Object> newInstance() {
+			this.created.incrementAndGet();
+			return this.last = new TestInstance();
+		}
+	}
+
+	@Test
+	public void testReuseAndStatistics() {
+		final TestFactory factory = new TestFactory();
+		final BlockingPool<Object> pool = new BlockingPool<Object>(factory, 2, 2, 100);
+		final PooledInstance<Object> first = pool.aquire();
+		final Object instance = first.delegate();
+		Assert.assertEquals(1, pool.getStatistics().getActive());
+		first.release();
+		Assert.assertEquals(1, pool.getPassiveInstances().size());
+		Assert.assertSame(factory.last, pool.getManagedInstances().get(0));
+		Assert.assertSame(instance, pool.aquire().delegate());
+		Assert.assertTrue(pool.getPassiveInstances().isEmpty());
+		final BlockingPoolStatistics statistics = pool.getStatistics();
+		Assert.assertEquals(1, statistics.getCreated());
+		Assert.assertEquals(2, statistics.getBorrowed());
+		Assert.assertEquals(1, statistics.getActive());
+		Assert.assertEquals(0, statistics.getIdle());
+		pool.close();
+	}
+
+	@Test
+	public void testTimeout() {
+		final BlockingPool<Object> pool = new BlockingPool<Object>(new TestFactory(), 1, 1, 50);
+		pool.aquire().delegate();
+		try {
+			pool.aquire().delegate();
+			Assert.fail("Expected a time out");
+		} catch (final RuntimeException e) {
+			// expected
+		}
+		final BlockingPoolStatistics statistics = pool.getStatistics();
+		Assert.assertEquals(1, statistics.getTimeouts());
+		Assert.assertTrue(statistics.getMaxWaitNanos() >= 40000000L);
+		pool.close();
+	}
+
+	@Test
+	public void testWaiterWokenByDestroyedInstance() throws Exception {
+		final TestFactory factory = new TestFactory();
+		final BlockingPool<Object> pool = new BlockingPool<Object>(factory, 1, 1, 0);
+		final PooledInstance<Object> first = pool.aquire();
+		final Object instance = first.delegate();
+		final AtomicReference<Object> borrowed = new AtomicReference<Object>();
+		final Thread waiter = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				borrowed.set(pool.aquire().delegate());
+			}
+		});
+		waiter.setDaemon(true);
+		waiter.start();
+		final long end = System.currentTimeMillis() + 2000;
+		while (waiter.getState() != Thread.State.WAITING && System.currentTimeMillis() < end) {
+			Thread.sleep(10);
+		}
+		Assert.assertEquals(Thread.State.WAITING, waiter.getState());
+		factory.last.passivateFails = true;
+		first.release();
+		waiter.join(2000);
+		Assert.assertFalse("Waiter still blocked after the instance was released", waiter.isAlive()); //$NON-NLS-1$
+		Assert.assertNotNull(borrowed.get());
+		Assert.assertNotSame(instance, borrowed.get());
+		Assert.assertEquals(2, factory.created.get());
+		pool.close();
+	}
+
+	@Test
+	public void testTestOnBorrow() {
+		final TestFactory factory = new TestFactory();
+		final BlockingPool<Object> pool = new BlockingPool<Object>(factory, 1, 1, 100, 0, true);
+		final PooledInstance<Object> first = pool.aquire();
+		final Object instance = first.delegate();
+		first.release();
+		final TestInstance broken = factory.last;
+		broken.broken = true;
+		Assert.assertNotSame(instance, pool.aquire().delegate());
+		Assert.assertTrue(broken.released);
+		Assert.assertEquals(2, factory.created.get());
+		Assert.assertEquals(1, pool.getStatistics().getValidationFailures());
+		pool.close();
+	}
+
+	@Test
+	public void testIdleEviction() throws Exception {
+		final TestFactory factory = new TestFactory();
+		final BlockingPool<Object> pool = new BlockingPool<Object>(factory, 2, 2, 100, 20, false);
+		final PooledInstance<Object> first = pool.aquire();
+		first.delegate();
+		first.release();
+		Assert.assertEquals(1, pool.getStatistics().getIdle());
+		final long end = System.currentTimeMillis() + 2000;
+		while (pool.getStatistics().getIdle() > 0 && System.currentTimeMillis() < end) {
+			Thread.sleep(10);
+		}
+		Assert.assertEquals(0, pool.getStatistics().getIdle());
+		Assert.assertEquals(1, pool.getStatistics().getDestroyed());
+		Assert.assertTrue(factory.last.released);
+		pool.close();
+	}
+
+}
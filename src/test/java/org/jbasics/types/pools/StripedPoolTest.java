@@ -0,0 +1,124 @@
+/*
+ * Copyright (c) 2009 Stephan Schloepke and innoQ Deutschland GmbH
+ * 
+ * Stephan Schloepke: http://www.schloepke.de/
+ * innoQ Deutschland GmbH: http://www.innoq.com/
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.jbasics.types.pools;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import org.jbasics.pattern.factory.Factory;
+
+public class StripedPoolTest {
+
+	private static class CountingFactory implements Factory<Object> {
+		private final AtomicInteger created = new AtomicInteger();
+
+		@Override
+		public Object newInstance() {
+			this.created.incrementAndGet();
+			return new Object();
+		}
+	}
+
+	@Test
+	public void testReuse() {
+		final CountingFactory factory = new CountingFactory();
+		final StripedPool<Object> pool = new StripedPool<Object>(factory, 4);
+		final Object first = pool.acquire();
+		Assert.assertTrue(pool.release(first));
+		Assert.assertSame(first, pool.acquire());
+		Assert.assertEquals(1, factory.created.get());
+		Assert.assertFalse(pool.release(null));
+	}
+
+	@Test
+	public void testBounded() {
+		final CountingFactory factory = new CountingFactory();
+		final StripedPool<Object> pool = new StripedPool<Object>(factory, 3);
+		final List<Object> instances = new ArrayList<Object>();
+		for (int i = 0; i < 5; i++) {
+			instances.add(pool.acquire());
+		}
+		int accepted = 0;
+		for (final Object instance : instances) {
+			if (pool.release(instance)) {
+				accepted++;
+			}
+		}
+		Assert.assertEquals(3, accepted);
+		for (int i = 0; i < 5; i++) {
+			pool.acquire();
+		}
+		Assert.assertEquals(7, factory.created.get());
+	}
+
+	@Test
+	public void testDisabled() {
+		final StripedPool<Object> pool = new StripedPool<Object>(new CountingFactory(), 0);
+		Assert.assertFalse(pool.release(pool.acquire()));
+	}
+
+	@Test
+	public void testConcurrentExclusiveUse() throws Exception {
+		final StripedPool<Object> pool = new StripedPool<Object>(new CountingFactory());
+		final Map<Object, Boolean> inUse = Collections.synchronizedMap(new IdentityHashMap<Object, Boolean>());
+		final ExecutorService executor = Executors.newFixedThreadPool(16);
+		try {
+			final List<Future<Boolean>> results = new ArrayList<Future<Boolean>>();
+			for (int t = 0; t < 16; t++) {
+				results.add(executor.submit(new Callable<Boolean>() {
+					@Override
+					public Boolean call() {
+						for (int i = 0; i < 10000; i++) {
+							final Object instance = pool.acquire();
+							if (inUse.put(instance, Boolean.TRUE) != null) {
+								return Boolean.FALSE;
+							}
+							inUse.remove(instance);
+							pool.release(instance);
+						}
+						return Boolean.TRUE;
+					}
+				}));
+			}
+			for (final Future<Boolean> result : results) {
+				Assert.assertTrue("An instance was handed out twice", result.get().booleanValue());
+			}
+		} finally {
+			executor.shutdown();
+		}
+	}
+
+}
@@ -0,0 +1,139 @@
+/*
+ * Copyright (c) 2009 Stephan Schloepke and innoQ Deutschland GmbH
+ * 
+ * Stephan Schloepke: http://www.schloepke.de/
+ * innoQ Deutschland GmbH: http://www.innoq.com/
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.jbasics.xml.transform;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.OutputStreamWriter;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.net.URL;
+
+import javax.xml.transform.Templates;
+import javax.xml.transform.Transformer;
+import javax.xml.transform.stream.StreamResult;
+import javax.xml.transform.stream.StreamSource;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+@SuppressWarnings("nls")
+public class TemplatesCacheTest {
+
+	private static void writeStylesheet(final File file, final String text) throws Exception {
+		final Writer w = new OutputStreamWriter(new FileOutputStream(file), "UTF-8");
+		try {
+			w.write("<xsl:stylesheet version=\"1.0\" xmlns:xsl=\"http://www.w3.org/1999/XSL/Transform\">"
+					+ "<xsl:output method=\"text\"/><xsl:template match=\"/\">" + text + "<xsl:value-of select=\"/a\"/></xsl:template>"
+					+ "</xsl:stylesheet>");
+		} finally {
+			w.close();
+		}
+	}
+
+	private static String transform(final Transformer transformer) throws Exception {
+		final StringWriter result = new StringWriter();
+		transformer.transform(new StreamSource(new StringReader("<a>x</a>")), new StreamResult(result));
+		return result.toString();
+	}
+
+	@Test
+	public void testCachingAndInvalidation() throws Exception {
+		final File file = File.createTempFile("templates", ".xsl");
+		try {
+			TemplatesCacheTest.writeStylesheet(file, "first ");
+			final URL url = file.toURI().toURL();
+			final TemplatesCache cache = new TemplatesCache(null, 0);
+			final Templates templates = cache.getTemplates(url);
+			Assert.assertSame(templates, cache.getTemplates(url));
+			Assert.assertSame(templates, cache.getTemplates(new StreamSource(url.toExternalForm())));
+			Assert.assertEquals("first x", TemplatesCacheTest.transform(cache.getTransformer(url)));
+
+			final Transformer transformer = cache.getTransformer(url);
+			transformer.setParameter("unused", "value");
+			Assert.assertSame(transformer, cache.getTransformer(url));
+			Assert.assertNull(transformer.getParameter("unused"));
+
+			TemplatesCacheTest.writeStylesheet(file, "second ");
+			Assert.assertTrue(file.setLastModified(file.lastModified() + 2000));
+			Assert.assertNotSame(templates, cache.getTemplates(url));
+			Assert.assertEquals("second x", TemplatesCacheTest.transform(cache.getTransformer(url)));
+		} finally {
+			file.delete();
+		}
+	}
+
+	@Test
+	public void testCheckInterval() throws Exception {
+		final File file = File.createTempFile("templates", ".xsl");
+		try {
+			TemplatesCacheTest.writeStylesheet(file, "first ");
+			final URL url = file.toURI().toURL();
+			final TemplatesCache cache = new TemplatesCache(null, -1);
+			final Templates templates = cache.getTemplates(url);
+			TemplatesCacheTest.writeStylesheet(file, "second ");
+			Assert.assertTrue(file.setLastModified(file.lastModified() + 2000));
+			Assert.assertSame(templates, cache.getTemplates(url));
+		} finally {
+			file.delete();
+		}
+	}
+
+	@Test
+	public void testTransformerFactory() throws Exception {
+		final File file = File.createTempFile("templates", ".xsl");
+		try {
+			TemplatesCacheTest.writeStylesheet(file, "factory ");
+			final Transformer first = XMLTransformerFactory.SHARED_INSTANCE.create(new StreamSource(file));
+			final Transformer second = XMLTransformerFactory.SHARED_INSTANCE.create(new StreamSource(file));
+			Assert.assertNotSame(first, second);
+			Assert.assertEquals("factory x", TemplatesCacheTest.transform(second));
+		} finally {
+			file.delete();
+		}
+	}
+
+	@Test
+	public void testContentSourcesNotCached() throws Exception {
+		final File file = File.createTempFile("templates", ".xsl");
+		try {
+			TemplatesCacheTest.writeStylesheet(file, "file ");
+			final String systemId = file.toURI().toURL().toExternalForm();
+			final TemplatesCache cache = new TemplatesCache(null, -1);
+			final Templates templates = cache.getTemplates(new StreamSource(systemId));
+			final String content = "<xsl:stylesheet version=\"1.0\" xmlns:xsl=\"http://www.w3.org/1999/XSL/Transform\">"
+					+ "<xsl:output method=\"text\"/><xsl:template match=\"/\">reader <xsl:value-of select=\"/a\"/></xsl:template></xsl:stylesheet>";
+			final Templates fromReader = cache.getTemplates(new StreamSource(new StringReader(content), systemId));
+			Assert.assertNotSame(templates, fromReader);
+			Assert.assertEquals("reader x", TemplatesCacheTest.transform(fromReader.newTransformer()));
+			Assert.assertSame(templates, cache.getTemplates(new StreamSource(systemId)));
+			Assert.assertEquals("reader x", TemplatesCacheTest.transform(cache.newTransformer(new StreamSource(new StringReader(content), "no url"))));
+		} finally {
+			file.delete();
+		}
+	}
+
+}